@@ -0,0 +1,34 @@
+package ru.aiivar.tg.yt.downloader.actuator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseCache;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseCacheWarmupService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing reuse cache statistics and warm-up progress at /actuator/reusecache
+ */
+@Component
+@Endpoint(id = "reusecache")
+public class ReuseCacheEndpoint {
+
+    @Autowired
+    private ReuseCache reuseCache;
+
+    @Autowired
+    private ReuseCacheWarmupService warmupService;
+
+    @ReadOperation
+    public Map<String, Object> reuseCache() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", reuseCache.isEnabled());
+        status.put("statistics", reuseCache.getStatistics());
+        status.put("warmup", warmupService.getStatus());
+        return status;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the bandwidth shared by all concurrent downloads and uploads
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.bandwidth")
+public class BandwidthConfiguration {
+
+    /**
+     * Total download rate of all yt-dlp processes together (in KB/s); 0 means unlimited
+     */
+    private long downloadLimitKBps = 0;
+
+    /**
+     * Total upload rate of all uploads together (in KB/s); 0 means unlimited
+     */
+    private long uploadLimitKBps = 0;
+
+    /**
+     * Lowest rate given to a single download; further downloads wait for a running one to end (in KB/s)
+     */
+    private long minDownloadShareKBps = 64;
+
+    // Getters and Setters
+    public long getDownloadLimitKBps() {
+        return downloadLimitKBps;
+    }
+
+    public void setDownloadLimitKBps(long downloadLimitKBps) {
+        this.downloadLimitKBps = downloadLimitKBps;
+    }
+
+    public long getUploadLimitKBps() {
+        return uploadLimitKBps;
+    }
+
+    public void setUploadLimitKBps(long uploadLimitKBps) {
+        this.uploadLimitKBps = uploadLimitKBps;
+    }
+
+    public long getMinDownloadShareKBps() {
+        return minDownloadShareKBps;
+    }
+
+    public void setMinDownloadShareKBps(long minDownloadShareKBps) {
+        this.minDownloadShareKBps = minDownloadShareKBps;
+    }
+}
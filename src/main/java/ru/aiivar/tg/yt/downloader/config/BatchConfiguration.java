@@ -0,0 +1,53 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for playlist and channel batch ingestion
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.batch")
+public class BatchConfiguration {
+
+    /**
+     * Most videos taken from one playlist or channel; a request may ask for fewer
+     */
+    private int maxItems = 200;
+
+    /**
+     * How many videos of one batch may be processed at the same time, so one large playlist does not
+     * take every processing slot
+     */
+    private int maxParallelChildren = 2;
+
+    /**
+     * Timeout for listing the videos of a playlist or channel (in seconds)
+     */
+    private int listingTimeoutSeconds = 120;
+
+    // Getters and Setters
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    public void setMaxItems(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    public int getMaxParallelChildren() {
+        return maxParallelChildren;
+    }
+
+    public void setMaxParallelChildren(int maxParallelChildren) {
+        this.maxParallelChildren = maxParallelChildren;
+    }
+
+    public int getListingTimeoutSeconds() {
+        return listingTimeoutSeconds;
+    }
+
+    public void setListingTimeoutSeconds(int listingTimeoutSeconds) {
+        this.listingTimeoutSeconds = listingTimeoutSeconds;
+    }
+}
@@ -0,0 +1,67 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.UUID;
+
+/**
+ * Configuration properties for coordination between application instances
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.cluster")
+public class ClusterConfiguration {
+
+    /**
+     * Unique identifier of this instance, used to ignore its own change events
+     */
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Enable change events over Postgres LISTEN/NOTIFY (ignored for non-Postgres databases)
+     */
+    private boolean notificationsEnabled = true;
+
+    /**
+     * How long the listener waits for notifications in one poll (in milliseconds)
+     */
+    private int listenTimeoutMs = 5000;
+
+    /**
+     * Delay before the listener reconnects after a connection failure (in milliseconds)
+     */
+    private long reconnectDelayMs = 5000;
+
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public boolean isNotificationsEnabled() {
+        return notificationsEnabled;
+    }
+
+    public void setNotificationsEnabled(boolean notificationsEnabled) {
+        this.notificationsEnabled = notificationsEnabled;
+    }
+
+    public int getListenTimeoutMs() {
+        return listenTimeoutMs;
+    }
+
+    public void setListenTimeoutMs(int listenTimeoutMs) {
+        this.listenTimeoutMs = listenTimeoutMs;
+    }
+
+    public long getReconnectDelayMs() {
+        return reconnectDelayMs;
+    }
+
+    public void setReconnectDelayMs(long reconnectDelayMs) {
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+}
@@ -0,0 +1,106 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for downloading media files from direct HTTP(S) links
+ * The number of parallel range requests per download comes from the connection lease of the
+ * download accelerator (video.download.sources.DIRECT_HTTP.concurrent-fragments).
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.direct-http")
+public class DirectHttpConfiguration {
+
+    /**
+     * Smallest part a file is split into; smaller files are fetched with fewer requests (in KB)
+     */
+    private int minSegmentSizeKB = 4096;
+
+    /**
+     * Size of the buffer each range request reads into before writing (in KB)
+     */
+    private int bufferSizeKB = 256;
+
+    /**
+     * Times a broken range request is resumed from where it stopped before the download fails
+     */
+    private int segmentRetries = 3;
+
+    /**
+     * Timeout for establishing a connection (in seconds)
+     */
+    private int connectTimeoutSeconds = 10;
+
+    /**
+     * Timeout for the response headers of a request (in seconds)
+     */
+    private int responseTimeoutSeconds = 30;
+
+    /**
+     * User-Agent sent with every request; some file hosts reject requests without one
+     */
+    private String userAgent = "Mozilla/5.0 (compatible; tg-yt-downloader)";
+
+    /**
+     * Allow links to loopback, private and link-local addresses; only for trusted networks and tests
+     */
+    private boolean allowPrivateAddresses = false;
+
+    // Getters and Setters
+    public int getMinSegmentSizeKB() {
+        return minSegmentSizeKB;
+    }
+
+    public void setMinSegmentSizeKB(int minSegmentSizeKB) {
+        this.minSegmentSizeKB = minSegmentSizeKB;
+    }
+
+    public int getBufferSizeKB() {
+        return bufferSizeKB;
+    }
+
+    public void setBufferSizeKB(int bufferSizeKB) {
+        this.bufferSizeKB = bufferSizeKB;
+    }
+
+    public int getSegmentRetries() {
+        return segmentRetries;
+    }
+
+    public void setSegmentRetries(int segmentRetries) {
+        this.segmentRetries = segmentRetries;
+    }
+
+    public int getConnectTimeoutSeconds() {
+        return connectTimeoutSeconds;
+    }
+
+    public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+        this.connectTimeoutSeconds = connectTimeoutSeconds;
+    }
+
+    public int getResponseTimeoutSeconds() {
+        return responseTimeoutSeconds;
+    }
+
+    public void setResponseTimeoutSeconds(int responseTimeoutSeconds) {
+        this.responseTimeoutSeconds = responseTimeoutSeconds;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
+
+    public boolean isAllowPrivateAddresses() {
+        return allowPrivateAddresses;
+    }
+
+    public void setAllowPrivateAddresses(boolean allowPrivateAddresses) {
+        this.allowPrivateAddresses = allowPrivateAddresses;
+    }
+}
@@ -0,0 +1,138 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for multi-connection downloads
+ * Defaults apply to every source type; entries under video.download.sources.&lt;type&gt; override them.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.download")
+public class DownloadAcceleratorConfiguration {
+
+    /**
+     * Maximum number of connections used by all concurrent downloads together
+     */
+    private int maxTotalConnections = 16;
+
+    /**
+     * Default settings for all source types
+     */
+    private AcceleratorSettings defaults = new AcceleratorSettings(4, "10M", "", "");
+
+    /**
+     * Per source type overrides; unset fields inherit the defaults
+     */
+    private Map<SourceType, AcceleratorSettings> sources = new EnumMap<>(SourceType.class);
+
+    /**
+     * Accelerator settings for one source type
+     */
+    public static class AcceleratorSettings {
+
+        /**
+         * Number of DASH/HLS fragments downloaded in parallel (yt-dlp --concurrent-fragments)
+         */
+        private Integer concurrentFragments;
+
+        /**
+         * Size of HTTP range requests, e.g. "10M"; works around per-request throttling (yt-dlp --http-chunk-size)
+         */
+        private String httpChunkSize;
+
+        /**
+         * External downloader binary such as "aria2c"; empty uses the native downloader
+         */
+        private String externalDownloader;
+
+        /**
+         * Arguments for the external downloader; {connections} is replaced with the granted connection count
+         */
+        private String externalDownloaderArgs;
+
+        public AcceleratorSettings() {
+        }
+
+        public AcceleratorSettings(Integer concurrentFragments, String httpChunkSize, String externalDownloader,
+                                   String externalDownloaderArgs) {
+            this.concurrentFragments = concurrentFragments;
+            this.httpChunkSize = httpChunkSize;
+            this.externalDownloader = externalDownloader;
+            this.externalDownloaderArgs = externalDownloaderArgs;
+        }
+
+        /**
+         * Settings with unset fields taken from the fallback
+         */
+        public AcceleratorSettings mergedWith(AcceleratorSettings fallback) {
+            return new AcceleratorSettings(
+                    concurrentFragments != null ? concurrentFragments : fallback.concurrentFragments,
+                    httpChunkSize != null ? httpChunkSize : fallback.httpChunkSize,
+                    externalDownloader != null ? externalDownloader : fallback.externalDownloader,
+                    externalDownloaderArgs != null ? externalDownloaderArgs : fallback.externalDownloaderArgs);
+        }
+
+        // Getters and Setters
+        public Integer getConcurrentFragments() {
+            return concurrentFragments;
+        }
+
+        public void setConcurrentFragments(Integer concurrentFragments) {
+            this.concurrentFragments = concurrentFragments;
+        }
+
+        public String getHttpChunkSize() {
+            return httpChunkSize;
+        }
+
+        public void setHttpChunkSize(String httpChunkSize) {
+            this.httpChunkSize = httpChunkSize;
+        }
+
+        public String getExternalDownloader() {
+            return externalDownloader;
+        }
+
+        public void setExternalDownloader(String externalDownloader) {
+            this.externalDownloader = externalDownloader;
+        }
+
+        public String getExternalDownloaderArgs() {
+            return externalDownloaderArgs;
+        }
+
+        public void setExternalDownloaderArgs(String externalDownloaderArgs) {
+            this.externalDownloaderArgs = externalDownloaderArgs;
+        }
+    }
+
+    // Getters and Setters
+    public int getMaxTotalConnections() {
+        return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public AcceleratorSettings getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(AcceleratorSettings defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<SourceType, AcceleratorSettings> getSources() {
+        return sources;
+    }
+
+    public void setSources(Map<SourceType, AcceleratorSettings> sources) {
+        this.sources = sources;
+    }
+}
@@ -0,0 +1,65 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the local cache of downloaded media files
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.media-cache")
+public class MediaCacheConfiguration {
+
+    /**
+     * Keep downloaded files so later tasks for the same rendition skip the download
+     */
+    private boolean enabled = true;
+
+    /**
+     * Cache directory; empty uses yt_downloads/media-cache under the system temp directory
+     */
+    private String directory = "";
+
+    /**
+     * Total size of cached files above which entries are evicted (in MB)
+     */
+    private long maxTotalSizeMB = 20480;
+
+    /**
+     * Which entry to evict first: LRU (least recently used) or LFU (least frequently used)
+     */
+    private String evictionPolicy = "LRU";
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getMaxTotalSizeMB() {
+        return maxTotalSizeMB;
+    }
+
+    public void setMaxTotalSizeMB(long maxTotalSizeMB) {
+        this.maxTotalSizeMB = maxTotalSizeMB;
+    }
+
+    public String getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public void setEvictionPolicy(String evictionPolicy) {
+        this.evictionPolicy = evictionPolicy;
+    }
+}
@@ -0,0 +1,52 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for video metadata probing
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.metadata")
+public class MetadataConfiguration {
+
+    /**
+     * Cache probed metadata per canonical video ID
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * Time to live of cached metadata (in minutes); format URLs and sizes change over time
+     */
+    private long cacheTtlMinutes = 30;
+
+    /**
+     * Maximum number of videos with cached metadata
+     */
+    private int cacheMaxEntries = 2000;
+
+    // Getters and Setters
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public long getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+
+    public void setCacheTtlMinutes(long cacheTtlMinutes) {
+        this.cacheTtlMinutes = cacheTtlMinutes;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+}
@@ -0,0 +1,195 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for post-processing downloaded files before upload
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.post-processing")
+public class PostProcessingConfiguration {
+
+    /**
+     * Remux MP4 files with the index (moov atom) at the end so playback can start before the whole file arrives
+     */
+    private boolean fastStartEnabled = true;
+
+    /**
+     * ffmpeg executable
+     */
+    private String ffmpegPath = "ffmpeg";
+
+    /**
+     * Maximum number of remuxes running at the same time
+     */
+    private int maxConcurrentRemuxes = 2;
+
+    /**
+     * Timeout for one remux (in seconds)
+     */
+    private int remuxTimeoutSeconds = 300;
+
+    /**
+     * Re-encode videos that have no rendition within the destination's size limit to a bitrate that fits
+     */
+    private boolean transcodeEnabled = false;
+
+    /**
+     * Transcodes running at the same time; 0 derives it from the available processors and the threads per transcode
+     */
+    private int transcodeWorkers = 0;
+
+    /**
+     * Encoder threads used by one transcode
+     */
+    private int transcodeThreadsPerJob = 2;
+
+    /**
+     * x264 preset; faster presets need more bitrate for the same quality
+     */
+    private String transcodePreset = "veryfast";
+
+    /**
+     * Audio bitrate of transcoded videos (in kbps)
+     */
+    private int transcodeAudioBitrateKbps = 96;
+
+    /**
+     * Lowest video bitrate worth producing; videos too long to fit above it are rejected (in kbps)
+     */
+    private int transcodeMinVideoBitrateKbps = 250;
+
+    /**
+     * Share of the size limit kept free for container overhead and rate control overshoot (in percent)
+     */
+    private int transcodeSizeMarginPercent = 5;
+
+    /**
+     * Largest source downloaded for transcoding (in MB)
+     */
+    private long transcodeMaxSourceSizeMB = 1024;
+
+    /**
+     * Files at most this much larger than the fast upload limit are transcoded down to it (in percent, 0 = never)
+     */
+    private int transcodeMaxOverrunPercent = 25;
+
+    /**
+     * Timeout for one transcode (in seconds)
+     */
+    private int transcodeTimeoutSeconds = 1800;
+
+    // Getters and Setters
+    public boolean isFastStartEnabled() {
+        return fastStartEnabled;
+    }
+
+    public void setFastStartEnabled(boolean fastStartEnabled) {
+        this.fastStartEnabled = fastStartEnabled;
+    }
+
+    public String getFfmpegPath() {
+        return ffmpegPath;
+    }
+
+    public void setFfmpegPath(String ffmpegPath) {
+        this.ffmpegPath = ffmpegPath;
+    }
+
+    public int getMaxConcurrentRemuxes() {
+        return maxConcurrentRemuxes;
+    }
+
+    public void setMaxConcurrentRemuxes(int maxConcurrentRemuxes) {
+        this.maxConcurrentRemuxes = maxConcurrentRemuxes;
+    }
+
+    public int getRemuxTimeoutSeconds() {
+        return remuxTimeoutSeconds;
+    }
+
+    public void setRemuxTimeoutSeconds(int remuxTimeoutSeconds) {
+        this.remuxTimeoutSeconds = remuxTimeoutSeconds;
+    }
+
+    public boolean isTranscodeEnabled() {
+        return transcodeEnabled;
+    }
+
+    public void setTranscodeEnabled(boolean transcodeEnabled) {
+        this.transcodeEnabled = transcodeEnabled;
+    }
+
+    public int getTranscodeWorkers() {
+        return transcodeWorkers;
+    }
+
+    public void setTranscodeWorkers(int transcodeWorkers) {
+        this.transcodeWorkers = transcodeWorkers;
+    }
+
+    public int getTranscodeThreadsPerJob() {
+        return transcodeThreadsPerJob;
+    }
+
+    public void setTranscodeThreadsPerJob(int transcodeThreadsPerJob) {
+        this.transcodeThreadsPerJob = transcodeThreadsPerJob;
+    }
+
+    public String getTranscodePreset() {
+        return transcodePreset;
+    }
+
+    public void setTranscodePreset(String transcodePreset) {
+        this.transcodePreset = transcodePreset;
+    }
+
+    public int getTranscodeAudioBitrateKbps() {
+        return transcodeAudioBitrateKbps;
+    }
+
+    public void setTranscodeAudioBitrateKbps(int transcodeAudioBitrateKbps) {
+        this.transcodeAudioBitrateKbps = transcodeAudioBitrateKbps;
+    }
+
+    public int getTranscodeMinVideoBitrateKbps() {
+        return transcodeMinVideoBitrateKbps;
+    }
+
+    public void setTranscodeMinVideoBitrateKbps(int transcodeMinVideoBitrateKbps) {
+        this.transcodeMinVideoBitrateKbps = transcodeMinVideoBitrateKbps;
+    }
+
+    public int getTranscodeSizeMarginPercent() {
+        return transcodeSizeMarginPercent;
+    }
+
+    public void setTranscodeSizeMarginPercent(int transcodeSizeMarginPercent) {
+        this.transcodeSizeMarginPercent = transcodeSizeMarginPercent;
+    }
+
+    public long getTranscodeMaxSourceSizeMB() {
+        return transcodeMaxSourceSizeMB;
+    }
+
+    public void setTranscodeMaxSourceSizeMB(long transcodeMaxSourceSizeMB) {
+        this.transcodeMaxSourceSizeMB = transcodeMaxSourceSizeMB;
+    }
+
+    public int getTranscodeMaxOverrunPercent() {
+        return transcodeMaxOverrunPercent;
+    }
+
+    public void setTranscodeMaxOverrunPercent(int transcodeMaxOverrunPercent) {
+        this.transcodeMaxOverrunPercent = transcodeMaxOverrunPercent;
+    }
+
+    public int getTranscodeTimeoutSeconds() {
+        return transcodeTimeoutSeconds;
+    }
+
+    public void setTranscodeTimeoutSeconds(int transcodeTimeoutSeconds) {
+        this.transcodeTimeoutSeconds = transcodeTimeoutSeconds;
+    }
+}
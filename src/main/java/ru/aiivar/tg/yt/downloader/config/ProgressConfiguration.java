@@ -0,0 +1,79 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for live task progress, its event stream and status long-polling
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.progress")
+public class ProgressConfiguration {
+
+    /**
+     * Minimum interval between progress events of one task (in milliseconds); stage and status
+     * changes are always sent right away
+     */
+    private long publishIntervalMs = 500;
+
+    /**
+     * How long an event stream stays open before the client has to reconnect (in milliseconds)
+     */
+    private long streamTimeoutMs = 1800000;
+
+    /**
+     * How long progress of finished tasks is kept (in milliseconds)
+     */
+    private long retentionMs = 600000;
+
+    /**
+     * How long a status long-poll waits when the request gives no timeout (in milliseconds)
+     */
+    private long defaultWaitMs = 30000;
+
+    /**
+     * Longest wait a status long-poll may ask for (in milliseconds)
+     */
+    private long maxWaitMs = 60000;
+
+    // Getters and Setters
+    public long getPublishIntervalMs() {
+        return publishIntervalMs;
+    }
+
+    public void setPublishIntervalMs(long publishIntervalMs) {
+        this.publishIntervalMs = publishIntervalMs;
+    }
+
+    public long getStreamTimeoutMs() {
+        return streamTimeoutMs;
+    }
+
+    public void setStreamTimeoutMs(long streamTimeoutMs) {
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
+
+    public long getRetentionMs() {
+        return retentionMs;
+    }
+
+    public void setRetentionMs(long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+
+    public long getDefaultWaitMs() {
+        return defaultWaitMs;
+    }
+
+    public void setDefaultWaitMs(long defaultWaitMs) {
+        this.defaultWaitMs = defaultWaitMs;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    public void setMaxWaitMs(long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+}
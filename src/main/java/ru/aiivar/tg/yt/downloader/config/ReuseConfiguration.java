@@ -0,0 +1,182 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for reusing existing results
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.reuse")
+public class ReuseConfiguration {
+
+    /**
+     * Allow serving a lower-resolution rendition of the same format when no exact match exists
+     */
+    private boolean allowLowerResolutionFallback = true;
+
+    /**
+     * Minimum ratio between the fallback rendition height and the requested height (0-1)
+     */
+    private double minHeightRatio = 0.66;
+
+    /**
+     * Number of threads sending reused results (fast lane, separate from video processing)
+     */
+    private int deliveryPoolSize = 2;
+
+    /**
+     * Maximum number of queued reused-result deliveries before new ones fall back to normal processing
+     */
+    private int deliveryQueueCapacity = 100;
+
+    /**
+     * Keep reusable results in memory, kept in sync between instances by change events
+     */
+    private boolean cacheEnabled = true;
+
+    /**
+     * Maximum number of videos held by the reuse cache (least recently used are evicted)
+     */
+    private int cacheMaxVideos = 10000;
+
+    /**
+     * Maximum number of results kept per video and destination
+     */
+    private int cacheMaxResultsPerVideo = 8;
+
+    /**
+     * Time after which a cached video is reloaded from the database (in minutes)
+     */
+    private long cacheTtlMinutes = 60;
+
+    /**
+     * Preload the reuse cache from the database after startup
+     */
+    private boolean warmupEnabled = true;
+
+    /**
+     * Which videos to preload first: RECENT (most recently completed) or MOST_REQUESTED
+     */
+    private String warmupMode = "RECENT";
+
+    /**
+     * Maximum number of videos to preload
+     */
+    private int warmupMaxVideos = 5000;
+
+    /**
+     * Number of videos loaded per database round trip
+     */
+    private int warmupBatchSize = 200;
+
+    /**
+     * Pause between batches to limit database load (in milliseconds)
+     */
+    private long warmupBatchDelayMs = 50;
+
+    // Getters and Setters
+    public boolean isAllowLowerResolutionFallback() {
+        return allowLowerResolutionFallback;
+    }
+
+    public void setAllowLowerResolutionFallback(boolean allowLowerResolutionFallback) {
+        this.allowLowerResolutionFallback = allowLowerResolutionFallback;
+    }
+
+    public double getMinHeightRatio() {
+        return minHeightRatio;
+    }
+
+    public void setMinHeightRatio(double minHeightRatio) {
+        this.minHeightRatio = minHeightRatio;
+    }
+
+    public int getDeliveryPoolSize() {
+        return deliveryPoolSize;
+    }
+
+    public void setDeliveryPoolSize(int deliveryPoolSize) {
+        this.deliveryPoolSize = deliveryPoolSize;
+    }
+
+    public int getDeliveryQueueCapacity() {
+        return deliveryQueueCapacity;
+    }
+
+    public void setDeliveryQueueCapacity(int deliveryQueueCapacity) {
+        this.deliveryQueueCapacity = deliveryQueueCapacity;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheMaxVideos() {
+        return cacheMaxVideos;
+    }
+
+    public void setCacheMaxVideos(int cacheMaxVideos) {
+        this.cacheMaxVideos = cacheMaxVideos;
+    }
+
+    public int getCacheMaxResultsPerVideo() {
+        return cacheMaxResultsPerVideo;
+    }
+
+    public void setCacheMaxResultsPerVideo(int cacheMaxResultsPerVideo) {
+        this.cacheMaxResultsPerVideo = cacheMaxResultsPerVideo;
+    }
+
+    public long getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+
+    public void setCacheTtlMinutes(long cacheTtlMinutes) {
+        this.cacheTtlMinutes = cacheTtlMinutes;
+    }
+
+    public boolean isWarmupEnabled() {
+        return warmupEnabled;
+    }
+
+    public void setWarmupEnabled(boolean warmupEnabled) {
+        this.warmupEnabled = warmupEnabled;
+    }
+
+    public String getWarmupMode() {
+        return warmupMode;
+    }
+
+    public void setWarmupMode(String warmupMode) {
+        this.warmupMode = warmupMode;
+    }
+
+    public int getWarmupMaxVideos() {
+        return warmupMaxVideos;
+    }
+
+    public void setWarmupMaxVideos(int warmupMaxVideos) {
+        this.warmupMaxVideos = warmupMaxVideos;
+    }
+
+    public int getWarmupBatchSize() {
+        return warmupBatchSize;
+    }
+
+    public void setWarmupBatchSize(int warmupBatchSize) {
+        this.warmupBatchSize = warmupBatchSize;
+    }
+
+    public long getWarmupBatchDelayMs() {
+        return warmupBatchDelayMs;
+    }
+
+    public void setWarmupBatchDelayMs(long warmupBatchDelayMs) {
+        this.warmupBatchDelayMs = warmupBatchDelayMs;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for adaptive per-source request rate limiting
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.source-rate-limit")
+public class SourceRateLimitConfiguration {
+
+    /**
+     * Limit requests to each source and back off when the source starts throttling
+     */
+    private boolean enabled = true;
+
+    /**
+     * Request rate of a healthy source (downloads and metadata probes per minute)
+     */
+    private double maxRequestsPerMinute = 60;
+
+    /**
+     * Lowest rate the limiter cuts a throttled source down to
+     */
+    private double minRequestsPerMinute = 2;
+
+    /**
+     * Factor the rate is multiplied by on each throttling signal
+     */
+    private double decreaseFactor = 0.5;
+
+    /**
+     * Requests per minute added back after each successful request while recovering
+     */
+    private double recoveryStep = 2;
+
+    /**
+     * Pause after the first throttling signal; doubled for each consecutive one (in seconds)
+     */
+    private long cooldownSeconds = 60;
+
+    /**
+     * Longest pause after repeated throttling signals (in seconds)
+     */
+    private long maxCooldownSeconds = 1800;
+
+    /**
+     * Longest a task waits for its turn; tasks that would wait longer are put back into the queue (in seconds)
+     */
+    private long maxWaitSeconds = 30;
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getMaxRequestsPerMinute() {
+        return maxRequestsPerMinute;
+    }
+
+    public void setMaxRequestsPerMinute(double maxRequestsPerMinute) {
+        this.maxRequestsPerMinute = maxRequestsPerMinute;
+    }
+
+    public double getMinRequestsPerMinute() {
+        return minRequestsPerMinute;
+    }
+
+    public void setMinRequestsPerMinute(double minRequestsPerMinute) {
+        this.minRequestsPerMinute = minRequestsPerMinute;
+    }
+
+    public double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    public void setDecreaseFactor(double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    public double getRecoveryStep() {
+        return recoveryStep;
+    }
+
+    public void setRecoveryStep(double recoveryStep) {
+        this.recoveryStep = recoveryStep;
+    }
+
+    public long getCooldownSeconds() {
+        return cooldownSeconds;
+    }
+
+    public void setCooldownSeconds(long cooldownSeconds) {
+        this.cooldownSeconds = cooldownSeconds;
+    }
+
+    public long getMaxCooldownSeconds() {
+        return maxCooldownSeconds;
+    }
+
+    public void setMaxCooldownSeconds(long maxCooldownSeconds) {
+        this.maxCooldownSeconds = maxCooldownSeconds;
+    }
+
+    public long getMaxWaitSeconds() {
+        return maxWaitSeconds;
+    }
+
+    public void setMaxWaitSeconds(long maxWaitSeconds) {
+        this.maxWaitSeconds = maxWaitSeconds;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the download staging area that keeps partial downloads for resuming
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.staging")
+public class StagingConfiguration {
+
+    /**
+     * Download into a staging directory keyed by video and rendition so retries resume partial files
+     */
+    private boolean enabled = true;
+
+    /**
+     * Staging directory; empty uses yt_downloads/staging under the system temp directory
+     */
+    private String directory = "";
+
+    /**
+     * Partial downloads untouched for longer than this are deleted (in hours)
+     */
+    private long maxAgeHours = 24;
+
+    /**
+     * Total size of partial downloads above which the oldest are deleted (in MB)
+     */
+    private long maxTotalSizeMB = 10240;
+
+    /**
+     * Interval between staging area cleanups (in milliseconds)
+     */
+    private long cleanupIntervalMs = 3600000;
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public long getMaxAgeHours() {
+        return maxAgeHours;
+    }
+
+    public void setMaxAgeHours(long maxAgeHours) {
+        this.maxAgeHours = maxAgeHours;
+    }
+
+    public long getMaxTotalSizeMB() {
+        return maxTotalSizeMB;
+    }
+
+    public void setMaxTotalSizeMB(long maxTotalSizeMB) {
+        this.maxTotalSizeMB = maxTotalSizeMB;
+    }
+
+    public long getCleanupIntervalMs() {
+        return cleanupIntervalMs;
+    }
+
+    public void setCleanupIntervalMs(long cleanupIntervalMs) {
+        this.cleanupIntervalMs = cleanupIntervalMs;
+    }
+}
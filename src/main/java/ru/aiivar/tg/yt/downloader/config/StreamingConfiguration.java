@@ -0,0 +1,53 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for streaming downloads straight into the upload
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.streaming")
+public class StreamingConfiguration {
+
+    /**
+     * Pipe pre-muxed renditions from yt-dlp into the upload without a temp file; merged or remuxed
+     * renditions are always downloaded to a file first
+     */
+    private boolean enabled = false;
+
+    /**
+     * Size of the buffer between yt-dlp and the upload (in KB)
+     */
+    private int bufferSizeKB = 4096;
+
+    /**
+     * Size of the chunks written to the multipart upload (in KB)
+     */
+    private int chunkSizeKB = 64;
+
+    // Getters and Setters
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBufferSizeKB() {
+        return bufferSizeKB;
+    }
+
+    public void setBufferSizeKB(int bufferSizeKB) {
+        this.bufferSizeKB = bufferSizeKB;
+    }
+
+    public int getChunkSizeKB() {
+        return chunkSizeKB;
+    }
+
+    public void setChunkSizeKB(int chunkSizeKB) {
+        this.chunkSizeKB = chunkSizeKB;
+    }
+}
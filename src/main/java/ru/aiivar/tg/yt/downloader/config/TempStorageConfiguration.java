@@ -0,0 +1,91 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration properties for the task temp directories, split into a memory (tmpfs) and a disk tier
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.temp-storage")
+public class TempStorageConfiguration {
+
+    /**
+     * Put small downloads into the memory tier; when disabled every download goes to disk
+     */
+    private boolean memoryTierEnabled = true;
+
+    /**
+     * Memory tier directory, on a RAM-backed file system such as tmpfs
+     */
+    private String memoryDirectory = "/dev/shm/yt_downloads";
+
+    /**
+     * Space the memory tier may use for all downloads together (in MB)
+     */
+    private long memoryCapacityMB = 512;
+
+    /**
+     * Largest estimated download placed in the memory tier (in MB)
+     */
+    private long maxMemoryFileSizeMB = 100;
+
+    /**
+     * Space reserved per estimated byte; yt-dlp keeps the separate streams until they are merged
+     */
+    private double reserveFactor = 2.0;
+
+    /**
+     * Disk tier directory; empty uses yt_downloads under the system temp directory
+     */
+    private String diskDirectory = "";
+
+    // Getters and Setters
+    public boolean isMemoryTierEnabled() {
+        return memoryTierEnabled;
+    }
+
+    public void setMemoryTierEnabled(boolean memoryTierEnabled) {
+        this.memoryTierEnabled = memoryTierEnabled;
+    }
+
+    public String getMemoryDirectory() {
+        return memoryDirectory;
+    }
+
+    public void setMemoryDirectory(String memoryDirectory) {
+        this.memoryDirectory = memoryDirectory;
+    }
+
+    public long getMemoryCapacityMB() {
+        return memoryCapacityMB;
+    }
+
+    public void setMemoryCapacityMB(long memoryCapacityMB) {
+        this.memoryCapacityMB = memoryCapacityMB;
+    }
+
+    public long getMaxMemoryFileSizeMB() {
+        return maxMemoryFileSizeMB;
+    }
+
+    public void setMaxMemoryFileSizeMB(long maxMemoryFileSizeMB) {
+        this.maxMemoryFileSizeMB = maxMemoryFileSizeMB;
+    }
+
+    public double getReserveFactor() {
+        return reserveFactor;
+    }
+
+    public void setReserveFactor(double reserveFactor) {
+        this.reserveFactor = reserveFactor;
+    }
+
+    public String getDiskDirectory() {
+        return diskDirectory;
+    }
+
+    public void setDiskDirectory(String diskDirectory) {
+        this.diskDirectory = diskDirectory;
+    }
+}
@@ -23,6 +23,9 @@ public class ThreadPoolConfiguration {
     @Autowired
     private ProcessingConfiguration processingConfig;
 
+    @Autowired
+    private ReuseConfiguration reuseConfig;
+
     /**
      * Thread pool executor for video processing tasks
      */
@@ -73,4 +76,30 @@ public class ThreadPoolConfiguration {
         
         return executor;
     }
+
+    /**
+     * Thread pool executor for sending reused results
+     * Kept separate from video processing so cached deliveries never wait behind downloads.
+     * Rejects when full instead of running on the caller (the HTTP request thread).
+     */
+    @Bean(name = "reuseDeliveryExecutor")
+    public Executor reuseDeliveryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(reuseConfig.getDeliveryPoolSize());
+        executor.setMaxPoolSize(reuseConfig.getDeliveryPoolSize());
+        executor.setQueueCapacity(reuseConfig.getDeliveryQueueCapacity());
+        executor.setThreadNamePrefix("ReuseDelivery-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+
+        executor.initialize();
+
+        logger.info("Configured reuse delivery thread pool: size={}, queue={}",
+                reuseConfig.getDeliveryPoolSize(), reuseConfig.getDeliveryQueueCapacity());
+
+        return executor;
+    }
 }
@@ -0,0 +1,172 @@
+package ru.aiivar.tg.yt.downloader.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration properties for running yt-dlp
+ */
+@Configuration
+@ConfigurationProperties(prefix = "video.ytdlp")
+public class YtDlpConfiguration {
+
+    /**
+     * Run probes and downloads in long-lived yt-dlp worker processes instead of one process per call
+     */
+    private boolean workerPoolEnabled = true;
+
+    /**
+     * Number of worker processes
+     */
+    private int workerPoolSize = 2;
+
+    /**
+     * Number of jobs after which a worker is replaced with a fresh process
+     */
+    private int maxJobsPerWorker = 50;
+
+    /**
+     * Python interpreter used to run the worker script
+     */
+    private String pythonCommand = "python3";
+
+    /**
+     * Path to the worker script; the bundled script is used when empty
+     */
+    private String workerScript = "";
+
+    /**
+     * Extra environment variables for worker processes (e.g. PYTHONPATH, proxy settings)
+     */
+    private Map<String, String> workerEnvironment = new HashMap<>();
+
+    /**
+     * Maximum time to wait for a new worker to report it is ready (in seconds)
+     */
+    private int workerStartupTimeoutSeconds = 30;
+
+    /**
+     * Maximum time to wait for an idle worker before falling back to a one-shot process (in milliseconds)
+     */
+    private long workerBorrowTimeoutMs = 2000;
+
+    /**
+     * Interval between health checks of idle workers (in milliseconds)
+     */
+    private long healthCheckIntervalMs = 60000;
+
+    /**
+     * Choose the downloaded rendition from the probed format list to fit the destination's constraints
+     */
+    private boolean formatSelectionEnabled = true;
+
+    /**
+     * Maximum duration of a metadata probe (in seconds)
+     */
+    private int probeTimeoutSeconds = 60;
+
+    /**
+     * Maximum duration of a download (in minutes)
+     */
+    private int downloadTimeoutMinutes = 60;
+
+    // Getters and Setters
+    public boolean isWorkerPoolEnabled() {
+        return workerPoolEnabled;
+    }
+
+    public void setWorkerPoolEnabled(boolean workerPoolEnabled) {
+        this.workerPoolEnabled = workerPoolEnabled;
+    }
+
+    public int getWorkerPoolSize() {
+        return workerPoolSize;
+    }
+
+    public void setWorkerPoolSize(int workerPoolSize) {
+        this.workerPoolSize = workerPoolSize;
+    }
+
+    public int getMaxJobsPerWorker() {
+        return maxJobsPerWorker;
+    }
+
+    public void setMaxJobsPerWorker(int maxJobsPerWorker) {
+        this.maxJobsPerWorker = maxJobsPerWorker;
+    }
+
+    public String getPythonCommand() {
+        return pythonCommand;
+    }
+
+    public void setPythonCommand(String pythonCommand) {
+        this.pythonCommand = pythonCommand;
+    }
+
+    public String getWorkerScript() {
+        return workerScript;
+    }
+
+    public void setWorkerScript(String workerScript) {
+        this.workerScript = workerScript;
+    }
+
+    public Map<String, String> getWorkerEnvironment() {
+        return workerEnvironment;
+    }
+
+    public void setWorkerEnvironment(Map<String, String> workerEnvironment) {
+        this.workerEnvironment = workerEnvironment;
+    }
+
+    public int getWorkerStartupTimeoutSeconds() {
+        return workerStartupTimeoutSeconds;
+    }
+
+    public void setWorkerStartupTimeoutSeconds(int workerStartupTimeoutSeconds) {
+        this.workerStartupTimeoutSeconds = workerStartupTimeoutSeconds;
+    }
+
+    public long getWorkerBorrowTimeoutMs() {
+        return workerBorrowTimeoutMs;
+    }
+
+    public void setWorkerBorrowTimeoutMs(long workerBorrowTimeoutMs) {
+        this.workerBorrowTimeoutMs = workerBorrowTimeoutMs;
+    }
+
+    public long getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    public void setHealthCheckIntervalMs(long healthCheckIntervalMs) {
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+    }
+
+    public boolean isFormatSelectionEnabled() {
+        return formatSelectionEnabled;
+    }
+
+    public void setFormatSelectionEnabled(boolean formatSelectionEnabled) {
+        this.formatSelectionEnabled = formatSelectionEnabled;
+    }
+
+    public int getProbeTimeoutSeconds() {
+        return probeTimeoutSeconds;
+    }
+
+    public void setProbeTimeoutSeconds(int probeTimeoutSeconds) {
+        this.probeTimeoutSeconds = probeTimeoutSeconds;
+    }
+
+    public int getDownloadTimeoutMinutes() {
+        return downloadTimeoutMinutes;
+    }
+
+    public void setDownloadTimeoutMinutes(int downloadTimeoutMinutes) {
+        this.downloadTimeoutMinutes = downloadTimeoutMinutes;
+    }
+}
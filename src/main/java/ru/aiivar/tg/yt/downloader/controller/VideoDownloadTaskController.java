@@ -3,11 +3,16 @@ package ru.aiivar.tg.yt.downloader.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.aiivar.tg.yt.downloader.config.ProgressConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
@@ -19,12 +24,29 @@ import ru.aiivar.tg.yt.downloader.service.MemoryMonitoringService;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskExecutor;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskResultService;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskService;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.download.DownloadAccelerator;
+import ru.aiivar.tg.yt.downloader.service.download.DownloadStagingService;
+import ru.aiivar.tg.yt.downloader.service.download.LocalMediaCache;
+import ru.aiivar.tg.yt.downloader.service.download.RangedHttpDownloader;
+import ru.aiivar.tg.yt.downloader.service.download.TempStorageService;
+import ru.aiivar.tg.yt.downloader.service.metadata.VideoMetadataCache;
+import ru.aiivar.tg.yt.downloader.service.notification.TaskStatusNotifier;
+import ru.aiivar.tg.yt.downloader.service.postprocess.FastStartRemuxer;
+import ru.aiivar.tg.yt.downloader.service.postprocess.SizeTargetedTranscoder;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgressRegistry;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceRateLimiter;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpExecutor;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseCache;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseDeliveryService;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST Controller for managing video download tasks
@@ -48,6 +70,54 @@ public class VideoDownloadTaskController {
     @Autowired
     private MemoryMonitoringService memoryMonitoringService;
 
+    @Autowired
+    private ReuseDeliveryService reuseDeliveryService;
+
+    @Autowired
+    private ReuseCache reuseCache;
+
+    @Autowired
+    private VideoMetadataCache metadataCache;
+
+    @Autowired
+    private YtDlpExecutor ytDlpExecutor;
+
+    @Autowired
+    private DownloadAccelerator downloadAccelerator;
+
+    @Autowired
+    private DownloadStagingService downloadStagingService;
+
+    @Autowired
+    private LocalMediaCache localMediaCache;
+
+    @Autowired
+    private TempStorageService tempStorageService;
+
+    @Autowired
+    private FastStartRemuxer fastStartRemuxer;
+
+    @Autowired
+    private SizeTargetedTranscoder sizeTargetedTranscoder;
+
+    @Autowired
+    private BandwidthGovernor bandwidthGovernor;
+
+    @Autowired
+    private SourceRateLimiter sourceRateLimiter;
+
+    @Autowired
+    private TaskProgressRegistry progressRegistry;
+
+    @Autowired
+    private TaskStatusNotifier taskStatusNotifier;
+
+    @Autowired
+    private ProgressConfiguration progressConfig;
+
+    @Autowired
+    private RangedHttpDownloader rangedHttpDownloader;
+
     /**
      * Create a new video download task
      */
@@ -58,8 +128,8 @@ public class VideoDownloadTaskController {
         try {
             VideoDownloadTask task = taskService.createTaskWithReuseCheck(request);
             
-            String message = task.getStatus() == TaskStatus.COMPLETED ? 
-                    "Task completed by reusing existing result" : "Task created successfully";
+            String message = task.getStatus() == TaskStatus.PROCESSING ?
+                    "Task created, existing result is being delivered" : "Task created successfully";
             
             VideoDownloadResponse response = VideoDownloadResponse.builder()
                     .success(true)
@@ -81,8 +151,39 @@ public class VideoDownloadTaskController {
         }
     }
 
+    /**
+     * Create a batch task downloading the videos of a playlist or channel
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<VideoDownloadResponse> createBatchTask(@RequestBody VideoDownloadRequest request) {
+        logger.info("Creating new batch task for URL: {}", request.getUrl());
+
+        try {
+            VideoDownloadTask task = taskService.createBatchTask(request);
+
+            VideoDownloadResponse response = VideoDownloadResponse.builder()
+                    .success(true)
+                    .message("Batch task created successfully")
+                    .downloadId(task.getId())
+                    .build();
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("Error creating batch task", e);
+
+            VideoDownloadResponse response = VideoDownloadResponse.builder()
+                    .success(false)
+                    .error("Failed to create batch task: " + e.getMessage())
+                    .build();
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     /**
      * Get a task by ID
+     * The ETag follows the task's state version, so unchanged tasks answer If-None-Match with 304.
      */
     @GetMapping("/{taskId}")
     public ResponseEntity<VideoDownloadTask> getTask(@PathVariable String taskId) {
@@ -90,12 +191,94 @@ public class VideoDownloadTaskController {
 
         Optional<VideoDownloadTask> task = taskService.getTaskById(taskId);
         if (task.isPresent()) {
-            return ResponseEntity.ok(task.get());
+            return taskResponse(task.get());
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Wait until a task reaches a status, then return it
+     * Returns early when the task will not change anymore, and returns the current task when the
+     * timeout (e.g. 30s or PT30S) runs out. The request holds no thread or database connection while
+     * it waits.
+     */
+    @GetMapping(value = "/{taskId}", params = "waitFor")
+    public DeferredResult<ResponseEntity<VideoDownloadTask>> waitForTask(@PathVariable String taskId,
+                                                                         @RequestParam TaskStatus waitFor,
+                                                                         @RequestParam(required = false) String timeout) {
+        logger.debug("Waiting for task {} to become {}", taskId, waitFor);
+
+        long timeoutMs;
+        try {
+            timeoutMs = timeout != null ? DurationStyle.detectAndParse(timeout).toMillis() : progressConfig.getDefaultWaitMs();
+        } catch (IllegalArgumentException e) {
+            DeferredResult<ResponseEntity<VideoDownloadTask>> invalid = new DeferredResult<>();
+            invalid.setResult(ResponseEntity.badRequest().build());
+            return invalid;
+        }
+        // A zero timeout would disable the container's async timeout altogether
+        timeoutMs = Math.max(1, Math.min(timeoutMs, progressConfig.getMaxWaitMs()));
+
+        DeferredResult<ResponseEntity<VideoDownloadTask>> deferred = new DeferredResult<>(timeoutMs);
+        CompletableFuture<VideoDownloadTask> wait = taskStatusNotifier.awaitStatus(taskId, waitFor, taskService::getTaskById);
+        wait.whenComplete((task, error) -> {
+            if (error == null) {
+                deferred.setResult(taskResponse(task));
+            } else if (error instanceof IllegalArgumentException) {
+                deferred.setResult(ResponseEntity.notFound().build());
+            } else if (!(error instanceof CancellationException)) {
+                logger.error("Error waiting for task {}", taskId, error);
+                deferred.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            }
+        });
+        // Out of time: answer with the task as it is now
+        deferred.onTimeout(() -> deferred.setResult(getTask(taskId)));
+        deferred.onCompletion(() -> wait.cancel(false));
+        return deferred;
+    }
+
+    /**
+     * Stream status and progress changes of a task as Server-Sent Events
+     * The stream closes after the task completes, is cancelled or fails for good.
+     */
+    @GetMapping(value = "/{taskId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTaskEvents(@PathVariable String taskId) {
+        logger.info("Opening event stream for task: {}", taskId);
+
+        Optional<VideoDownloadTask> task = taskService.getTaskById(taskId);
+        if (task.isPresent()) {
+            return ResponseEntity.ok(progressRegistry.subscribe(task.get()));
         } else {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Get the video tasks of a batch
+     */
+    @GetMapping("/{taskId}/children")
+    public ResponseEntity<List<VideoDownloadTask>> getChildTasks(@PathVariable String taskId) {
+        logger.info("Getting child tasks of batch: {}", taskId);
+
+        List<VideoDownloadTask> children = taskService.getChildTasks(taskId);
+        return ResponseEntity.ok(children);
+    }
+
+    /**
+     * Get aggregate progress of a batch
+     */
+    @GetMapping("/{taskId}/batch")
+    public ResponseEntity<VideoDownloadTaskService.BatchProgress> getBatchProgress(@PathVariable String taskId) {
+        logger.info("Getting progress of batch: {}", taskId);
+
+        Optional<VideoDownloadTask> task = taskService.getTaskById(taskId);
+        if (task.isEmpty() || !task.get().isBatch()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(taskService.getBatchProgress(taskId));
+    }
+
     /**
      * Get all tasks with pagination
      */
@@ -284,6 +467,12 @@ public class VideoDownloadTaskController {
         }
     }
 
+    private ResponseEntity<VideoDownloadTask> taskResponse(VideoDownloadTask task) {
+        return ResponseEntity.ok()
+                .eTag("\"" + (task.getStateVersion() != null ? task.getStateVersion() : 0) + "\"")
+                .body(task);
+    }
+
     /**
      * Get task results
      */
@@ -521,6 +710,27 @@ public class VideoDownloadTaskController {
             // Get processing status
             VideoDownloadTaskExecutor.ProcessingStatus processingStatus = taskExecutor.getProcessingStatus();
             status.put("processingStatus", processingStatus);
+
+            // Get reuse delivery statistics
+            status.put("reuseDeliveryStatistics", reuseDeliveryService.getStatistics());
+
+            // Get reuse cache statistics
+            status.put("reuseCacheStatistics", reuseCache.getStatistics());
+
+            // Get metadata cache statistics
+            status.put("metadataCacheStatistics", metadataCache.getStatistics());
+            status.put("ytDlpStatistics", ytDlpExecutor.getStatistics());
+            status.put("downloadAcceleratorStatistics", downloadAccelerator.getStatistics());
+            status.put("downloadStagingStatistics", downloadStagingService.getStatistics());
+            status.put("mediaCacheStatistics", localMediaCache.getStatistics());
+            status.put("tempStorageStatistics", tempStorageService.getStatistics());
+            status.put("fastStartRemuxStatistics", fastStartRemuxer.getStatistics());
+            status.put("transcodeStatistics", sizeTargetedTranscoder.getStatistics());
+            status.put("bandwidthStatistics", bandwidthGovernor.getStatistics());
+            status.put("sourceRateLimitStatistics", sourceRateLimiter.getStatistics());
+            status.put("progressStatistics", progressRegistry.getStatistics());
+            status.put("taskStatusNotifierStatistics", taskStatusNotifier.getStatistics());
+            status.put("directHttpStatistics", rangedHttpDownloader.getStatistics());
             
             return ResponseEntity.ok(status);
             
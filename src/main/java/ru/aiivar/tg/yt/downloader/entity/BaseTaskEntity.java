@@ -39,6 +39,9 @@ public abstract class BaseTaskEntity extends BaseEntity {
     @Column(name = "metadata", columnDefinition = "TEXT")
     private String metadata; // JSON string for additional data
 
+    @Column(name = "state_version")
+    private Long stateVersion = 0L; // Incremented on every update, used as the ETag
+
     @PrePersist
     protected void onCreate() {
         if (getId() == null) {
@@ -51,6 +54,7 @@ public abstract class BaseTaskEntity extends BaseEntity {
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        stateVersion = stateVersion != null ? stateVersion + 1 : 1;
     }
 
     // Getters and Setters
@@ -117,4 +121,12 @@ public abstract class BaseTaskEntity extends BaseEntity {
     public void setMetadata(String metadata) {
         this.metadata = metadata;
     }
+
+    public Long getStateVersion() {
+        return stateVersion;
+    }
+
+    public void setStateVersion(Long stateVersion) {
+        this.stateVersion = stateVersion;
+    }
 }
@@ -2,6 +2,7 @@ package ru.aiivar.tg.yt.downloader.entity;
 
 import jakarta.persistence.*;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
 import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
 
 import java.time.LocalDateTime;
@@ -13,12 +14,18 @@ import java.util.List;
  * This is the main entity that gets created when a user requests a video download
  */
 @Entity
-@Table(name = "video_download_tasks")
+@Table(name = "video_download_tasks", indexes = {
+        @Index(name = "idx_video_download_tasks_canonical_video_id", columnList = "canonical_video_id"),
+        @Index(name = "idx_video_download_tasks_parent_task_id", columnList = "parent_task_id")
+})
 public class VideoDownloadTask extends BaseTaskEntity {
 
     @Column(name = "source_url", nullable = false, length = 1000)
     private String sourceUrl;
 
+    @Column(name = "canonical_video_id", length = 1000)
+    private String canonicalVideoId; // Stable video identity shared by all URL variants (e.g. "youtube:<id>")
+
     @Column(name = "source_type", nullable = false)
     @Enumerated(EnumType.STRING)
     private SourceType sourceType;
@@ -45,6 +52,12 @@ public class VideoDownloadTask extends BaseTaskEntity {
     @Column(name = "requested_resolution", length = 50)
     private String requestedResolution = "720p";
 
+    @Column(name = "video_title", length = 500)
+    private String videoTitle; // Source title, used as the upload file name (downloaded files are named by video ID)
+
+    @Column(name = "downloaded_resolution", length = 50)
+    private String downloadedResolution; // Resolution actually downloaded; lower than requested when a smaller rendition had to be chosen
+
     @Column(name = "download_started_at")
     private LocalDateTime downloadStartedAt;
 
@@ -60,6 +73,22 @@ public class VideoDownloadTask extends BaseTaskEntity {
     @Column(name = "temp_file_path", length = 500)
     private String tempFilePath;
 
+    @Column(name = "failure_reason", length = 50)
+    @Enumerated(EnumType.STRING)
+    private FailureReason failureReason;
+
+    @Column(name = "batch")
+    private Boolean batch; // Playlist or channel expanded into child tasks instead of being downloaded itself
+
+    @Column(name = "batch_max_items")
+    private Integer batchMaxItems; // Most videos a batch takes from its playlist
+
+    @Column(name = "parent_task_id", length = 36)
+    private String parentTaskId; // Batch this task was created for
+
+    @Column(name = "audio_only")
+    private Boolean audioOnly; // Only the audio track is downloaded and sent; format and resolution are ignored
+
     @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<VideoDownloadTaskResult> results = new ArrayList<>();
 
@@ -84,6 +113,14 @@ public class VideoDownloadTask extends BaseTaskEntity {
         this.sourceUrl = sourceUrl;
     }
 
+    public String getCanonicalVideoId() {
+        return canonicalVideoId;
+    }
+
+    public void setCanonicalVideoId(String canonicalVideoId) {
+        this.canonicalVideoId = canonicalVideoId;
+    }
+
     public SourceType getSourceType() {
         return sourceType;
     }
@@ -148,6 +185,22 @@ public class VideoDownloadTask extends BaseTaskEntity {
         this.requestedResolution = requestedResolution;
     }
 
+    public String getVideoTitle() {
+        return videoTitle;
+    }
+
+    public void setVideoTitle(String videoTitle) {
+        this.videoTitle = videoTitle;
+    }
+
+    public String getDownloadedResolution() {
+        return downloadedResolution;
+    }
+
+    public void setDownloadedResolution(String downloadedResolution) {
+        this.downloadedResolution = downloadedResolution;
+    }
+
     public LocalDateTime getDownloadStartedAt() {
         return downloadStartedAt;
     }
@@ -188,6 +241,46 @@ public class VideoDownloadTask extends BaseTaskEntity {
         this.tempFilePath = tempFilePath;
     }
 
+    public FailureReason getFailureReason() {
+        return failureReason;
+    }
+
+    public void setFailureReason(FailureReason failureReason) {
+        this.failureReason = failureReason;
+    }
+
+    public boolean isBatch() {
+        return Boolean.TRUE.equals(batch);
+    }
+
+    public void setBatch(Boolean batch) {
+        this.batch = batch;
+    }
+
+    public Integer getBatchMaxItems() {
+        return batchMaxItems;
+    }
+
+    public void setBatchMaxItems(Integer batchMaxItems) {
+        this.batchMaxItems = batchMaxItems;
+    }
+
+    public String getParentTaskId() {
+        return parentTaskId;
+    }
+
+    public void setParentTaskId(String parentTaskId) {
+        this.parentTaskId = parentTaskId;
+    }
+
+    public boolean isAudioOnly() {
+        return Boolean.TRUE.equals(audioOnly);
+    }
+
+    public void setAudioOnly(Boolean audioOnly) {
+        this.audioOnly = audioOnly;
+    }
+
     public List<VideoDownloadTaskResult> getResults() {
         return results;
     }
@@ -216,10 +309,15 @@ public class VideoDownloadTask extends BaseTaskEntity {
     }
 
     public boolean canRetry() {
-        return getRetryCount() < getMaxRetries() && 
+        return getRetryCount() < getMaxRetries() && failureReason != FailureReason.FILE_TOO_LARGE &&
                (isFailed() || getStatus() == ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.CANCELLED);
     }
 
+    public boolean isFinished() {
+        return isCompleted() || getStatus() == ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.CANCELLED ||
+               (isFailed() && !canRetry());
+    }
+
     public void incrementRetryCount() {
         this.setRetryCount(this.getRetryCount() + 1);
     }
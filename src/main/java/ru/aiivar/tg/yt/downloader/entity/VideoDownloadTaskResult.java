@@ -10,7 +10,9 @@ import java.time.LocalDateTime;
  * This stores the outcome of the download process, including file IDs and metadata
  */
 @Entity
-@Table(name = "video_download_task_results")
+@Table(name = "video_download_task_results", indexes = {
+        @Index(name = "idx_video_download_task_results_rendition_key", columnList = "rendition_key")
+})
 public class VideoDownloadTaskResult extends BaseTaskEntity {
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -39,6 +41,9 @@ public class VideoDownloadTaskResult extends BaseTaskEntity {
     @Column(name = "resolution", length = 50)
     private String resolution;
 
+    @Column(name = "rendition_key", length = 100)
+    private String renditionKey; // Effective format and height, e.g. "mp4/720p"
+
     @Column(name = "bitrate")
     private Long bitrate;
 
@@ -63,6 +68,9 @@ public class VideoDownloadTaskResult extends BaseTaskEntity {
     @Column(name = "processing_time_ms")
     private Long processingTimeMs;
 
+    @Column(name = "post_processing_time_ms")
+    private Long postProcessingTimeMs;
+
     @Column(name = "upload_time_ms")
     private Long uploadTimeMs;
 
@@ -148,6 +156,14 @@ public class VideoDownloadTaskResult extends BaseTaskEntity {
         this.resolution = resolution;
     }
 
+    public String getRenditionKey() {
+        return renditionKey;
+    }
+
+    public void setRenditionKey(String renditionKey) {
+        this.renditionKey = renditionKey;
+    }
+
     public Long getBitrate() {
         return bitrate;
     }
@@ -212,6 +228,14 @@ public class VideoDownloadTaskResult extends BaseTaskEntity {
         this.processingTimeMs = processingTimeMs;
     }
 
+    public Long getPostProcessingTimeMs() {
+        return postProcessingTimeMs;
+    }
+
+    public void setPostProcessingTimeMs(Long postProcessingTimeMs) {
+        this.postProcessingTimeMs = postProcessingTimeMs;
+    }
+
     public Long getUploadTimeMs() {
         return uploadTimeMs;
     }
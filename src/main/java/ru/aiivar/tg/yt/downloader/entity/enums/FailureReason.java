@@ -0,0 +1,9 @@
+package ru.aiivar.tg.yt.downloader.entity.enums;
+
+/**
+ * Enum representing why a download task failed
+ */
+public enum FailureReason {
+    ERROR,              // Download, upload or processing error; retried automatically
+    FILE_TOO_LARGE      // Video exceeds the destination's maximum file size; never retried
+}
@@ -4,7 +4,8 @@ package ru.aiivar.tg.yt.downloader.entity.enums;
  * Enum representing different video source types
  */
 public enum SourceType {
-    YOUTUBE("YouTube", "youtube.com", "youtu.be");
+    YOUTUBE("YouTube", "youtube.com", "youtu.be"),
+    DIRECT_HTTP("Direct link");
 
     private final String displayName;
     private final String[] domains;
@@ -24,6 +25,7 @@ public enum SourceType {
 
     /**
      * Determines the source type from a URL
+     * HTTP(S) URLs of no known site are treated as direct links to media files.
      */
     public static SourceType fromUrl(String url) {
         if (url == null || url.trim().isEmpty()) {
@@ -38,6 +40,9 @@ public enum SourceType {
                 }
             }
         }
+        if (lowerUrl.startsWith("http://") || lowerUrl.startsWith("https://")) {
+            return DIRECT_HTTP;
+        }
         return null;
     }
 }
@@ -14,4 +14,6 @@ public class VideoDownloadRequest {
     private String format = "mp4";
     private String resolution = "720p";
     private String quality = "best";
+    private Integer maxItems; // Batch requests only: most videos to take from the playlist or channel
+    private Boolean audioOnly; // Download only the best audio stream and send it as audio instead of video
 }
@@ -1,8 +1,10 @@
 package ru.aiivar.tg.yt.downloader.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -64,8 +66,10 @@ public interface VideoDownloadTaskRepository extends JpaRepository<VideoDownload
 
     /**
      * Find tasks that can be retried (failed or cancelled with retry count < max retries)
+     * Tasks rejected as too large are excluded since a retry would fail the same way.
      */
-    @Query("SELECT t FROM VideoDownloadTask t WHERE t.status IN :statuses AND t.retryCount < t.maxRetries")
+    @Query("SELECT t FROM VideoDownloadTask t WHERE t.status IN :statuses AND t.retryCount < t.maxRetries " +
+           "AND (t.failureReason IS NULL OR t.failureReason <> ru.aiivar.tg.yt.downloader.entity.enums.FailureReason.FILE_TOO_LARGE)")
     List<VideoDownloadTask> findRetryableTasks(@Param("statuses") List<TaskStatus> statuses);
 
     /**
@@ -114,12 +118,44 @@ public interface VideoDownloadTaskRepository extends JpaRepository<VideoDownload
      */
     long countByDestinationType(DestinationType destinationType);
 
+    /**
+     * Find a task and lock its row until the transaction ends, so that only one worker claims it
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM VideoDownloadTask t WHERE t.id = :id")
+    Optional<VideoDownloadTask> findByIdForUpdate(@Param("id") String id);
+
     /**
      * Find tasks that are stuck in processing state for too long
+     * Expanded batches stay in processing while their child tasks run, so they are not considered stuck.
      */
-    @Query("SELECT t FROM VideoDownloadTask t WHERE t.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.PROCESSING AND t.updatedAt < :cutoffTime")
+    @Query("SELECT t FROM VideoDownloadTask t WHERE t.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.PROCESSING AND t.updatedAt < :cutoffTime " +
+           "AND (t.batch IS NULL OR t.batch = false OR NOT EXISTS (SELECT c.id FROM VideoDownloadTask c WHERE c.parentTaskId = t.id))")
     List<VideoDownloadTask> findStuckProcessingTasks(@Param("cutoffTime") LocalDateTime cutoffTime);
 
+    /**
+     * Find child tasks of a batch in creation order
+     */
+    List<VideoDownloadTask> findByParentTaskIdOrderByCreatedAtAsc(String parentTaskId);
+
+    /**
+     * Count child tasks of a batch
+     */
+    long countByParentTaskId(String parentTaskId);
+
+    /**
+     * Count processing child tasks per batch
+     */
+    @Query("SELECT t.parentTaskId, COUNT(t) FROM VideoDownloadTask t WHERE t.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.PROCESSING " +
+           "AND t.parentTaskId IS NOT NULL GROUP BY t.parentTaskId")
+    List<Object[]> countProcessingTasksByParent();
+
+    /**
+     * Find batches whose child tasks are still being processed
+     */
+    @Query("SELECT t FROM VideoDownloadTask t WHERE t.batch = true AND t.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.PROCESSING")
+    List<VideoDownloadTask> findProcessingBatches();
+
     /**
      * Find tasks by multiple criteria with pagination
      */
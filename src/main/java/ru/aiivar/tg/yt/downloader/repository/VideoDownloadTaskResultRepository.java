@@ -172,43 +172,108 @@ public interface VideoDownloadTaskResultRepository extends JpaRepository<VideoDo
     List<VideoDownloadTaskResult> findByTaskIdAndDestinationType(String taskId, DestinationType destinationType);
 
     /**
-     * Find existing completed results by source URL and destination type
-     * This is used to reuse existing downloads instead of re-downloading
+     * Find existing completed results by canonical video ID and destination type
+     * This is used to reuse existing downloads instead of re-downloading.
+     * Tasks created before canonical IDs were introduced are matched by their raw source URL.
      */
     @Query("SELECT r FROM VideoDownloadTaskResult r " +
            "JOIN r.task t " +
-           "WHERE t.sourceUrl = :sourceUrl " +
+           "WHERE (t.canonicalVideoId = :canonicalVideoId " +
+           "OR (t.canonicalVideoId IS NULL AND t.sourceUrl = :sourceUrl)) " +
            "AND r.destinationType = :destinationType " +
            "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
            "AND r.destinationId IS NOT NULL " +
            "ORDER BY r.createdAt DESC")
-    List<VideoDownloadTaskResult> findExistingResultsBySourceUrlAndDestination(
-            @Param("sourceUrl") String sourceUrl, 
+    List<VideoDownloadTaskResult> findExistingResultsByCanonicalVideoIdAndDestination(
+            @Param("canonicalVideoId") String canonicalVideoId,
+            @Param("sourceUrl") String sourceUrl,
             @Param("destinationType") DestinationType destinationType);
 
     /**
-     * Find the most recent completed result by source URL and destination type
+     * Find completed results by canonical video ID, destination type and exact rendition
      */
     @Query("SELECT r FROM VideoDownloadTaskResult r " +
            "JOIN r.task t " +
-           "WHERE t.sourceUrl = :sourceUrl " +
+           "WHERE t.canonicalVideoId = :canonicalVideoId " +
+           "AND r.renditionKey = :renditionKey " +
            "AND r.destinationType = :destinationType " +
            "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
            "AND r.destinationId IS NOT NULL " +
            "ORDER BY r.createdAt DESC, r.id DESC")
-    List<VideoDownloadTaskResult> findMostRecentResultsBySourceUrlAndDestination(
-            @Param("sourceUrl") String sourceUrl, 
+    List<VideoDownloadTaskResult> findExistingResultsByCanonicalVideoIdAndRendition(
+            @Param("canonicalVideoId") String canonicalVideoId,
+            @Param("renditionKey") String renditionKey,
             @Param("destinationType") DestinationType destinationType);
 
     /**
-     * Count existing results by source URL and destination type
+     * Find the most recent completed result by canonical video ID and destination type
+     */
+    @Query("SELECT r FROM VideoDownloadTaskResult r " +
+           "JOIN r.task t " +
+           "WHERE (t.canonicalVideoId = :canonicalVideoId " +
+           "OR (t.canonicalVideoId IS NULL AND t.sourceUrl = :sourceUrl)) " +
+           "AND r.destinationType = :destinationType " +
+           "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
+           "AND r.destinationId IS NOT NULL " +
+           "ORDER BY r.createdAt DESC, r.id DESC")
+    List<VideoDownloadTaskResult> findMostRecentResultsByCanonicalVideoIdAndDestination(
+            @Param("canonicalVideoId") String canonicalVideoId,
+            @Param("sourceUrl") String sourceUrl,
+            @Param("destinationType") DestinationType destinationType);
+
+    /**
+     * Count existing results by canonical video ID and destination type
      */
     @Query("SELECT COUNT(r) FROM VideoDownloadTaskResult r " +
            "JOIN r.task t " +
-           "WHERE t.sourceUrl = :sourceUrl " +
+           "WHERE (t.canonicalVideoId = :canonicalVideoId " +
+           "OR (t.canonicalVideoId IS NULL AND t.sourceUrl = :sourceUrl)) " +
            "AND r.destinationType = :destinationType " +
            "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED")
-    long countExistingResultsBySourceUrlAndDestination(
-            @Param("sourceUrl") String sourceUrl, 
+    long countExistingResultsByCanonicalVideoIdAndDestination(
+            @Param("canonicalVideoId") String canonicalVideoId,
+            @Param("sourceUrl") String sourceUrl,
+            @Param("destinationType") DestinationType destinationType);
+
+    /**
+     * Find canonical video IDs with completed results, most recently completed first
+     */
+    @Query("SELECT t.canonicalVideoId FROM VideoDownloadTaskResult r " +
+           "JOIN r.task t " +
+           "WHERE t.canonicalVideoId IS NOT NULL " +
+           "AND r.destinationType = :destinationType " +
+           "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
+           "AND r.destinationId IS NOT NULL " +
+           "GROUP BY t.canonicalVideoId " +
+           "ORDER BY MAX(r.createdAt) DESC")
+    List<String> findRecentlyCompletedCanonicalVideoIds(
+            @Param("destinationType") DestinationType destinationType, Pageable pageable);
+
+    /**
+     * Find canonical video IDs with completed results, most requested first (every reuse adds a result)
+     */
+    @Query("SELECT t.canonicalVideoId FROM VideoDownloadTaskResult r " +
+           "JOIN r.task t " +
+           "WHERE t.canonicalVideoId IS NOT NULL " +
+           "AND r.destinationType = :destinationType " +
+           "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
+           "AND r.destinationId IS NOT NULL " +
+           "GROUP BY t.canonicalVideoId " +
+           "ORDER BY COUNT(r) DESC, MAX(r.createdAt) DESC")
+    List<String> findMostRequestedCanonicalVideoIds(
+            @Param("destinationType") DestinationType destinationType, Pageable pageable);
+
+    /**
+     * Find completed results with their tasks for a batch of canonical video IDs
+     */
+    @Query("SELECT r FROM VideoDownloadTaskResult r " +
+           "JOIN FETCH r.task t " +
+           "WHERE t.canonicalVideoId IN :canonicalVideoIds " +
+           "AND r.destinationType = :destinationType " +
+           "AND r.status = ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus.COMPLETED " +
+           "AND r.destinationId IS NOT NULL " +
+           "ORDER BY r.createdAt DESC")
+    List<VideoDownloadTaskResult> findExistingResultsByCanonicalVideoIds(
+            @Param("canonicalVideoIds") List<String> canonicalVideoIds,
             @Param("destinationType") DestinationType destinationType);
 }
@@ -122,8 +122,14 @@ public class MemoryMonitoringService {
      * Check if a file size is acceptable for processing
      */
     public boolean isFileSizeAcceptable(long fileSizeBytes) {
-        long maxFileSizeBytes = processingConfig.getMaxFileSizeMB() * 1024 * 1024;
-        return fileSizeBytes <= maxFileSizeBytes;
+        return fileSizeBytes <= getMaxFileSizeBytes();
+    }
+
+    /**
+     * Get the configured maximum file size for processing in bytes
+     */
+    public long getMaxFileSizeBytes() {
+        return processingConfig.getMaxFileSizeMB() * 1024 * 1024;
     }
 
     /**
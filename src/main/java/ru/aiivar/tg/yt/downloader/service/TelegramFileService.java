@@ -2,24 +2,39 @@ package ru.aiivar.tg.yt.downloader.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RequestCallback;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor.UploadProgressCallback;
+import ru.aiivar.tg.yt.downloader.service.progress.ProgressInputStream;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 public class TelegramFileService {
 
     private static final Logger logger = LoggerFactory.getLogger(TelegramFileService.class);
 
+    private static final ParameterizedTypeReference<Map<String, Object>> TELEGRAM_RESPONSE =
+            new ParameterizedTypeReference<>() {
+            };
+
     @Value("${telegram.bot.token}")
     private String botToken;
 
@@ -35,6 +50,9 @@ public class TelegramFileService {
     @Value("${telegram.api.local.credentials.path:/path/to/credentials.json}")
     private String localCredentialsPath;
 
+    @Autowired
+    private BandwidthGovernor bandwidthGovernor;
+
     private final RestTemplate restTemplate;
 
     public TelegramFileService() {
@@ -80,15 +98,39 @@ public class TelegramFileService {
      * @throws IOException если произошла ошибка при работе с файлом
      */
     public String uploadVideoToTelegram(File file, String caption) throws IOException {
+        return uploadVideoToTelegram(file, file.getName(), caption);
+    }
+
+    /**
+     * Отправляет видео файл в Telegram под указанным именем и возвращает fileId
+     *
+     * @param file     видео файл для отправки
+     * @param fileName имя файла, которое увидит получатель
+     * @param caption  подпись к видео (опционально)
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при работе с файлом
+     */
+    public String uploadVideoToTelegram(File file, String fileName, String caption) throws IOException {
+        return uploadVideoToTelegram(file, fileName, caption, null);
+    }
+
+    /**
+     * Отправляет видео файл в Telegram под указанным именем, сообщая о ходе отправки
+     *
+     * @param file     видео файл для отправки
+     * @param fileName имя файла, которое увидит получатель
+     * @param caption  подпись к видео (опционально)
+     * @param callback получает число отправленных байт (может быть null)
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при работе с файлом
+     */
+    public String uploadVideoToTelegram(File file, String fileName, String caption, UploadProgressCallback callback)
+            throws IOException {
         logger.info("Starting video upload to Telegram: {}", file.getName());
 
         try {
             String url = buildApiUrl("sendVideo");
 
-            // Создаем заголовки для multipart запроса
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
             // Создаем multipart данные
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
 
@@ -96,7 +138,7 @@ public class TelegramFileService {
             body.add("chat_id", chatId);
 
             // Добавляем видео файл
-            body.add("video", new org.springframework.core.io.FileSystemResource(file));
+            body.add("video", namedFileResource(file, fileName, callback));
 
             body.add("supports_streaming", true);
 
@@ -105,55 +147,105 @@ public class TelegramFileService {
                 body.add("caption", caption);
             }
 
-            // Создаем HTTP entity
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
             logger.info("Sending video to Telegram API: {}", url);
 
-            // Отправляем запрос
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
+            String fileId = extractFileId(postMultipart(url, body), "video");
+            logger.info("Video uploaded successfully to Telegram. File ID: {}", fileId);
+            return fileId;
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
+        } catch (Exception e) {
+            logger.error("Error uploading video to Telegram: {}", file.getName(), e);
+            throw new IOException("Failed to upload video to Telegram: " + e.getMessage(), e);
+        }
+    }
 
-                if (Boolean.TRUE.equals(responseBody.get("ok"))) {
-                    Map<String, Object> result = (Map<String, Object>) responseBody.get("result");
-                    Map<String, Object> video = (Map<String, Object>) result.get("video");
-                    String fileId = (String) video.get("file_id");
+    /**
+     * Отправляет видео в Telegram по мере его чтения из потока и возвращает fileId
+     * Тело multipart запроса передается частями (chunked), без промежуточного файла и без буферизации в памяти.
+     *
+     * @param in        поток с содержимым видео; ошибка чтения прерывает загрузку
+     * @param fileName  имя файла, которое увидит получатель
+     * @param caption   подпись к видео (опционально)
+     * @param chunkSize размер блока записи в байтах
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при чтении потока или отправке
+     */
+    public String uploadVideoStreamToTelegram(InputStream in, String fileName, String caption, int chunkSize)
+            throws IOException {
+        logger.info("Starting streaming video upload to Telegram: {}", fileName);
 
-                    logger.info("Video uploaded successfully to Telegram. File ID: {}", fileId);
-                    return fileId;
+        try {
+            String url = buildApiUrl("sendVideo");
+            String boundary = "tgyt-" + UUID.randomUUID();
+            InputStream throttledIn = bandwidthGovernor.throttleUpload(in);
+
+            RequestCallback requestCallback = request -> {
+                request.getHeaders().setContentType(MediaType.parseMediaType("multipart/form-data; boundary=" + boundary));
+                if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+                    streamingRequest.setBody(out -> writeVideoMultipart(out, boundary, throttledIn, fileName, caption, chunkSize));
                 } else {
-                    String errorDescription = (String) responseBody.get("description");
-                    logger.error("Telegram API returned error: {}", errorDescription);
-                    throw new IOException("Telegram API error: " + errorDescription);
+                    writeVideoMultipart(request.getBody(), boundary, throttledIn, fileName, caption, chunkSize);
                 }
-            } else {
-                logger.error("Unexpected response from Telegram API: {}", response.getStatusCode());
-                throw new IOException("Unexpected response from Telegram API: " + response.getStatusCode());
-            }
+            };
+
+            logger.info("Streaming video to Telegram API: {}", url);
+
+            ResponseEntity<Map<String, Object>> response = restTemplate.execute(
+                    url,
+                    HttpMethod.POST,
+                    requestCallback,
+                    restTemplate.responseEntityExtractor(TELEGRAM_RESPONSE.getType())
+            );
+
+            String fileId = extractFileId(requireOk(response), "video");
+            logger.info("Video streamed successfully to Telegram. File ID: {}", fileId);
+            return fileId;
 
         } catch (Exception e) {
-            logger.error("Error uploading video to Telegram: {}", file.getName(), e);
-            throw new IOException("Failed to upload video to Telegram: " + e.getMessage(), e);
+            logger.error("Error streaming video to Telegram: {}", fileName, e);
+            throw new IOException("Failed to stream video to Telegram: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Пишет multipart тело запроса sendVideo, копируя видео из потока блоками
+     */
+    private void writeVideoMultipart(OutputStream out, String boundary, InputStream in, String fileName,
+                                     String caption, int chunkSize) throws IOException {
+        StringBuilder head = new StringBuilder();
+        appendFormField(head, boundary, "chat_id", chatId);
+        appendFormField(head, boundary, "supports_streaming", "true");
+        if (caption != null && !caption.trim().isEmpty()) {
+            appendFormField(head, boundary, "caption", caption);
+        }
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"video\"; filename=\"")
+                .append(fileName.replace("\"", "_")).append("\"\r\n")
+                .append("Content-Type: application/octet-stream\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+
+        byte[] buffer = new byte[chunkSize];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void appendFormField(StringBuilder body, String boundary, String name, String value) {
+        body.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(name).append("\"\r\n\r\n")
+                .append(value).append("\r\n");
+    }
+
     public String sendVideoByFileIdToChat(String fileId, String chatId) throws IOException {
         logger.info("Sending video {} to Telegram chat: {}", fileId, chatId);
 
         try {
             String url = buildApiUrl("sendVideo");
 
-            // Создаем заголовки для multipart запроса
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
             // Создаем multipart данные
             MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
 
@@ -165,38 +257,97 @@ public class TelegramFileService {
 
             body.add("supports_streaming", true);
 
-            // Создаем HTTP entity
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
             logger.info("Sending video to Telegram API: {}", url);
 
-            // Отправляем запрос
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    requestEntity,
-                    Map.class
-            );
+            postMultipart(url, body);
+            logger.info("Video uploaded successfully to Telegram. File ID: {}", fileId);
+            return fileId;
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
+        } catch (Exception e) {
+            logger.error("Error uploading video to Telegram: {}", fileId, e);
+            throw new IOException("Failed to upload video to Telegram: " + e.getMessage(), e);
+        }
+    }
 
-                if (Boolean.TRUE.equals(responseBody.get("ok"))) {
-                    logger.info("Video uploaded successfully to Telegram. File ID: {}", fileId);
-                    return fileId;
-                } else {
-                    String errorDescription = (String) responseBody.get("description");
-                    logger.error("Telegram API returned error: {}", errorDescription);
-                    throw new IOException("Telegram API error: " + errorDescription);
-                }
-            } else {
-                logger.error("Unexpected response from Telegram API: {}", response.getStatusCode());
-                throw new IOException("Unexpected response from Telegram API: " + response.getStatusCode());
+    /**
+     * Отправляет аудио файл в Telegram методом sendAudio и возвращает fileId
+     * Файл в формате M4A или MP3 отображается получателю как трек со встроенным плеером.
+     * Через локальный Bot API сервер можно отправлять файлы больше 50MB.
+     *
+     * @param file            аудио файл для отправки
+     * @param fileName        имя файла, которое увидит получатель
+     * @param caption         подпись к аудио (опционально)
+     * @param title           название трека (опционально)
+     * @param durationSeconds длительность в секундах (опционально)
+     * @param callback        получает число отправленных байт (может быть null)
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при работе с файлом
+     */
+    public String uploadAudioToTelegram(File file, String fileName, String caption, String title, Long durationSeconds,
+                                        UploadProgressCallback callback) throws IOException {
+        logger.info("Starting audio upload to Telegram: {} ({} KB)", file.getName(), file.length() / 1024);
+
+        try {
+            String url = buildApiUrl("sendAudio");
+
+            // Создаем multipart данные
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+
+            // Добавляем chat_id
+            body.add("chat_id", chatId);
+
+            // Добавляем аудио файл
+            body.add("audio", namedFileResource(file, fileName, callback));
+
+            if (title != null && !title.isBlank()) {
+                body.add("title", title);
+            }
+            if (durationSeconds != null && durationSeconds > 0) {
+                body.add("duration", durationSeconds);
             }
 
+            // Добавляем подпись если она есть
+            if (caption != null && !caption.trim().isEmpty()) {
+                body.add("caption", caption);
+            }
+
+            logger.info("Sending audio to Telegram API: {}", url);
+
+            String fileId = extractFileId(postMultipart(url, body), "audio");
+            logger.info("Audio uploaded successfully to Telegram. File ID: {}", fileId);
+            return fileId;
+
         } catch (Exception e) {
-            logger.error("Error uploading video to Telegram: {}", fileId, e);
-            throw new IOException("Failed to upload video to Telegram: " + e.getMessage(), e);
+            logger.error("Error uploading audio to Telegram: {}", file.getName(), e);
+            throw new IOException("Failed to upload audio to Telegram: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Отправляет ранее загруженное аудио в чат по fileId
+     *
+     * @param fileId ID аудио файла в Telegram
+     * @param chatId ID чата получателя
+     * @return fileId отправленного аудио
+     * @throws IOException если Telegram вернул ошибку
+     */
+    public String sendAudioByFileIdToChat(String fileId, String chatId) throws IOException {
+        logger.info("Sending audio {} to Telegram chat: {}", fileId, chatId);
+
+        try {
+            String url = buildApiUrl("sendAudio");
+
+            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+            body.add("chat_id", chatId);
+            body.add("audio", fileId);
+
+            postMultipart(url, body);
+            logger.info("Audio sent successfully to Telegram. File ID: {}", fileId);
+            return fileId;
+
+        } catch (Exception e) {
+            logger.error("Error sending audio to Telegram: {}", fileId, e);
+            throw new IOException("Failed to send audio to Telegram: " + e.getMessage(), e);
         }
     }
 
@@ -271,6 +422,36 @@ public class TelegramFileService {
      * @throws IOException если произошла ошибка при работе с файлом
      */
     public String uploadLargeFileToTelegram(File file, String caption, boolean isVideo) throws IOException {
+        return uploadLargeFileToTelegram(file, file.getName(), caption, isVideo);
+    }
+
+    /**
+     * Отправляет большой файл (до 2GB) через локальный Bot API сервер под указанным именем
+     *
+     * @param file     файл для отправки
+     * @param fileName имя файла, которое увидит получатель
+     * @param caption  подпись к файлу
+     * @param isVideo  true если это видео файл
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при работе с файлом
+     */
+    public String uploadLargeFileToTelegram(File file, String fileName, String caption, boolean isVideo) throws IOException {
+        return uploadLargeFileToTelegram(file, fileName, caption, isVideo, null);
+    }
+
+    /**
+     * Отправляет большой файл (до 2GB) через локальный Bot API сервер, сообщая о ходе отправки
+     *
+     * @param file     файл для отправки
+     * @param fileName имя файла, которое увидит получатель
+     * @param caption  подпись к файлу
+     * @param isVideo  true если это видео файл
+     * @param callback получает число отправленных байт (может быть null)
+     * @return fileId полученный от Telegram
+     * @throws IOException если произошла ошибка при работе с файлом
+     */
+    public String uploadLargeFileToTelegram(File file, String fileName, String caption, boolean isVideo,
+                                            UploadProgressCallback callback) throws IOException {
         if (!useLocalApi) {
             throw new IOException("Local Bot API server is not configured. Cannot upload large files.");
         }
@@ -298,7 +479,7 @@ public class TelegramFileService {
 
             // Добавляем файл
             String fileField = isVideo ? "video" : "document";
-            body.add(fileField, new org.springframework.core.io.FileSystemResource(file));
+            body.add(fileField, namedFileResource(file, fileName, callback));
 
             // Добавляем подпись если она есть
             if (caption != null && !caption.trim().isEmpty()) {
@@ -344,6 +525,83 @@ public class TelegramFileService {
         }
     }
 
+    /**
+     * Отправляет multipart запрос в Bot API и возвращает тело успешного ответа
+     *
+     * @param url  URL метода Bot API
+     * @param body поля multipart запроса
+     * @return тело ответа с "ok": true
+     * @throws IOException если Telegram вернул ошибку или неожиданный ответ
+     */
+    private Map<String, Object> postMultipart(String url, MultiValueMap<String, Object> body) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return requireOk(restTemplate.exchange(url, HttpMethod.POST, new HttpEntity<>(body, headers), TELEGRAM_RESPONSE));
+    }
+
+    /**
+     * Проверяет ответ Bot API и возвращает его тело
+     *
+     * @param response ответ Bot API (может быть null)
+     * @return тело ответа с "ok": true
+     * @throws IOException если Telegram вернул ошибку или неожиданный ответ
+     */
+    private static Map<String, Object> requireOk(ResponseEntity<Map<String, Object>> response) throws IOException {
+        if (response == null || response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+            HttpStatusCode status = response != null ? response.getStatusCode() : null;
+            logger.error("Unexpected response from Telegram API: {}", status);
+            throw new IOException("Unexpected response from Telegram API: " + status);
+        }
+        Map<String, Object> responseBody = response.getBody();
+        if (!Boolean.TRUE.equals(responseBody.get("ok"))) {
+            Object errorDescription = responseBody.get("description");
+            logger.error("Telegram API returned error: {}", errorDescription);
+            throw new IOException("Telegram API error: " + errorDescription);
+        }
+        return responseBody;
+    }
+
+    /**
+     * Достает fileId отправленного медиа из ответа Bot API
+     *
+     * @param responseBody тело успешного ответа
+     * @param mediaField   поле сообщения с медиа ("video", "audio")
+     * @return fileId медиа
+     * @throws IOException если в ответе нет такого медиа
+     */
+    private static String extractFileId(Map<String, Object> responseBody, String mediaField) throws IOException {
+        if (responseBody.get("result") instanceof Map<?, ?> message
+                && message.get(mediaField) instanceof Map<?, ?> media
+                && media.get("file_id") instanceof String fileId) {
+            return fileId;
+        }
+        throw new IOException("Telegram API response has no " + mediaField + " file_id");
+    }
+
+    /**
+     * Файл для multipart запроса с именем, отличным от имени на диске
+     * Содержимое читается в пределах общего лимита скорости отправки.
+     *
+     * @param file     файл на диске
+     * @param fileName имя файла в запросе
+     * @param callback получает число отправленных байт (может быть null)
+     * @return ресурс для multipart запроса
+     */
+    private FileSystemResource namedFileResource(File file, String fileName, UploadProgressCallback callback) {
+        return new FileSystemResource(file) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return new ProgressInputStream(bandwidthGovernor.throttleUpload(super.getInputStream()), callback,
+                        file.length());
+            }
+        };
+    }
+
     /**
      * Проверяет доступность Telegram Bot API
      *
@@ -7,12 +7,16 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.BatchConfiguration;
 import ru.aiivar.tg.yt.downloader.config.ProcessingConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceRateLimiter;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
@@ -35,6 +39,12 @@ public class VideoDownloadTaskExecutor {
     @Autowired
     private ProcessingConfiguration processingConfig;
 
+    @Autowired
+    private SourceRateLimiter sourceRateLimiter;
+
+    @Autowired
+    private BatchConfiguration batchConfig;
+
     @Autowired
     @Qualifier("videoProcessingExecutor")
     private Executor videoProcessingExecutor;
@@ -65,7 +75,14 @@ public class VideoDownloadTaskExecutor {
                 return;
             }
 
-            List<VideoDownloadTask> pendingTasks = taskService.getPendingTasksOrderedByPriority();
+            // Tasks of sources that are cooling down after throttling would only be deferred again
+            // Videos of one batch take at most a few slots, so other requests are not queued behind a playlist
+            Map<String, Long> runningChildren = new HashMap<>(taskService.getProcessingChildCounts());
+            List<VideoDownloadTask> pendingTasks = taskService.getPendingTasksOrderedByPriority().stream()
+                    .filter(task -> sourceRateLimiter.isAvailable(task.getSourceType()))
+                    .filter(task -> task.getParentTaskId() == null
+                            || runningChildren.merge(task.getParentTaskId(), 1L, Long::sum) <= batchConfig.getMaxParallelChildren())
+                    .toList();
             
             if (pendingTasks.isEmpty()) {
                 logger.debug("No pending tasks found");
@@ -162,6 +179,24 @@ public class VideoDownloadTaskExecutor {
         }
     }
 
+    /**
+     * Scheduled task to complete batches whose videos have all finished
+     */
+    @Scheduled(fixedDelayString = "${video.batch.completion-check-interval-ms:15000}")
+    public void completeFinishedBatches() {
+        logger.debug("Checking for finished batches");
+
+        try {
+            int completed = taskService.completeFinishedBatches();
+            if (completed > 0) {
+                logger.info("Completed {} finished batches", completed);
+            }
+
+        } catch (Exception e) {
+            logger.error("Error in scheduled batch completion", e);
+        }
+    }
+
     /**
      * Scheduled task to clean up old tasks
      */
@@ -6,6 +6,7 @@ import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
 import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+import ru.aiivar.tg.yt.downloader.service.reuse.RenditionKey;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -186,11 +187,23 @@ public interface VideoDownloadTaskResultService {
      */
     boolean hasExistingResult(String sourceUrl, DestinationType destinationType);
 
+    /**
+     * Find the existing result that best matches the requested rendition
+     * Falls back to the closest compatible rendition when there is no exact match
+     */
+    Optional<VideoDownloadTaskResult> findReusableResult(String sourceUrl, DestinationType destinationType,
+                                                        RenditionKey requestedRendition);
+
     /**
      * Reuse an existing result for a new task
      */
     VideoDownloadTaskResult reuseExistingResult(String sourceUrl, DestinationType destinationType, VideoDownloadTask newTask);
 
+    /**
+     * Reuse the given existing result for a new task
+     */
+    VideoDownloadTaskResult reuseExistingResult(VideoDownloadTaskResult existingResult, VideoDownloadTask newTask);
+
     /**
      * Result statistics inner class
      */
@@ -5,12 +5,14 @@ import org.springframework.data.domain.Pageable;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
 import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
 import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
 import ru.aiivar.tg.yt.downloader.model.VideoDownloadRequest;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -99,6 +101,13 @@ public interface VideoDownloadTaskService {
      */
     VideoDownloadTask markTaskAsStarted(String taskId);
 
+    /**
+     * Mark a pending task as started unless another worker has already claimed it
+     *
+     * @return whether the task was claimed
+     */
+    boolean claimPendingTask(String taskId);
+
     /**
      * Mark task as completed
      */
@@ -109,6 +118,11 @@ public interface VideoDownloadTaskService {
      */
     VideoDownloadTask markTaskAsFailed(String taskId, String errorMessage);
 
+    /**
+     * Mark task as failed with a specific failure reason
+     */
+    VideoDownloadTask markTaskAsFailed(String taskId, String errorMessage, FailureReason failureReason);
+
     /**
      * Retry a failed task
      */
@@ -166,6 +180,32 @@ public interface VideoDownloadTaskService {
      */
     Optional<VideoDownloadTaskResult> getPrimaryTaskResult(String taskId);
 
+    /**
+     * Create a batch task for a playlist or channel
+     * Its videos become child tasks when the batch is processed.
+     */
+    VideoDownloadTask createBatchTask(VideoDownloadRequest request);
+
+    /**
+     * Get child tasks of a batch
+     */
+    List<VideoDownloadTask> getChildTasks(String parentTaskId);
+
+    /**
+     * Get aggregate progress of a batch
+     */
+    BatchProgress getBatchProgress(String parentTaskId);
+
+    /**
+     * Count processing child tasks per batch
+     */
+    Map<String, Long> getProcessingChildCounts();
+
+    /**
+     * Complete batches whose child tasks have all finished
+     */
+    int completeFinishedBatches();
+
     /**
      * Task statistics inner class
      */
@@ -214,4 +254,40 @@ public interface VideoDownloadTaskService {
         public long getRetryableTasks() { return retryableTasks; }
         public void setRetryableTasks(long retryableTasks) { this.retryableTasks = retryableTasks; }
     }
+
+    /**
+     * Batch progress inner class
+     */
+    class BatchProgress {
+        private final int totalTasks;
+        private final int pendingTasks;
+        private final int processingTasks;
+        private final int completedTasks;
+        private final int failedTasks;
+        private final int cancelledTasks;
+        private final int finishedTasks;
+        private final double percentage;
+
+        public BatchProgress(int totalTasks, int pendingTasks, int processingTasks, int completedTasks,
+                             int failedTasks, int cancelledTasks, int finishedTasks) {
+            this.totalTasks = totalTasks;
+            this.pendingTasks = pendingTasks;
+            this.processingTasks = processingTasks;
+            this.completedTasks = completedTasks;
+            this.failedTasks = failedTasks;
+            this.cancelledTasks = cancelledTasks;
+            this.finishedTasks = finishedTasks;
+            this.percentage = totalTasks > 0 ? finishedTasks * 100.0 / totalTasks : 0;
+        }
+
+        // Getters
+        public int getTotalTasks() { return totalTasks; }
+        public int getPendingTasks() { return pendingTasks; }
+        public int getProcessingTasks() { return processingTasks; }
+        public int getCompletedTasks() { return completedTasks; }
+        public int getFailedTasks() { return failedTasks; }
+        public int getCancelledTasks() { return cancelledTasks; }
+        public int getFinishedTasks() { return finishedTasks; }
+        public double getPercentage() { return percentage; }
+    }
 }
@@ -0,0 +1,70 @@
+package ru.aiivar.tg.yt.downloader.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoUrlCanonicalizer;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Service resolving canonical video identities from source URLs
+ * The canonical ID is the key used by all reuse, coalescing and caching paths
+ */
+@Service
+public class VideoIdentityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoIdentityService.class);
+
+    @Autowired
+    private List<VideoUrlCanonicalizer> canonicalizers;
+
+    private final Map<SourceType, VideoUrlCanonicalizer> canonicalizerRegistry = new EnumMap<>(SourceType.class);
+
+    @PostConstruct
+    public void registerCanonicalizers() {
+        for (VideoUrlCanonicalizer canonicalizer : canonicalizers) {
+            canonicalizerRegistry.put(canonicalizer.getSupportedSourceType(), canonicalizer);
+            logger.info("Registered URL canonicalizer: {} for type: {}",
+                    canonicalizer.getClass().getSimpleName(), canonicalizer.getSupportedSourceType());
+        }
+    }
+
+    /**
+     * Resolve the canonical video ID, detecting the source type from the URL
+     */
+    public String resolveCanonicalVideoId(String url) {
+        return resolveCanonicalVideoId(url, SourceType.fromUrl(url));
+    }
+
+    /**
+     * Resolve the canonical video ID for a URL of the given source type
+     * Falls back to the normalized URL when no canonicalizer recognizes it
+     */
+    public String resolveCanonicalVideoId(String url, SourceType sourceType) {
+        if (url == null) {
+            return null;
+        }
+
+        VideoUrlCanonicalizer canonicalizer = sourceType != null ? canonicalizerRegistry.get(sourceType) : null;
+        if (canonicalizer != null) {
+            String canonicalId = canonicalizer.canonicalize(url);
+            if (canonicalId != null) {
+                return canonicalId;
+            }
+        }
+
+        return normalizeUrl(url);
+    }
+
+    private String normalizeUrl(String url) {
+        String normalized = url.trim();
+        int fragmentIndex = normalized.indexOf('#');
+        return fragmentIndex >= 0 ? normalized.substring(0, fragmentIndex) : normalized;
+    }
+}
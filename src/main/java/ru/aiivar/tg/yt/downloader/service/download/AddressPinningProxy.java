@@ -0,0 +1,294 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes an HTTP client connect only to the addresses a host was checked against
+ * java.net.http resolves host names itself on every connection, so a host could pass the public address
+ * check and then resolve to an internal address for the actual requests (DNS rebinding). Hosts are
+ * resolved once here and pinned while they are in use; this selector sends plain HTTP requests to the
+ * pinned address as the proxy, and HTTPS requests through a loopback CONNECT tunnel that connects to the
+ * pinned address. TLS still runs end to end, so certificates are verified against the host name.
+ * Requests to hosts that are not pinned are refused.
+ */
+final class AddressPinningProxy extends ProxySelector implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressPinningProxy.class);
+
+    private static final int MAX_CONNECT_HEAD_BYTES = 8192;
+
+    private final boolean allowPrivateAddresses;
+    private final int connectTimeoutMs;
+    private final HostResolver resolver;
+    private final Map<String, Pin> pins = new HashMap<>();
+    private final ExecutorService tunnelThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private ServerSocket tunnel;
+
+    AddressPinningProxy(boolean allowPrivateAddresses, int connectTimeoutMs, HostResolver resolver) {
+        this.allowPrivateAddresses = allowPrivateAddresses;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Open the loopback tunnel for HTTPS requests
+     */
+    void start() throws IOException {
+        tunnel = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        tunnelThreads.execute(this::acceptTunnels);
+    }
+
+    @Override
+    public void close() {
+        try {
+            tunnel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing the address pinning tunnel: {}", e.getMessage());
+        }
+        tunnelThreads.shutdownNow();
+    }
+
+    /**
+     * Resolve and check the host of the link and pin its address until the pin is closed
+     * A host that is already pinned keeps its address.
+     *
+     * @param address address the host was checked against earlier, or null to resolve it now
+     */
+    Pin pin(URI uri, InetAddress address) throws IOException {
+        String scheme = uri.getScheme();
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            throw new IOException("Not an HTTP(S) link: " + uri);
+        }
+        String host = host(uri);
+        synchronized (pins) {
+            Pin pin = pins.get(host);
+            if (pin != null) {
+                pin.users++;
+                return pin;
+            }
+        }
+
+        if (address == null) {
+            InetAddress[] addresses = resolver.resolve(host);
+            for (InetAddress candidate : addresses) {
+                if (!allowPrivateAddresses && !isPublicAddress(candidate)) {
+                    throw new IOException("Refusing to download from non-public address " + candidate.getHostAddress()
+                            + " of " + host);
+                }
+            }
+            address = addresses[0];
+        } else if (!allowPrivateAddresses && !isPublicAddress(address)) {
+            throw new IOException("Refusing to download from non-public address " + address.getHostAddress()
+                    + " of " + host);
+        }
+
+        InetAddress checked = address;
+        synchronized (pins) {
+            // Another download may have pinned the host meanwhile; its address was checked as well
+            Pin pin = pins.computeIfAbsent(host, h -> new Pin(h, checked));
+            pin.users++;
+            return pin;
+        }
+    }
+
+    static boolean isPublicAddress(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress() || address.isLinkLocalAddress()
+                || address.isSiteLocalAddress() || address.isMulticastAddress()) {
+            return false;
+        }
+        byte[] bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            // 0.0.0.0/8, carrier-grade NAT 100.64.0.0/10 and the reserved 240.0.0.0/4
+            return first != 0 && !(first == 100 && second >= 64 && second < 128) && first < 240;
+        }
+        // Unique local IPv6 addresses, fc00::/7
+        return (bytes[0] & 0xfe) != 0xfc;
+    }
+
+    @Override
+    public List<Proxy> select(URI uri) {
+        if ("http".equalsIgnoreCase(uri.getScheme())) {
+            InetAddress address = pinnedAddress(host(uri));
+            if (address != null) {
+                // Origin servers accept the absolute request target sent to a proxy
+                return List.of(new Proxy(Proxy.Type.HTTP, new InetSocketAddress(address, port(uri))));
+            }
+        }
+        // HTTPS goes through the tunnel, which also refuses plain requests to hosts that are not pinned
+        return List.of(new Proxy(Proxy.Type.HTTP, tunnel.getLocalSocketAddress()));
+    }
+
+    @Override
+    public void connectFailed(URI uri, SocketAddress address, IOException e) {
+        logger.debug("Connection to {} via {} failed: {}", uri, address, e.getMessage());
+    }
+
+    private InetAddress pinnedAddress(String host) {
+        synchronized (pins) {
+            Pin pin = pins.get(host);
+            return pin != null ? pin.address : null;
+        }
+    }
+
+    private void acceptTunnels() {
+        while (!tunnel.isClosed()) {
+            try {
+                Socket client = tunnel.accept();
+                tunnelThreads.execute(() -> serveTunnel(client));
+            } catch (IOException e) {
+                if (!tunnel.isClosed()) {
+                    logger.warn("Error accepting tunnel connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answer one CONNECT request by connecting to the pinned address and relaying bytes both ways
+     */
+    private void serveTunnel(Socket client) {
+        try (client; Socket upstream = new Socket()) {
+            InputStream in = client.getInputStream();
+            OutputStream out = client.getOutputStream();
+            String requestLine = readHead(in);
+            String[] parts = requestLine != null ? requestLine.split(" ") : new String[0];
+            if (parts.length < 2 || !parts[0].equals("CONNECT")) {
+                reply(out, "405 Method Not Allowed");
+                return;
+            }
+            URI target = URI.create("https://" + parts[1]);
+            InetAddress address = target.getHost() != null ? pinnedAddress(host(target)) : null;
+            if (address == null) {
+                reply(out, "403 Forbidden");
+                return;
+            }
+            try {
+                upstream.connect(new InetSocketAddress(address, port(target)), connectTimeoutMs);
+            } catch (IOException e) {
+                reply(out, "502 Bad Gateway");
+                return;
+            }
+            reply(out, "200 Connection Established");
+
+            tunnelThreads.execute(() -> relay(upstream, client));
+            relay(client, upstream);
+        } catch (IOException e) {
+            logger.debug("Tunnel connection closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Copy until either side closes, then close both so the other direction ends too
+     */
+    private static void relay(Socket from, Socket to) {
+        try {
+            from.getInputStream().transferTo(to.getOutputStream());
+        } catch (IOException e) {
+            // The other direction closed the sockets
+        } finally {
+            try {
+                from.close();
+                to.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
+    }
+
+    /**
+     * Read the request head byte by byte, so nothing after it is consumed, and return its first line
+     */
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        while (matched < 4 && head.size() < MAX_CONNECT_HEAD_BYTES) {
+            int b = in.read();
+            if (b < 0) {
+                return null;
+            }
+            head.write(b);
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        String text = head.toString(StandardCharsets.ISO_8859_1);
+        int end = text.indexOf("\r\n");
+        return end >= 0 ? text.substring(0, end) : null;
+    }
+
+    private static void reply(OutputStream out, String status) throws IOException {
+        out.write(("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static String host(URI uri) {
+        String host = uri.getHost().toLowerCase(Locale.ROOT);
+        // IPv6 literals keep their brackets in URIs
+        return host.startsWith("[") && host.endsWith("]") ? host.substring(1, host.length() - 1) : host;
+    }
+
+    private static int port(URI uri) {
+        if (uri.getPort() >= 0) {
+            return uri.getPort();
+        }
+        return "http".equalsIgnoreCase(uri.getScheme()) ? 80 : 443;
+    }
+
+    /**
+     * Resolves host names; replaced in tests
+     */
+    @FunctionalInterface
+    interface HostResolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    /**
+     * A host pinned to one checked address; closing the last pin of a host forgets the address
+     */
+    final class Pin implements AutoCloseable {
+        private final String host;
+        private final InetAddress address;
+        private int users;
+
+        private Pin(String host, InetAddress address) {
+            this.host = host;
+            this.address = address;
+        }
+
+        InetAddress getAddress() {
+            return address;
+        }
+
+        @Override
+        public void close() {
+            synchronized (pins) {
+                if (--users == 0) {
+                    pins.remove(host);
+                }
+            }
+        }
+    }
+}
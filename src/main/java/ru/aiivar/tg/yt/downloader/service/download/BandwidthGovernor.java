@@ -0,0 +1,321 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.BandwidthConfiguration;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Keeps all concurrent transfers within separate download and upload budgets
+ * Uploads read through a shared token bucket, so they split the upload budget among themselves as they
+ * go. yt-dlp moves download bytes itself, so each download gets a share of the download budget as its
+ * rate limit. Downloads that cannot change their limit once started keep the rate they start with; the
+ * others split the rest of the budget equally, recomputed whenever a download starts or ends and pushed
+ * to them. The shares never add up to more than the budget: a download that would push the equal share
+ * below the minimum share waits until another download ends.
+ */
+@Service
+public class BandwidthGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BandwidthGovernor.class);
+
+    @Autowired
+    private BandwidthConfiguration bandwidthConfig;
+
+    private TokenBucket uploadBucket;
+    private final Set<DownloadShare> downloadShares = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private volatile long adjustableRate;
+    private int waitingDownloads;
+
+    @PostConstruct
+    public void init() {
+        long uploadLimit = bandwidthConfig.getUploadLimitKBps() * 1024;
+        uploadBucket = uploadLimit > 0 ? new TokenBucket(uploadLimit) : null;
+    }
+
+    /**
+     * Register a download that follows its share of the download budget as it changes
+     * The listener receives the new rate (bytes per second, 0 for unlimited) when the share changes.
+     * Waits while the budget has no room for another minimum share.
+     */
+    public DownloadShare acquireDownloadShare(LongConsumer rateListener) throws InterruptedException {
+        return acquire(new DownloadShare(rateListener));
+    }
+
+    /**
+     * Register a download that keeps the rate it starts with, such as a separate yt-dlp process
+     * Its rate stays reserved until the share is closed. Waits like {@link #acquireDownloadShare}.
+     */
+    public DownloadShare acquireFixedDownloadShare() throws InterruptedException {
+        return acquire(new DownloadShare(null));
+    }
+
+    private DownloadShare acquire(DownloadShare share) throws InterruptedException {
+        List<DownloadShare> changed;
+        synchronized (this) {
+            if (!hasRoomForAnotherShare()) {
+                waitingDownloads++;
+                try {
+                    while (!hasRoomForAnotherShare()) {
+                        wait();
+                    }
+                } finally {
+                    waitingDownloads--;
+                }
+            }
+            downloadShares.add(share);
+            changed = assignRates();
+        }
+        notifyChanged(changed);
+        return share;
+    }
+
+    /**
+     * Wrap an upload body so that it is read within the upload budget
+     */
+    public InputStream throttleUpload(InputStream in) {
+        return uploadBucket != null ? new ThrottledInputStream(in, uploadBucket) : in;
+    }
+
+    private void release(DownloadShare share) {
+        List<DownloadShare> changed;
+        synchronized (this) {
+            if (!downloadShares.remove(share)) {
+                return;
+            }
+            changed = assignRates();
+            notifyAll();
+        }
+        notifyChanged(changed);
+    }
+
+    /**
+     * Whether one more download still leaves every adjustable download at least the minimum share
+     * The first download always starts, even when the whole budget is below the minimum share.
+     */
+    private boolean hasRoomForAnotherShare() {
+        long limit = bandwidthConfig.getDownloadLimitKBps() * 1024;
+        if (limit <= 0 || downloadShares.isEmpty()) {
+            return true;
+        }
+        long minShare = Math.max(1, bandwidthConfig.getMinDownloadShareKBps()) * 1024;
+        return (limit - fixedRates()) / (adjustableCount() + 1) >= minShare;
+    }
+
+    /**
+     * Give new shares and adjustable shares an equal part of the budget left by the fixed shares
+     *
+     * @return running adjustable downloads whose rate changed
+     */
+    private List<DownloadShare> assignRates() {
+        long limit = bandwidthConfig.getDownloadLimitKBps() * 1024;
+        int adjustable = adjustableCount();
+        // Never 0, which would mean unlimited
+        long rate = limit > 0 && adjustable > 0 ? Math.max(1, (limit - fixedRates()) / adjustable) : 0;
+        adjustableRate = rate;
+
+        List<DownloadShare> changed = new ArrayList<>();
+        for (DownloadShare share : downloadShares) {
+            long previous = share.rateBytesPerSecond;
+            if (share.isFixed() && previous >= 0) {
+                continue;
+            }
+            share.rateBytesPerSecond = rate;
+            // A new share only reads its initial rate; running downloads are told about changes
+            if (previous >= 0 && previous != rate) {
+                changed.add(share);
+            }
+        }
+        if (limit > 0) {
+            logger.debug("Download budget of {} bytes/s split between {} downloads", limit, downloadShares.size());
+        }
+        return changed;
+    }
+
+    /**
+     * Rates kept by fixed downloads that have started
+     */
+    private long fixedRates() {
+        return downloadShares.stream()
+                .filter(share -> share.isFixed() && share.rateBytesPerSecond >= 0)
+                .mapToLong(share -> share.rateBytesPerSecond)
+                .sum();
+    }
+
+    /**
+     * Downloads that get the equal share: adjustable ones and fixed ones that have not started yet
+     */
+    private int adjustableCount() {
+        return (int) downloadShares.stream().filter(share -> !share.isFixed() || share.rateBytesPerSecond < 0).count();
+    }
+
+    private static void notifyChanged(List<DownloadShare> changed) {
+        // Listeners write to worker processes, so they are called without holding the lock
+        changed.forEach(DownloadShare::notifyRate);
+    }
+
+    void setBandwidthConfig(BandwidthConfiguration bandwidthConfig) {
+        this.bandwidthConfig = bandwidthConfig;
+    }
+
+    /**
+     * Get bandwidth statistics
+     */
+    public synchronized BandwidthStatistics getStatistics() {
+        long downloadLimit = bandwidthConfig.getDownloadLimitKBps() * 1024;
+        return new BandwidthStatistics(downloadLimit, downloadShares.size(), waitingDownloads,
+                downloadLimit > 0 && !downloadShares.isEmpty() ? adjustableRate : 0,
+                uploadBucket != null ? uploadBucket.getBytesPerSecond() : 0, activeUploads.get(),
+                uploadBucket != null ? uploadBucket.getWaitedMillis() : 0);
+    }
+
+    /**
+     * One download's share of the download budget; closing it returns the share to the others
+     */
+    public class DownloadShare implements AutoCloseable {
+        // Null for fixed shares
+        private final LongConsumer rateListener;
+        private final AtomicBoolean notifying = new AtomicBoolean();
+        private volatile long rateBytesPerSecond = -1;
+        private long notifiedRate = -1;
+
+        private DownloadShare(LongConsumer rateListener) {
+            this.rateListener = rateListener;
+        }
+
+        /**
+         * Current rate limit in bytes per second, 0 for unlimited
+         */
+        public long getRateBytesPerSecond() {
+            return Math.max(0, rateBytesPerSecond);
+        }
+
+        @Override
+        public void close() {
+            release(this);
+        }
+
+        private boolean isFixed() {
+            return rateListener == null;
+        }
+
+        /**
+         * Tell the listener the current rate; only one thread does at a time and delivers the latest rate,
+         * so a slow listener neither blocks other rebalances nor ends up with an outdated rate
+         */
+        private void notifyRate() {
+            while (notifying.compareAndSet(false, true)) {
+                long rate = rateBytesPerSecond;
+                if (rate != notifiedRate) {
+                    notifiedRate = rate;
+                    try {
+                        rateListener.accept(rate);
+                    } catch (RuntimeException e) {
+                        logger.debug("Failed to apply download rate {}: {}", rate, e.getMessage());
+                    }
+                }
+                notifying.set(false);
+                // A rebalance that found this thread notifying left its rate to be delivered here
+                if (rateBytesPerSecond == notifiedRate) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private final class ThrottledInputStream extends FilterInputStream {
+        private final TokenBucket bucket;
+        private boolean closed;
+
+        private ThrottledInputStream(InputStream in, TokenBucket bucket) {
+            super(in);
+            this.bucket = bucket;
+            activeUploads.incrementAndGet();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                take(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                take(read);
+            }
+            return read;
+        }
+
+        private void take(int bytes) throws IOException {
+            try {
+                bucket.acquire(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload bandwidth");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                activeUploads.decrementAndGet();
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * Bandwidth statistics inner class
+     */
+    public static class BandwidthStatistics {
+        private final long downloadLimitBytesPerSecond;
+        private final int activeDownloads;
+        private final int waitingDownloads;
+        private final long downloadShareBytesPerSecond;
+        private final long uploadLimitBytesPerSecond;
+        private final int activeUploads;
+        private final long uploadWaitMillis;
+
+        public BandwidthStatistics(long downloadLimitBytesPerSecond, int activeDownloads, int waitingDownloads,
+                                   long downloadShareBytesPerSecond, long uploadLimitBytesPerSecond, int activeUploads,
+                                   long uploadWaitMillis) {
+            this.downloadLimitBytesPerSecond = downloadLimitBytesPerSecond;
+            this.activeDownloads = activeDownloads;
+            this.waitingDownloads = waitingDownloads;
+            this.downloadShareBytesPerSecond = downloadShareBytesPerSecond;
+            this.uploadLimitBytesPerSecond = uploadLimitBytesPerSecond;
+            this.activeUploads = activeUploads;
+            this.uploadWaitMillis = uploadWaitMillis;
+        }
+
+        // Getters
+        public long getDownloadLimitBytesPerSecond() { return downloadLimitBytesPerSecond; }
+        public int getActiveDownloads() { return activeDownloads; }
+        public int getWaitingDownloads() { return waitingDownloads; }
+        public long getDownloadShareBytesPerSecond() { return downloadShareBytesPerSecond; }
+        public long getUploadLimitBytesPerSecond() { return uploadLimitBytesPerSecond; }
+        public int getActiveUploads() { return activeUploads; }
+        public long getUploadWaitMillis() { return uploadWaitMillis; }
+    }
+}
@@ -0,0 +1,209 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size ring buffer between one writer thread and one reader thread
+ * The writer blocks while the buffer is full, so a fast producer cannot run ahead of a slow consumer by
+ * more than the buffer size. Unlike {@link java.io.PipedInputStream}, the writer decides how the stream
+ * ends: {@link #finish()} gives the reader end of stream, {@link #fail(IOException)} makes its next read
+ * throw, so a consumer never mistakes a failed producer for a complete one.
+ */
+public class BoundedPipe {
+
+    private final byte[] buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int readPosition;
+    private int count;
+    private boolean finished;
+    private boolean readerClosed;
+    private IOException failure;
+    private long bytesTransferred;
+
+    private final InputStream source = new PipeInputStream();
+    private final OutputStream sink = new PipeOutputStream();
+
+    public BoundedPipe(int capacityBytes) {
+        if (capacityBytes <= 0) {
+            throw new IllegalArgumentException("Pipe capacity must be positive");
+        }
+        this.buffer = new byte[capacityBytes];
+    }
+
+    /**
+     * Reading end of the pipe
+     */
+    public InputStream getSource() {
+        return source;
+    }
+
+    /**
+     * Writing end of the pipe; closing it is the same as {@link #finish()}
+     */
+    public OutputStream getSink() {
+        return sink;
+    }
+
+    /**
+     * Signal that all data was written
+     */
+    public void finish() {
+        lock.lock();
+        try {
+            finished = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Signal that the producer failed; the reader gets the error instead of end of stream
+     */
+    public void fail(IOException error) {
+        lock.lock();
+        try {
+            if (!finished) {
+                failure = error;
+                finished = true;
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop reading; a blocked or later write fails, so the writer can stop producing
+     */
+    public void closeSource() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getBytesTransferred() {
+        lock.lock();
+        try {
+            return bytesTransferred;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class PipeOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            lock.lock();
+            try {
+                while (length > 0) {
+                    while (count == buffer.length && !readerClosed && failure == null) {
+                        notFull.await();
+                    }
+                    if (readerClosed) {
+                        throw new IOException("Pipe closed by reader");
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    int writePosition = (readPosition + count) % buffer.length;
+                    int chunk = Math.min(length, Math.min(buffer.length - count, buffer.length - writePosition));
+                    System.arraycopy(data, offset, buffer, writePosition, chunk);
+                    count += chunk;
+                    offset += chunk;
+                    length -= chunk;
+                    notEmpty.signal();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to pipe");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            finish();
+        }
+    }
+
+    private final class PipeInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (count == 0 && !finished && !readerClosed) {
+                    notEmpty.await();
+                }
+                if (readerClosed) {
+                    throw new IOException("Pipe closed");
+                }
+                if (count == 0) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    return -1;
+                }
+                int chunk = Math.min(length, Math.min(count, buffer.length - readPosition));
+                System.arraycopy(buffer, readPosition, target, offset, chunk);
+                readPosition = (readPosition + chunk) % buffer.length;
+                count -= chunk;
+                bytesTransferred += chunk;
+                notFull.signal();
+                return chunk;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reading from pipe");
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            closeSource();
+        }
+    }
+}
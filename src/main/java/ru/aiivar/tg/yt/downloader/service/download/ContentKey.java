@@ -0,0 +1,31 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * File system safe key of one rendition of a video: readable video ID plus a hash of the rendition
+ */
+public final class ContentKey {
+
+    private static final int MAX_READABLE_LENGTH = 64;
+
+    private ContentKey() {
+    }
+
+    public static String of(String canonicalVideoId, String variant) {
+        String readable = canonicalVideoId.replaceAll("[^A-Za-z0-9_-]", "_");
+        if (readable.length() > MAX_READABLE_LENGTH) {
+            readable = readable.substring(0, MAX_READABLE_LENGTH);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((canonicalVideoId + "\n" + variant).getBytes(StandardCharsets.UTF_8));
+            return readable + "-" + HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.DownloadAcceleratorConfiguration;
+import ru.aiivar.tg.yt.downloader.config.DownloadAcceleratorConfiguration.AcceleratorSettings;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies per-source download acceleration settings within a global connection budget
+ * Each download leases connections before it starts. A download gets at least one connection and
+ * as many of its configured connections as are free, so concurrent tasks share the link instead of
+ * each opening the full fragment count.
+ */
+@Service
+public class DownloadAccelerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadAccelerator.class);
+
+    private static final String CONNECTIONS_PLACEHOLDER = "{connections}";
+
+    @Autowired
+    private DownloadAcceleratorConfiguration acceleratorConfig;
+
+    private Semaphore connections;
+
+    private final AtomicLong leasesGranted = new AtomicLong();
+    private final AtomicLong leasesReduced = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        connections = new Semaphore(Math.max(1, acceleratorConfig.getMaxTotalConnections()), true);
+    }
+
+    /**
+     * Get effective settings for a source type
+     */
+    public AcceleratorSettings getSettings(SourceType sourceType) {
+        AcceleratorSettings defaults = acceleratorConfig.getDefaults();
+        AcceleratorSettings override = sourceType != null ? acceleratorConfig.getSources().get(sourceType) : null;
+        return override != null ? override.mergedWith(defaults) : defaults;
+    }
+
+    /**
+     * Lease connections for a download, waiting until at least one is free
+     */
+    public ConnectionLease acquire(SourceType sourceType) throws InterruptedException {
+        AcceleratorSettings settings = getSettings(sourceType);
+        int wanted = Math.max(1, Math.min(connectionsWanted(settings), acceleratorConfig.getMaxTotalConnections()));
+
+        connections.acquire();
+        int granted = 1;
+        while (granted < wanted && connections.tryAcquire()) {
+            granted++;
+        }
+
+        leasesGranted.incrementAndGet();
+        if (granted < wanted) {
+            leasesReduced.incrementAndGet();
+            logger.debug("Download of {} gets {} of {} connections", sourceType, granted, wanted);
+        }
+        return new ConnectionLease(settings, granted);
+    }
+
+    private static int connectionsWanted(AcceleratorSettings settings) {
+        return settings.getConcurrentFragments() != null ? settings.getConcurrentFragments() : 1;
+    }
+
+    void setAcceleratorConfig(DownloadAcceleratorConfiguration acceleratorConfig) {
+        this.acceleratorConfig = acceleratorConfig;
+    }
+
+    /**
+     * Get download acceleration statistics
+     */
+    public AcceleratorStatistics getStatistics() {
+        int max = Math.max(1, acceleratorConfig.getMaxTotalConnections());
+        return new AcceleratorStatistics(max, max - connections.availablePermits(), leasesGranted.get(), leasesReduced.get());
+    }
+
+    /**
+     * Connections granted to one download; closing the lease returns them
+     */
+    public class ConnectionLease implements AutoCloseable {
+        private final AcceleratorSettings settings;
+        private final int connections;
+        private boolean closed;
+
+        private ConnectionLease(AcceleratorSettings settings, int connections) {
+            this.settings = settings;
+            this.connections = connections;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        /**
+         * yt-dlp options applying the settings with the granted connection count
+         */
+        public Map<String, String> toYtDlpOptions() {
+            Map<String, String> options = new LinkedHashMap<>();
+            options.put("concurrent-fragments", String.valueOf(connections));
+            if (settings.getHttpChunkSize() != null && !settings.getHttpChunkSize().isBlank()) {
+                options.put("http-chunk-size", settings.getHttpChunkSize());
+            }
+            String downloader = settings.getExternalDownloader();
+            if (downloader != null && !downloader.isBlank()) {
+                options.put("downloader", downloader);
+                String args = settings.getExternalDownloaderArgs();
+                if (args != null && !args.isBlank()) {
+                    options.put("downloader-args", downloader + ":" + args.replace(CONNECTIONS_PLACEHOLDER,
+                            String.valueOf(connections)));
+                }
+            }
+            return options;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                DownloadAccelerator.this.connections.release(connections);
+            }
+        }
+    }
+
+    /**
+     * Download acceleration statistics inner class
+     */
+    public static class AcceleratorStatistics {
+        private final int maxConnections;
+        private final int connectionsInUse;
+        private final long leasesGranted;
+        private final long leasesReduced;
+
+        public AcceleratorStatistics(int maxConnections, int connectionsInUse, long leasesGranted, long leasesReduced) {
+            this.maxConnections = maxConnections;
+            this.connectionsInUse = connectionsInUse;
+            this.leasesGranted = leasesGranted;
+            this.leasesReduced = leasesReduced;
+        }
+
+        // Getters
+        public int getMaxConnections() { return maxConnections; }
+        public int getConnectionsInUse() { return connectionsInUse; }
+        public long getLeasesGranted() { return leasesGranted; }
+        public long getLeasesReduced() { return leasesReduced; }
+    }
+}
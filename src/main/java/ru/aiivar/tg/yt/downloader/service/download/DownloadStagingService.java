@@ -0,0 +1,272 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.StagingConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Staging area for downloads keyed by canonical video ID and rendition
+ * yt-dlp resumes .part files it finds under the same output name, so a retry of a task, or another task
+ * for the same rendition, continues from the bytes already downloaded. One download per key runs at a
+ * time. Completed files are moved out of the staging area; abandoned partials are removed by age and
+ * total size.
+ */
+@Service
+public class DownloadStagingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DownloadStagingService.class);
+
+    @Autowired
+    private StagingConfiguration stagingConfig;
+
+    private Path root;
+    private final ConcurrentHashMap<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    private final AtomicLong resumedDownloads = new AtomicLong();
+    private final AtomicLong resumedBytes = new AtomicLong();
+    private final AtomicLong completedDownloads = new AtomicLong();
+    private final AtomicLong removedEntries = new AtomicLong();
+    private final AtomicLong removedBytes = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        String directory = stagingConfig.getDirectory();
+        root = directory == null || directory.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "yt_downloads", "staging")
+                : Paths.get(directory);
+    }
+
+    /**
+     * Lock the staging directory of a rendition, waiting while another download of it runs
+     * Returns null when staging is disabled or the video has no canonical ID.
+     */
+    public StagingLease acquire(String canonicalVideoId, String variant) throws IOException, InterruptedException {
+        if (!stagingConfig.isEnabled() || canonicalVideoId == null) {
+            return null;
+        }
+
+        String key = ContentKey.of(canonicalVideoId, variant);
+        ReentrantLock lock;
+        while (true) {
+            lock = locks.computeIfAbsent(key, k -> new ReentrantLock());
+            lock.lockInterruptibly();
+            // The lock may have been dropped from the map by a releasing holder before we got it
+            if (locks.get(key) == lock) {
+                break;
+            }
+            lock.unlock();
+        }
+
+        try {
+            Path directory = root.resolve(key);
+            Files.createDirectories(directory);
+            long existingBytes = sizeOf(directory);
+            if (existingBytes > 0) {
+                resumedDownloads.incrementAndGet();
+                resumedBytes.addAndGet(existingBytes);
+                logger.info("Resuming download of {} from {} staged bytes", key, existingBytes);
+            }
+            Files.setLastModifiedTime(directory, FileTime.fromMillis(System.currentTimeMillis()));
+            return new StagingLease(key, directory, lock, existingBytes);
+        } catch (IOException | RuntimeException e) {
+            release(key, lock);
+            throw e;
+        }
+    }
+
+    /**
+     * Remove partial downloads older than the maximum age, then the oldest ones above the size budget
+     */
+    @Scheduled(fixedDelayString = "${video.staging.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        List<StagedEntry> entries = new ArrayList<>();
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                ReentrantLock lock = locks.get(directory.getFileName().toString());
+                if (Files.isDirectory(directory) && (lock == null || !lock.isLocked())) {
+                    entries.add(new StagedEntry(directory, sizeOf(directory), lastModified(directory)));
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to scan staging area {}: {}", root, e.getMessage());
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(stagingConfig.getMaxAgeHours());
+        long budget = stagingConfig.getMaxTotalSizeMB() * 1024 * 1024;
+        long total = entries.stream().mapToLong(StagedEntry::size).sum();
+        entries.sort(Comparator.comparingLong(StagedEntry::lastModified));
+
+        for (StagedEntry entry : entries) {
+            if (entry.lastModified() >= cutoff && total <= budget) {
+                continue;
+            }
+            if (delete(entry.directory())) {
+                total -= entry.size();
+                removedEntries.incrementAndGet();
+                removedBytes.addAndGet(entry.size());
+                logger.info("Removed staged download {} ({} bytes)", entry.directory().getFileName(), entry.size());
+            }
+        }
+    }
+
+    private void release(String key, ReentrantLock lock) {
+        lock.unlock();
+        locks.computeIfPresent(key, (k, current) -> current == lock && !lock.isLocked() && !lock.hasQueuedThreads() ? null : current);
+    }
+
+    private static long sizeOf(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModified(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.mapToLong(file -> file.toFile().lastModified()).max().orElse(0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static boolean delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete staged download {}: {}", directory, e.getMessage());
+        }
+        return !Files.exists(directory);
+    }
+
+    void setStagingConfig(StagingConfiguration stagingConfig) {
+        this.stagingConfig = stagingConfig;
+    }
+
+    /**
+     * Get staging area statistics
+     */
+    public StagingStatistics getStatistics() {
+        return new StagingStatistics(locks.size(), resumedDownloads.get(), resumedBytes.get(),
+                completedDownloads.get(), removedEntries.get(), removedBytes.get());
+    }
+
+    private record StagedEntry(Path directory, long size, long lastModified) {
+    }
+
+    /**
+     * Exclusive use of one staging directory; closing the lease unlocks it
+     */
+    public class StagingLease implements AutoCloseable {
+        private final String key;
+        private final Path directory;
+        private final ReentrantLock lock;
+        private final long existingBytes;
+        private boolean closed;
+
+        private StagingLease(String key, Path directory, ReentrantLock lock, long existingBytes) {
+            this.key = key;
+            this.directory = directory;
+            this.lock = lock;
+            this.existingBytes = existingBytes;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        /**
+         * Bytes already staged when the lease was acquired
+         */
+        public long getExistingBytes() {
+            return existingBytes;
+        }
+
+        /**
+         * Move the finished download out of the staging area and remove the staging directory
+         */
+        public File complete(File downloadedFile, Path targetDirectory) throws IOException {
+            Path target = targetDirectory.resolve(downloadedFile.getName());
+            try {
+                Files.move(downloadedFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(downloadedFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            delete(directory);
+            completedDownloads.incrementAndGet();
+            return target.toFile();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Empty directories (rejected or completed downloads) are not worth keeping
+            File[] remaining = directory.toFile().listFiles();
+            if (remaining != null && remaining.length == 0) {
+                directory.toFile().delete();
+            } else if (remaining != null) {
+                directory.toFile().setLastModified(System.currentTimeMillis());
+            }
+            release(key, lock);
+        }
+    }
+
+    /**
+     * Staging area statistics inner class
+     */
+    public static class StagingStatistics {
+        private final int activeKeys;
+        private final long resumedDownloads;
+        private final long resumedBytes;
+        private final long completedDownloads;
+        private final long removedEntries;
+        private final long removedBytes;
+
+        public StagingStatistics(int activeKeys, long resumedDownloads, long resumedBytes, long completedDownloads,
+                                 long removedEntries, long removedBytes) {
+            this.activeKeys = activeKeys;
+            this.resumedDownloads = resumedDownloads;
+            this.resumedBytes = resumedBytes;
+            this.completedDownloads = completedDownloads;
+            this.removedEntries = removedEntries;
+            this.removedBytes = removedBytes;
+        }
+
+        // Getters
+        public int getActiveKeys() { return activeKeys; }
+        public long getResumedDownloads() { return resumedDownloads; }
+        public long getResumedBytes() { return resumedBytes; }
+        public long getCompletedDownloads() { return completedDownloads; }
+        public long getRemovedEntries() { return removedEntries; }
+        public long getRemovedBytes() { return removedBytes; }
+    }
+}
@@ -0,0 +1,296 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.MediaCacheConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Local cache of downloaded media files keyed by canonical video ID and rendition
+ * Files are kept after upload so another destination, another bot or an expired file_id can be served
+ * without downloading again. Cached files are hard linked into the task directory (copied when the file
+ * systems differ), so eviction never removes a file that is being uploaded. The index is rebuilt from
+ * the cache directory on startup.
+ */
+@Service
+public class LocalMediaCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalMediaCache.class);
+
+    public enum EvictionPolicy {
+        LRU,
+        LFU
+    }
+
+    @Autowired
+    private MediaCacheConfiguration mediaCacheConfig;
+
+    private Path root;
+    private EvictionPolicy evictionPolicy;
+    private final Map<String, CachedMedia> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong filesStored = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bytesEvicted = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        String directory = mediaCacheConfig.getDirectory();
+        root = directory == null || directory.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "yt_downloads", "media-cache")
+                : Paths.get(directory);
+        evictionPolicy = EvictionPolicy.valueOf(mediaCacheConfig.getEvictionPolicy().trim().toUpperCase());
+        if (mediaCacheConfig.isEnabled()) {
+            loadIndex();
+        }
+    }
+
+    /**
+     * Put a cached copy of the rendition into the target directory
+     * Returns null on a miss.
+     */
+    public File lookup(String canonicalVideoId, String variant, Path targetDirectory) {
+        if (!mediaCacheConfig.isEnabled() || canonicalVideoId == null) {
+            return null;
+        }
+
+        lookups.incrementAndGet();
+        CachedMedia entry = entries.get(ContentKey.of(canonicalVideoId, variant));
+        if (entry == null) {
+            return null;
+        }
+
+        Path target = targetDirectory.resolve(entry.file.getFileName());
+        try {
+            Files.deleteIfExists(target);
+            linkOrCopy(entry.file, target);
+        } catch (IOException e) {
+            // Evicted meanwhile or unreadable; the caller downloads instead
+            logger.debug("Cached media {} unavailable: {}", entry.key, e.getMessage());
+            return null;
+        }
+
+        entry.recordHit();
+        hits.incrementAndGet();
+        bytesServed.addAndGet(entry.sizeBytes);
+        logger.info("Serving {} from local media cache ({} bytes)", entry.key, entry.sizeBytes);
+        return target.toFile();
+    }
+
+    /**
+     * Whether the rendition is cached, without counting a lookup
+     */
+    public boolean contains(String canonicalVideoId, String variant) {
+        return mediaCacheConfig.isEnabled() && canonicalVideoId != null
+                && entries.containsKey(ContentKey.of(canonicalVideoId, variant));
+    }
+
+    /**
+     * Add a downloaded rendition to the cache, evicting other entries to stay within the budget
+     */
+    public void store(String canonicalVideoId, String variant, File file) {
+        if (!mediaCacheConfig.isEnabled() || canonicalVideoId == null || !file.isFile()) {
+            return;
+        }
+        long size = file.length();
+        if (size > maxBytes()) {
+            logger.debug("Not caching {}: {} bytes exceed the cache size", file.getName(), size);
+            return;
+        }
+
+        String key = ContentKey.of(canonicalVideoId, variant);
+        synchronized (this) {
+            try {
+                Path directory = Files.createDirectories(root.resolve(key));
+                Path cached = directory.resolve(file.getName());
+                CachedMedia previous = entries.remove(key);
+                if (previous != null) {
+                    totalBytes.addAndGet(-previous.sizeBytes);
+                    delete(directory);
+                    Files.createDirectories(directory);
+                }
+                linkOrCopy(file.toPath(), cached);
+                entries.put(key, new CachedMedia(key, cached, size, System.currentTimeMillis()));
+                totalBytes.addAndGet(size);
+                filesStored.incrementAndGet();
+            } catch (IOException e) {
+                logger.warn("Failed to cache {}: {}", file.getName(), e.getMessage());
+                return;
+            }
+            evictIfNeeded(key);
+        }
+    }
+
+    /**
+     * Evict entries until the cache fits its budget, never the one just stored (it has no hits yet under LFU)
+     */
+    private synchronized void evictIfNeeded(String keepKey) {
+        long max = maxBytes();
+        Comparator<CachedMedia> order = evictionPolicy == EvictionPolicy.LFU
+                ? Comparator.comparingLong(CachedMedia::getHits).thenComparingLong(CachedMedia::getLastAccess)
+                : Comparator.comparingLong(CachedMedia::getLastAccess);
+        while (totalBytes.get() > max) {
+            CachedMedia victim = entries.values().stream()
+                    .filter(entry -> !entry.key.equals(keepKey))
+                    .min(order)
+                    .orElse(null);
+            if (victim == null) {
+                break;
+            }
+            entries.remove(victim.key);
+            totalBytes.addAndGet(-victim.sizeBytes);
+            delete(victim.file.getParent());
+            evictions.incrementAndGet();
+            bytesEvicted.addAndGet(victim.sizeBytes);
+            logger.info("Evicted {} from local media cache ({} bytes, {} hits)", victim.key, victim.sizeBytes, victim.getHits());
+        }
+    }
+
+    private void loadIndex() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : (Iterable<Path>) directories::iterator) {
+                File[] files = directory.toFile().listFiles(File::isFile);
+                if (files == null || files.length != 1) {
+                    delete(directory);
+                    continue;
+                }
+                String key = directory.getFileName().toString();
+                entries.put(key, new CachedMedia(key, files[0].toPath(), files[0].length(), files[0].lastModified()));
+                totalBytes.addAndGet(files[0].length());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to load local media cache index from {}: {}", root, e.getMessage());
+        }
+        logger.info("Loaded {} cached media files ({} bytes)", entries.size(), totalBytes.get());
+        evictIfNeeded(null);
+    }
+
+    private long maxBytes() {
+        return mediaCacheConfig.getMaxTotalSizeMB() * 1024 * 1024;
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete cached media {}: {}", directory, e.getMessage());
+        }
+    }
+
+    void setMediaCacheConfig(MediaCacheConfiguration mediaCacheConfig) {
+        this.mediaCacheConfig = mediaCacheConfig;
+    }
+
+    /**
+     * Get local media cache statistics
+     */
+    public MediaCacheStatistics getStatistics() {
+        return new MediaCacheStatistics(evictionPolicy, entries.size(), totalBytes.get(), maxBytes(), lookups.get(),
+                hits.get(), bytesServed.get(), filesStored.get(), evictions.get(), bytesEvicted.get());
+    }
+
+    private static class CachedMedia {
+        private final String key;
+        private final Path file;
+        private final long sizeBytes;
+        private final AtomicLong hits = new AtomicLong();
+        private volatile long lastAccess;
+
+        private CachedMedia(String key, Path file, long sizeBytes, long lastAccess) {
+            this.key = key;
+            this.file = file;
+            this.sizeBytes = sizeBytes;
+            this.lastAccess = lastAccess;
+        }
+
+        private void recordHit() {
+            hits.incrementAndGet();
+            lastAccess = System.currentTimeMillis();
+            file.toFile().setLastModified(lastAccess);
+        }
+
+        private long getHits() {
+            return hits.get();
+        }
+
+        private long getLastAccess() {
+            return lastAccess;
+        }
+    }
+
+    /**
+     * Local media cache statistics inner class
+     */
+    public static class MediaCacheStatistics {
+        private final EvictionPolicy evictionPolicy;
+        private final int entries;
+        private final long totalBytes;
+        private final long maxBytes;
+        private final long lookups;
+        private final long hits;
+        private final long bytesServed;
+        private final long filesStored;
+        private final long evictions;
+        private final long bytesEvicted;
+
+        public MediaCacheStatistics(EvictionPolicy evictionPolicy, int entries, long totalBytes, long maxBytes,
+                                    long lookups, long hits, long bytesServed, long filesStored, long evictions,
+                                    long bytesEvicted) {
+            this.evictionPolicy = evictionPolicy;
+            this.entries = entries;
+            this.totalBytes = totalBytes;
+            this.maxBytes = maxBytes;
+            this.lookups = lookups;
+            this.hits = hits;
+            this.bytesServed = bytesServed;
+            this.filesStored = filesStored;
+            this.evictions = evictions;
+            this.bytesEvicted = bytesEvicted;
+        }
+
+        public double getHitRate() {
+            return lookups > 0 ? (double) hits / lookups : 0.0;
+        }
+
+        // Getters
+        public EvictionPolicy getEvictionPolicy() { return evictionPolicy; }
+        public int getEntries() { return entries; }
+        public long getTotalBytes() { return totalBytes; }
+        public long getMaxBytes() { return maxBytes; }
+        public long getLookups() { return lookups; }
+        public long getHits() { return hits; }
+        public long getBytesServed() { return bytesServed; }
+        public long getFilesStored() { return filesStored; }
+        public long getEvictions() { return evictions; }
+        public long getBytesEvicted() { return bytesEvicted; }
+    }
+}
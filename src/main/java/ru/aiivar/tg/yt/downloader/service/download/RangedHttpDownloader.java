@@ -0,0 +1,655 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.DirectHttpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads files over plain HTTP(S) with parallel range requests
+ * A HEAD request gives the length and whether ranges are accepted. The file is then extended to
+ * its full length and split into segments, each fetched by its own range request and written at
+ * its offset with positional FileChannel writes, so segments never wait for one another. A broken
+ * range request resumes from the last written byte. The download only succeeds when every segment
+ * received exactly its share of the advertised length. Servers without ranges or without a length
+ * get a single request.
+ * Every connection goes through an {@link AddressPinningProxy}, so all requests of a probe hop or a
+ * download reach the address the host was checked against, however its DNS answers change meanwhile.
+ */
+@Service
+public class RangedHttpDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(RangedHttpDownloader.class);
+
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final Map<String, String> EXTENSIONS_BY_TYPE = Map.ofEntries(
+            Map.entry("video/mp4", "mp4"),
+            Map.entry("video/webm", "webm"),
+            Map.entry("video/quicktime", "mov"),
+            Map.entry("video/x-matroska", "mkv"),
+            Map.entry("video/x-msvideo", "avi"),
+            Map.entry("video/x-flv", "flv"),
+            Map.entry("video/3gpp", "3gp"),
+            Map.entry("video/mp2t", "ts"),
+            Map.entry("audio/mpeg", "mp3"),
+            Map.entry("audio/mp4", "m4a"),
+            Map.entry("audio/aac", "aac"),
+            Map.entry("audio/ogg", "ogg"),
+            Map.entry("audio/flac", "flac"),
+            Map.entry("audio/wav", "wav"));
+
+    private static final Set<String> MEDIA_EXTENSIONS = Set.copyOf(EXTENSIONS_BY_TYPE.values());
+
+    /**
+     * Types servers send for files they do not describe
+     */
+    private static final Set<String> GENERIC_TYPES = Set.of("application/octet-stream", "binary/octet-stream");
+
+    @Autowired
+    private DirectHttpConfiguration directHttpConfig;
+
+    private AddressPinningProxy.HostResolver hostResolver = InetAddress::getAllByName;
+
+    private AddressPinningProxy pinning;
+    private HttpClient httpClient;
+    private ExecutorService segmentExecutor;
+
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong segmentedDownloads = new AtomicLong();
+    private final AtomicLong failedDownloads = new AtomicLong();
+    private final AtomicLong segmentRequests = new AtomicLong();
+    private final AtomicLong segmentRetries = new AtomicLong();
+    private final AtomicLong verificationFailures = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        pinning = new AddressPinningProxy(directHttpConfig.isAllowPrivateAddresses(),
+                directHttpConfig.getConnectTimeoutSeconds() * 1000, hostResolver);
+        try {
+            pinning.start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open the address pinning tunnel", e);
+        }
+        httpClient = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .proxy(pinning)
+                .connectTimeout(Duration.ofSeconds(directHttpConfig.getConnectTimeoutSeconds()))
+                .build();
+        // Connections are bounded by the download accelerator's leases, not by this pool
+        segmentExecutor = Executors.newCachedThreadPool(Thread.ofPlatform().name("DirectHttp-", 1).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        segmentExecutor.shutdownNow();
+        pinning.close();
+    }
+
+    /**
+     * Find the length, range support and name of a remote audio or video file, following redirects
+     * Every hop must resolve to public addresses, so user-supplied links cannot reach internal services;
+     * the address of the last hop is kept for the download.
+     */
+    public RemoteFile probe(URI uri) throws IOException, InterruptedException {
+        URI current = uri;
+        // Redirects are followed here rather than by the client so that every hop is checked
+        for (int redirects = 0; redirects <= MAX_REDIRECTS; redirects++) {
+            // Each hop is resolved and checked, then reached only at that address
+            try (AddressPinningProxy.Pin pin = pinning.pin(current, null)) {
+                HttpResponse<Void> head = httpClient.send(
+                        request(current).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                URI location = redirectLocation(head);
+                if (location != null) {
+                    current = location;
+                    continue;
+                }
+                if (head.statusCode() == 200) {
+                    HttpHeaders headers = head.headers();
+                    boolean ranges = headers.firstValue("Accept-Ranges").map(v -> v.equalsIgnoreCase("bytes")).orElse(false);
+                    return requireMedia(new RemoteFile(current, headers.firstValueAsLong("Content-Length").orElse(-1),
+                            ranges, headers, pin.getAddress()));
+                }
+
+                // Some hosts refuse HEAD; a one-byte range request tells the same
+                HttpResponse<InputStream> ranged = httpClient.send(request(current).header("Range", "bytes=0-0").GET().build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                // Only the headers are needed; closing the body drops the connection
+                ranged.body().close();
+                location = redirectLocation(ranged);
+                if (location != null) {
+                    current = location;
+                    continue;
+                }
+                HttpHeaders headers = ranged.headers();
+                if (ranged.statusCode() == 206) {
+                    long length = totalLength(headers.firstValue("Content-Range").orElse(""));
+                    return requireMedia(new RemoteFile(current, length, length > 0, headers, pin.getAddress()));
+                }
+                if (ranged.statusCode() == 200) {
+                    return requireMedia(new RemoteFile(current, headers.firstValueAsLong("Content-Length").orElse(-1),
+                            false, headers, pin.getAddress()));
+                }
+                throw new IOException("HTTP " + ranged.statusCode() + " from " + current);
+            }
+        }
+        throw new IOException("Too many redirects from " + uri);
+    }
+
+    /**
+     * Target of a redirect response, null for any other response
+     */
+    private static URI redirectLocation(HttpResponse<?> response) {
+        return switch (response.statusCode()) {
+            case 301, 302, 303, 307, 308 -> response.headers().firstValue("Location")
+                    .map(location -> response.uri().resolve(location.trim()))
+                    .orElse(null);
+            default -> null;
+        };
+    }
+
+    /**
+     * Accept only audio and video, so web pages behind unsupported links are never sent as media
+     * Files served as generic binary data are accepted when their name has a known media extension.
+     */
+    private static RemoteFile requireMedia(RemoteFile remote) throws IOException {
+        String mediaType = remote.getMediaType();
+        boolean media = mediaType != null && (mediaType.startsWith("video/") || mediaType.startsWith("audio/"));
+        if (!media && !(GENERIC_TYPES.contains(mediaType) && remote.getMediaExtension() != null)) {
+            throw new IOException("Not an audio or video file (" + (mediaType != null ? mediaType : "no content type")
+                    + "): " + remote.getUri());
+        }
+        return remote;
+    }
+
+    /**
+     * Total length from a Content-Range header such as "bytes 0-0/1234", -1 when it is "*"
+     */
+    private static long totalLength(String contentRange) throws RangeRejectedException {
+        int slash = contentRange.lastIndexOf('/');
+        if (!contentRange.startsWith("bytes ") || slash < 0) {
+            throw new RangeRejectedException("Malformed Content-Range '" + contentRange + "'");
+        }
+        String total = contentRange.substring(slash + 1).trim();
+        if (total.equals("*")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(total);
+        } catch (NumberFormatException e) {
+            throw new RangeRejectedException("Malformed Content-Range '" + contentRange + "'");
+        }
+    }
+
+    /**
+     * Download a probed file into the target path
+     *
+     * @param maxSegments        most range requests to run at the same time
+     * @param rateBytesPerSecond limit shared by all segments, 0 for unlimited
+     * @param maxFileSizeBytes   files known or found to be larger are rejected, 0 for no limit
+     * @param listener           receives progress, possibly from several threads (may be null)
+     */
+    public Path download(RemoteFile remote, Path target, int maxSegments, long rateBytesPerSecond, long maxFileSizeBytes,
+                         ProgressListener listener) throws IOException, FileTooLargeException, InterruptedException {
+        long length = remote.getContentLength();
+        if (maxFileSizeBytes > 0 && length > maxFileSizeBytes) {
+            throw new FileTooLargeException(length, maxFileSizeBytes, false);
+        }
+
+        downloads.incrementAndGet();
+        TokenBucket bucket = rateBytesPerSecond > 0 ? new TokenBucket(rateBytesPerSecond) : null;
+        Transfer transfer = new Transfer(length, listener);
+        boolean completed = false;
+        // Every segment connects to the address checked by the probe, not to whatever the host resolves to now
+        try (AddressPinningProxy.Pin pin = pinning.pin(remote.getUri(), remote.getAddress());
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (remote.isRangesSupported() && length > 0) {
+                List<Segment> segments = plan(length, maxSegments, directHttpConfig.getMinSegmentSizeKB() * 1024L);
+                if (segments.size() > 1) {
+                    segmentedDownloads.incrementAndGet();
+                }
+                // Extend the file up front (sparse where supported) so every segment writes at its own offset
+                channel.write(ByteBuffer.allocate(1), length - 1);
+                logger.debug("Downloading {} bytes from {} in {} segments", length, remote.getUri(), segments.size());
+                fetchSegments(remote, channel, segments, bucket, transfer);
+            } else {
+                fetchWhole(remote, channel, maxFileSizeBytes, bucket, transfer);
+            }
+
+            if (length >= 0 && channel.size() != length) {
+                verificationFailures.incrementAndGet();
+                throw new IOException("Downloaded " + channel.size() + " bytes, expected " + length + " from "
+                        + remote.getUri());
+            }
+            completed = true;
+            return target;
+        } finally {
+            if (!completed) {
+                failedDownloads.incrementAndGet();
+                Files.deleteIfExists(target);
+            }
+        }
+    }
+
+    /**
+     * Split a file into at most maxSegments contiguous ranges of at least minSegmentBytes each
+     */
+    static List<Segment> plan(long length, int maxSegments, long minSegmentBytes) {
+        long count = Math.max(1, Math.min(maxSegments, length / Math.max(1, minSegmentBytes)));
+        long size = (length + count - 1) / count;
+        List<Segment> segments = new ArrayList<>();
+        for (long start = 0; start < length; start += size) {
+            segments.add(new Segment(start, Math.min(length, start + size) - 1));
+        }
+        return segments;
+    }
+
+    private void fetchSegments(RemoteFile remote, FileChannel channel, List<Segment> segments, TokenBucket bucket,
+                               Transfer transfer) throws IOException, InterruptedException {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Segment segment : segments) {
+            futures.add(segmentExecutor.submit(() -> fetchSegment(remote, channel, segment, bucket, transfer)));
+        }
+
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to download " + remote.getUri() + ": " + cause.getMessage(), cause);
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Fetch one segment, resuming from the last written byte when the connection breaks
+     */
+    private Void fetchSegment(RemoteFile remote, FileChannel channel, Segment segment, TokenBucket bucket,
+                              Transfer transfer) throws IOException, InterruptedException {
+        int retries = 0;
+        while (true) {
+            IOException failure;
+            try {
+                readRange(remote, channel, segment, bucket, transfer);
+                if (segment.isComplete()) {
+                    return null;
+                }
+                failure = new IOException("Connection closed at byte " + segment.position + " of range " + segment);
+            } catch (RangeRejectedException | ClosedChannelException | InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+            if (retries++ >= directHttpConfig.getSegmentRetries()) {
+                throw failure;
+            }
+            segmentRetries.incrementAndGet();
+            logger.debug("Resuming range {} of {} from byte {}: {}", segment, remote.getUri(), segment.position,
+                    failure.getMessage());
+        }
+    }
+
+    private void readRange(RemoteFile remote, FileChannel channel, Segment segment, TokenBucket bucket,
+                           Transfer transfer) throws IOException, InterruptedException {
+        HttpRequest.Builder builder = request(remote.getUri())
+                .header("Range", "bytes=" + segment.position + "-" + segment.end).GET();
+        if (remote.getValidator() != null) {
+            // Answered with the whole file instead of the range if it changed since the probe
+            builder.header("If-Range", remote.getValidator());
+        }
+        segmentRequests.incrementAndGet();
+        HttpResponse<InputStream> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if (status != 206) {
+                if (status >= 500) {
+                    throw new IOException("HTTP " + status + " for range " + segment);
+                }
+                throw new RangeRejectedException("HTTP " + status + " for range " + segment + " of " + remote.getUri()
+                        + (status == 200 ? "; the file changed or ranges are not supported" : ""));
+            }
+            String contentRange = response.headers().firstValue("Content-Range").orElse("");
+            if (!contentRange.startsWith("bytes " + segment.position + "-")) {
+                throw new RangeRejectedException("Unexpected Content-Range '" + contentRange + "' for range " + segment);
+            }
+            if (copy(body, channel, segment, bucket, transfer)) {
+                throw new RangeRejectedException("Received more than range " + segment + " from " + remote.getUri());
+            }
+        }
+    }
+
+    private void fetchWhole(RemoteFile remote, FileChannel channel, long maxFileSizeBytes, TokenBucket bucket,
+                            Transfer transfer) throws IOException, FileTooLargeException, InterruptedException {
+        HttpResponse<InputStream> response = httpClient.send(request(remote.getUri()).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode() + " from " + remote.getUri());
+            }
+            Segment whole = new Segment(0, (maxFileSizeBytes > 0 ? maxFileSizeBytes : Long.MAX_VALUE) - 1);
+            if (copy(body, channel, whole, bucket, transfer)) {
+                throw new FileTooLargeException(-1, maxFileSizeBytes, false);
+            }
+        }
+    }
+
+    /**
+     * Write the body at the segment's position until it ends or the segment is full
+     *
+     * @return whether the body had more data than the segment holds
+     */
+    private boolean copy(InputStream in, FileChannel channel, Segment segment, TokenBucket bucket, Transfer transfer)
+            throws IOException {
+        byte[] buffer = new byte[directHttpConfig.getBufferSizeKB() * 1024];
+        ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+        while (segment.position <= segment.end) {
+            int read = in.read(buffer, 0, (int) Math.min(buffer.length, segment.end - segment.position + 1));
+            if (read < 0) {
+                return false;
+            }
+            if (bucket != null) {
+                try {
+                    bucket.acquire(read);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for download bandwidth");
+                }
+            }
+            wrapped.clear().limit(read);
+            while (wrapped.hasRemaining()) {
+                segment.position += channel.write(wrapped, segment.position);
+            }
+            transfer.add(read);
+        }
+        return in.read() >= 0;
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(directHttpConfig.getResponseTimeoutSeconds()))
+                .header("User-Agent", directHttpConfig.getUserAgent());
+    }
+
+    void setDirectHttpConfig(DirectHttpConfiguration directHttpConfig) {
+        this.directHttpConfig = directHttpConfig;
+    }
+
+    void setHostResolver(AddressPinningProxy.HostResolver hostResolver) {
+        this.hostResolver = hostResolver;
+    }
+
+    /**
+     * Get direct HTTP download statistics
+     */
+    public RangedDownloadStatistics getStatistics() {
+        return new RangedDownloadStatistics(downloads.get(), segmentedDownloads.get(), failedDownloads.get(),
+                segmentRequests.get(), segmentRetries.get(), verificationFailures.get(), bytesDownloaded.get());
+    }
+
+    /**
+     * Receives download progress
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param totalBytes file length, -1 when the server did not report it
+         */
+        void onProgress(long downloadedBytes, long totalBytes);
+    }
+
+    /**
+     * Remote file as reported by the server
+     */
+    public static class RemoteFile {
+        private final URI uri;
+        private final long contentLength;
+        private final boolean rangesSupported;
+        private final String contentType;
+        private final String fileName;
+        private final String validator;
+        private final InetAddress address;
+
+        RemoteFile(URI uri, long contentLength, boolean rangesSupported, HttpHeaders headers) {
+            this(uri, contentLength, rangesSupported, headers, null);
+        }
+
+        RemoteFile(URI uri, long contentLength, boolean rangesSupported, HttpHeaders headers, InetAddress address) {
+            this.uri = uri;
+            this.address = address;
+            this.contentLength = contentLength;
+            this.rangesSupported = rangesSupported;
+            this.contentType = headers.firstValue("Content-Type").orElse(null);
+            this.fileName = fileName(uri, headers.firstValue("Content-Disposition").orElse(null));
+            // Weak ETags cannot validate ranges; Last-Modified can
+            String etag = headers.firstValue("ETag").filter(v -> !v.startsWith("W/")).orElse(null);
+            this.validator = etag != null ? etag : headers.firstValue("Last-Modified").orElse(null);
+        }
+
+        private static String fileName(URI uri, String contentDisposition) {
+            if (contentDisposition != null) {
+                int index = contentDisposition.toLowerCase(Locale.ROOT).indexOf("filename=");
+                if (index >= 0) {
+                    String value = contentDisposition.substring(index + "filename=".length()).trim();
+                    if (value.startsWith("\"")) {
+                        int end = value.indexOf('"', 1);
+                        value = end > 0 ? value.substring(1, end) : value.substring(1);
+                    } else if (value.indexOf(';') >= 0) {
+                        value = value.substring(0, value.indexOf(';'));
+                    }
+                    if (!value.isBlank()) {
+                        return value.trim();
+                    }
+                }
+            }
+            String path = uri.getRawPath();
+            if (path != null && path.lastIndexOf('/') < path.length() - 1) {
+                return URLDecoder.decode(path.substring(path.lastIndexOf('/') + 1), StandardCharsets.UTF_8);
+            }
+            return null;
+        }
+
+        /**
+         * Final URI after redirects; segments are requested from it directly
+         */
+        public URI getUri() { return uri; }
+
+        /**
+         * Length in bytes, -1 when unknown
+         */
+        public long getContentLength() { return contentLength; }
+
+        public boolean isRangesSupported() { return rangesSupported; }
+        public String getContentType() { return contentType; }
+
+        /**
+         * Content type without parameters, lower-cased, null when the server sent none
+         */
+        public String getMediaType() {
+            if (contentType == null) {
+                return null;
+            }
+            int parameters = contentType.indexOf(';');
+            return (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Name from Content-Disposition or the last path segment, null when there is neither
+         */
+        public String getFileName() { return fileName; }
+
+        /**
+         * Extension for the content type, otherwise a known media extension of the file name or the path,
+         * null when neither says what the file is
+         */
+        public String getMediaExtension() {
+            String extension = getMediaType() != null ? EXTENSIONS_BY_TYPE.get(getMediaType()) : null;
+            if (extension != null) {
+                return extension;
+            }
+            extension = mediaExtension(fileName);
+            return extension != null ? extension : mediaExtension(fileName(uri, null));
+        }
+
+        private static String mediaExtension(String name) {
+            int dot = name != null ? name.lastIndexOf('.') : -1;
+            String extension = dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : null;
+            return MEDIA_EXTENSIONS.contains(extension) ? extension : null;
+        }
+
+        /**
+         * Strong ETag or Last-Modified date sent as If-Range, null when the server gave neither
+         */
+        public String getValidator() { return validator; }
+
+        /**
+         * Address the host was checked against when probed, null to resolve it again for the download
+         */
+        InetAddress getAddress() { return address; }
+    }
+
+    /**
+     * Inclusive byte range of the file; the position only advances on the thread fetching it
+     */
+    static final class Segment {
+        private final long start;
+        private final long end;
+        private long position;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        long getStart() {
+            return start;
+        }
+
+        long getEnd() {
+            return end;
+        }
+
+        long getLength() {
+            return end - start + 1;
+        }
+
+        boolean isComplete() {
+            return position > end;
+        }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /**
+     * Byte count of one download, shared by its segments
+     */
+    private final class Transfer {
+        private final long totalBytes;
+        private final ProgressListener listener;
+        private final AtomicLong bytes = new AtomicLong();
+
+        private Transfer(long totalBytes, ProgressListener listener) {
+            this.totalBytes = totalBytes;
+            this.listener = listener;
+        }
+
+        private void add(long count) {
+            long downloaded = bytes.addAndGet(count);
+            bytesDownloaded.addAndGet(count);
+            if (listener != null) {
+                listener.onProgress(downloaded, totalBytes);
+            }
+        }
+    }
+
+    /**
+     * The server answered a range request with something other than that range; retrying will not help
+     */
+    private static class RangeRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private RangeRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Direct HTTP download statistics inner class
+     */
+    public static class RangedDownloadStatistics {
+        private final long downloads;
+        private final long segmentedDownloads;
+        private final long failedDownloads;
+        private final long segmentRequests;
+        private final long segmentRetries;
+        private final long verificationFailures;
+        private final long bytesDownloaded;
+
+        public RangedDownloadStatistics(long downloads, long segmentedDownloads, long failedDownloads,
+                                        long segmentRequests, long segmentRetries, long verificationFailures,
+                                        long bytesDownloaded) {
+            this.downloads = downloads;
+            this.segmentedDownloads = segmentedDownloads;
+            this.failedDownloads = failedDownloads;
+            this.segmentRequests = segmentRequests;
+            this.segmentRetries = segmentRetries;
+            this.verificationFailures = verificationFailures;
+            this.bytesDownloaded = bytesDownloaded;
+        }
+
+        // Getters
+        public long getDownloads() { return downloads; }
+        public long getSegmentedDownloads() { return segmentedDownloads; }
+        public long getFailedDownloads() { return failedDownloads; }
+        public long getSegmentRequests() { return segmentRequests; }
+        public long getSegmentRetries() { return segmentRetries; }
+        public long getVerificationFailures() { return verificationFailures; }
+        public long getBytesDownloaded() { return bytesDownloaded; }
+    }
+}
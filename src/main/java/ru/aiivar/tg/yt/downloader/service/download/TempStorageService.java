@@ -0,0 +1,344 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.TempStorageConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Task temp directories split into a memory tier (tmpfs) and a disk tier
+ * The tier is chosen per task from the probed size estimate: small downloads go to memory while the
+ * tier has room, everything else (and anything of unknown size) goes to disk. Memory is reserved up
+ * front, so concurrent downloads cannot overfill the tier; a download that still runs out of space is
+ * spilled to disk. A finished download keeps room for one post-processing copy of its file (remuxing
+ * and transcoding write a new file next to it); when there is none, the file is moved to disk first.
+ * Directories are removed when the task releases them.
+ */
+@Service
+public class TempStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempStorageService.class);
+
+    public enum Tier {
+        MEMORY,
+        DISK
+    }
+
+    @Autowired
+    private TempStorageConfiguration tempStorageConfig;
+
+    private Path memoryRoot;
+    private Path diskRoot;
+    private volatile boolean memoryTierAvailable;
+    private long memoryReservedBytes;
+    private final Map<String, TempDirectory> directories = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryAllocations = new AtomicLong();
+    private final AtomicLong diskAllocations = new AtomicLong();
+    private final AtomicLong memoryFullFallbacks = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        String directory = tempStorageConfig.getDiskDirectory();
+        diskRoot = directory == null || directory.isBlank()
+                ? Paths.get(System.getProperty("java.io.tmpdir"), "yt_downloads")
+                : Paths.get(directory);
+        memoryRoot = Paths.get(tempStorageConfig.getMemoryDirectory());
+
+        if (tempStorageConfig.isMemoryTierEnabled()) {
+            try {
+                Files.createDirectories(memoryRoot);
+                // Left over by an earlier run; nothing tracks them anymore and they hold memory
+                try (Stream<Path> leftovers = Files.list(memoryRoot)) {
+                    leftovers.forEach(TempStorageService::delete);
+                }
+                memoryTierAvailable = true;
+                logger.info("Memory temp tier at {} ({} MB)", memoryRoot, tempStorageConfig.getMemoryCapacityMB());
+            } catch (IOException e) {
+                logger.warn("Memory temp tier unavailable at {}, using disk only: {}", memoryRoot, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create the temp directory of a task in the tier that fits the estimated download size
+     * A directory the task still holds from an earlier attempt is released first.
+     *
+     * @param estimatedBytes probed size of the download, or -1 when unknown
+     */
+    public TempDirectory allocate(String taskId, long estimatedBytes) throws IOException {
+        release(taskId);
+
+        long reserve = reserveFor(estimatedBytes);
+        if (reserve > 0 && reserveMemory(reserve)) {
+            try {
+                return create(taskId, Tier.MEMORY, reserve);
+            } catch (IOException e) {
+                releaseMemory(reserve);
+                logger.warn("Failed to create memory temp directory for task {}, using disk: {}", taskId, e.getMessage());
+            }
+        }
+        return create(taskId, Tier.DISK, 0);
+    }
+
+    /**
+     * Move a task that ran out of memory tier space to a fresh disk directory
+     */
+    public TempDirectory spill(String taskId) throws IOException {
+        release(taskId);
+        spills.incrementAndGet();
+        logger.info("Spilling task {} from memory to disk", taskId);
+        return create(taskId, Tier.DISK, 0);
+    }
+
+    /**
+     * Shrink the memory reservation of a task to its finished download and one post-processing copy of it
+     */
+    public void settle(TempDirectory directory, long actualBytes) {
+        if (directory.getTier() != Tier.MEMORY) {
+            return;
+        }
+        synchronized (this) {
+            long released = directory.reservedBytes - Math.min(directory.reservedBytes, 2 * actualBytes);
+            directory.reservedBytes -= released;
+            memoryReservedBytes -= released;
+        }
+    }
+
+    /**
+     * Make sure a post-processing copy of the task's file fits next to it
+     * A memory tier reservation that is too small is grown, or the file is moved to disk when the tier
+     * has no room. Returns the file at its current location.
+     */
+    public File reserveCopy(String taskId, File file) throws IOException {
+        TempDirectory directory = directories.get(taskId);
+        if (directory == null || directory.getTier() != Tier.MEMORY) {
+            return file;
+        }
+        long missing;
+        synchronized (this) {
+            missing = 2 * file.length() - directory.reservedBytes;
+        }
+        if (missing <= 0) {
+            return file;
+        }
+        if (reserveMemory(missing)) {
+            synchronized (this) {
+                directory.reservedBytes += missing;
+            }
+            return file;
+        }
+        logger.info("No memory temp space to post-process task {}, moving its file to disk", taskId);
+        return moveToDisk(taskId, file);
+    }
+
+    /**
+     * Whether the temp directory of a task is in the memory tier
+     */
+    public boolean isInMemory(String taskId) {
+        TempDirectory directory = directories.get(taskId);
+        return directory != null && directory.getTier() == Tier.MEMORY;
+    }
+
+    /**
+     * Move the file of a task that ran out of memory tier space to a fresh disk directory
+     * Unlike {@link #spill(String)} the file is kept. Files outside the memory tier are left where they are.
+     */
+    public File moveToDisk(String taskId, File file) throws IOException {
+        TempDirectory directory = directories.get(taskId);
+        if (directory == null || directory.getTier() != Tier.MEMORY) {
+            return file;
+        }
+        Path target = diskRoot.resolve(taskId);
+        try {
+            Files.createDirectories(target);
+            target = Files.move(file.toPath(), target.resolve(file.getName()), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new IOException("Failed to move temp file to disk: " + e.getMessage(), e);
+        }
+        spill(taskId);
+        return target.toFile();
+    }
+
+    /**
+     * Delete the temp directory of a task and free its reservation
+     */
+    public void release(String taskId) {
+        TempDirectory directory = directories.remove(taskId);
+        if (directory == null) {
+            return;
+        }
+        delete(directory.getDirectory());
+        if (directory.getTier() == Tier.MEMORY) {
+            releaseMemory(directory.reservedBytes);
+        }
+    }
+
+    /**
+     * Whether the failure was caused by a full file system
+     */
+    public static boolean isOutOfSpace(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && (message.contains("No space left on device") || message.contains("Errno 28"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long reserveFor(long estimatedBytes) {
+        if (!memoryTierAvailable || estimatedBytes <= 0
+                || estimatedBytes > tempStorageConfig.getMaxMemoryFileSizeMB() * 1024 * 1024) {
+            return 0;
+        }
+        return (long) Math.ceil(estimatedBytes * tempStorageConfig.getReserveFactor());
+    }
+
+    private synchronized boolean reserveMemory(long bytes) {
+        long capacity = tempStorageConfig.getMemoryCapacityMB() * 1024 * 1024;
+        boolean fits = memoryReservedBytes + bytes <= capacity;
+        if (fits) {
+            // The tmpfs may be shared with other processes, so its free space is checked as well
+            try {
+                fits = Files.getFileStore(memoryRoot).getUsableSpace() >= bytes;
+            } catch (IOException e) {
+                fits = false;
+            }
+        }
+        if (!fits) {
+            memoryFullFallbacks.incrementAndGet();
+            return false;
+        }
+        memoryReservedBytes += bytes;
+        return true;
+    }
+
+    private synchronized void releaseMemory(long bytes) {
+        memoryReservedBytes -= bytes;
+    }
+
+    private TempDirectory create(String taskId, Tier tier, long reservedBytes) throws IOException {
+        Path directory = (tier == Tier.MEMORY ? memoryRoot : diskRoot).resolve(taskId);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IOException("Failed to create temp directory: " + e.getMessage(), e);
+        }
+        (tier == Tier.MEMORY ? memoryAllocations : diskAllocations).incrementAndGet();
+        TempDirectory tempDirectory = new TempDirectory(taskId, tier, directory, reservedBytes);
+        directories.put(taskId, tempDirectory);
+        logger.debug("Created {} temp directory for task {}: {}", tier, taskId, directory);
+        return tempDirectory;
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Failed to delete temp directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    void setTempStorageConfig(TempStorageConfiguration tempStorageConfig) {
+        this.tempStorageConfig = tempStorageConfig;
+    }
+
+    /**
+     * Get temp storage statistics
+     */
+    public synchronized TempStorageStatistics getStatistics() {
+        int memoryDirectories = (int) directories.values().stream().filter(d -> d.getTier() == Tier.MEMORY).count();
+        return new TempStorageStatistics(memoryTierAvailable, tempStorageConfig.getMemoryCapacityMB() * 1024 * 1024,
+                memoryReservedBytes, memoryDirectories, directories.size() - memoryDirectories,
+                memoryAllocations.get(), diskAllocations.get(), memoryFullFallbacks.get(), spills.get());
+    }
+
+    /**
+     * Temp directory of one task
+     */
+    public static class TempDirectory {
+        private final String taskId;
+        private final Tier tier;
+        private final Path directory;
+        private long reservedBytes;
+
+        private TempDirectory(String taskId, Tier tier, Path directory, long reservedBytes) {
+            this.taskId = taskId;
+            this.tier = tier;
+            this.directory = directory;
+            this.reservedBytes = reservedBytes;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        public Tier getTier() {
+            return tier;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+    }
+
+    /**
+     * Temp storage statistics inner class
+     */
+    public static class TempStorageStatistics {
+        private final boolean memoryTierAvailable;
+        private final long memoryCapacityBytes;
+        private final long memoryReservedBytes;
+        private final int memoryDirectories;
+        private final int diskDirectories;
+        private final long memoryAllocations;
+        private final long diskAllocations;
+        private final long memoryFullFallbacks;
+        private final long spills;
+
+        public TempStorageStatistics(boolean memoryTierAvailable, long memoryCapacityBytes, long memoryReservedBytes,
+                                     int memoryDirectories, int diskDirectories, long memoryAllocations,
+                                     long diskAllocations, long memoryFullFallbacks, long spills) {
+            this.memoryTierAvailable = memoryTierAvailable;
+            this.memoryCapacityBytes = memoryCapacityBytes;
+            this.memoryReservedBytes = memoryReservedBytes;
+            this.memoryDirectories = memoryDirectories;
+            this.diskDirectories = diskDirectories;
+            this.memoryAllocations = memoryAllocations;
+            this.diskAllocations = diskAllocations;
+            this.memoryFullFallbacks = memoryFullFallbacks;
+            this.spills = spills;
+        }
+
+        public double getMemoryUsagePercentage() {
+            return memoryCapacityBytes > 0 ? memoryReservedBytes * 100.0 / memoryCapacityBytes : 0;
+        }
+
+        // Getters
+        public boolean isMemoryTierAvailable() { return memoryTierAvailable; }
+        public long getMemoryCapacityBytes() { return memoryCapacityBytes; }
+        public long getMemoryReservedBytes() { return memoryReservedBytes; }
+        public int getMemoryDirectories() { return memoryDirectories; }
+        public int getDiskDirectories() { return diskDirectories; }
+        public long getMemoryAllocations() { return memoryAllocations; }
+        public long getDiskAllocations() { return diskAllocations; }
+        public long getMemoryFullFallbacks() { return memoryFullFallbacks; }
+        public long getSpills() { return spills; }
+    }
+}
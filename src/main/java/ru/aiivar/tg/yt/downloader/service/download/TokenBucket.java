@@ -0,0 +1,77 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket of bytes refilled at a fixed rate, shared by all threads taking from it
+ * Concurrent consumers split the rate between them without coordination: whoever takes tokens first
+ * gets them, and a consumer that goes idle leaves its share to the others.
+ */
+public class TokenBucket {
+
+    private final long bytesPerSecond;
+    private final long capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long waitedNanos;
+
+    /**
+     * @param bytesPerSecond refill rate; the bucket holds at most one second of tokens
+     */
+    public TokenBucket(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.capacity = bytesPerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take tokens for the given number of bytes, waiting until enough have accumulated
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long chunk = Math.min(remaining, capacity);
+            long waitNanos = reserve(chunk);
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Interrupted while waiting for bandwidth");
+                }
+            }
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Take tokens now, going into debt when there are not enough, and return how long the caller must wait
+     */
+    private synchronized long reserve(long bytes) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * bytesPerSecond / (double) TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        long waitNanos = (long) (-tokens * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+        waitedNanos += waitNanos;
+        return waitNanos;
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Total time consumers were made to wait
+     */
+    public synchronized long getWaitedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitedNanos);
+    }
+}
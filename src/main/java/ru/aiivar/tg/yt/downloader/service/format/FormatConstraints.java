@@ -0,0 +1,80 @@
+package ru.aiivar.tg.yt.downloader.service.format;
+
+import java.util.List;
+
+/**
+ * What a destination accepts and prefers, used to choose the downloaded rendition
+ * Codec preferences are prefixes of yt-dlp codec strings (e.g. "avc1", "mp4a"); an empty list means no preference.
+ */
+public class FormatConstraints {
+
+    private final long maxFileSizeBytes;
+    private final long preferredMaxFileSizeBytes;
+    private final List<String> containers;
+    private final boolean preferPremuxed;
+    private final List<String> preferredVideoCodecs;
+    private final List<String> preferredAudioCodecs;
+
+    public FormatConstraints(long maxFileSizeBytes, long preferredMaxFileSizeBytes, List<String> containers,
+                             boolean preferPremuxed, List<String> preferredVideoCodecs,
+                             List<String> preferredAudioCodecs) {
+        this.maxFileSizeBytes = maxFileSizeBytes;
+        this.preferredMaxFileSizeBytes = preferredMaxFileSizeBytes;
+        this.containers = List.copyOf(containers);
+        this.preferPremuxed = preferPremuxed;
+        this.preferredVideoCodecs = List.copyOf(preferredVideoCodecs);
+        this.preferredAudioCodecs = List.copyOf(preferredAudioCodecs);
+    }
+
+    /**
+     * Constraints without size limits or preferences, accepting the given containers
+     */
+    public static FormatConstraints unrestricted(List<String> containers) {
+        return new FormatConstraints(0, 0, containers, true, List.of(), List.of());
+    }
+
+    /**
+     * Copy with a lower hard size limit; a non-positive limit keeps the current one
+     */
+    public FormatConstraints withMaxFileSize(long maxFileSizeBytes) {
+        if (maxFileSizeBytes <= 0 || (this.maxFileSizeBytes > 0 && this.maxFileSizeBytes <= maxFileSizeBytes)) {
+            return this;
+        }
+        return new FormatConstraints(maxFileSizeBytes, preferredMaxFileSizeBytes, containers, preferPremuxed,
+                preferredVideoCodecs, preferredAudioCodecs);
+    }
+
+    /**
+     * Copy with other hard and soft size limits (0 = none)
+     */
+    public FormatConstraints withSizeLimits(long maxFileSizeBytes, long preferredMaxFileSizeBytes) {
+        return new FormatConstraints(maxFileSizeBytes, preferredMaxFileSizeBytes, containers, preferPremuxed,
+                preferredVideoCodecs, preferredAudioCodecs);
+    }
+
+    /**
+     * Whether the container is accepted; an empty list accepts any container
+     */
+    public boolean acceptsContainer(String container) {
+        return containers.isEmpty() || containers.contains(container);
+    }
+
+    // Getters
+    /**
+     * Hard limit; renditions known to be larger are never selected (0 = unlimited)
+     */
+    public long getMaxFileSizeBytes() { return maxFileSizeBytes; }
+
+    /**
+     * Soft limit; renditions within it are preferred over higher resolutions (0 = none)
+     */
+    public long getPreferredMaxFileSizeBytes() { return preferredMaxFileSizeBytes; }
+
+    /**
+     * Accepted containers in order of preference
+     */
+    public List<String> getContainers() { return containers; }
+    public boolean isPreferPremuxed() { return preferPremuxed; }
+    public List<String> getPreferredVideoCodecs() { return preferredVideoCodecs; }
+    public List<String> getPreferredAudioCodecs() { return preferredAudioCodecs; }
+}
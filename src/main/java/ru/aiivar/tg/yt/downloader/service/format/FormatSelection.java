@@ -0,0 +1,59 @@
+package ru.aiivar.tg.yt.downloader.service.format;
+
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoFormat;
+
+/**
+ * Rendition chosen by {@link FormatSelector}: a pre-muxed format, a video and audio pair to merge,
+ * or an audio stream alone
+ */
+public class FormatSelection {
+
+    private final VideoFormat video;
+    private final VideoFormat audio;
+    private final String container;
+    private final Long estimatedFileSizeBytes;
+
+    public FormatSelection(VideoFormat video, VideoFormat audio, String container, Long estimatedFileSizeBytes) {
+        this.video = video;
+        this.audio = audio;
+        this.container = container;
+        this.estimatedFileSizeBytes = estimatedFileSizeBytes;
+    }
+
+    /**
+     * yt-dlp --format value selecting exactly this rendition
+     */
+    public String getFormatSpec() {
+        if (video == null) {
+            return audio.getFormatId();
+        }
+        return audio == null ? video.getFormatId() : video.getFormatId() + "+" + audio.getFormatId();
+    }
+
+    public boolean isPremuxed() {
+        return audio == null;
+    }
+
+    public boolean isAudioOnly() {
+        return video == null;
+    }
+
+    /**
+     * Resolution label such as "720p", or null when the height is unknown
+     */
+    public String getResolution() {
+        return video != null && video.getHeight() != null ? video.getHeight() + "p" : null;
+    }
+
+    // Getters
+    public VideoFormat getVideo() { return video; }
+    public VideoFormat getAudio() { return audio; }
+    public String getContainer() { return container; }
+    public Long getEstimatedFileSizeBytes() { return estimatedFileSizeBytes; }
+
+    @Override
+    public String toString() {
+        return getFormatSpec() + " (" + container + ", " + getResolution() + ", "
+                + (estimatedFileSizeBytes != null ? estimatedFileSizeBytes + " bytes" : "size unknown") + ")";
+    }
+}
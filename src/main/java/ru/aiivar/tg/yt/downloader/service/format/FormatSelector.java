@@ -0,0 +1,246 @@
+package ru.aiivar.tg.yt.downloader.service.format;
+
+import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoFormat;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Chooses the rendition to download from the probed format list
+ * Candidates are pre-muxed formats and video/audio pairs that can be merged into an accepted container.
+ * Renditions known to exceed the hard size limit are dropped; the rest are ranked by, in order:
+ * fitting the preferred size, height (highest for "best", lowest for "worst"), preferred codecs,
+ * being pre-muxed, container preference and bitrate. Renditions of unknown size rank last.
+ */
+@Component
+public class FormatSelector {
+
+    /**
+     * Container audio is extracted into; AAC streams are copied into it as they are
+     */
+    public static final String AUDIO_CONTAINER = "m4a";
+
+    /**
+     * Select a rendition, or return null when the format list has no usable candidate
+     */
+    public FormatSelection select(VideoMetadata metadata, String requestedContainer, int maxHeight, boolean worst,
+                                  FormatConstraints constraints) throws FileTooLargeException {
+        List<String> containers = containerPreference(requestedContainer, constraints);
+        List<VideoFormat> videoFormats = new ArrayList<>();
+        List<VideoFormat> audioFormats = new ArrayList<>();
+        for (VideoFormat format : metadata.getFormats()) {
+            if (format.getFormatId() == null) {
+                continue;
+            }
+            if (format.hasVideo() && height(format) <= maxHeight) {
+                videoFormats.add(format);
+            } else if (format.hasAudio() && !format.hasVideo()) {
+                audioFormats.add(format);
+            }
+        }
+
+        List<FormatSelection> candidates = new ArrayList<>();
+        for (VideoFormat video : videoFormats) {
+            if (video.hasAudio()) {
+                if (constraints.acceptsContainer(video.getExt())) {
+                    candidates.add(new FormatSelection(video, null, video.getExt(), estimateSize(video, metadata)));
+                }
+                continue;
+            }
+            for (String container : containers) {
+                VideoFormat audio = bestAudio(audioFormats, video, container, constraints);
+                if (audio != null) {
+                    candidates.add(new FormatSelection(video, audio, container,
+                            sum(estimateSize(video, metadata), estimateSize(audio, metadata))));
+                    break;
+                }
+            }
+        }
+
+        long maxSize = constraints.getMaxFileSizeBytes();
+        Long smallestRejected = null;
+        List<FormatSelection> fitting = new ArrayList<>();
+        for (FormatSelection candidate : candidates) {
+            Long size = candidate.getEstimatedFileSizeBytes();
+            if (maxSize > 0 && size != null && size > maxSize) {
+                smallestRejected = smallestRejected == null ? size : Math.min(smallestRejected, size);
+            } else {
+                fitting.add(candidate);
+            }
+        }
+        if (fitting.isEmpty()) {
+            if (smallestRejected != null) {
+                throw new FileTooLargeException(smallestRejected, maxSize, true);
+            }
+            return null;
+        }
+
+        return fitting.stream().min(ranking(worst, containers, constraints)).orElse(null);
+    }
+
+    /**
+     * Select the audio stream to extract, or return null when the format list has no audio-only format
+     * Streams that go into the container without re-encoding (AAC for m4a) win over better-sounding ones
+     * that would have to be converted; among those the highest bitrate that fits the preferred size is taken.
+     */
+    public FormatSelection selectAudio(VideoMetadata metadata, FormatConstraints constraints) throws FileTooLargeException {
+        long maxSize = constraints.getMaxFileSizeBytes();
+        Long smallestRejected = null;
+        List<FormatSelection> fitting = new ArrayList<>();
+        for (VideoFormat format : metadata.getFormats()) {
+            if (format.getFormatId() == null || format.hasVideo() || !format.hasAudio()) {
+                continue;
+            }
+            Long size = estimateSize(format, metadata);
+            if (maxSize > 0 && size != null && size > maxSize) {
+                smallestRejected = smallestRejected == null ? size : Math.min(smallestRejected, size);
+            } else {
+                fitting.add(new FormatSelection(null, format, AUDIO_CONTAINER, size));
+            }
+        }
+        if (fitting.isEmpty()) {
+            if (smallestRejected != null) {
+                throw new FileTooLargeException(smallestRejected, maxSize, true);
+            }
+            return null;
+        }
+
+        return fitting.stream().min(Comparator.<FormatSelection>comparingInt(c -> sizeTier(c, constraints))
+                .thenComparingInt(c -> canCopyAudio(c.getAudio()) ? 0 : 1)
+                .thenComparing(Comparator.<FormatSelection>comparingDouble(c ->
+                        c.getAudio().getTbr() != null ? c.getAudio().getTbr() : 0).reversed()))
+                .orElse(null);
+    }
+
+    /**
+     * Whether the audio stream fits into {@link #AUDIO_CONTAINER} without re-encoding
+     */
+    static boolean canCopyAudio(VideoFormat audio) {
+        return audio.getAcodec() != null && audio.getAcodec().toLowerCase(Locale.ROOT).startsWith("mp4a");
+    }
+
+    private Comparator<FormatSelection> ranking(boolean worst, List<String> containers, FormatConstraints constraints) {
+        Comparator<FormatSelection> byHeight = Comparator.comparingInt(c -> height(c.getVideo()));
+        Comparator<FormatSelection> byBitrate = Comparator.comparingDouble(FormatSelector::bitrate);
+        return Comparator.<FormatSelection>comparingInt(c -> sizeTier(c, constraints))
+                .thenComparing(worst ? byHeight : byHeight.reversed())
+                .thenComparing(Comparator.<FormatSelection>comparingInt(c -> codecScore(c, constraints)).reversed())
+                .thenComparingInt(c -> constraints.isPreferPremuxed() && !c.isPremuxed() ? 1 : 0)
+                .thenComparingInt(c -> containerRank(c.getContainer(), containers))
+                .thenComparing(worst ? byBitrate : byBitrate.reversed());
+    }
+
+    private static int sizeTier(FormatSelection candidate, FormatConstraints constraints) {
+        Long size = candidate.getEstimatedFileSizeBytes();
+        if (size == null) {
+            return 2;
+        }
+        long preferred = constraints.getPreferredMaxFileSizeBytes();
+        return preferred <= 0 || size <= preferred ? 0 : 1;
+    }
+
+    private static int codecScore(FormatSelection candidate, FormatConstraints constraints) {
+        VideoFormat audio = candidate.isPremuxed() ? candidate.getVideo() : candidate.getAudio();
+        int score = matches(candidate.getVideo().getVcodec(), constraints.getPreferredVideoCodecs()) ? 2 : 0;
+        return score + (matches(audio.getAcodec(), constraints.getPreferredAudioCodecs()) ? 1 : 0);
+    }
+
+    private static int containerRank(String container, List<String> containers) {
+        int index = containers.indexOf(container);
+        return index < 0 ? containers.size() : index;
+    }
+
+    private VideoFormat bestAudio(List<VideoFormat> audioFormats, VideoFormat video, String container,
+                                  FormatConstraints constraints) {
+        VideoFormat best = null;
+        for (VideoFormat audio : audioFormats) {
+            if (!canMerge(video, audio, container)) {
+                continue;
+            }
+            if (best == null || compareAudio(audio, best, constraints) > 0) {
+                best = audio;
+            }
+        }
+        return best;
+    }
+
+    private static int compareAudio(VideoFormat a, VideoFormat b, FormatConstraints constraints) {
+        boolean aPreferred = matches(a.getAcodec(), constraints.getPreferredAudioCodecs());
+        boolean bPreferred = matches(b.getAcodec(), constraints.getPreferredAudioCodecs());
+        if (aPreferred != bPreferred) {
+            return aPreferred ? 1 : -1;
+        }
+        return Double.compare(a.getTbr() != null ? a.getTbr() : 0, b.getTbr() != null ? b.getTbr() : 0);
+    }
+
+    /**
+     * Whether the streams can be merged into the container without re-encoding
+     */
+    static boolean canMerge(VideoFormat video, VideoFormat audio, String container) {
+        return switch (container) {
+            case "mp4", "mov", "m4v" -> "mp4".equals(video.getExt()) && ("m4a".equals(audio.getExt()) || "mp4".equals(audio.getExt()));
+            case "webm" -> "webm".equals(video.getExt()) && "webm".equals(audio.getExt());
+            case "mkv" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<String> containerPreference(String requestedContainer, FormatConstraints constraints) {
+        Set<String> containers = new LinkedHashSet<>();
+        if (requestedContainer != null && constraints.acceptsContainer(requestedContainer)) {
+            containers.add(requestedContainer);
+        }
+        containers.addAll(constraints.getContainers());
+        if (constraints.getContainers().isEmpty()) {
+            containers.add("mkv");
+        }
+        return new ArrayList<>(containers);
+    }
+
+    /**
+     * Known or approximate size, otherwise estimated from bitrate and duration
+     */
+    private static Long estimateSize(VideoFormat format, VideoMetadata metadata) {
+        Long size = format.getEffectiveFileSize();
+        if (size == null && format.getTbr() != null && metadata.getDurationSeconds() != null) {
+            size = Math.round(format.getTbr() * 1000 / 8 * metadata.getDurationSeconds());
+        }
+        return size;
+    }
+
+    private static Long sum(Long a, Long b) {
+        return a != null && b != null ? a + b : null;
+    }
+
+    private static int height(VideoFormat format) {
+        return format.getHeight() != null ? format.getHeight() : 0;
+    }
+
+    private static double bitrate(FormatSelection candidate) {
+        double bitrate = candidate.getVideo().getTbr() != null ? candidate.getVideo().getTbr() : 0;
+        if (candidate.getAudio() != null && candidate.getAudio().getTbr() != null) {
+            bitrate += candidate.getAudio().getTbr();
+        }
+        return bitrate;
+    }
+
+    private static boolean matches(String codec, List<String> prefixes) {
+        if (codec == null) {
+            return false;
+        }
+        String normalized = codec.toLowerCase(Locale.ROOT);
+        for (String prefix : prefixes) {
+            if (normalized.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
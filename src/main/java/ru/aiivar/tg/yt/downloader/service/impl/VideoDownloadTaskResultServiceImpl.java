@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.aiivar.tg.yt.downloader.config.ReuseConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
@@ -14,6 +15,10 @@ import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
 import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskResultRepository;
 import ru.aiivar.tg.yt.downloader.service.EntityFactory;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskResultService;
+import ru.aiivar.tg.yt.downloader.service.VideoIdentityService;
+import ru.aiivar.tg.yt.downloader.service.reuse.RenditionKey;
+import ru.aiivar.tg.yt.downloader.service.reuse.RenditionMatcher;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseCache;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -34,6 +39,15 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
     @Autowired
     private EntityFactory entityFactory;
 
+    @Autowired
+    private VideoIdentityService videoIdentityService;
+
+    @Autowired
+    private ReuseConfiguration reuseConfig;
+
+    @Autowired
+    private ReuseCache reuseCache;
+
     @Override
     public VideoDownloadTaskResult createResult(VideoDownloadTask task, DestinationType destinationType) {
         logger.info("Creating new result for task: {} and destination: {}", task.getId(), destinationType);
@@ -140,6 +154,10 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
         VideoDownloadTaskResult updatedResult = resultRepository.save(result);
         logger.info("Updated result {} status to {}", resultId, status);
 
+        if (status == TaskStatus.COMPLETED) {
+            reuseCache.publishCompleted(getCanonicalVideoId(updatedResult), updatedResult);
+        }
+
         return updatedResult;
     }
 
@@ -178,6 +196,8 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
         VideoDownloadTaskResult updatedResult = resultRepository.save(result);
         logger.info("Marked result {} as completed", resultId);
 
+        reuseCache.publishCompleted(getCanonicalVideoId(updatedResult), updatedResult);
+
         return updatedResult;
     }
 
@@ -305,10 +325,12 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
     public void deleteResult(String resultId) {
         logger.info("Deleting result: {}", resultId);
 
-        if (!resultRepository.existsById(resultId)) {
+        Optional<VideoDownloadTaskResult> resultOpt = resultRepository.findById(resultId);
+        if (resultOpt.isEmpty()) {
             throw new IllegalArgumentException("Result not found with ID: " + resultId);
         }
 
+        reuseCache.publishDeleted(getCanonicalVideoId(resultOpt.get()), resultOpt.get());
         resultRepository.deleteById(resultId);
         logger.info("Deleted result: {}", resultId);
     }
@@ -318,6 +340,9 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
         logger.info("Deleting all results for task: {}", taskId);
 
         List<VideoDownloadTaskResult> results = resultRepository.findByTaskId(taskId);
+        for (VideoDownloadTaskResult result : results) {
+            reuseCache.publishDeleted(getCanonicalVideoId(result), result);
+        }
         resultRepository.deleteAll(results);
         
         logger.info("Deleted {} results for task: {}", results.size(), taskId);
@@ -354,6 +379,7 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
             }
             
             // Delete non-Telegram results
+            reuseCache.publishDeleted(getCanonicalVideoId(result), result);
             resultRepository.delete(result);
             deletedCount++;
             logger.debug("Deleted old result: {} (destination: {})", result.getId(), result.getDestinationType());
@@ -400,15 +426,20 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
     @Override
     @Transactional(readOnly = true)
     public List<VideoDownloadTaskResult> findExistingResultsBySourceUrlAndDestination(String sourceUrl, DestinationType destinationType) {
-        logger.debug("Finding existing results for source URL: {} and destination: {}", sourceUrl, destinationType);
-        return resultRepository.findExistingResultsBySourceUrlAndDestination(sourceUrl, destinationType);
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(sourceUrl);
+        logger.debug("Finding existing results for source URL: {} (canonical: {}) and destination: {}",
+                sourceUrl, canonicalVideoId, destinationType);
+        return resultRepository.findExistingResultsByCanonicalVideoIdAndDestination(canonicalVideoId, sourceUrl, destinationType);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<VideoDownloadTaskResult> findMostRecentResultBySourceUrlAndDestination(String sourceUrl, DestinationType destinationType) {
-        logger.debug("Finding most recent result for source URL: {} and destination: {}", sourceUrl, destinationType);
-        List<VideoDownloadTaskResult> results = resultRepository.findMostRecentResultsBySourceUrlAndDestination(sourceUrl, destinationType);
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(sourceUrl);
+        logger.debug("Finding most recent result for source URL: {} (canonical: {}) and destination: {}",
+                sourceUrl, canonicalVideoId, destinationType);
+        List<VideoDownloadTaskResult> results = resultRepository.findMostRecentResultsByCanonicalVideoIdAndDestination(
+                canonicalVideoId, sourceUrl, destinationType);
         
         if (results.size() > 1) {
             logger.warn("Found {} results for source URL: {} and destination: {}, using the most recent one", 
@@ -421,12 +452,58 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
     @Override
     @Transactional(readOnly = true)
     public boolean hasExistingResult(String sourceUrl, DestinationType destinationType) {
-        long count = resultRepository.countExistingResultsBySourceUrlAndDestination(sourceUrl, destinationType);
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(sourceUrl);
+        long count = resultRepository.countExistingResultsByCanonicalVideoIdAndDestination(
+                canonicalVideoId, sourceUrl, destinationType);
         boolean exists = count > 0;
-        logger.debug("Existing result check for {} and {}: {}", sourceUrl, destinationType, exists);
+        logger.debug("Existing result check for {} (canonical: {}) and {}: {}", sourceUrl, canonicalVideoId, destinationType, exists);
         return exists;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<VideoDownloadTaskResult> findReusableResult(String sourceUrl, DestinationType destinationType,
+                                                               RenditionKey requestedRendition) {
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(sourceUrl);
+        RenditionMatcher matcher = new RenditionMatcher(
+                reuseConfig.isAllowLowerResolutionFallback(), reuseConfig.getMinHeightRatio());
+
+        Optional<ReuseCache.CachedResults> cached = reuseCache.get(canonicalVideoId, destinationType);
+        if (cached.isPresent()) {
+            Optional<VideoDownloadTaskResult> cachedMatch = matcher.selectBest(requestedRendition, cached.get().getResults());
+            boolean exact = cachedMatch.isPresent() && RenditionKey.fromResult(cachedMatch.get()).equals(requestedRendition);
+            // Entries learned only from change events may miss older renditions, so they answer exact hits only
+            if (exact || cached.get().isComplete()) {
+                logger.debug("Reuse cache answered rendition {} for {} and {}: {}", requestedRendition,
+                        canonicalVideoId, destinationType, cachedMatch.isPresent() ? "hit" : "no compatible result");
+                return cachedMatch;
+            }
+        }
+
+        if (!reuseCache.isEnabled()) {
+            List<VideoDownloadTaskResult> exactMatches = resultRepository.findExistingResultsByCanonicalVideoIdAndRendition(
+                    canonicalVideoId, requestedRendition.toString(), destinationType);
+            if (!exactMatches.isEmpty()) {
+                logger.debug("Found exact rendition {} for {} and {}", requestedRendition, canonicalVideoId, destinationType);
+                return Optional.of(exactMatches.get(0));
+            }
+        }
+
+        List<VideoDownloadTaskResult> candidates = resultRepository.findExistingResultsByCanonicalVideoIdAndDestination(
+                canonicalVideoId, sourceUrl, destinationType);
+        reuseCache.putLoaded(canonicalVideoId, destinationType, candidates);
+        Optional<VideoDownloadTaskResult> match = matcher.selectBest(requestedRendition, candidates);
+
+        if (match.isPresent()) {
+            logger.info("Using rendition {} for requested {} of {} ({} candidates)",
+                    RenditionKey.fromResult(match.get()), requestedRendition, canonicalVideoId, candidates.size());
+        } else if (!candidates.isEmpty()) {
+            logger.info("None of {} existing results for {} is compatible with requested rendition {}",
+                    candidates.size(), canonicalVideoId, requestedRendition);
+        }
+        return match;
+    }
+
     @Override
     public VideoDownloadTaskResult reuseExistingResult(String sourceUrl, DestinationType destinationType, VideoDownloadTask newTask) {
         logger.info("Reusing existing result for source URL: {} and destination: {} for new task: {}", 
@@ -437,18 +514,22 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
             throw new IllegalArgumentException("No existing result found for source URL: " + sourceUrl + " and destination: " + destinationType);
         }
 
-        VideoDownloadTaskResult existingResult = existingResultOpt.get();
-        
+        return reuseExistingResult(existingResultOpt.get(), newTask);
+    }
+
+    @Override
+    public VideoDownloadTaskResult reuseExistingResult(VideoDownloadTaskResult existingResult, VideoDownloadTask newTask) {
         // Create a new result that references the existing destination ID
         VideoDownloadTaskResult newResult = entityFactory.newEntity(VideoDownloadTaskResult.class);
         newResult.setTask(newTask);
-        newResult.setDestinationType(destinationType);
+        newResult.setDestinationType(existingResult.getDestinationType());
         newResult.setDestinationId(existingResult.getDestinationId());
         newResult.setFileName(existingResult.getFileName());
         newResult.setFileSizeBytes(existingResult.getFileSizeBytes());
         newResult.setFileFormat(existingResult.getFileFormat());
         newResult.setDurationSeconds(existingResult.getDurationSeconds());
         newResult.setResolution(existingResult.getResolution());
+        newResult.setRenditionKey(RenditionKey.fromResult(existingResult).toString());
         newResult.setBitrate(existingResult.getBitrate());
         newResult.setFps(existingResult.getFps());
         newResult.setCodec(existingResult.getCodec());
@@ -463,8 +544,19 @@ public class VideoDownloadTaskResultServiceImpl implements VideoDownloadTaskResu
         newResult.setUploadCompletedAt(LocalDateTime.now());
 
         VideoDownloadTaskResult savedResult = resultRepository.save(newResult);
-        logger.info("Created reused result with ID: {} for task: {}", savedResult.getId(), newTask.getId());
+        logger.info("Created reused result with ID: {} for task: {} from result: {}",
+                savedResult.getId(), newTask.getId(), existingResult.getId());
 
         return savedResult;
     }
+
+    private String getCanonicalVideoId(VideoDownloadTaskResult result) {
+        VideoDownloadTask task = result.getTask();
+        if (task == null) {
+            return null;
+        }
+        return task.getCanonicalVideoId() != null
+                ? task.getCanonicalVideoId()
+                : videoIdentityService.resolveCanonicalVideoId(task.getSourceUrl());
+    }
 }
@@ -1,29 +1,55 @@
 package ru.aiivar.tg.yt.downloader.service.impl;
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.aiivar.tg.yt.downloader.config.BatchConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
 import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
 import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
 import ru.aiivar.tg.yt.downloader.model.VideoDownloadRequest;
 import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskRepository;
 import ru.aiivar.tg.yt.downloader.service.EntityFactory;
+import ru.aiivar.tg.yt.downloader.service.MemoryMonitoringService;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskResultService;
 import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskService;
+import ru.aiivar.tg.yt.downloader.service.VideoIdentityService;
+import ru.aiivar.tg.yt.downloader.service.download.TempStorageService;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
+import ru.aiivar.tg.yt.downloader.service.notification.TaskStatusNotifier;
+import ru.aiivar.tg.yt.downloader.service.postprocess.FastStartRemuxer;
+import ru.aiivar.tg.yt.downloader.service.postprocess.SizeTargetedTranscoder;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
 import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor;
 import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor;
-
+import ru.aiivar.tg.yt.downloader.service.processor.VideoStream;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgressRegistry;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceRateLimiter;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.ThrottleDetector;
+import ru.aiivar.tg.yt.downloader.service.reuse.RenditionKey;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseDeliveryService;
+
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -44,12 +70,57 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
     @Autowired
     private EntityFactory entityFactory;
 
+    @Autowired
+    private VideoIdentityService videoIdentityService;
+
+    @Autowired
+    private MemoryMonitoringService memoryMonitoringService;
+
+    @Autowired
+    private ReuseDeliveryService reuseDeliveryService;
+
+    @Autowired
+    private SourceRateLimiter sourceRateLimiter;
+
+    @Autowired
+    private TaskProgressRegistry progressRegistry;
+
+    @Autowired
+    private TaskStatusNotifier taskStatusNotifier;
+
+    @Autowired
+    private BatchConfiguration batchConfig;
+
+    @Autowired
+    private TempStorageService tempStorageService;
+
+    @Autowired
+    private FastStartRemuxer fastStartRemuxer;
+
+    @Autowired
+    private SizeTargetedTranscoder sizeTargetedTranscoder;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     // Processor registry
     private final Map<SourceType, VideoSourceProcessor> sourceProcessors = new ConcurrentHashMap<>();
     private final Map<DestinationType, VideoDestinationProcessor> destinationProcessors = new ConcurrentHashMap<>();
 
+    private TransactionTemplate requiresNewTransaction;
+
+    @PostConstruct
+    public void init() {
+        requiresNewTransaction = new TransactionTemplate(transactionManager);
+        requiresNewTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     @Override
     public VideoDownloadTask createTask(VideoDownloadRequest request) {
+        return createTask(request, null);
+    }
+
+    private VideoDownloadTask createTask(VideoDownloadRequest request, VideoDownloadTask batch) {
         logger.info("Creating new video download task for URL: {}", request.getUrl());
 
         // Determine source type from URL
@@ -60,6 +131,7 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
 
         VideoDownloadTask task = entityFactory.newEntity(VideoDownloadTask.class);
         task.setSourceUrl(request.getUrl());
+        task.setCanonicalVideoId(videoIdentityService.resolveCanonicalVideoId(request.getUrl(), sourceType));
         task.setSourceType(sourceType);
         task.setDestinationType(destinationType);
         task.setUserId(request.getChatId()); // Using chatId as userId for now
@@ -67,7 +139,9 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         task.setRequestedFormat(request.getFormat());
         task.setRequestedQuality(request.getQuality());
         task.setRequestedResolution(request.getResolution());
+        task.setAudioOnly(Boolean.TRUE.equals(request.getAudioOnly()));
         task.setStatus(TaskStatus.PENDING);
+        linkToBatch(task, batch);
 
         VideoDownloadTask savedTask = taskRepository.save(task);
         logger.info("Created video download task with ID: {}", savedTask.getId());
@@ -77,6 +151,10 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
 
     @Override
     public VideoDownloadTask createTaskWithReuseCheck(VideoDownloadRequest request) {
+        return createTaskWithReuseCheck(request, null);
+    }
+
+    private VideoDownloadTask createTaskWithReuseCheck(VideoDownloadRequest request, VideoDownloadTask batch) {
         logger.info("Creating new video download task with reuse check for URL: {}", request.getUrl());
 
         // Determine source type from URL
@@ -85,13 +163,19 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         // For now, default to Telegram destination
         DestinationType destinationType = DestinationType.TELEGRAM;
 
-        // Check if we already have a completed result for this URL and destination
-        if (resultService.hasExistingResult(request.getUrl(), destinationType)) {
-            logger.info("Found existing result for URL: {} and destination: {}, creating task for reuse", 
-                    request.getUrl(), destinationType);
+        // Check if we already have a completed result for this video, destination and rendition
+        RenditionKey requestedRendition = Boolean.TRUE.equals(request.getAudioOnly())
+                ? RenditionKey.audio() : RenditionKey.of(request.getFormat(), request.getResolution(), request.getQuality());
+        Optional<VideoDownloadTaskResult> reusableResult =
+                resultService.findReusableResult(request.getUrl(), destinationType, requestedRendition);
+
+        if (reusableResult.isPresent()) {
+            logger.info("Found existing result for URL: {}, destination: {} and rendition: {}, creating task for reuse", 
+                    request.getUrl(), destinationType, requestedRendition);
 
             VideoDownloadTask task = entityFactory.newEntity(VideoDownloadTask.class);
             task.setSourceUrl(request.getUrl());
+            task.setCanonicalVideoId(videoIdentityService.resolveCanonicalVideoId(request.getUrl(), sourceType));
             task.setSourceType(sourceType);
             task.setDestinationType(destinationType);
             task.setUserId(request.getChatId());
@@ -99,42 +183,32 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
             task.setRequestedFormat(request.getFormat());
             task.setRequestedQuality(request.getQuality());
             task.setRequestedResolution(request.getResolution());
+            task.setAudioOnly(Boolean.TRUE.equals(request.getAudioOnly()));
+            // Stays pending until the reuse delivery lane claims it, so the normal pipeline (which resends
+            // reused results without downloading) still delivers it if the lane never does
             task.setStatus(TaskStatus.PENDING);
+            linkToBatch(task, batch);
 
             VideoDownloadTask savedTask = taskRepository.save(task);
             
-            // Create a reused result immediately
+            // Create a reused result immediately and hand the send over to the reuse delivery lane
             try {
-                VideoDownloadTaskResult reusedResult = resultService.reuseExistingResult(request.getUrl(), destinationType, savedTask);
+                VideoDownloadTaskResult reusedResult = resultService.reuseExistingResult(reusableResult.get(), savedTask);
                 logger.info("Created reused result with ID: {} for task: {}", reusedResult.getId(), savedTask.getId());
-                
-                // Send the video to the user since we're reusing an existing result
-                try {
-                    VideoDestinationProcessor destinationProcessor = getDestinationProcessor(destinationType);
-                    destinationProcessor.sendVideoById(reusedResult.getDestinationId(), savedTask);
-                    logger.info("Successfully sent reused video to user for task: {}", savedTask.getId());
-                } catch (Exception sendError) {
-                    logger.error("Error sending reused video to user for task: {}", savedTask.getId(), sendError);
-                    // Don't fail the task, just log the error
-                }
-                
-                // Mark task as completed since we're reusing an existing result
-                savedTask.setStatus(TaskStatus.COMPLETED);
-                savedTask.setDownloadCompletedAt(LocalDateTime.now());
-                taskRepository.save(savedTask);
-                
-                logger.info("Task {} completed immediately by reusing existing result", savedTask.getId());
+
+                reuseDeliveryService.scheduleDelivery(savedTask.getId(), reusedResult.getDestinationId(), destinationType);
+                logger.info("Scheduled delivery of reused result for task: {}", savedTask.getId());
                 
             } catch (Exception e) {
+                // The task is still pending and goes through normal processing
                 logger.error("Error reusing existing result for task: {}", savedTask.getId(), e);
-                // Task remains in PENDING status for normal processing
             }
 
             return savedTask;
         } else {
-            logger.info("No existing result found for URL: {} and destination: {}, creating new task", 
-                    request.getUrl(), destinationType);
-            return createTask(request);
+            logger.info("No reusable result found for URL: {}, destination: {} and rendition: {}, creating new task", 
+                    request.getUrl(), destinationType, requestedRendition);
+            return createTask(request, batch);
         }
     }
 
@@ -145,6 +219,7 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
 
         VideoDownloadTask task = entityFactory.newEntity(VideoDownloadTask.class);
         task.setSourceUrl(sourceUrl);
+        task.setCanonicalVideoId(videoIdentityService.resolveCanonicalVideoId(sourceUrl, sourceType));
         task.setSourceType(sourceType);
         task.setDestinationType(destinationType);
         task.setUserId(userId);
@@ -158,6 +233,35 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         return savedTask;
     }
 
+    @Override
+    public VideoDownloadTask createBatchTask(VideoDownloadRequest request) {
+        logger.info("Creating batch task for URL: {}", request.getUrl());
+
+        SourceType sourceType = SourceType.fromUrl(request.getUrl());
+        int maxItems = request.getMaxItems() != null && request.getMaxItems() > 0
+                ? Math.min(request.getMaxItems(), batchConfig.getMaxItems()) : batchConfig.getMaxItems();
+
+        // The batch is expanded by the task executor like any other task, within the source's rate limit
+        VideoDownloadTask task = entityFactory.newEntity(VideoDownloadTask.class);
+        task.setSourceUrl(request.getUrl());
+        task.setSourceType(sourceType);
+        task.setDestinationType(DestinationType.TELEGRAM);
+        task.setUserId(request.getChatId());
+        task.setChatId(request.getChatId());
+        task.setRequestedFormat(request.getFormat());
+        task.setRequestedQuality(request.getQuality());
+        task.setRequestedResolution(request.getResolution());
+        task.setAudioOnly(Boolean.TRUE.equals(request.getAudioOnly()));
+        task.setBatch(true);
+        task.setBatchMaxItems(maxItems);
+        task.setStatus(TaskStatus.PENDING);
+
+        VideoDownloadTask savedTask = taskRepository.save(task);
+        logger.info("Created batch task with ID: {} (up to {} videos)", savedTask.getId(), maxItems);
+
+        return savedTask;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Optional<VideoDownloadTask> getTaskById(String taskId) {
@@ -238,6 +342,7 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         task.setErrorMessage(errorMessage);
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
+        onStatusChanged(updatedTask);
         logger.info("Updated task {} status to {}", taskId, status);
 
         return updatedTask;
@@ -252,12 +357,28 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
             throw new IllegalArgumentException("Task not found with ID: " + taskId);
         }
 
-        VideoDownloadTask task = taskOpt.get();
+        return start(taskOpt.get());
+    }
+
+    @Override
+    public boolean claimPendingTask(String taskId) {
+        Optional<VideoDownloadTask> taskOpt = taskRepository.findByIdForUpdate(taskId);
+        if (taskOpt.isEmpty() || taskOpt.get().getStatus() != TaskStatus.PENDING) {
+            logger.debug("Task {} is no longer pending, not claiming it", taskId);
+            return false;
+        }
+        logger.info("Claiming task {}", taskId);
+        start(taskOpt.get());
+        return true;
+    }
+
+    private VideoDownloadTask start(VideoDownloadTask task) {
         task.setStatus(TaskStatus.PROCESSING);
         task.setDownloadStartedAt(LocalDateTime.now());
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
-        logger.info("Marked task {} as started", taskId);
+        onStatusChanged(updatedTask);
+        logger.info("Marked task {} as started", task.getId());
 
         return updatedTask;
     }
@@ -276,6 +397,7 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         task.setDownloadCompletedAt(LocalDateTime.now());
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
+        onStatusChanged(updatedTask);
         logger.info("Marked task {} as completed", taskId);
 
         return updatedTask;
@@ -283,7 +405,12 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
 
     @Override
     public VideoDownloadTask markTaskAsFailed(String taskId, String errorMessage) {
-        logger.info("Marking task {} as failed with error: {}", taskId, errorMessage);
+        return markTaskAsFailed(taskId, errorMessage, FailureReason.ERROR);
+    }
+
+    @Override
+    public VideoDownloadTask markTaskAsFailed(String taskId, String errorMessage, FailureReason failureReason) {
+        logger.info("Marking task {} as failed ({}) with error: {}", taskId, failureReason, errorMessage);
 
         Optional<VideoDownloadTask> taskOpt = taskRepository.findById(taskId);
         if (taskOpt.isEmpty()) {
@@ -293,8 +420,10 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         VideoDownloadTask task = taskOpt.get();
         task.setStatus(TaskStatus.FAILED);
         task.setErrorMessage(errorMessage);
+        task.setFailureReason(failureReason);
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
+        onStatusChanged(updatedTask);
         logger.info("Marked task {} as failed", taskId);
 
         return updatedTask;
@@ -317,8 +446,10 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         task.incrementRetryCount();
         task.setStatus(TaskStatus.PENDING);
         task.setErrorMessage(null);
+        task.setFailureReason(null);
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
+        onStatusChanged(updatedTask);
         logger.info("Retried task {} (attempt {})", taskId, task.getRetryCount());
 
         return updatedTask;
@@ -337,8 +468,19 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         task.setStatus(TaskStatus.CANCELLED);
 
         VideoDownloadTask updatedTask = taskRepository.save(task);
+        onStatusChanged(updatedTask);
         logger.info("Cancelled task {}", taskId);
 
+        // Videos of a batch that have not started yet are cancelled with it
+        if (task.isBatch()) {
+            for (VideoDownloadTask child : taskRepository.findByParentTaskIdOrderByCreatedAtAsc(taskId)) {
+                if (child.getStatus() == TaskStatus.PENDING) {
+                    child.setStatus(TaskStatus.CANCELLED);
+                    onStatusChanged(taskRepository.save(child));
+                }
+            }
+        }
+
         return updatedTask;
     }
 
@@ -373,6 +515,52 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
                                 completedTasks, failedTasks, cancelledTasks, retryableTasks);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<VideoDownloadTask> getChildTasks(String parentTaskId) {
+        return taskRepository.findByParentTaskIdOrderByCreatedAtAsc(parentTaskId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BatchProgress getBatchProgress(String parentTaskId) {
+        return toBatchProgress(taskRepository.findByParentTaskIdOrderByCreatedAtAsc(parentTaskId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> getProcessingChildCounts() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : taskRepository.countProcessingTasksByParent()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    public int completeFinishedBatches() {
+        int finished = 0;
+        for (VideoDownloadTask batch : taskRepository.findProcessingBatches()) {
+            List<VideoDownloadTask> children = taskRepository.findByParentTaskIdOrderByCreatedAtAsc(batch.getId());
+            // A batch without children is still being expanded
+            if (children.isEmpty() || !children.stream().allMatch(VideoDownloadTask::isFinished)) {
+                continue;
+            }
+
+            BatchProgress progress = toBatchProgress(children);
+            int unsuccessful = progress.getTotalTasks() - progress.getCompletedTasks();
+            if (progress.getCompletedTasks() == 0) {
+                markTaskAsFailed(batch.getId(), "None of the " + progress.getTotalTasks() + " videos could be downloaded");
+            } else {
+                batch.setErrorMessage(unsuccessful > 0
+                        ? unsuccessful + " of " + progress.getTotalTasks() + " videos were not downloaded" : null);
+                markTaskAsCompleted(batch.getId());
+            }
+            finished++;
+        }
+        return finished;
+    }
+
     @Override
     public int cleanupOldCompletedTasks(LocalDateTime cutoffDate) {
         logger.info("Cleaning up old completed tasks before {}", cutoffDate);
@@ -397,6 +585,14 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
     public VideoDownloadTaskResult processTask(String taskId) {
         logger.info("Processing task {}", taskId);
 
+        // The processing transaction stays open until the upload ends; the start is committed on its own
+        // so that status waiters and progress streams see the task running. Done before the task is read
+        // here, so this transaction does not hold a stale copy of it.
+        if (!Boolean.TRUE.equals(requiresNewTransaction.execute(status -> startProcessing(taskId)))) {
+            logger.info("Task {} is already being processed, skipping", taskId);
+            return null;
+        }
+
         Optional<VideoDownloadTask> taskOpt = getTaskById(taskId);
         if (taskOpt.isEmpty()) {
             throw new IllegalArgumentException("Task not found with ID: " + taskId);
@@ -405,26 +601,107 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         VideoDownloadTask task = taskOpt.get();
         
         try {
-            // Mark task as started
-            markTaskAsStarted(taskId);
-
             // Get processors
             VideoSourceProcessor sourceProcessor = getSourceProcessor(task.getSourceType());
             VideoDestinationProcessor destinationProcessor = getDestinationProcessor(task.getDestinationType());
 
+            // A batch only creates its child tasks; it completes once they have all finished
+            if (task.isBatch()) {
+                expandBatch(task, sourceProcessor);
+                return null;
+            }
+
+            // Tasks created from a reused result only need the existing file sent again
+            Optional<VideoDownloadTaskResult> reusedResult = resultService.getPrimaryResultByTaskId(taskId)
+                    .filter(r -> r.getStatus() == TaskStatus.COMPLETED && r.getDestinationId() != null);
+            if (reusedResult.isPresent()) {
+                destinationProcessor.sendVideoById(reusedResult.get().getDestinationId(), task);
+                markTaskAsCompleted(taskId);
+                logger.info("Task {} completed by resending reused result", taskId);
+                return reusedResult.get();
+            }
+
             // Validate request
             sourceProcessor.validateRequest(task);
             destinationProcessor.validateRequest(task);
 
-            // Download video
-            java.io.File downloadedFile = sourceProcessor.downloadVideo(task);
-
-            // Create result
-            VideoDownloadTaskResult result = resultService.createResult(task, task.getDestinationType());
-            result.setStatus(TaskStatus.PROCESSING);
+            // Download the rendition that fits the destination, rejecting the video early if none does
+            FormatConstraints constraints = destinationProcessor.getFormatConstraints()
+                    .withMaxFileSize(memoryMonitoringService.getMaxFileSizeBytes());
+            // Requests to the source are rate limited per source; the permit covers the whole download
+            VideoDownloadTaskResult result;
+            String destinationId;
+            try (SourceRateLimiter.Permit permit = sourceRateLimiter.acquire(task.getSourceType())) {
+                try {
+                    VideoStream stream = destinationProcessor.supportsStreamingUpload()
+                            ? openVideoStream(task, sourceProcessor, constraints) : null;
+
+                    if (stream != null) {
+                        // Renditions that need no merging go from the source straight into the upload
+                        try (stream) {
+                            result = resultService.createResult(task, task.getDestinationType());
+                            result.setStatus(TaskStatus.PROCESSING);
+                            progressRegistry.onStage(taskId, TaskProgressRegistry.Stage.UPLOADING);
+                            destinationId = destinationProcessor.uploadVideoStream(stream, task, result,
+                                    progressRegistry.uploadCallback(taskId, destinationProcessor.getUploadProgressCallback()));
+                        }
+                        permit.succeeded();
+                    } else {
+                        try {
+                            long stageStart = System.currentTimeMillis();
+                            java.io.File downloadedFile = downloadVideo(task, sourceProcessor, constraints);
+                            permit.succeeded();
+                            long downloadTimeMs = System.currentTimeMillis() - stageStart;
+
+                            // Transcode when no rendition fits, then rewrite the container for fast start so
+                            // playback can begin before the file is fully fetched
+                            stageStart = System.currentTimeMillis();
+                            progressRegistry.onStage(taskId, TaskProgressRegistry.Stage.POST_PROCESSING);
+                            downloadedFile = tempStorageService.reserveCopy(taskId, downloadedFile);
+                            if (!task.isAudioOnly()) {
+                                downloadedFile = spillingWhenFull(taskId, downloadedFile,
+                                        file -> fitToSizeLimit(task, sourceProcessor, file, constraints));
+                            }
+                            downloadedFile = spillingWhenFull(taskId, downloadedFile, file -> fastStart(taskId, file));
+                            long postProcessingTimeMs = System.currentTimeMillis() - stageStart;
+
+                            // Create result
+                            result = resultService.createResult(task, task.getDestinationType());
+                            result.setStatus(TaskStatus.PROCESSING);
+
+                            // Upload video
+                            stageStart = System.currentTimeMillis();
+                            progressRegistry.onStage(taskId, TaskProgressRegistry.Stage.UPLOADING);
+                            destinationId = destinationProcessor.uploadVideo(downloadedFile, task, result,
+                                    progressRegistry.uploadCallback(taskId, destinationProcessor.getUploadProgressCallback()));
+                            long uploadTimeMs = System.currentTimeMillis() - stageStart;
+
+                            result.setProcessingTimeMs(downloadTimeMs + postProcessingTimeMs);
+                            result.setPostProcessingTimeMs(postProcessingTimeMs);
+                            result.setUploadTimeMs(uploadTimeMs);
+                            logger.info("Task {} stage timings: download {} ms, post-processing {} ms, upload {} ms",
+                                    taskId, downloadTimeMs, postProcessingTimeMs, uploadTimeMs);
+                        } finally {
+                            // The media cache keeps its own copy; the temp directory (possibly in memory) is freed now
+                            tempStorageService.release(taskId);
+                        }
+                    }
+                } catch (Exception e) {
+                    permit.failed(e);
+                    throw e;
+                }
+            }
 
-            // Upload video
-            String destinationId = destinationProcessor.uploadVideo(downloadedFile, task, result);
+            // Record the effective rendition so later requests can reuse this result
+            if (task.getDownloadedResolution() != null) {
+                result.setResolution(task.getDownloadedResolution());
+            }
+            // Audio extracted from a video is its own rendition, never served for video requests
+            RenditionKey rendition = task.isAudioOnly() ? RenditionKey.audio() : RenditionKey.fromResult(result);
+            result.setRenditionKey(rendition.toString());
+            if (result.getResolution() == null) {
+                result.setResolution(rendition.getResolution());
+            }
 
             // Mark result as completed
             result.setStatus(TaskStatus.COMPLETED);
@@ -441,8 +718,19 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
             return result;
 
         } catch (Exception e) {
+            if (ThrottleDetector.isThrottled(e)) {
+                // Throttling is not the task's fault; requeue it without using up a retry
+                logger.warn("Task {} deferred, source is throttling: {}", taskId, e.getMessage());
+                recordOutcome(taskId, () -> updateTaskStatus(taskId, TaskStatus.PENDING, e.getMessage()));
+                throw new RuntimeException("Task deferred: " + e.getMessage(), e);
+            }
             logger.error("Error processing task {}", taskId, e);
-            markTaskAsFailed(taskId, e.getMessage());
+            FileTooLargeException tooLarge = findCause(e, FileTooLargeException.class);
+            if (tooLarge != null) {
+                recordOutcome(taskId, () -> markTaskAsFailed(taskId, tooLarge.getMessage(), FailureReason.FILE_TOO_LARGE));
+            } else {
+                recordOutcome(taskId, () -> markTaskAsFailed(taskId, e.getMessage()));
+            }
             throw new RuntimeException("Failed to process task: " + e.getMessage(), e);
         }
     }
@@ -489,6 +777,232 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         logger.info("Registered destination processor for type: {}", processor.getSupportedDestinationType());
     }
 
+    /**
+     * Open a stream of the rendition that fits, or return null to download a file when only a transcode fits
+     */
+    private VideoStream openVideoStream(VideoDownloadTask task, VideoSourceProcessor sourceProcessor,
+                                        FormatConstraints constraints) throws Exception {
+        try {
+            return sourceProcessor.openVideoStream(task, constraints);
+        } catch (FileTooLargeException e) {
+            if (!task.isAudioOnly() && sizeTargetedTranscoder.canFit(durationOf(task, sourceProcessor), constraints.getMaxFileSizeBytes())) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Download the rendition that fits, or a larger one to transcode when no rendition fits the size limit
+     */
+    private java.io.File downloadVideo(VideoDownloadTask task, VideoSourceProcessor sourceProcessor,
+                                       FormatConstraints constraints) throws Exception {
+        try {
+            return sourceProcessor.downloadVideo(task, constraints);
+        } catch (Exception e) {
+            if (findCause(e, FileTooLargeException.class) == null || task.isAudioOnly()
+                    || !sizeTargetedTranscoder.canFit(durationOf(task, sourceProcessor), constraints.getMaxFileSizeBytes())) {
+                throw e;
+            }
+            logger.info("No rendition of task {} fits {} MB, downloading one to transcode", task.getId(),
+                    constraints.getMaxFileSizeBytes() / (1024 * 1024));
+            FormatConstraints sourceConstraints = constraints
+                    .withSizeLimits(sizeTargetedTranscoder.getMaxSourceSizeBytes(), 0)
+                    .withMaxFileSize(memoryMonitoringService.getMaxFileSizeBytes());
+            return sourceProcessor.downloadVideo(task, sourceConstraints);
+        }
+    }
+
+    /**
+     * Mark a task as started for processing, unless it is already running
+     * The row is locked while checking, since the reuse delivery lane may claim the same pending task.
+     */
+    private boolean startProcessing(String taskId) {
+        VideoDownloadTask task = taskRepository.findByIdForUpdate(taskId)
+                .orElseThrow(() -> new IllegalArgumentException("Task not found with ID: " + taskId));
+        if (task.getStatus() == TaskStatus.PROCESSING) {
+            return false;
+        }
+        start(task);
+        return true;
+    }
+
+    /**
+     * Run a post-processing stage, again on disk if it filled the memory temp tier
+     */
+    private java.io.File spillingWhenFull(String taskId, java.io.File file, PostProcessingStage stage) throws Exception {
+        try {
+            return stage.apply(file);
+        } catch (IOException e) {
+            if (!TempStorageService.isOutOfSpace(e) || !tempStorageService.isInMemory(taskId)) {
+                throw e;
+            }
+            logger.warn("Task {}: memory temp tier ran out of space during post-processing, continuing on disk", taskId);
+            return stage.apply(tempStorageService.moveToDisk(taskId, file));
+        }
+    }
+
+    /**
+     * Remux a file for fast start; when even the disk is full it is uploaded as it is
+     */
+    private java.io.File fastStart(String taskId, java.io.File file) throws Exception {
+        try {
+            return fastStartRemuxer.ensureFastStart(file);
+        } catch (IOException e) {
+            if (tempStorageService.isInMemory(taskId)) {
+                throw e;
+            }
+            logger.warn("Task {}: no space to remux for fast start, uploading as downloaded: {}", taskId, e.getMessage());
+            return file;
+        }
+    }
+
+    /**
+     * Transcode a downloaded file above the size limit, or just above the preferred limit, to fit it
+     */
+    private java.io.File fitToSizeLimit(VideoDownloadTask task, VideoSourceProcessor sourceProcessor,
+                                        java.io.File file, FormatConstraints constraints) throws Exception {
+        long maxSize = constraints.getMaxFileSizeBytes();
+        if (maxSize > 0 && file.length() > maxSize) {
+            // Downloaded as a transcoding source
+            Long duration = durationOf(task, sourceProcessor);
+            if (duration == null) {
+                throw new FileTooLargeException(file.length(), maxSize, false);
+            }
+            return sizeTargetedTranscoder.transcodeToFit(file, duration, maxSize);
+        }
+
+        // No rendition fits the preferred (faster) upload path; a slightly smaller encode does
+        long preferredSize = constraints.getPreferredMaxFileSizeBytes();
+        if (sizeTargetedTranscoder.shouldShrink(file.length(), preferredSize)) {
+            Long duration = durationOf(task, sourceProcessor);
+            if (sizeTargetedTranscoder.canFit(duration, preferredSize)) {
+                try {
+                    return sizeTargetedTranscoder.transcodeToFit(file, duration, preferredSize);
+                } catch (IOException | FileTooLargeException e) {
+                    if (TempStorageService.isOutOfSpace(e)) {
+                        throw e;
+                    }
+                    logger.warn("Task {}: transcoding to the preferred size failed, uploading as downloaded: {}",
+                            task.getId(), e.getMessage());
+                }
+            }
+        }
+        return file;
+    }
+
+    private static Long durationOf(VideoDownloadTask task, VideoSourceProcessor sourceProcessor) {
+        try {
+            return sourceProcessor.getVideoMetadata(task.getSourceUrl()).getDurationSeconds();
+        } catch (Exception e) {
+            logger.debug("No duration for task {}: {}", task.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * List the videos of a batch once and create a child task for each distinct video, reusing existing results
+     */
+    private void expandBatch(VideoDownloadTask batch, VideoSourceProcessor sourceProcessor) throws Exception {
+        // A retried batch keeps the children it already has
+        if (taskRepository.countByParentTaskId(batch.getId()) > 0) {
+            logger.info("Batch {} is already expanded", batch.getId());
+            return;
+        }
+        if (!sourceProcessor.supportsPlaylists()) {
+            throw new UnsupportedOperationException("Playlists are not supported for source type: " + batch.getSourceType());
+        }
+
+        int maxItems = batch.getBatchMaxItems() != null ? batch.getBatchMaxItems() : batchConfig.getMaxItems();
+        List<String> urls = sourceProcessor.listPlaylistEntries(batch.getSourceUrl(), maxItems);
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No videos found at " + batch.getSourceUrl());
+        }
+
+        Set<String> listedVideos = new HashSet<>();
+        int created = 0;
+        for (String url : urls) {
+            // A playlist can list the same video twice, also under different link forms
+            String videoId = videoIdentityService.resolveCanonicalVideoId(url, batch.getSourceType());
+            if (!listedVideos.add(videoId != null ? videoId : url)) {
+                logger.debug("Skipping repeated entry {} of batch {}", url, batch.getId());
+                continue;
+            }
+            VideoDownloadRequest request = new VideoDownloadRequest();
+            request.setUrl(url);
+            request.setChatId(batch.getChatId());
+            request.setFormat(batch.getRequestedFormat());
+            request.setResolution(batch.getRequestedResolution());
+            request.setQuality(batch.getRequestedQuality());
+            request.setAudioOnly(batch.isAudioOnly());
+            createTaskWithReuseCheck(request, batch);
+            created++;
+        }
+        logger.info("Expanded batch {} into {} tasks", batch.getId(), created);
+    }
+
+    private static void linkToBatch(VideoDownloadTask task, VideoDownloadTask batch) {
+        if (batch != null) {
+            task.setParentTaskId(batch.getId());
+            task.setPriority(batch.getPriority());
+            task.setUserId(batch.getUserId());
+        }
+    }
+
+    private static BatchProgress toBatchProgress(List<VideoDownloadTask> children) {
+        int pending = 0;
+        int processing = 0;
+        int completed = 0;
+        int failed = 0;
+        int cancelled = 0;
+        int finished = 0;
+        for (VideoDownloadTask child : children) {
+            switch (child.getStatus()) {
+                case PENDING -> pending++;
+                case PROCESSING -> processing++;
+                case COMPLETED -> completed++;
+                case FAILED -> failed++;
+                case CANCELLED -> cancelled++;
+            }
+            if (child.isFinished()) {
+                finished++;
+            }
+        }
+        return new BatchProgress(children.size(), pending, processing, completed, failed, cancelled, finished);
+    }
+
+    /**
+     * Write the outcome of a failed processing attempt in its own transaction
+     * The rethrown failure rolls back the processing transaction, so the outcome is written once that
+     * transaction has completed; written from inside it, it would be rolled back too, or wait on the
+     * task row the processing transaction has locked.
+     */
+    private void recordOutcome(String taskId, Runnable write) {
+        Runnable inNewTransaction = () -> requiresNewTransaction.executeWithoutResult(status -> write.run());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inNewTransaction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    inNewTransaction.run();
+                } catch (Exception e) {
+                    logger.error("Error recording the outcome of task {}", taskId, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Report a saved status change to progress subscribers and status waiters
+     */
+    private void onStatusChanged(VideoDownloadTask task) {
+        progressRegistry.onStatusChanged(task);
+        taskStatusNotifier.publish(task.getId());
+    }
+
     private VideoSourceProcessor getSourceProcessor(SourceType sourceType) {
         VideoSourceProcessor processor = sourceProcessors.get(sourceType);
         if (processor == null) {
@@ -504,4 +1018,21 @@ public class VideoDownloadTaskServiceImpl implements VideoDownloadTaskService {
         }
         return processor;
     }
+
+    private static <T extends Throwable> T findCause(Throwable error, Class<T> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Post-processing step that turns a downloaded file into the file to upload
+     */
+    @FunctionalInterface
+    private interface PostProcessingStage {
+        java.io.File apply(java.io.File file) throws Exception;
+    }
 }
@@ -0,0 +1,167 @@
+package ru.aiivar.tg.yt.downloader.service.metadata;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.MetadataConfiguration;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TTL cache of probed video metadata keyed by canonical video ID
+ * Concurrent requests for the same video share a single probe.
+ */
+@Service
+public class VideoMetadataCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoMetadataCache.class);
+
+    /**
+     * Loads metadata on a cache miss
+     */
+    @FunctionalInterface
+    public interface MetadataLoader {
+        VideoMetadata load() throws Exception;
+    }
+
+    @Autowired
+    private MetadataConfiguration metadataConfig;
+
+    private Map<String, CachedMetadata> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<VideoMetadata>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sharedLoads = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int maxEntries = metadataConfig.getCacheMaxEntries();
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedMetadata> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get cached metadata or load it, sharing the load with concurrent callers for the same video
+     */
+    public VideoMetadata getOrLoad(String canonicalVideoId, MetadataLoader loader) throws Exception {
+        if (!metadataConfig.isCacheEnabled() || canonicalVideoId == null) {
+            return loader.load();
+        }
+
+        VideoMetadata cached = getIfPresent(canonicalVideoId);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<VideoMetadata> future = new CompletableFuture<>();
+        CompletableFuture<VideoMetadata> existing = inFlight.putIfAbsent(canonicalVideoId, future);
+        if (existing != null) {
+            sharedLoads.incrementAndGet();
+            logger.debug("Waiting for in-flight metadata probe of {}", canonicalVideoId);
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+        }
+
+        try {
+            VideoMetadata metadata = loader.load();
+            synchronized (entries) {
+                entries.put(canonicalVideoId, new CachedMetadata(metadata));
+            }
+            future.complete(metadata);
+            return metadata;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(canonicalVideoId, future);
+        }
+    }
+
+    /**
+     * Get cached metadata if present and not expired
+     */
+    public VideoMetadata getIfPresent(String canonicalVideoId) {
+        synchronized (entries) {
+            CachedMetadata cached = entries.get(canonicalVideoId);
+            if (cached == null) {
+                return null;
+            }
+            if (System.nanoTime() - cached.loadedAtNanos > TimeUnit.MINUTES.toNanos(metadataConfig.getCacheTtlMinutes())) {
+                entries.remove(canonicalVideoId);
+                return null;
+            }
+            return cached.metadata;
+        }
+    }
+
+    /**
+     * Drop cached metadata of a video
+     */
+    public void invalidate(String canonicalVideoId) {
+        synchronized (entries) {
+            entries.remove(canonicalVideoId);
+        }
+    }
+
+    /**
+     * Get metadata cache statistics
+     */
+    public CacheStatistics getStatistics() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStatistics(size, hits.get(), misses.get(), sharedLoads.get());
+    }
+
+    private static class CachedMetadata {
+        private final VideoMetadata metadata;
+        private final long loadedAtNanos = System.nanoTime();
+
+        CachedMetadata(VideoMetadata metadata) {
+            this.metadata = metadata;
+        }
+    }
+
+    /**
+     * Metadata cache statistics inner class
+     */
+    public static class CacheStatistics {
+        private final int cachedVideos;
+        private final long hits;
+        private final long misses;
+        private final long sharedLoads;
+
+        public CacheStatistics(int cachedVideos, long hits, long misses, long sharedLoads) {
+            this.cachedVideos = cachedVideos;
+            this.hits = hits;
+            this.misses = misses;
+            this.sharedLoads = sharedLoads;
+        }
+
+        // Getters
+        public int getCachedVideos() { return cachedVideos; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getSharedLoads() { return sharedLoads; }
+    }
+}
@@ -0,0 +1,194 @@
+package ru.aiivar.tg.yt.downloader.service.notification;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Publish/subscribe over Postgres LISTEN/NOTIFY
+ * Notifications published inside a transaction are delivered to every instance only when it commits.
+ * Each instance keeps one dedicated listener connection outside the connection pool.
+ */
+@Service
+public class PostgresNotificationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresNotificationService.class);
+
+    // Postgres rejects NOTIFY payloads of 8000 bytes or more
+    public static final int MAX_PAYLOAD_BYTES = 7999;
+
+    private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    @Autowired
+    private ClusterConfiguration clusterConfig;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${spring.datasource.username:}")
+    private String datasourceUsername;
+
+    @Value("${spring.datasource.password:}")
+    private String datasourcePassword;
+
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    /**
+     * Whether notifications are enabled and the database supports them
+     */
+    public boolean isEnabled() {
+        return clusterConfig.isNotificationsEnabled()
+                && datasourceUrl != null && datasourceUrl.startsWith("jdbc:postgresql:");
+    }
+
+    /**
+     * Publish a payload on a channel
+     * Joins the current transaction if there is one, so the notification is sent on commit.
+     */
+    public void publish(String channel, String payload) {
+        if (!isEnabled()) {
+            return;
+        }
+        validateChannel(channel);
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+            throw new IllegalArgumentException("Notification payload too large for channel: " + channel);
+        }
+
+        jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) ps -> {
+            ps.setString(1, channel);
+            ps.setString(2, payload);
+            return ps.execute();
+        });
+        logger.debug("Published notification on channel {} ({} chars)", channel, payload.length());
+    }
+
+    /**
+     * Register a listener for a channel
+     * Listeners are invoked on the listener thread and must not block.
+     */
+    public void subscribe(String channel, Consumer<String> listener) {
+        validateChannel(channel);
+        listeners.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(listener);
+        logger.info("Subscribed listener to notification channel: {}", channel);
+    }
+
+    /**
+     * Start listening once the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!isEnabled()) {
+            logger.info("Postgres notifications are disabled, change events are not shared between instances");
+            return;
+        }
+        if (running) {
+            return;
+        }
+
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "PgNotificationListener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        logger.info("Started Postgres notification listener (node: {})", clusterConfig.getNodeId());
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+            listenerThread = null;
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(datasourceUrl, datasourceUsername, datasourcePassword)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                logger.info("Connected Postgres notification listener");
+
+                while (running) {
+                    for (String channel : listeners.keySet()) {
+                        if (listening.add(channel)) {
+                            try (Statement statement = connection.createStatement()) {
+                                statement.execute("LISTEN " + channel);
+                            }
+                            logger.info("Listening on notification channel: {}", channel);
+                        }
+                    }
+
+                    PGNotification[] notifications = pgConnection.getNotifications(clusterConfig.getListenTimeoutMs());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Postgres notification listener failed, reconnecting in {} ms",
+                        clusterConfig.getReconnectDelayMs(), e);
+                try {
+                    Thread.sleep(clusterConfig.getReconnectDelayMs());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        logger.info("Stopped Postgres notification listener");
+    }
+
+    private void dispatch(String channel, String payload) {
+        List<Consumer<String>> channelListeners = listeners.get(channel);
+        if (channelListeners == null) {
+            return;
+        }
+        for (Consumer<String> listener : channelListeners) {
+            try {
+                listener.accept(payload);
+            } catch (Exception e) {
+                logger.error("Error handling notification on channel: {}", channel, e);
+            }
+        }
+    }
+
+    private void validateChannel(String channel) {
+        if (channel == null || !CHANNEL_NAME.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid notification channel name: " + channel);
+        }
+    }
+}
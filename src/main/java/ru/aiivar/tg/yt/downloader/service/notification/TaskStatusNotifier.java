@@ -0,0 +1,218 @@
+package ru.aiivar.tg.yt.downloader.service.notification;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Wakes clients waiting for a task to reach a status
+ * Waiters are parked here instead of polling the database: the task is read once when the wait starts
+ * and again only after its status changed. Changes made on this instance wake waiters after commit;
+ * changes made on other instances arrive over {@link PostgresNotificationService}.
+ */
+@Service
+public class TaskStatusNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskStatusNotifier.class);
+
+    public static final String CHANNEL = "task_status_events";
+
+    @Autowired
+    private ClusterConfiguration clusterConfig;
+
+    @Autowired
+    private PostgresNotificationService notificationService;
+
+    private final Map<String, Set<StatusWait>> waiters = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> remoteListeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService checker = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final AtomicLong waitsStarted = new AtomicLong();
+    private final AtomicLong wakeups = new AtomicLong();
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        notificationService.subscribe(CHANNEL, this::onNotification);
+    }
+
+    /**
+     * Announce that the task changed to this and all other instances
+     * Joins the current transaction if there is one, so waiters are woken on commit.
+     */
+    public void publish(String taskId) {
+        runAfterCommit(() -> wake(taskId));
+
+        try {
+            notificationService.publish(CHANNEL, clusterConfig.getNodeId() + ":" + taskId);
+            eventsPublished.incrementAndGet();
+        } catch (Exception e) {
+            logger.error("Error publishing status change of task: {}", taskId, e);
+        }
+    }
+
+    /**
+     * Wait until the task has the status or will not change anymore
+     * The future completes with the task as read after the change; cancel it to stop waiting.
+     *
+     * @param loader reads the current task from the database
+     */
+    public CompletableFuture<VideoDownloadTask> awaitStatus(String taskId, TaskStatus status,
+                                                            Function<String, Optional<VideoDownloadTask>> loader) {
+        waitsStarted.incrementAndGet();
+        StatusWait wait = new StatusWait(taskId, status, loader);
+        wait.check();
+        return wait.result;
+    }
+
+    /**
+     * Listen for status changes of tasks made on other instances
+     * The listener gets the task ID and runs on the notification listener thread, so it must not block.
+     */
+    public void onRemoteChange(Consumer<String> listener) {
+        remoteListeners.add(listener);
+    }
+
+    private void onNotification(String payload) {
+        int separator = payload.lastIndexOf(':');
+        if (separator < 0 || payload.substring(0, separator).equals(clusterConfig.getNodeId())) {
+            return;
+        }
+        eventsReceived.incrementAndGet();
+        String taskId = payload.substring(separator + 1);
+        wake(taskId);
+        for (Consumer<String> listener : remoteListeners) {
+            try {
+                listener.accept(taskId);
+            } catch (RuntimeException e) {
+                logger.error("Error handling remote status change of task: {}", taskId, e);
+            }
+        }
+    }
+
+    private void wake(String taskId) {
+        Set<StatusWait> taskWaiters = waiters.remove(taskId);
+        if (taskWaiters != null) {
+            // Runs on the notification listener or a committing thread; the reads happen elsewhere
+            taskWaiters.forEach(wait -> {
+                wakeups.incrementAndGet();
+                checker.execute(wait::check);
+            });
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * One client waiting for one task
+     */
+    private final class StatusWait {
+        private final String taskId;
+        private final TaskStatus status;
+        private final Function<String, Optional<VideoDownloadTask>> loader;
+        private final CompletableFuture<VideoDownloadTask> result = new CompletableFuture<>();
+
+        private StatusWait(String taskId, TaskStatus status, Function<String, Optional<VideoDownloadTask>> loader) {
+            this.taskId = taskId;
+            this.status = status;
+            this.loader = loader;
+            result.whenComplete((task, error) -> waiters.computeIfPresent(taskId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            }));
+        }
+
+        private void check() {
+            if (result.isDone()) {
+                return;
+            }
+            // Register before reading, so a change committed in between wakes this wait again
+            waiters.computeIfAbsent(taskId, id -> ConcurrentHashMap.newKeySet()).add(this);
+            try {
+                Optional<VideoDownloadTask> task = loader.apply(taskId);
+                if (task.isEmpty()) {
+                    result.completeExceptionally(new IllegalArgumentException("Task not found with ID: " + taskId));
+                } else if (task.get().getStatus() == status || task.get().isFinished()) {
+                    result.complete(task.get());
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    void setClusterConfig(ClusterConfiguration clusterConfig) {
+        this.clusterConfig = clusterConfig;
+    }
+
+    void setNotificationService(PostgresNotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Get status notifier statistics
+     */
+    public NotifierStatistics getStatistics() {
+        int waiting = waiters.values().stream().mapToInt(Set::size).sum();
+        return new NotifierStatistics(waiting, waitsStarted.get(), wakeups.get(), eventsPublished.get(),
+                eventsReceived.get());
+    }
+
+    /**
+     * Status notifier statistics inner class
+     */
+    public static class NotifierStatistics {
+        private final int waiting;
+        private final long waitsStarted;
+        private final long wakeups;
+        private final long eventsPublished;
+        private final long eventsReceived;
+
+        public NotifierStatistics(int waiting, long waitsStarted, long wakeups, long eventsPublished, long eventsReceived) {
+            this.waiting = waiting;
+            this.waitsStarted = waitsStarted;
+            this.wakeups = wakeups;
+            this.eventsPublished = eventsPublished;
+            this.eventsReceived = eventsReceived;
+        }
+
+        // Getters
+        public int getWaiting() { return waiting; }
+        public long getWaitsStarted() { return waitsStarted; }
+        public long getWakeups() { return wakeups; }
+        public long getEventsPublished() { return eventsPublished; }
+        public long getEventsReceived() { return eventsReceived; }
+    }
+}
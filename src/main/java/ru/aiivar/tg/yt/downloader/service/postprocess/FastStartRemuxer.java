@@ -0,0 +1,259 @@
+package ru.aiivar.tg.yt.downloader.service.postprocess;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.PostProcessingConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.TempStorageService;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the index of MP4 files to the front so Telegram clients can start playback while downloading
+ * The top-level boxes are read first and files that already have the moov box before the media data
+ * are left alone. Others are remuxed by ffmpeg with stream copy only (-c copy -movflags +faststart),
+ * which rewrites the container without touching the encoded streams. A failed remux is not fatal: the
+ * original file is uploaded as it is. Only running out of space is reported, so the caller can move the
+ * file somewhere larger and try again.
+ */
+@Service
+public class FastStartRemuxer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FastStartRemuxer.class);
+
+    enum Layout {
+        FAST_START,
+        MOOV_AT_END,
+        NOT_MP4
+    }
+
+    @Autowired
+    private PostProcessingConfiguration postProcessingConfig;
+
+    private Semaphore permits;
+
+    private final AtomicInteger activeRemuxes = new AtomicInteger();
+    private final AtomicInteger waitingRemuxes = new AtomicInteger();
+    private final AtomicLong filesChecked = new AtomicLong();
+    private final AtomicLong alreadyFastStart = new AtomicLong();
+    private final AtomicLong skippedNotMp4 = new AtomicLong();
+    private final AtomicLong remuxed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalRemuxNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, postProcessingConfig.getMaxConcurrentRemuxes()), true);
+    }
+
+    /**
+     * Make the file fast-start in place, waiting for a remux slot when needed
+     * Returns the file, remuxed or unchanged.
+     *
+     * @throws IOException when the remux ran out of space; the file is left unchanged
+     */
+    public File ensureFastStart(File file) throws IOException, InterruptedException {
+        if (!postProcessingConfig.isFastStartEnabled()) {
+            return file;
+        }
+
+        filesChecked.incrementAndGet();
+        Layout layout;
+        try {
+            layout = readLayout(file.toPath());
+        } catch (IOException e) {
+            logger.warn("Failed to read the layout of {}: {}", file.getName(), e.getMessage());
+            layout = Layout.NOT_MP4;
+        }
+        if (layout == Layout.FAST_START) {
+            alreadyFastStart.incrementAndGet();
+            return file;
+        }
+        if (layout == Layout.NOT_MP4) {
+            skippedNotMp4.incrementAndGet();
+            return file;
+        }
+
+        waitingRemuxes.incrementAndGet();
+        try {
+            permits.acquire();
+        } finally {
+            waitingRemuxes.decrementAndGet();
+        }
+        activeRemuxes.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            remux(file.toPath());
+            long elapsed = System.nanoTime() - start;
+            totalRemuxNanos.addAndGet(elapsed);
+            remuxed.incrementAndGet();
+            logger.info("Remuxed {} for fast start in {} ms", file.getName(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            if (TempStorageService.isOutOfSpace(e)) {
+                throw e;
+            }
+            logger.warn("Fast-start remux of {} failed, uploading it unchanged: {}", file.getName(), e.getMessage());
+        } finally {
+            activeRemuxes.decrementAndGet();
+            permits.release();
+        }
+        return file;
+    }
+
+    private void remux(Path file) throws IOException, InterruptedException {
+        Path output = file.resolveSibling(file.getFileName() + ".faststart");
+        List<String> command = List.of(postProcessingConfig.getFfmpegPath(), "-nostdin", "-v", "error", "-y",
+                "-i", file.toString(), "-map", "0", "-c", "copy", "-movflags", "+faststart", "-f", "mp4",
+                output.toString());
+        try {
+            FfmpegRunner.run(command, TimeUnit.SECONDS.toMillis(postProcessingConfig.getRemuxTimeoutSeconds()));
+            if (Files.size(output) == 0) {
+                throw new IOException("ffmpeg wrote an empty file");
+            }
+            try {
+                Files.move(output, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(output, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(output);
+        }
+    }
+
+    /**
+     * Find whether the moov box comes before the media data by walking the top-level boxes
+     * Only box headers are read; MP4 files are recognized by their extension and leading ftyp box.
+     */
+    static Layout readLayout(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (!name.endsWith(".mp4") && !name.endsWith(".m4v")) {
+            return Layout.NOT_MP4;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(16);
+            long position = 0;
+            while (position + 8 <= size) {
+                header.clear().limit(8);
+                if (!readFully(channel, header, position)) {
+                    break;
+                }
+                long boxSize = Integer.toUnsignedLong(header.getInt(0));
+                String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+                long headerSize = 8;
+                if (boxSize == 1) {
+                    // 64-bit size follows the type
+                    header.clear().limit(16).position(8);
+                    if (!readFully(channel, header, position + 8)) {
+                        break;
+                    }
+                    boxSize = header.getLong(8);
+                    headerSize = 16;
+                } else if (boxSize == 0) {
+                    // Box extends to the end of the file
+                    boxSize = size - position;
+                }
+
+                if (position == 0 && !type.equals("ftyp")) {
+                    return Layout.NOT_MP4;
+                }
+                if (type.equals("moov")) {
+                    return Layout.FAST_START;
+                }
+                if (type.equals("mdat")) {
+                    return Layout.MOOV_AT_END;
+                }
+                if (boxSize < headerSize) {
+                    break;
+                }
+                position += boxSize;
+            }
+        }
+        // Truncated or corrupt; remuxing would not help
+        return Layout.NOT_MP4;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return false;
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    void setPostProcessingConfig(PostProcessingConfiguration postProcessingConfig) {
+        this.postProcessingConfig = postProcessingConfig;
+    }
+
+    /**
+     * Get fast-start remux statistics
+     */
+    public RemuxStatistics getStatistics() {
+        return new RemuxStatistics(activeRemuxes.get(), waitingRemuxes.get(), filesChecked.get(),
+                alreadyFastStart.get(), skippedNotMp4.get(), remuxed.get(), failed.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalRemuxNanos.get()));
+    }
+
+    /**
+     * Fast-start remux statistics inner class
+     */
+    public static class RemuxStatistics {
+        private final int activeRemuxes;
+        private final int waitingRemuxes;
+        private final long filesChecked;
+        private final long alreadyFastStart;
+        private final long skippedNotMp4;
+        private final long remuxed;
+        private final long failed;
+        private final long totalRemuxTimeMs;
+
+        public RemuxStatistics(int activeRemuxes, int waitingRemuxes, long filesChecked, long alreadyFastStart,
+                               long skippedNotMp4, long remuxed, long failed, long totalRemuxTimeMs) {
+            this.activeRemuxes = activeRemuxes;
+            this.waitingRemuxes = waitingRemuxes;
+            this.filesChecked = filesChecked;
+            this.alreadyFastStart = alreadyFastStart;
+            this.skippedNotMp4 = skippedNotMp4;
+            this.remuxed = remuxed;
+            this.failed = failed;
+            this.totalRemuxTimeMs = totalRemuxTimeMs;
+        }
+
+        public double getAverageRemuxTimeMs() {
+            return remuxed > 0 ? (double) totalRemuxTimeMs / remuxed : 0;
+        }
+
+        // Getters
+        public int getActiveRemuxes() { return activeRemuxes; }
+        public int getWaitingRemuxes() { return waitingRemuxes; }
+        public long getFilesChecked() { return filesChecked; }
+        public long getAlreadyFastStart() { return alreadyFastStart; }
+        public long getSkippedNotMp4() { return skippedNotMp4; }
+        public long getRemuxed() { return remuxed; }
+        public long getFailed() { return failed; }
+        public long getTotalRemuxTimeMs() { return totalRemuxTimeMs; }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.aiivar.tg.yt.downloader.service.postprocess;
+
+import ru.aiivar.tg.yt.downloader.service.ytdlp.OutputTail;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a one-shot ffmpeg process, keeping only the tail of its diagnostics
+ * ffmpeg is started with -nostdin and a quiet log level, so stdout is discarded and stderr holds errors only.
+ */
+final class FfmpegRunner {
+
+    private static final int STDERR_TAIL_BYTES = 4 * 1024;
+
+    private FfmpegRunner() {
+    }
+
+    /**
+     * Run the command to completion, failing on a non-zero exit code or after the timeout
+     */
+    static void run(List<String> command, long timeoutMs) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        process.getOutputStream().close();
+
+        OutputTail stderr = new OutputTail(STDERR_TAIL_BYTES);
+        Thread stderrReader = Thread.ofVirtual().start(() -> {
+            try (var in = process.getErrorStream()) {
+                stderr.drain(in);
+            } catch (IOException e) {
+                // Process killed
+            }
+        });
+
+        try {
+            if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IOException("ffmpeg timed out after " + timeoutMs + " ms");
+            }
+            stderrReader.join(1000);
+            if (process.exitValue() != 0) {
+                throw new IOException("ffmpeg exited with code " + process.exitValue() + ": " + stderr);
+            }
+        } finally {
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
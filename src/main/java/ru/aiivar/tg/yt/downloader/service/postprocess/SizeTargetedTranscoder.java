@@ -0,0 +1,257 @@
+package ru.aiivar.tg.yt.downloader.service.postprocess;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.PostProcessingConfiguration;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encodes videos to a bitrate computed from their duration so they fit a size limit
+ * Only used when no native rendition fits: the bitrate budget is the limit minus a safety margin spread
+ * over the duration, less the audio bitrate, and the picture is scaled down to suit that bitrate.
+ * Encoding runs on a fixed pool sized to the processors available to the JVM, which already reflect the
+ * container's CPU quota (or -XX:ActiveProcessorCount), so concurrent transcodes never ask for more CPU
+ * than the cgroup grants; tasks wait for a worker instead.
+ */
+@Service
+public class SizeTargetedTranscoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SizeTargetedTranscoder.class);
+
+    @Autowired
+    private PostProcessingConfiguration postProcessingConfig;
+
+    private int cpus;
+    private int threadsPerJob;
+    private ThreadPoolExecutor workers;
+
+    private final AtomicLong transcoded = new AtomicLong();
+    private final AtomicLong infeasible = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong bytesIn = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong totalTranscodeNanos = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        cpus = Runtime.getRuntime().availableProcessors();
+        threadsPerJob = Math.max(1, Math.min(postProcessingConfig.getTranscodeThreadsPerJob(), cpus));
+        int poolSize = postProcessingConfig.getTranscodeWorkers() > 0
+                ? postProcessingConfig.getTranscodeWorkers() : Math.max(1, cpus / threadsPerJob);
+        workers = (ThreadPoolExecutor) Executors.newFixedThreadPool(poolSize,
+                Thread.ofPlatform().name("Transcode-", 1).daemon().factory());
+        if (postProcessingConfig.isTranscodeEnabled()) {
+            logger.info("Configured transcoding pool: {} workers x {} threads ({} CPUs)",
+                    poolSize, threadsPerJob, cpus);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return postProcessingConfig.isTranscodeEnabled();
+    }
+
+    /**
+     * Largest source worth downloading to transcode
+     */
+    public long getMaxSourceSizeBytes() {
+        return postProcessingConfig.getTranscodeMaxSourceSizeMB() * 1024 * 1024;
+    }
+
+    /**
+     * Whether a video of this duration can be transcoded under the limit at an acceptable bitrate
+     */
+    public boolean canFit(Long durationSeconds, long maxSizeBytes) {
+        return isEnabled() && durationSeconds != null && videoBitrateKbps(durationSeconds, maxSizeBytes) > 0;
+    }
+
+    /**
+     * Whether a file just over the limit is worth transcoding down to it
+     */
+    public boolean shouldShrink(long fileSizeBytes, long limitBytes) {
+        int overrun = postProcessingConfig.getTranscodeMaxOverrunPercent();
+        return isEnabled() && overrun > 0 && limitBytes > 0 && fileSizeBytes > limitBytes
+                && fileSizeBytes <= limitBytes * (100L + overrun) / 100;
+    }
+
+    /**
+     * Video bitrate that fits the duration into the limit, or -1 when it is below the acceptable minimum
+     */
+    long videoBitrateKbps(long durationSeconds, long maxSizeBytes) {
+        if (durationSeconds <= 0 || maxSizeBytes <= 0) {
+            return -1;
+        }
+        double usableBits = maxSizeBytes * (100 - postProcessingConfig.getTranscodeSizeMarginPercent()) / 100.0 * 8;
+        long videoKbps = (long) (usableBits / durationSeconds / 1000) - postProcessingConfig.getTranscodeAudioBitrateKbps();
+        return videoKbps >= postProcessingConfig.getTranscodeMinVideoBitrateKbps() ? videoKbps : -1;
+    }
+
+    /**
+     * Highest picture height that still looks acceptable at the bitrate, 0 to keep the source height
+     */
+    static int maxHeightFor(long videoKbps) {
+        if (videoKbps < 500) {
+            return 360;
+        }
+        if (videoKbps < 900) {
+            return 480;
+        }
+        if (videoKbps < 1800) {
+            return 720;
+        }
+        return videoKbps < 3500 ? 1080 : 0;
+    }
+
+    /**
+     * Transcode the file to an H.264/AAC fast-start MP4 under the limit, waiting for a free worker
+     * The source file is deleted once the result fits.
+     */
+    public File transcodeToFit(File source, long durationSeconds, long maxSizeBytes)
+            throws FileTooLargeException, IOException, InterruptedException {
+        long videoKbps = videoBitrateKbps(durationSeconds, maxSizeBytes);
+        if (videoKbps <= 0) {
+            infeasible.incrementAndGet();
+            throw new FileTooLargeException(source.length(), maxSizeBytes, false);
+        }
+
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        Path output = source.toPath().resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".fit.mp4");
+        List<String> command = command(source.toPath(), output, videoKbps);
+        logger.info("Transcoding {} ({} MB, {} s) at {} kbps to fit {} MB", name, source.length() / (1024 * 1024),
+                durationSeconds, videoKbps, maxSizeBytes / (1024 * 1024));
+
+        long start = System.nanoTime();
+        Future<?> job = workers.submit(() -> {
+            FfmpegRunner.run(command, TimeUnit.SECONDS.toMillis(postProcessingConfig.getTranscodeTimeoutSeconds()));
+            return null;
+        });
+        try {
+            job.get();
+        } catch (InterruptedException e) {
+            job.cancel(true);
+            Files.deleteIfExists(output);
+            throw e;
+        } catch (ExecutionException e) {
+            failed.incrementAndGet();
+            Files.deleteIfExists(output);
+            throw new IOException("Failed to transcode video: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        long size = Files.size(output);
+        if (size > maxSizeBytes) {
+            failed.incrementAndGet();
+            Files.deleteIfExists(output);
+            throw new FileTooLargeException(size, maxSizeBytes, false);
+        }
+        long elapsed = System.nanoTime() - start;
+        totalTranscodeNanos.addAndGet(elapsed);
+        transcoded.incrementAndGet();
+        bytesIn.addAndGet(source.length());
+        bytesOut.addAndGet(size);
+        logger.info("Transcoded {} to {} MB in {} ms", name, size / (1024 * 1024), TimeUnit.NANOSECONDS.toMillis(elapsed));
+
+        Files.deleteIfExists(source.toPath());
+        return output.toFile();
+    }
+
+    private List<String> command(Path source, Path output, long videoKbps) {
+        int maxHeight = maxHeightFor(videoKbps);
+        String scale = maxHeight > 0 ? "scale=-2:min(ih\\," + maxHeight + ")" : "null";
+        return List.of(postProcessingConfig.getFfmpegPath(), "-nostdin", "-v", "error", "-y",
+                "-i", source.toString(),
+                "-map", "0:v:0", "-map", "0:a:0?",
+                "-vf", scale,
+                "-c:v", "libx264", "-preset", postProcessingConfig.getTranscodePreset(), "-pix_fmt", "yuv420p",
+                "-b:v", videoKbps + "k", "-maxrate", videoKbps + "k", "-bufsize", (videoKbps * 2) + "k",
+                "-c:a", "aac", "-b:a", postProcessingConfig.getTranscodeAudioBitrateKbps() + "k",
+                "-threads", String.valueOf(threadsPerJob),
+                "-movflags", "+faststart", "-f", "mp4", output.toString());
+    }
+
+    void setPostProcessingConfig(PostProcessingConfiguration postProcessingConfig) {
+        this.postProcessingConfig = postProcessingConfig;
+    }
+
+    /**
+     * Get transcoding statistics
+     */
+    public TranscodeStatistics getStatistics() {
+        return new TranscodeStatistics(isEnabled(), cpus, workers.getMaximumPoolSize(), threadsPerJob,
+                workers.getActiveCount(), workers.getQueue().size(), transcoded.get(), infeasible.get(), failed.get(),
+                bytesIn.get(), bytesOut.get(), TimeUnit.NANOSECONDS.toMillis(totalTranscodeNanos.get()));
+    }
+
+    /**
+     * Transcoding statistics inner class
+     */
+    public static class TranscodeStatistics {
+        private final boolean enabled;
+        private final int cpus;
+        private final int workers;
+        private final int threadsPerJob;
+        private final int activeJobs;
+        private final int queuedJobs;
+        private final long transcoded;
+        private final long infeasible;
+        private final long failed;
+        private final long bytesIn;
+        private final long bytesOut;
+        private final long totalTranscodeTimeMs;
+
+        public TranscodeStatistics(boolean enabled, int cpus, int workers, int threadsPerJob, int activeJobs,
+                                   int queuedJobs, long transcoded, long infeasible, long failed, long bytesIn,
+                                   long bytesOut, long totalTranscodeTimeMs) {
+            this.enabled = enabled;
+            this.cpus = cpus;
+            this.workers = workers;
+            this.threadsPerJob = threadsPerJob;
+            this.activeJobs = activeJobs;
+            this.queuedJobs = queuedJobs;
+            this.transcoded = transcoded;
+            this.infeasible = infeasible;
+            this.failed = failed;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.totalTranscodeTimeMs = totalTranscodeTimeMs;
+        }
+
+        public double getAverageTranscodeTimeMs() {
+            return transcoded > 0 ? (double) totalTranscodeTimeMs / transcoded : 0;
+        }
+
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public int getCpus() { return cpus; }
+        public int getWorkers() { return workers; }
+        public int getThreadsPerJob() { return threadsPerJob; }
+        public int getActiveJobs() { return activeJobs; }
+        public int getQueuedJobs() { return queuedJobs; }
+        public long getTranscoded() { return transcoded; }
+        public long getInfeasible() { return infeasible; }
+        public long getFailed() { return failed; }
+        public long getBytesIn() { return bytesIn; }
+        public long getBytesOut() { return bytesOut; }
+        public long getTotalTranscodeTimeMs() { return totalTranscodeTimeMs; }
+    }
+}
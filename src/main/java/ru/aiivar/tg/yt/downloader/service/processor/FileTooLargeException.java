@@ -0,0 +1,33 @@
+package ru.aiivar.tg.yt.downloader.service.processor;
+
+/**
+ * Thrown when a video is larger than the destination accepts
+ * Raised before the download from probed format sizes, or during it when the byte cap is reached.
+ */
+public class FileTooLargeException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long fileSizeBytes;
+    private final long maxFileSizeBytes;
+
+    public FileTooLargeException(long fileSizeBytes, long maxFileSizeBytes, boolean estimated) {
+        super(String.format("Video is too large: %s%d MB, maximum is %d MB",
+                estimated ? "about " : fileSizeBytes < 0 ? "more than " : "",
+                (fileSizeBytes < 0 ? maxFileSizeBytes : fileSizeBytes) / (1024 * 1024),
+                maxFileSizeBytes / (1024 * 1024)));
+        this.fileSizeBytes = fileSizeBytes;
+        this.maxFileSizeBytes = maxFileSizeBytes;
+    }
+
+    /**
+     * Known or estimated size, -1 when the download was stopped at the cap before the size was known
+     */
+    public long getFileSizeBytes() {
+        return fileSizeBytes;
+    }
+
+    public long getMaxFileSizeBytes() {
+        return maxFileSizeBytes;
+    }
+}
@@ -3,8 +3,10 @@ package ru.aiivar.tg.yt.downloader.service.processor;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
 
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,6 +25,47 @@ public interface VideoDestinationProcessor {
      */
     String uploadVideo(File videoFile, VideoDownloadTask task, VideoDownloadTaskResult result) throws Exception;
 
+    /**
+     * Upload video file to the destination, reporting progress to the callback
+     * The default reports only completion; override to report bytes as they are sent.
+     */
+    default String uploadVideo(File videoFile, VideoDownloadTask task, VideoDownloadTaskResult result,
+                               UploadProgressCallback callback) throws Exception {
+        String destinationId = uploadVideo(videoFile, task, result);
+        if (callback != null) {
+            callback.onComplete(destinationId);
+        }
+        return destinationId;
+    }
+
+    /**
+     * Whether {@link #uploadVideoStream} is supported
+     */
+    default boolean supportsStreamingUpload() {
+        return false;
+    }
+
+    /**
+     * Upload a video while it is being produced by the source
+     * A read error from the stream means the source failed and the upload must fail too.
+     */
+    default String uploadVideoStream(VideoStream stream, VideoDownloadTask task, VideoDownloadTaskResult result)
+            throws Exception {
+        throw new UnsupportedOperationException("Streaming upload is not supported by " + getSupportedDestinationType());
+    }
+
+    /**
+     * Upload a video while it is being produced by the source, reporting progress to the callback
+     */
+    default String uploadVideoStream(VideoStream stream, VideoDownloadTask task, VideoDownloadTaskResult result,
+                                     UploadProgressCallback callback) throws Exception {
+        String destinationId = uploadVideoStream(stream, task, result);
+        if (callback != null) {
+            callback.onComplete(destinationId);
+        }
+        return destinationId;
+    }
+
     /**
      * Send video by ID to a specific recipient
      */
@@ -68,6 +111,15 @@ public interface VideoDestinationProcessor {
      */
     String[] getSupportedFormats();
 
+    /**
+     * Get constraints used to choose the downloaded rendition
+     * The default accepts the supported formats up to the maximum file size; override to add
+     * a preferred size or codec preferences.
+     */
+    default FormatConstraints getFormatConstraints() {
+        return new FormatConstraints(getMaxFileSize(), 0, List.of(getSupportedFormats()), true, List.of(), List.of());
+    }
+
     /**
      * Get upload progress callback (optional)
      */
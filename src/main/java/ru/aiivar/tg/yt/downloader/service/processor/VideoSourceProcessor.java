@@ -2,8 +2,11 @@ package ru.aiivar.tg.yt.downloader.service.processor;
 
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -27,6 +30,46 @@ public interface VideoSourceProcessor {
      */
     File downloadVideo(VideoDownloadTask task) throws Exception;
 
+    /**
+     * Download the rendition that best fits the destination's constraints
+     * Fails with {@link FileTooLargeException} when no rendition fits the size limit. Implementations
+     * should check probed sizes before downloading and stop the download at the limit; the default
+     * downloads the requested format and only checks the downloaded file.
+     */
+    default File downloadVideo(VideoDownloadTask task, FormatConstraints constraints) throws Exception {
+        File file = downloadVideo(task);
+        long maxFileSizeBytes = constraints.getMaxFileSizeBytes();
+        if (maxFileSizeBytes > 0 && file.length() > maxFileSizeBytes) {
+            long size = file.length();
+            file.delete();
+            throw new FileTooLargeException(size, maxFileSizeBytes, false);
+        }
+        return file;
+    }
+
+    /**
+     * Start streaming the rendition that fits the destination, without writing a complete local file
+     * Returns null when the video cannot be streamed (for example when streams must be merged or
+     * remuxed); the caller then uses {@link #downloadVideo(VideoDownloadTask, FormatConstraints)}.
+     */
+    default VideoStream openVideoStream(VideoDownloadTask task, FormatConstraints constraints) throws Exception {
+        return null;
+    }
+
+    /**
+     * Whether {@link #listPlaylistEntries} is supported
+     */
+    default boolean supportsPlaylists() {
+        return false;
+    }
+
+    /**
+     * List the video URLs of a playlist or channel without probing each video
+     */
+    default List<String> listPlaylistEntries(String url, int maxEntries) throws Exception {
+        throw new UnsupportedOperationException("Playlists are not supported by " + getSupportedSourceType());
+    }
+
     /**
      * Get video metadata without downloading
      */
@@ -56,6 +99,7 @@ public interface VideoSourceProcessor {
      * Video metadata inner class
      */
     class VideoMetadata {
+        private String videoId;
         private String title;
         private String description;
         private String author;
@@ -67,6 +111,8 @@ public interface VideoSourceProcessor {
         private Long bitrate;
         private Double fps;
         private String codec;
+        private List<String> thumbnails = new ArrayList<>();
+        private List<VideoFormat> formats = new ArrayList<>();
 
         // Constructors
         public VideoMetadata() {}
@@ -84,6 +130,9 @@ public interface VideoSourceProcessor {
         }
 
         // Getters and setters
+        public String getVideoId() { return videoId; }
+        public void setVideoId(String videoId) { this.videoId = videoId; }
+
         public String getTitle() { return title; }
         public void setTitle(String title) { this.title = title; }
 
@@ -116,5 +165,89 @@ public interface VideoSourceProcessor {
 
         public String getCodec() { return codec; }
         public void setCodec(String codec) { this.codec = codec; }
+
+        public List<String> getThumbnails() { return thumbnails; }
+        public void setThumbnails(List<String> thumbnails) { this.thumbnails = thumbnails; }
+
+        public List<VideoFormat> getFormats() { return formats; }
+        public void setFormats(List<VideoFormat> formats) { this.formats = formats; }
+    }
+
+    /**
+     * Downloadable format (rendition) of a video as reported by the source
+     */
+    class VideoFormat {
+        private String formatId;
+        private String ext;
+        private Integer width;
+        private Integer height;
+        private Double fps;
+        private String vcodec;
+        private String acodec;
+        private Long filesize;
+        private Long filesizeApprox;
+        private Double tbr;
+        private String protocol;
+        private String formatNote;
+
+        public VideoFormat() {}
+
+        /**
+         * Whether the format contains a video stream
+         */
+        public boolean hasVideo() {
+            return vcodec != null && !"none".equals(vcodec);
+        }
+
+        /**
+         * Whether the format contains an audio stream
+         */
+        public boolean hasAudio() {
+            return acodec != null && !"none".equals(acodec);
+        }
+
+        /**
+         * Exact file size if known, otherwise the approximate one
+         */
+        public Long getEffectiveFileSize() {
+            return filesize != null ? filesize : filesizeApprox;
+        }
+
+        // Getters and setters
+        public String getFormatId() { return formatId; }
+        public void setFormatId(String formatId) { this.formatId = formatId; }
+
+        public String getExt() { return ext; }
+        public void setExt(String ext) { this.ext = ext; }
+
+        public Integer getWidth() { return width; }
+        public void setWidth(Integer width) { this.width = width; }
+
+        public Integer getHeight() { return height; }
+        public void setHeight(Integer height) { this.height = height; }
+
+        public Double getFps() { return fps; }
+        public void setFps(Double fps) { this.fps = fps; }
+
+        public String getVcodec() { return vcodec; }
+        public void setVcodec(String vcodec) { this.vcodec = vcodec; }
+
+        public String getAcodec() { return acodec; }
+        public void setAcodec(String acodec) { this.acodec = acodec; }
+
+        public Long getFilesize() { return filesize; }
+        public void setFilesize(Long filesize) { this.filesize = filesize; }
+
+        public Long getFilesizeApprox() { return filesizeApprox; }
+        public void setFilesizeApprox(Long filesizeApprox) { this.filesizeApprox = filesizeApprox; }
+
+        public Double getTbr() { return tbr; }
+        public void setTbr(Double tbr) { this.tbr = tbr; }
+
+        public String getProtocol() { return protocol; }
+        public void setProtocol(String protocol) { this.protocol = protocol; }
+
+        public String getFormatNote() { return formatNote; }
+        public void setFormatNote(String formatNote) { this.formatNote = formatNote; }
     }
 }
@@ -0,0 +1,27 @@
+package ru.aiivar.tg.yt.downloader.service.processor;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * Video bytes produced by a source while they are being read, without a complete local file
+ * Reading to the end of the stream means the source finished successfully; a source failure surfaces
+ * as an IOException from read. Closing the stream stops the source.
+ */
+public interface VideoStream extends Closeable {
+
+    /**
+     * Video bytes in the final container
+     */
+    InputStream getInputStream();
+
+    /**
+     * File name of the video, e.g. "&lt;video id&gt;.mp4"
+     */
+    String getFileName();
+
+    /**
+     * Expected size in bytes, or -1 when unknown
+     */
+    long getEstimatedSizeBytes();
+}
@@ -0,0 +1,23 @@
+package ru.aiivar.tg.yt.downloader.service.processor;
+
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+/**
+ * Interface for extracting a canonical video identity from source URLs
+ * Implementations map every URL variant of the same video (short links, mobile hosts,
+ * tracking parameters, timestamps) to a single stable key used for reuse and caching
+ */
+public interface VideoUrlCanonicalizer {
+
+    /**
+     * Get the source type this canonicalizer handles
+     */
+    SourceType getSupportedSourceType();
+
+    /**
+     * Extract the canonical video ID from the URL
+     *
+     * @return canonical ID (e.g. "youtube:dQw4w9WgXcQ") or null if the URL does not point to a single video
+     */
+    String canonicalize(String url);
+}
@@ -0,0 +1,261 @@
+package ru.aiivar.tg.yt.downloader.service.processor.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.service.VideoIdentityService;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.download.DownloadAccelerator;
+import ru.aiivar.tg.yt.downloader.service.download.LocalMediaCache;
+import ru.aiivar.tg.yt.downloader.service.download.RangedHttpDownloader;
+import ru.aiivar.tg.yt.downloader.service.download.TempStorageService;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
+import ru.aiivar.tg.yt.downloader.service.metadata.VideoMetadataCache;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgressRegistry;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceRateLimiter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Source processor for direct HTTP(S) links to media files (CDNs, file hosts)
+ * Files are fetched without yt-dlp: one HEAD request, then as many parallel range requests as the
+ * download accelerator grants the DIRECT_HTTP source, within the download bandwidth share.
+ */
+@Component
+public class DirectHttpSourceProcessor implements VideoSourceProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectHttpSourceProcessor.class);
+
+    /**
+     * A link has a single rendition: the file as served
+     */
+    private static final String VARIANT = "original";
+
+    @Autowired
+    private VideoIdentityService videoIdentityService;
+
+    @Autowired
+    private VideoMetadataCache metadataCache;
+
+    @Autowired
+    private RangedHttpDownloader rangedHttpDownloader;
+
+    @Autowired
+    private DownloadAccelerator downloadAccelerator;
+
+    @Autowired
+    private BandwidthGovernor bandwidthGovernor;
+
+    @Autowired
+    private TempStorageService tempStorageService;
+
+    @Autowired
+    private LocalMediaCache localMediaCache;
+
+    @Autowired
+    private SourceRateLimiter sourceRateLimiter;
+
+    @Autowired
+    private TaskProgressRegistry progressRegistry;
+
+    private Map<String, Object> config = new HashMap<>();
+
+    @Override
+    public SourceType getSupportedSourceType() {
+        return SourceType.DIRECT_HTTP;
+    }
+
+    @Override
+    public boolean canProcess(String url) {
+        return SourceType.fromUrl(url) == SourceType.DIRECT_HTTP;
+    }
+
+    @Override
+    public File downloadVideo(VideoDownloadTask task) throws Exception {
+        return downloadVideo(task, FormatConstraints.unrestricted(List.of()));
+    }
+
+    @Override
+    public File downloadVideo(VideoDownloadTask task, FormatConstraints constraints) throws Exception {
+        logger.info("Starting direct HTTP download for task: {}", task.getId());
+
+        try {
+            // Probed again rather than taken from the metadata cache: segments need the current validator
+            RangedHttpDownloader.RemoteFile remote = rangedHttpDownloader.probe(URI.create(task.getSourceUrl()));
+            String fileName = "media." + extensionOf(remote);
+            task.setVideoTitle(titleOf(remote));
+
+            TempStorageService.TempDirectory tempDirectory = tempStorageService.allocate(task.getId(),
+                    remote.getContentLength());
+            logger.info("Created {} temp directory: {}", tempDirectory.getTier(), tempDirectory.getDirectory());
+
+            String canonicalVideoId = resolveCanonicalVideoId(task);
+            String variant = cacheVariant(remote);
+            File cachedFile = variant != null
+                    ? localMediaCache.lookup(canonicalVideoId, variant, tempDirectory.getDirectory()) : null;
+            if (cachedFile != null) {
+                logger.info("Task:{}. Using cached file {}", task.getId(), cachedFile.getName());
+                tempStorageService.settle(tempDirectory, cachedFile.length());
+                return cachedFile;
+            }
+
+            File downloadedFile;
+            try {
+                downloadedFile = download(task, remote, tempDirectory.getDirectory().resolve(fileName), constraints);
+                tempStorageService.settle(tempDirectory, downloadedFile.length());
+            } catch (IOException e) {
+                if (tempDirectory.getTier() != TempStorageService.Tier.MEMORY || !TempStorageService.isOutOfSpace(e)) {
+                    throw e;
+                }
+                logger.warn("Task:{}. Memory temp tier ran out of space, downloading to disk", task.getId());
+                TempStorageService.TempDirectory diskDirectory = tempStorageService.spill(task.getId());
+                downloadedFile = download(task, remote, diskDirectory.getDirectory().resolve(fileName), constraints);
+                tempStorageService.settle(diskDirectory, downloadedFile.length());
+            }
+            if (variant != null) {
+                localMediaCache.store(canonicalVideoId, variant, downloadedFile);
+            }
+            logger.info("File downloaded successfully: {} ({} bytes)", downloadedFile.getAbsolutePath(),
+                    downloadedFile.length());
+
+            return downloadedFile;
+
+        } catch (Exception e) {
+            logger.error("Error during direct HTTP download for task: {}", task.getId(), e);
+            throw new Exception("Failed to download direct link: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public VideoMetadata getVideoMetadata(String url) throws Exception {
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(url, getSupportedSourceType());
+        return metadataCache.getOrLoad(canonicalVideoId,
+                () -> sourceRateLimiter.call(getSupportedSourceType(), () -> probeMetadata(url)));
+    }
+
+    @Override
+    public Map<String, Object> getAvailableFormats(String url) throws Exception {
+        logger.info("Getting available formats for direct link: {}", url);
+
+        VideoMetadata metadata = getVideoMetadata(url);
+        Map<String, Object> formats = new HashMap<>();
+        formats.put("videoId", metadata.getVideoId());
+        formats.put("formats", metadata.getFormats());
+        return formats;
+    }
+
+    @Override
+    public void validateRequest(VideoDownloadTask task) throws Exception {
+        if (task.getSourceUrl() == null || task.getSourceUrl().trim().isEmpty()) {
+            throw new IllegalArgumentException("Source URL cannot be null or empty");
+        }
+
+        if (!canProcess(task.getSourceUrl())) {
+            throw new IllegalArgumentException("URL is not a direct HTTP(S) link");
+        }
+
+        if (task.isAudioOnly()) {
+            throw new IllegalArgumentException("Audio-only mode is not supported for direct links");
+        }
+
+        logger.info("Direct HTTP request validation passed for task: {}", task.getId());
+    }
+
+    @Override
+    public Map<String, Object> getProcessorConfig() {
+        return new HashMap<>(config);
+    }
+
+    @Override
+    public void setProcessorConfig(Map<String, Object> config) {
+        this.config = new HashMap<>(config);
+    }
+
+    private File download(VideoDownloadTask task, RangedHttpDownloader.RemoteFile remote, Path target,
+                          FormatConstraints constraints) throws Exception {
+        // Segments use the connections leased for this download and share its bandwidth; like a one-shot
+        // yt-dlp process, the download keeps the rate it starts with
+        try (DownloadAccelerator.ConnectionLease lease = downloadAccelerator.acquire(getSupportedSourceType());
+             BandwidthGovernor.DownloadShare share = bandwidthGovernor.acquireFixedDownloadShare()) {
+            logger.debug("Task:{}. Downloading {} with up to {} connections", task.getId(), remote.getUri(),
+                    lease.getConnections());
+            return rangedHttpDownloader.download(remote, target, lease.getConnections(), share.getRateBytesPerSecond(),
+                    constraints.getMaxFileSizeBytes(),
+                    (downloadedBytes, totalBytes) -> progressRegistry.onDownloadProgress(task.getId(),
+                            totalBytes > 0 ? downloadedBytes * 100f / totalBytes : -1, downloadedBytes, totalBytes, -1))
+                    .toFile();
+        }
+    }
+
+    private VideoMetadata probeMetadata(String url) throws Exception {
+        logger.info("Probing direct link: {}", url);
+
+        try {
+            RangedHttpDownloader.RemoteFile remote = rangedHttpDownloader.probe(URI.create(url));
+            String extension = extensionOf(remote);
+            Long size = remote.getContentLength() >= 0 ? remote.getContentLength() : null;
+
+            VideoFormat format = new VideoFormat();
+            format.setFormatId(VARIANT);
+            format.setExt(extension);
+            format.setFilesize(size);
+            format.setProtocol(remote.getUri().getScheme());
+
+            VideoMetadata metadata = new VideoMetadata(titleOf(remote), null, remote.getUri().getHost(), null,
+                    null, size, extension, null);
+            metadata.setFormats(List.of(format));
+            return metadata;
+
+        } catch (Exception e) {
+            logger.error("Error probing direct link: {}", url, e);
+            throw new Exception("Failed to get file metadata: " + e.getMessage(), e);
+        }
+    }
+
+    private String resolveCanonicalVideoId(VideoDownloadTask task) {
+        return task.getCanonicalVideoId() != null ? task.getCanonicalVideoId()
+                : videoIdentityService.resolveCanonicalVideoId(task.getSourceUrl(), getSupportedSourceType());
+    }
+
+    /**
+     * Media cache variant of the file as currently served, null when the server gives no validator
+     * The validator is part of the key so that a file replaced behind the same link is fetched again.
+     */
+    private static String cacheVariant(RangedHttpDownloader.RemoteFile remote) {
+        return remote.getValidator() != null ? VARIANT + "@" + remote.getValidator() : null;
+    }
+
+    /**
+     * Extension for the content type, otherwise a known media extension of the served file name or path
+     * Generic video/* or audio/* types and binary data are only accepted with a name that says what they are.
+     */
+    private static String extensionOf(RangedHttpDownloader.RemoteFile remote) throws IOException {
+        String extension = remote.getMediaExtension();
+        if (extension != null) {
+            return extension;
+        }
+        throw new IOException("Unsupported media type " + remote.getMediaType() + ": " + remote.getUri());
+    }
+
+    /**
+     * Served file name without its extension, used as the upload name
+     */
+    private static String titleOf(RangedHttpDownloader.RemoteFile remote) {
+        String name = remote.getFileName();
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
@@ -4,14 +4,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.config.StreamingConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
 import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
 import ru.aiivar.tg.yt.downloader.service.TelegramFileService;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
 import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoStream;
+import ru.aiivar.tg.yt.downloader.service.progress.ProgressInputStream;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,6 +32,9 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
     @Autowired
     private TelegramFileService telegramFileService;
 
+    @Autowired
+    private StreamingConfiguration streamingConfig;
+
     private Map<String, Object> config = new HashMap<>();
 
     @Override
@@ -34,40 +44,113 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
 
     @Override
     public String uploadVideo(File videoFile, VideoDownloadTask task, VideoDownloadTaskResult result) throws Exception {
+        return uploadVideo(videoFile, task, result, getUploadProgressCallback());
+    }
+
+    @Override
+    public String uploadVideo(File videoFile, VideoDownloadTask task, VideoDownloadTaskResult result,
+                              UploadProgressCallback callback) throws Exception {
         logger.info("Starting Telegram video upload for task: {}", task.getId());
 
         try {
             // Create caption for the video
             String caption = buildVideoCaption(task);
+            String fileName = buildUploadFileName(task, videoFile);
 
             long fileSize = videoFile.length();
             long maxOfficialApiSize = 50 * 1024 * 1024; // 50 MB
 
             String telegramFileId;
 
-            // Check if we should use local API for large files
-            if (fileSize > maxOfficialApiSize) {
+            if (task.isAudioOnly()) {
+                // Audio goes through sendAudio on either server so clients show it as a track
+                if (fileSize > maxOfficialApiSize && !telegramFileService.isUseLocalApi()) {
+                    throw new IOException("Local Bot API server is not configured. Cannot upload large files.");
+                }
+                logger.info("Uploading {} KB of audio", fileSize / 1024);
+                telegramFileId = telegramFileService.uploadAudioToTelegram(videoFile, fileName, caption,
+                        task.getVideoTitle(), task.getEstimatedDurationSeconds(), callback);
+            } else if (fileSize > maxOfficialApiSize) {
+                // Use local API for large files
                 logger.info("File size {} MB exceeds 50MB limit, using local Bot API server",
                         fileSize / (1024 * 1024));
-                telegramFileId = telegramFileService.uploadLargeFileToTelegram(videoFile, caption, true);
+                telegramFileId = telegramFileService.uploadLargeFileToTelegram(videoFile, fileName, caption, true, callback);
             } else {
                 logger.info("File size {} MB is within 50MB limit, using official API",
                         fileSize / (1024 * 1024));
-                telegramFileId = telegramFileService.uploadVideoToTelegram(videoFile, caption);
+                telegramFileId = telegramFileService.uploadVideoToTelegram(videoFile, fileName, caption, callback);
             }
 
             logger.info("Upload to Telegram completed. File ID: {}", telegramFileId);
 
             // Update result with file information
             result.setDestinationId(telegramFileId);
-            result.setFileName(videoFile.getName());
+            result.setFileName(fileName);
             result.setFileSizeBytes(fileSize);
             result.setFileFormat(getFileExtension(videoFile.getName()));
 
+            if (callback != null) {
+                callback.onComplete(telegramFileId);
+            }
             return telegramFileId;
 
         } catch (Exception e) {
             logger.error("Error uploading video to Telegram for task: {}", task.getId(), e);
+            if (callback != null) {
+                callback.onError(e);
+            }
+            throw new Exception("Failed to upload video to Telegram: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsStreamingUpload() {
+        return true;
+    }
+
+    @Override
+    public String uploadVideoStream(VideoStream stream, VideoDownloadTask task, VideoDownloadTaskResult result)
+            throws Exception {
+        return uploadVideoStream(stream, task, result, getUploadProgressCallback());
+    }
+
+    @Override
+    public String uploadVideoStream(VideoStream stream, VideoDownloadTask task, VideoDownloadTaskResult result,
+                                    UploadProgressCallback callback) throws Exception {
+        logger.info("Starting Telegram streaming upload for task: {}", task.getId());
+
+        try {
+            long estimatedSize = stream.getEstimatedSizeBytes();
+            long maxOfficialApiSize = 50 * 1024 * 1024; // 50 MB
+            if (estimatedSize > maxOfficialApiSize && !telegramFileService.isUseLocalApi()) {
+                throw new IOException("Local Bot API server is not configured. Cannot upload large files.");
+            }
+
+            String caption = buildVideoCaption(task);
+            String fileName = buildUploadFileName(task, new File(stream.getFileName()));
+
+            // Count what was actually sent; the size is only estimated until the stream ends
+            ProgressInputStream counted = new ProgressInputStream(stream.getInputStream(), callback, estimatedSize);
+            String telegramFileId = telegramFileService.uploadVideoStreamToTelegram(counted, fileName, caption,
+                    streamingConfig.getChunkSizeKB() * 1024);
+
+            logger.info("Streaming upload to Telegram completed. File ID: {}, {} bytes", telegramFileId, counted.getCount());
+
+            result.setDestinationId(telegramFileId);
+            result.setFileName(fileName);
+            result.setFileSizeBytes(counted.getCount());
+            result.setFileFormat(getFileExtension(stream.getFileName()));
+
+            if (callback != null) {
+                callback.onComplete(telegramFileId);
+            }
+            return telegramFileId;
+
+        } catch (Exception e) {
+            logger.error("Error streaming video to Telegram for task: {}", task.getId(), e);
+            if (callback != null) {
+                callback.onError(e);
+            }
             throw new Exception("Failed to upload video to Telegram: " + e.getMessage(), e);
         }
     }
@@ -77,7 +160,11 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
         logger.info("Sending video {} to Telegram chat: {}", destinationId, task.getChatId());
 
         try {
-            telegramFileService.sendVideoByFileIdToChat(destinationId, task.getChatId());
+            if (task.isAudioOnly()) {
+                telegramFileService.sendAudioByFileIdToChat(destinationId, task.getChatId());
+            } else {
+                telegramFileService.sendVideoByFileIdToChat(destinationId, task.getChatId());
+            }
             logger.info("Video sent successfully to Telegram chat: {}", task.getChatId());
 
         } catch (Exception e) {
@@ -161,6 +248,21 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
         return telegramFileService.isUseLocalApi() ? 2L * 1024 * 1024 * 1024 : 50L * 1024 * 1024;
     }
 
+    @Override
+    public FormatConstraints getFormatConstraints() {
+        // Renditions within the official API limit upload faster than through the local Bot API server,
+        // and H.264/AAC in mp4 plays inline in Telegram clients
+        long officialApiLimit = 50L * 1024 * 1024;
+        List<String> containers = new ArrayList<>(List.of("mp4"));
+        for (String format : getSupportedFormats()) {
+            if (!containers.contains(format)) {
+                containers.add(format);
+            }
+        }
+        return new FormatConstraints(getMaxFileSize(), getMaxFileSize() > officialApiLimit ? officialApiLimit : 0,
+                containers, true, List.of("avc1", "h264"), List.of("mp4a", "aac"));
+    }
+
     @Override
     public String[] getSupportedFormats() {
         return new String[]{"mp4", "avi", "mov", "wmv", "flv", "webm", "mkv"};
@@ -190,7 +292,7 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
     private String buildVideoCaption(VideoDownloadTask task) {
         StringBuilder caption = new StringBuilder();
         
-        caption.append("📹 Video Downloaded\n");
+        caption.append(task.isAudioOnly() ? "🎵 Audio Downloaded\n" : "📹 Video Downloaded\n");
         caption.append("🔗 Source: ").append(task.getSourceUrl()).append("\n");
         caption.append("📅 Download ID: ").append(task.getId()).append("\n");
         
@@ -201,6 +303,19 @@ public class TelegramDestinationProcessor implements VideoDestinationProcessor {
         return caption.toString();
     }
 
+    private String buildUploadFileName(VideoDownloadTask task, File videoFile) {
+        // Downloaded files are named by video ID; recipients see the title instead when it is known
+        String title = task.getVideoTitle();
+        if (title == null || title.isBlank()) {
+            return videoFile.getName();
+        }
+        String name = title.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        if (name.length() > 200) {
+            name = name.substring(0, 200);
+        }
+        return name + "." + getFileExtension(videoFile.getName());
+    }
+
     private String getFileExtension(String fileName) {
         if (fileName == null || fileName.isEmpty()) {
             return "unknown";
@@ -1,24 +1,39 @@
 package ru.aiivar.tg.yt.downloader.service.processor.impl;
 
-import com.jfposton.ytdlp.YtDlp;
 import com.jfposton.ytdlp.YtDlpException;
-import com.jfposton.ytdlp.YtDlpRequest;
-import com.jfposton.ytdlp.YtDlpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.config.BatchConfiguration;
+import ru.aiivar.tg.yt.downloader.config.StreamingConfiguration;
+import ru.aiivar.tg.yt.downloader.config.YtDlpConfiguration;
 import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
 import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.service.VideoIdentityService;
+import ru.aiivar.tg.yt.downloader.service.download.DownloadAccelerator;
+import ru.aiivar.tg.yt.downloader.service.download.DownloadStagingService;
+import ru.aiivar.tg.yt.downloader.service.download.LocalMediaCache;
+import ru.aiivar.tg.yt.downloader.service.download.TempStorageService;
+import ru.aiivar.tg.yt.downloader.service.format.FormatConstraints;
+import ru.aiivar.tg.yt.downloader.service.format.FormatSelection;
+import ru.aiivar.tg.yt.downloader.service.format.FormatSelector;
+import ru.aiivar.tg.yt.downloader.service.metadata.VideoMetadataCache;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
 import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoStream;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgressRegistry;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceRateLimiter;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.DownloadProgress;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpExecutor;
 
 import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 
 /**
  * YouTube source processor implementation
@@ -27,7 +42,45 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class YouTubeSourceProcessor implements VideoSourceProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(YouTubeSourceProcessor.class);
-    private static final String TEMP_DIR = System.getProperty("java.io.tmpdir") + "/yt_downloads";
+
+    @Autowired
+    private VideoIdentityService videoIdentityService;
+
+    @Autowired
+    private VideoMetadataCache metadataCache;
+
+    @Autowired
+    private YtDlpExecutor ytDlpExecutor;
+
+    @Autowired
+    private FormatSelector formatSelector;
+
+    @Autowired
+    private DownloadAccelerator downloadAccelerator;
+
+    @Autowired
+    private DownloadStagingService downloadStagingService;
+
+    @Autowired
+    private LocalMediaCache localMediaCache;
+
+    @Autowired
+    private TempStorageService tempStorageService;
+
+    @Autowired
+    private YtDlpConfiguration ytDlpConfig;
+
+    @Autowired
+    private StreamingConfiguration streamingConfig;
+
+    @Autowired
+    private SourceRateLimiter sourceRateLimiter;
+
+    @Autowired
+    private TaskProgressRegistry progressRegistry;
+
+    @Autowired
+    private BatchConfiguration batchConfig;
 
     private Map<String, Object> config = new HashMap<>();
 
@@ -43,15 +96,50 @@ public class YouTubeSourceProcessor implements VideoSourceProcessor {
 
     @Override
     public File downloadVideo(VideoDownloadTask task) throws Exception {
+        return downloadVideo(task, FormatConstraints.unrestricted(List.of()));
+    }
+
+    @Override
+    public File downloadVideo(VideoDownloadTask task, FormatConstraints constraints) throws Exception {
         logger.info("Starting YouTube video download for task: {}", task.getId());
 
         try {
-            // Create temp directory
-            Path tempDir = createTempDirectory(task.getId());
-            logger.info("Created temp directory: {}", tempDir);
-
-            // Download video
-            File downloadedFile = downloadVideoFile(task, tempDir);
+            // Choose the rendition before spending bandwidth, rejecting videos the destination cannot accept
+            FormatSelection selection = selectFormat(task, constraints);
+
+            // Create the temp directory in memory for small downloads, on disk otherwise
+            Long estimatedSize = selection != null ? selection.getEstimatedFileSizeBytes() : null;
+            TempStorageService.TempDirectory tempDirectory = tempStorageService.allocate(task.getId(),
+                    estimatedSize != null ? estimatedSize : -1);
+            Path tempDir = tempDirectory.getDirectory();
+            logger.info("Created {} temp directory: {}", tempDirectory.getTier(), tempDir);
+
+            // Download into the staging directory of this rendition, resuming partial files of earlier attempts
+            String canonicalVideoId = resolveCanonicalVideoId(task);
+            String variant = renditionVariant(task, selection);
+            File downloadedFile;
+            try (DownloadStagingService.StagingLease staging = downloadStagingService.acquire(canonicalVideoId, variant)) {
+                // Checked under the staging lock, so a task that waited for the same rendition reuses its file
+                File cachedFile = localMediaCache.lookup(canonicalVideoId, variant, tempDir);
+                if (cachedFile != null) {
+                    logger.info("Task:{}. Using cached file {}", task.getId(), cachedFile.getName());
+                    tempStorageService.settle(tempDirectory, cachedFile.length());
+                    return cachedFile;
+                }
+                if (tempDirectory.getTier() == TempStorageService.Tier.MEMORY) {
+                    // Small downloads are cheap to repeat, so they skip the disk staging area and stay in memory
+                    downloadedFile = downloadToMemory(task, tempDirectory, selection, constraints.getMaxFileSizeBytes());
+                } else if (staging == null) {
+                    downloadedFile = downloadVideoFile(task, tempDir, selection, constraints.getMaxFileSizeBytes());
+                } else {
+                    if (staging.getExistingBytes() > 0) {
+                        logger.info("Task:{}. Resuming from {} staged bytes", task.getId(), staging.getExistingBytes());
+                    }
+                    File stagedFile = downloadVideoFile(task, staging.getDirectory(), selection, constraints.getMaxFileSizeBytes());
+                    downloadedFile = staging.complete(stagedFile, tempDir);
+                }
+            }
+            localMediaCache.store(canonicalVideoId, variant, downloadedFile);
             logger.info("Video downloaded successfully: {}", downloadedFile.getAbsolutePath());
 
             return downloadedFile;
@@ -63,51 +151,69 @@ public class YouTubeSourceProcessor implements VideoSourceProcessor {
     }
 
     @Override
-    public VideoMetadata getVideoMetadata(String url) throws Exception {
-        logger.info("Getting YouTube video metadata for URL: {}", url);
+    public VideoStream openVideoStream(VideoDownloadTask task, FormatConstraints constraints) throws Exception {
+        if (!streamingConfig.isEnabled() || task.isAudioOnly()) {
+            // Extracted audio is written by ffmpeg after the download
+            return null;
+        }
 
-        try {
-            YtDlpRequest request = new YtDlpRequest(url);
-            request.setOption("dump-json");
-            request.setOption("no-download");
+        FormatSelection selection = selectFormat(task, constraints);
+        if (selection == null || !selection.isPremuxed() || !selection.getContainer().equals(selection.getVideo().getExt())) {
+            // Merging and remuxing need a seekable file
+            return null;
+        }
+        String protocol = selection.getVideo().getProtocol();
+        if (protocol != null && !protocol.equals("http") && !protocol.equals("https")) {
+            // Fragmented (DASH/HLS) downloads are assembled by yt-dlp on disk
+            return null;
+        }
+        String canonicalVideoId = resolveCanonicalVideoId(task);
+        if (localMediaCache.contains(canonicalVideoId, renditionVariant(task, selection))) {
+            return null;
+        }
 
-            YtDlpResponse response = YtDlp.execute(request);
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("format", selection.getFormatSpec());
+        options.put("no-playlist", null);
 
-            if (response.getExitCode() != 0) {
-                throw new YtDlpException("yt-dlp failed: " + response.getErr());
-            }
+        String videoId = getVideoMetadata(task.getSourceUrl()).getVideoId();
+        String fileName = (videoId != null ? videoId : task.getId()) + "." + selection.getContainer();
+        Long estimatedSize = selection.getEstimatedFileSizeBytes();
+        logger.info("Task:{}. Streaming format {} without a temp file", task.getId(), selection);
+        return ytDlpExecutor.openStream(task.getSourceUrl(), options, fileName, estimatedSize != null ? estimatedSize : -1,
+                constraints.getMaxFileSizeBytes(), streamingConfig.getBufferSizeKB() * 1024);
+    }
 
-            // Parse JSON response to extract metadata
-            String jsonOutput = response.getOut();
-            return parseMetadataFromJson(jsonOutput);
+    @Override
+    public VideoMetadata getVideoMetadata(String url) throws Exception {
+        String canonicalVideoId = videoIdentityService.resolveCanonicalVideoId(url, getSupportedSourceType());
+        return metadataCache.getOrLoad(canonicalVideoId,
+                () -> sourceRateLimiter.call(getSupportedSourceType(), () -> probeVideoMetadata(url)));
+    }
 
-        } catch (Exception e) {
-            logger.error("Error getting YouTube video metadata for URL: {}", url, e);
-            throw new Exception("Failed to get video metadata: " + e.getMessage(), e);
-        }
+    @Override
+    public boolean supportsPlaylists() {
+        return true;
+    }
+
+    @Override
+    public List<String> listPlaylistEntries(String url, int maxEntries) throws Exception {
+        logger.info("Listing up to {} videos of YouTube playlist: {}", maxEntries, url);
+        // Channel tabs and nested playlists are listed with other extractor keys and skipped
+        return sourceRateLimiter.call(getSupportedSourceType(), () -> ytDlpExecutor.listPlaylist(url, "Youtube",
+                maxEntries, TimeUnit.SECONDS.toMillis(batchConfig.getListingTimeoutSeconds())));
     }
 
     @Override
     public Map<String, Object> getAvailableFormats(String url) throws Exception {
         logger.info("Getting available formats for YouTube URL: {}", url);
 
-        try {
-            YtDlpRequest request = new YtDlpRequest(url);
-            request.setOption("list-formats");
-
-            YtDlpResponse response = YtDlp.execute(request);
-
-            if (response.getExitCode() != 0) {
-                throw new YtDlpException("yt-dlp failed: " + response.getErr());
-            }
-
-            // Parse format list from output
-            return parseFormatsFromOutput(response.getOut());
-
-        } catch (Exception e) {
-            logger.error("Error getting available formats for YouTube URL: {}", url, e);
-            throw new Exception("Failed to get available formats: " + e.getMessage(), e);
-        }
+        // Formats come from the same (cached) probe as the rest of the metadata
+        VideoMetadata metadata = getVideoMetadata(url);
+        Map<String, Object> formats = new HashMap<>();
+        formats.put("videoId", metadata.getVideoId());
+        formats.put("formats", metadata.getFormats());
+        return formats;
     }
 
     @Override
@@ -134,84 +240,133 @@ public class YouTubeSourceProcessor implements VideoSourceProcessor {
         this.config = new HashMap<>(config);
     }
 
-    private Path createTempDirectory(String taskId) throws IOException {
-        logger.info("Creating temp directory for task: {}", taskId);
-
+    /**
+     * Download into the memory tier, starting over on disk when the estimate was too low for the space left
+     */
+    private File downloadToMemory(VideoDownloadTask task, TempStorageService.TempDirectory tempDirectory,
+                                  FormatSelection selection, long maxFileSizeBytes) throws Exception {
         try {
-            Path tempDir = Paths.get(TEMP_DIR, taskId);
-
-            // Ensure the base temp directory exists
-            Path baseTempDir = Paths.get(TEMP_DIR);
-            if (!Files.exists(baseTempDir)) {
-                logger.info("Creating base temp directory: {}", baseTempDir.toAbsolutePath());
-                Files.createDirectories(baseTempDir);
-            }
-
-            if (!Files.exists(tempDir)) {
-                Files.createDirectories(tempDir);
-                logger.info("Created temp directory: {}", tempDir.toAbsolutePath());
+            File downloadedFile = downloadVideoFile(task, tempDirectory.getDirectory(), selection, maxFileSizeBytes);
+            tempStorageService.settle(tempDirectory, downloadedFile.length());
+            return downloadedFile;
+        } catch (YtDlpException e) {
+            if (!TempStorageService.isOutOfSpace(e)) {
+                throw e;
             }
-
-            return tempDir;
-        } catch (IOException e) {
-            logger.error("Failed to create temp directory for task: {}", taskId, e);
-            throw new IOException("Failed to create temp directory: " + e.getMessage(), e);
+            logger.warn("Task:{}. Memory temp tier ran out of space, downloading to disk", task.getId());
+            Path diskDir = tempStorageService.spill(task.getId()).getDirectory();
+            return downloadVideoFile(task, diskDir, selection, maxFileSizeBytes);
         }
     }
 
-    private File downloadVideoFile(VideoDownloadTask task, Path tempDir) throws YtDlpException {
+    private File downloadVideoFile(VideoDownloadTask task, Path outputDir, FormatSelection selection, long maxFileSizeBytes)
+            throws YtDlpException, FileTooLargeException, InterruptedException {
         logger.info("Starting video download for URL: {} with format: {} and resolution: {}",
                 task.getSourceUrl(), task.getRequestedFormat(), task.getRequestedResolution());
 
-        YtDlpRequest ytRequest = new YtDlpRequest(task.getSourceUrl());
+        Map<String, String> options = new LinkedHashMap<>();
 
-        // Set output path
-        String outputTemplate = tempDir.resolve("%(title)s.%(ext)s").toString();
-        ytRequest.setOption("output", outputTemplate);
+        // Name files by video ID so resumed and reported paths are stable; the title is only the upload name
+        String outputTemplate = outputDir.resolve("%(id)s.%(ext)s").toString();
+        options.put("output", outputTemplate);
 
-        // Set format based on task requirements
-        String format = buildFormatString(task);
-        ytRequest.setOption("format", format);
+        // Set format from the selected rendition, or from task requirements when nothing was selected
+        String format = selection != null ? selection.getFormatSpec() : buildFormatString(task);
+        options.put("format", format);
 
-        // Additional options
-        ytRequest.setOption("merge-output-format", task.getRequestedFormat());
-        ytRequest.setOption("prefer-free-formats");
-        ytRequest.setOption("no-playlist");
+        if (task.isAudioOnly()) {
+            // Extract into m4a: AAC streams are copied as they are, anything else is converted
+            options.put("extract-audio", null);
+            options.put("audio-format", FormatSelector.AUDIO_CONTAINER);
+        } else {
+            options.put("merge-output-format", selection != null ? selection.getContainer() : task.getRequestedFormat());
+            options.put("prefer-free-formats", null);
+        }
+        options.put("no-playlist", null);
 
         logger.info("Executing yt-dlp with format: {}", format);
 
-        var progressInt = new AtomicInteger(1);
-        YtDlpResponse response = YtDlp.execute(
-                ytRequest,
-                (progress, etaInSeconds) -> {
-                    if (progress >= progressInt.get()) {
-                        progressInt.addAndGet((int) progress - progressInt.get() + 1);
-                        logger.debug("Task:{}. Progress: {}%, time left: {} sec.", task.getId(), progress, etaInSeconds);
-                    }
-                },
-                logger::debug
-        );
+        // Accelerate within the global connection budget shared by all concurrent downloads
+        DownloadProgress progress = new DownloadProgress();
+        File downloadedFile;
+        try (DownloadAccelerator.ConnectionLease lease = downloadAccelerator.acquire(getSupportedSourceType())) {
+            options.putAll(lease.toYtDlpOptions());
+            logger.debug("Task:{}. Downloading with {} connections", task.getId(), lease.getConnections());
+
+            downloadedFile = ytDlpExecutor.download(
+                    task.getSourceUrl(),
+                    options,
+                    outputDir,
+                    (percent, downloadedBytes, totalBytes, etaSeconds) -> {
+                        progress.onProgress(percent, downloadedBytes, totalBytes, etaSeconds);
+                        progressRegistry.onDownloadProgress(task.getId(), percent, downloadedBytes, totalBytes, etaSeconds);
+                    },
+                    maxFileSizeBytes
+            );
+        }
+
+        logger.info("yt-dlp completed successfully for task: {} ({} progress updates, {} bytes)",
+                task.getId(), progress.getUpdates(), progress.getDownloadedBytes());
+        logger.info("Found downloaded file: {}", downloadedFile.getName());
 
-        if (response.getExitCode() != 0) {
-            logger.error("yt-dlp failed with exit code: {} for task: {}", response.getExitCode(), task.getId());
-            throw new YtDlpException("yt-dlp failed: " + response.getErr());
+        return downloadedFile;
+    }
+
+    private FormatSelection selectFormat(VideoDownloadTask task, FormatConstraints constraints) throws FileTooLargeException {
+        if (!ytDlpConfig.isFormatSelectionEnabled()) {
+            return null;
         }
 
-        logger.info("yt-dlp completed successfully for task: {}", task.getId());
+        VideoMetadata metadata;
+        try {
+            metadata = getVideoMetadata(task.getSourceUrl());
+        } catch (Exception e) {
+            // Fall back to the format string; the byte cap still applies during the download
+            logger.warn("Skipping format selection for task {}: {}", task.getId(), e.getMessage());
+            return null;
+        }
 
-        // Find the downloaded file
-        File[] files = tempDir.toFile().listFiles();
-        if (files == null || files.length == 0) {
-            throw new YtDlpException("No file was downloaded");
+        task.setVideoTitle(metadata.getTitle());
+        task.setEstimatedDurationSeconds(metadata.getDurationSeconds());
+
+        FormatSelection selection = task.isAudioOnly()
+                ? formatSelector.selectAudio(metadata, constraints)
+                : formatSelector.select(metadata, task.getRequestedFormat(),
+                        Integer.parseInt(extractHeightFromResolution(task.getRequestedResolution())),
+                        "worst".equals(task.getRequestedQuality()), constraints);
+        if (selection == null) {
+            logger.info("No format of video {} matches the request of task {}, using format string",
+                    metadata.getVideoId(), task.getId());
+            return null;
         }
 
-        File downloadedFile = files[0];
-        logger.info("Found downloaded file: {}", downloadedFile.getName());
+        logger.info("Selected format {} for task {}", selection, task.getId());
+        if (!selection.isAudioOnly()) {
+            task.setDownloadedResolution(selection.getResolution());
+        }
+        return selection;
+    }
 
-        return downloadedFile;
+    private String resolveCanonicalVideoId(VideoDownloadTask task) {
+        return task.getCanonicalVideoId() != null ? task.getCanonicalVideoId()
+                : videoIdentityService.resolveCanonicalVideoId(task.getSourceUrl(), getSupportedSourceType());
+    }
+
+    /**
+     * Rendition part of the staging and media cache keys
+     */
+    private String renditionVariant(VideoDownloadTask task, FormatSelection selection) {
+        if (selection != null) {
+            return selection.getFormatSpec() + "." + selection.getContainer();
+        }
+        return buildFormatString(task) + "." + (task.isAudioOnly() ? FormatSelector.AUDIO_CONTAINER : task.getRequestedFormat());
     }
 
     private String buildFormatString(VideoDownloadTask task) {
+        if (task.isAudioOnly()) {
+            return "bestaudio[ext=m4a]/bestaudio";
+        }
+
         String format = task.getRequestedFormat();
         String resolution = task.getRequestedResolution();
         String quality = task.getRequestedQuality();
@@ -236,25 +391,18 @@ public class YouTubeSourceProcessor implements VideoSourceProcessor {
         return height.isEmpty() ? "720" : height;
     }
 
-    private VideoMetadata parseMetadataFromJson(String jsonOutput) {
-        // This is a simplified implementation
-        // In a real implementation, you would use a JSON parser like Jackson or Gson
-        VideoMetadata metadata = new VideoMetadata();
-        
-        // Extract basic information from JSON
-        // This is a placeholder - actual implementation would parse the JSON properly
-        metadata.setTitle("YouTube Video");
-        metadata.setDescription("Downloaded from YouTube");
-        metadata.setAuthor("Unknown");
-        
-        return metadata;
-    }
+    private VideoMetadata probeVideoMetadata(String url) throws Exception {
+        logger.info("Probing YouTube video metadata for URL: {}", url);
 
-    private Map<String, Object> parseFormatsFromOutput(String output) {
-        // This is a simplified implementation
-        // In a real implementation, you would parse the format list properly
-        Map<String, Object> formats = new HashMap<>();
-        formats.put("formats", "Available formats would be parsed here");
-        return formats;
+        try {
+            VideoMetadata metadata = ytDlpExecutor.probe(url);
+            logger.info("Probed metadata for video {}: {} formats, duration {} sec.",
+                    metadata.getVideoId(), metadata.getFormats().size(), metadata.getDurationSeconds());
+            return metadata;
+
+        } catch (Exception e) {
+            logger.error("Error getting YouTube video metadata for URL: {}", url, e);
+            throw new Exception("Failed to get video metadata: " + e.getMessage(), e);
+        }
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,182 @@
+package ru.aiivar.tg.yt.downloader.service.processor.impl;
+
+import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoUrlCanonicalizer;
+
+/**
+ * YouTube URL canonicalizer
+ * Handles watch, short link, shorts, embed, live and mobile/music URLs.
+ * The parser scans the URL in place without regular expressions or intermediate
+ * strings, because it runs on every incoming request.
+ */
+@Component
+public class YouTubeUrlCanonicalizer implements VideoUrlCanonicalizer {
+
+    public static final String CANONICAL_PREFIX = "youtube:";
+
+    private static final int VIDEO_ID_LENGTH = 11;
+
+    private static final String[] PATH_PREFIXES = {"/shorts/", "/embed/", "/v/", "/live/", "/e/"};
+
+    @Override
+    public SourceType getSupportedSourceType() {
+        return SourceType.YOUTUBE;
+    }
+
+    @Override
+    public String canonicalize(String url) {
+        int idStart = findVideoIdStart(url);
+        if (idStart < 0) {
+            return null;
+        }
+        return new StringBuilder(CANONICAL_PREFIX.length() + VIDEO_ID_LENGTH)
+                .append(CANONICAL_PREFIX)
+                .append(url, idStart, idStart + VIDEO_ID_LENGTH)
+                .toString();
+    }
+
+    /**
+     * Locate the 11-character video ID inside the URL
+     *
+     * @return start index of the video ID or -1 if the URL is not a single-video YouTube URL
+     */
+    static int findVideoIdStart(String url) {
+        if (url == null) {
+            return -1;
+        }
+
+        int length = url.length();
+        int pos = 0;
+        while (pos < length && url.charAt(pos) <= ' ') {
+            pos++;
+        }
+
+        // Scheme
+        if (url.regionMatches(true, pos, "https://", 0, 8)) {
+            pos += 8;
+        } else if (url.regionMatches(true, pos, "http://", 0, 7)) {
+            pos += 7;
+        } else if (url.startsWith("//", pos)) {
+            pos += 2;
+        }
+
+        // Host (stops at path, query, fragment or port)
+        int hostStart = pos;
+        while (pos < length) {
+            char c = url.charAt(pos);
+            if (c == '/' || c == '?' || c == '#' || c == ':') {
+                break;
+            }
+            pos++;
+        }
+        int hostEnd = pos;
+        if (pos < length && url.charAt(pos) == ':') {
+            pos++;
+            while (pos < length && Character.isDigit(url.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        hostStart = skipHostPrefix(url, hostStart, hostEnd, "www.");
+        hostStart = skipHostPrefix(url, hostStart, hostEnd, "m.");
+        hostStart = skipHostPrefix(url, hostStart, hostEnd, "music.");
+
+        if (hostMatches(url, hostStart, hostEnd, "youtu.be")) {
+            if (pos >= length || url.charAt(pos) != '/') {
+                return -1;
+            }
+            return validVideoIdAt(url, pos + 1) ? pos + 1 : -1;
+        }
+
+        if (!hostMatches(url, hostStart, hostEnd, "youtube.com")
+                && !hostMatches(url, hostStart, hostEnd, "youtube-nocookie.com")) {
+            return -1;
+        }
+
+        for (String prefix : PATH_PREFIXES) {
+            if (url.regionMatches(true, pos, prefix, 0, prefix.length())) {
+                int idStart = pos + prefix.length();
+                return validVideoIdAt(url, idStart) ? idStart : -1;
+            }
+        }
+
+        // A whole "/watch" segment, not a prefix of paths such as /watch_videos or /watchlater; without a
+        // query (end of the link or a fragment) there is no video ID either
+        if (url.regionMatches(true, pos, "/watch", 0, 6)) {
+            int end = pos + 6;
+            char next = end < length ? url.charAt(end) : '#';
+            return next == '?' || next == '/' ? findQueryParameter(url, end, 'v') : -1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Find a single-letter query parameter and return the start of its value if it is a valid video ID
+     */
+    private static int findQueryParameter(String url, int from, char name) {
+        int length = url.length();
+        int pos = url.indexOf('?', from);
+        if (pos < 0) {
+            return -1;
+        }
+        pos++;
+
+        while (pos < length) {
+            char c = url.charAt(pos);
+            if (c == '#') {
+                return -1;
+            }
+            if (c == name && pos + 1 < length && url.charAt(pos + 1) == '=') {
+                int idStart = pos + 2;
+                return validVideoIdAt(url, idStart) ? idStart : -1;
+            }
+            // Skip to the next parameter
+            while (pos < length) {
+                c = url.charAt(pos);
+                if (c == '&' || c == ';') {
+                    pos++;
+                    break;
+                }
+                if (c == '#') {
+                    return -1;
+                }
+                pos++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean validVideoIdAt(String url, int start) {
+        int end = start + VIDEO_ID_LENGTH;
+        if (end > url.length()) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = url.charAt(i);
+            boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!valid) {
+                return false;
+            }
+        }
+        if (end == url.length()) {
+            return true;
+        }
+        char terminator = url.charAt(end);
+        return terminator == '?' || terminator == '&' || terminator == '#' || terminator == '/'
+                || terminator == ';' || terminator <= ' ';
+    }
+
+    private static int skipHostPrefix(String url, int hostStart, int hostEnd, String prefix) {
+        if (hostEnd - hostStart > prefix.length() && url.regionMatches(true, hostStart, prefix, 0, prefix.length())) {
+            return hostStart + prefix.length();
+        }
+        return hostStart;
+    }
+
+    private static boolean hostMatches(String url, int hostStart, int hostEnd, String host) {
+        return hostEnd - hostStart == host.length() && url.regionMatches(true, hostStart, host, 0, host.length());
+    }
+}
@@ -0,0 +1,166 @@
+package ru.aiivar.tg.yt.downloader.service.processor.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoFormat;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for yt-dlp --dump-json output
+ * Reads only the fields needed for {@link VideoMetadata} and skips everything else
+ * (subtitles, automatic captions, fragments, http headers) without building a tree.
+ */
+public final class YtDlpMetadataParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private YtDlpMetadataParser() {
+    }
+
+    /**
+     * Parse the first JSON object of yt-dlp output
+     */
+    public static VideoMetadata parse(String json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    /**
+     * Parse the first JSON object of a yt-dlp output stream
+     */
+    public static VideoMetadata parse(InputStream json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return parse(parser);
+        }
+    }
+
+    private static VideoMetadata parse(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("yt-dlp output is not a JSON object");
+        }
+        return parseObject(parser);
+    }
+
+    /**
+     * Parse a yt-dlp info object embedded in another document
+     * The parser must be positioned at the START_OBJECT token; it is left at the matching END_OBJECT.
+     */
+    public static VideoMetadata parseObject(JsonParser parser) throws IOException {
+        VideoMetadata metadata = new VideoMetadata();
+        String uploader = null;
+        String channel = null;
+        Long filesize = null;
+        Long filesizeApprox = null;
+        Double tbr = null;
+        Integer height = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (field) {
+                case "id" -> metadata.setVideoId(parser.getText());
+                case "title" -> metadata.setTitle(parser.getText());
+                case "description" -> metadata.setDescription(parser.getText());
+                case "uploader" -> uploader = parser.getText();
+                case "channel" -> channel = parser.getText();
+                case "duration" -> metadata.setDurationSeconds(Math.round(parser.getValueAsDouble()));
+                case "thumbnail" -> metadata.setThumbnailUrl(parser.getText());
+                case "thumbnails" -> metadata.setThumbnails(parseThumbnails(parser));
+                case "formats" -> metadata.setFormats(parseFormats(parser));
+                case "filesize" -> filesize = parser.getValueAsLong();
+                case "filesize_approx" -> filesizeApprox = parser.getValueAsLong();
+                case "ext" -> metadata.setFormat(parser.getText());
+                case "height" -> height = parser.getValueAsInt();
+                case "fps" -> metadata.setFps(parser.getValueAsDouble());
+                case "vcodec" -> metadata.setCodec(parser.getText());
+                case "tbr" -> tbr = parser.getValueAsDouble();
+                default -> parser.skipChildren();
+            }
+        }
+
+        metadata.setAuthor(uploader != null ? uploader : channel);
+        metadata.setFileSizeBytes(filesize != null ? filesize : filesizeApprox);
+        if (height != null && height > 0) {
+            metadata.setResolution(height + "p");
+        }
+        if (tbr != null) {
+            metadata.setBitrate(Math.round(tbr * 1000));
+        }
+        if (metadata.getThumbnailUrl() == null && !metadata.getThumbnails().isEmpty()) {
+            // yt-dlp orders thumbnails from worst to best
+            metadata.setThumbnailUrl(metadata.getThumbnails().get(metadata.getThumbnails().size() - 1));
+        }
+        return metadata;
+    }
+
+    private static List<String> parseThumbnails(JsonParser parser) throws IOException {
+        List<String> thumbnails = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return thumbnails;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("url".equals(field) && value == JsonToken.VALUE_STRING) {
+                    thumbnails.add(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return thumbnails;
+    }
+
+    private static List<VideoFormat> parseFormats(JsonParser parser) throws IOException {
+        List<VideoFormat> formats = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return formats;
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            formats.add(parseFormat(parser));
+        }
+        return formats;
+    }
+
+    private static VideoFormat parseFormat(JsonParser parser) throws IOException {
+        VideoFormat format = new VideoFormat();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+
+            switch (field) {
+                case "format_id" -> format.setFormatId(parser.getText());
+                case "ext" -> format.setExt(parser.getText());
+                case "width" -> format.setWidth(parser.getValueAsInt());
+                case "height" -> format.setHeight(parser.getValueAsInt());
+                case "fps" -> format.setFps(parser.getValueAsDouble());
+                case "vcodec" -> format.setVcodec(parser.getText());
+                case "acodec" -> format.setAcodec(parser.getText());
+                case "filesize" -> format.setFilesize(parser.getValueAsLong());
+                case "filesize_approx" -> format.setFilesizeApprox(parser.getValueAsLong());
+                case "tbr" -> format.setTbr(parser.getValueAsDouble());
+                case "protocol" -> format.setProtocol(parser.getText());
+                case "format_note" -> format.setFormatNote(parser.getText());
+                default -> parser.skipChildren();
+            }
+        }
+        return format;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.aiivar.tg.yt.downloader.service.progress;
+
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor.UploadProgressCallback;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream counting the bytes read through it and reporting them as upload progress
+ * Progress is reported every {@link #REPORT_STEP_BYTES} and when the expected size is reached.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private static final long REPORT_STEP_BYTES = 256 * 1024;
+
+    private final UploadProgressCallback callback;
+    private final long totalBytes;
+    private long count;
+    private long reportedCount;
+
+    /**
+     * @param callback   receives the bytes read so far, may be null
+     * @param totalBytes expected size, -1 when unknown
+     */
+    public ProgressInputStream(InputStream in, UploadProgressCallback callback, long totalBytes) {
+        super(in);
+        this.callback = callback;
+        this.totalBytes = totalBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            advance(read);
+        }
+        return read;
+    }
+
+    private void advance(int bytes) {
+        count += bytes;
+        if (callback != null && (count - reportedCount >= REPORT_STEP_BYTES || count == totalBytes)) {
+            reportedCount = count;
+            callback.onProgress(count, totalBytes, totalBytes > 0 ? count * 100.0 / totalBytes : -1);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.aiivar.tg.yt.downloader.service.progress;
+
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+
+/**
+ * Snapshot of a task's status and transfer progress, as sent to event stream clients
+ */
+public class TaskProgress {
+
+    private final String taskId;
+    private final TaskStatus status;
+    private final TaskProgressRegistry.Stage stage;
+    private final float percent;
+    private final long bytesTransferred;
+    private final long totalBytes;
+    private final long etaSeconds;
+    private final String errorMessage;
+    private final long version;
+    private final long updatedAt;
+
+    public TaskProgress(String taskId, TaskStatus status, TaskProgressRegistry.Stage stage, float percent,
+                        long bytesTransferred, long totalBytes, long etaSeconds, String errorMessage, long version,
+                        long updatedAt) {
+        this.taskId = taskId;
+        this.status = status;
+        this.stage = stage;
+        this.percent = percent;
+        this.bytesTransferred = bytesTransferred;
+        this.totalBytes = totalBytes;
+        this.etaSeconds = etaSeconds;
+        this.errorMessage = errorMessage;
+        this.version = version;
+        this.updatedAt = updatedAt;
+    }
+
+    // Getters
+    public String getTaskId() { return taskId; }
+    public TaskStatus getStatus() { return status; }
+    public TaskProgressRegistry.Stage getStage() { return stage; }
+    public float getPercent() { return percent; }
+    public long getBytesTransferred() { return bytesTransferred; }
+    public long getTotalBytes() { return totalBytes; }
+    public long getEtaSeconds() { return etaSeconds; }
+    public String getErrorMessage() { return errorMessage; }
+    public long getVersion() { return version; }
+    public long getUpdatedAt() { return updatedAt; }
+}
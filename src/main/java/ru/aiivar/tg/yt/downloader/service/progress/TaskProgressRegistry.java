@@ -0,0 +1,441 @@
+package ru.aiivar.tg.yt.downloader.service.progress;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.aiivar.tg.yt.downloader.config.ProgressConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskRepository;
+import ru.aiivar.tg.yt.downloader.service.notification.TaskStatusNotifier;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor.UploadProgressCallback;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In-memory status and transfer progress of the tasks processed by this instance
+ * Updated from the task lifecycle, the download listener and the upload callback, and pushed to
+ * Server-Sent Events subscribers. Status changes made on other instances arrive over
+ * {@link TaskStatusNotifier} and are read back from the database. Producers never write to clients themselves: each subscriber keeps
+ * only the latest snapshot and a virtual thread sends it, so a slow client skips intermediate
+ * progress instead of slowing a download down.
+ */
+@Service
+public class TaskProgressRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskProgressRegistry.class);
+
+    public enum Stage {
+        QUEUED,
+        DOWNLOADING,
+        POST_PROCESSING,
+        UPLOADING,
+        SENDING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    @Autowired
+    private ProgressConfiguration progressConfig;
+
+    @Autowired
+    private TaskStatusNotifier taskStatusNotifier;
+
+    @Autowired
+    private VideoDownloadTaskRepository taskRepository;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong eventsSent = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        taskStatusNotifier.onRemoteChange(this::onRemoteStatusChanged);
+    }
+
+    /**
+     * Record a status change of the task
+     * Joins the current transaction if there is one, so subscribers only see the change after commit.
+     */
+    public void onStatusChanged(VideoDownloadTask task) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyStatus(task);
+                }
+            });
+        } else {
+            applyStatus(task);
+        }
+    }
+
+    private void onRemoteStatusChanged(String taskId) {
+        // Only tasks someone has looked at here are worth a read
+        if (!entries.containsKey(taskId)) {
+            return;
+        }
+        sender.execute(() -> {
+            try {
+                taskRepository.findById(taskId).ifPresent(this::applyStatus);
+            } catch (RuntimeException e) {
+                logger.error("Error reading task {} after a remote status change", taskId, e);
+            }
+        });
+    }
+
+    private void applyStatus(VideoDownloadTask task) {
+        Entry entry = entry(task.getId());
+        TaskProgress snapshot;
+        synchronized (entry) {
+            // Reads of remote changes may complete out of order
+            if (task.getStateVersion() != null && task.getStateVersion() < entry.stateVersion) {
+                return;
+            }
+            entry.applyStatus(task);
+            // A processing task keeps the transfer stage it already reported
+            Stage stage = stageOf(task.getStatus());
+            boolean transferring = entry.stage == Stage.DOWNLOADING || entry.stage == Stage.POST_PROCESSING
+                    || entry.stage == Stage.UPLOADING || entry.stage == Stage.SENDING;
+            if (stage == Stage.DOWNLOADING && transferring) {
+                entry.touch();
+            } else {
+                entry.resetTransfer(stage);
+            }
+            snapshot = entry.snapshot();
+        }
+        publish(snapshot);
+    }
+
+    /**
+     * Record that the task moved to another processing stage
+     */
+    public void onStage(String taskId, Stage stage) {
+        Entry entry = entry(taskId);
+        TaskProgress snapshot;
+        synchronized (entry) {
+            entry.resetTransfer(stage);
+            snapshot = entry.snapshot();
+        }
+        publish(snapshot);
+    }
+
+    /**
+     * Record download progress; unknown values are -1
+     */
+    public void onDownloadProgress(String taskId, float percent, long downloadedBytes, long totalBytes, long etaSeconds) {
+        onTransfer(taskId, Stage.DOWNLOADING, percent, downloadedBytes, totalBytes, etaSeconds);
+    }
+
+    /**
+     * Callback recording upload progress of the task, also forwarding to the destination's own callback
+     */
+    public UploadProgressCallback uploadCallback(String taskId, UploadProgressCallback delegate) {
+        return new UploadProgressCallback() {
+            @Override
+            public void onProgress(long bytesUploaded, long totalBytes, double percentage) {
+                onTransfer(taskId, Stage.UPLOADING, (float) percentage, bytesUploaded, totalBytes, -1);
+                if (delegate != null) {
+                    delegate.onProgress(bytesUploaded, totalBytes, percentage);
+                }
+            }
+
+            @Override
+            public void onComplete(String destinationId) {
+                onStage(taskId, Stage.SENDING);
+                if (delegate != null) {
+                    delegate.onComplete(destinationId);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (delegate != null) {
+                    delegate.onError(error);
+                }
+            }
+        };
+    }
+
+    /**
+     * Latest known progress of the task, empty when this instance has not seen it
+     */
+    public Optional<TaskProgress> getProgress(String taskId) {
+        Entry entry = entries.get(taskId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return Optional.of(entry.snapshot());
+        }
+    }
+
+    /**
+     * Open an event stream for the task
+     * The current state is sent first; the stream completes after the task reaches a final status.
+     */
+    public SseEmitter subscribe(VideoDownloadTask task) {
+        Entry entry = entry(task.getId());
+        synchronized (entry) {
+            // Tasks this instance has not processed start from their stored status
+            if (entry.status == null) {
+                entry.applyStatus(task);
+                entry.resetTransfer(stageOf(task.getStatus()));
+            }
+        }
+
+        SseEmitter emitter = new SseEmitter(progressConfig.getStreamTimeoutMs());
+        Subscriber subscriber = new Subscriber(task.getId(), emitter);
+        subscribers.computeIfAbsent(task.getId(), id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::remove);
+        emitter.onError(error -> subscriber.remove());
+
+        synchronized (entry) {
+            subscriber.offer(entry.snapshot());
+        }
+        return emitter;
+    }
+
+    private void onTransfer(String taskId, Stage stage, float percent, long bytes, long totalBytes, long etaSeconds) {
+        Entry entry = entry(taskId);
+        TaskProgress snapshot = null;
+        synchronized (entry) {
+            entry.stage = stage;
+            entry.percent = percent;
+            entry.bytesTransferred = bytes;
+            entry.totalBytes = totalBytes;
+            entry.etaSeconds = etaSeconds;
+            entry.touch();
+            long now = System.nanoTime();
+            if (now - entry.lastPublishedNanos >= TimeUnit.MILLISECONDS.toNanos(progressConfig.getPublishIntervalMs())) {
+                entry.lastPublishedNanos = now;
+                snapshot = entry.snapshot();
+            }
+        }
+        if (snapshot != null) {
+            publish(snapshot);
+        }
+    }
+
+    private void publish(TaskProgress snapshot) {
+        Set<Subscriber> taskSubscribers = subscribers.get(snapshot.getTaskId());
+        if (taskSubscribers != null) {
+            taskSubscribers.forEach(subscriber -> subscriber.offer(snapshot));
+        }
+    }
+
+    private Entry entry(String taskId) {
+        return entries.computeIfAbsent(taskId, Entry::new);
+    }
+
+    private static Stage stageOf(TaskStatus status) {
+        return switch (status) {
+            case PENDING -> Stage.QUEUED;
+            case PROCESSING -> Stage.DOWNLOADING;
+            case COMPLETED -> Stage.COMPLETED;
+            case FAILED -> Stage.FAILED;
+            case CANCELLED -> Stage.CANCELLED;
+        };
+    }
+
+    /**
+     * Forget finished tasks nobody is listening to
+     */
+    @Scheduled(fixedDelayString = "${video.progress.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        long cutoff = System.currentTimeMillis() - progressConfig.getRetentionMs();
+        entries.values().removeIf(entry -> {
+            synchronized (entry) {
+                return entry.updatedAt < cutoff && (entry.terminal || entry.status == null)
+                        && !subscribers.containsKey(entry.taskId);
+            }
+        });
+    }
+
+    void setProgressConfig(ProgressConfiguration progressConfig) {
+        this.progressConfig = progressConfig;
+    }
+
+    void setTaskStatusNotifier(TaskStatusNotifier taskStatusNotifier) {
+        this.taskStatusNotifier = taskStatusNotifier;
+    }
+
+    void setTaskRepository(VideoDownloadTaskRepository taskRepository) {
+        this.taskRepository = taskRepository;
+    }
+
+    /**
+     * Get progress registry statistics
+     */
+    public ProgressStatistics getStatistics() {
+        int streams = subscribers.values().stream().mapToInt(Set::size).sum();
+        return new ProgressStatistics(entries.size(), streams, eventsSent.get());
+    }
+
+    private static final class Entry {
+        private final String taskId;
+        private TaskStatus status;
+        private long stateVersion = -1;
+        private Stage stage = Stage.QUEUED;
+        private boolean terminal;
+        private String errorMessage;
+        private float percent = -1;
+        private long bytesTransferred = -1;
+        private long totalBytes = -1;
+        private long etaSeconds = -1;
+        private long version;
+        private long updatedAt = System.currentTimeMillis();
+        private long lastPublishedNanos;
+
+        private Entry(String taskId) {
+            this.taskId = taskId;
+        }
+
+        private void applyStatus(VideoDownloadTask task) {
+            status = task.getStatus();
+            if (task.getStateVersion() != null) {
+                stateVersion = task.getStateVersion();
+            }
+            errorMessage = task.getErrorMessage();
+            terminal = task.isFinished();
+        }
+
+        private void resetTransfer(Stage stage) {
+            this.stage = stage;
+            percent = stage == Stage.COMPLETED ? 100 : -1;
+            bytesTransferred = -1;
+            totalBytes = -1;
+            etaSeconds = -1;
+            touch();
+            lastPublishedNanos = System.nanoTime();
+        }
+
+        private void touch() {
+            version++;
+            updatedAt = System.currentTimeMillis();
+        }
+
+        private TaskProgress snapshot() {
+            return new TaskProgress(taskId, status, stage, percent, bytesTransferred, totalBytes, etaSeconds,
+                    errorMessage, version, updatedAt);
+        }
+    }
+
+    /**
+     * One event stream client; holds only the latest undelivered snapshot
+     */
+    private final class Subscriber {
+        private final String taskId;
+        private final SseEmitter emitter;
+        private final AtomicReference<TaskProgress> pending = new AtomicReference<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private TaskStatus lastSentStatus;
+        private volatile boolean closed;
+
+        private Subscriber(String taskId, SseEmitter emitter) {
+            this.taskId = taskId;
+            this.emitter = emitter;
+        }
+
+        private void offer(TaskProgress snapshot) {
+            if (closed) {
+                return;
+            }
+            pending.set(snapshot);
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * Send pending snapshots; only one drain runs at a time, so events go out in order
+         */
+        private void drain() {
+            while (!closed) {
+                TaskProgress snapshot = pending.getAndSet(null);
+                if (snapshot == null) {
+                    draining.set(false);
+                    // An offer made after the check above may have seen the drain still running
+                    if (pending.get() != null && draining.compareAndSet(false, true)) {
+                        continue;
+                    }
+                    return;
+                }
+                try {
+                    String name = snapshot.getStatus() != lastSentStatus ? "status" : "progress";
+                    emitter.send(SseEmitter.event()
+                            .name(name)
+                            .id(String.valueOf(snapshot.getVersion()))
+                            .data(snapshot, MediaType.APPLICATION_JSON));
+                    lastSentStatus = snapshot.getStatus();
+                    eventsSent.incrementAndGet();
+                    if (isTerminal(snapshot)) {
+                        remove();
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("Event stream of task {} closed: {}", taskId, e.getMessage());
+                    remove();
+                }
+            }
+        }
+
+        private boolean isTerminal(TaskProgress snapshot) {
+            Entry entry = entries.get(taskId);
+            if (entry == null) {
+                return false;
+            }
+            synchronized (entry) {
+                return entry.terminal && entry.version == snapshot.getVersion();
+            }
+        }
+
+        private void remove() {
+            closed = true;
+            subscribers.computeIfPresent(taskId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    /**
+     * Progress registry statistics inner class
+     */
+    public static class ProgressStatistics {
+        private final int trackedTasks;
+        private final int openStreams;
+        private final long eventsSent;
+
+        public ProgressStatistics(int trackedTasks, int openStreams, long eventsSent) {
+            this.trackedTasks = trackedTasks;
+            this.openStreams = openStreams;
+            this.eventsSent = eventsSent;
+        }
+
+        // Getters
+        public int getTrackedTasks() { return trackedTasks; }
+        public int getOpenStreams() { return openStreams; }
+        public long getEventsSent() { return eventsSent; }
+    }
+}
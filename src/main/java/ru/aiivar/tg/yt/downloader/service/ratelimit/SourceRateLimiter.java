@@ -0,0 +1,294 @@
+package ru.aiivar.tg.yt.downloader.service.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.SourceRateLimitConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive request rate limit kept separately for each source
+ * Requests to a source are spaced to its current rate. When a request fails with a throttling signal
+ * (see {@link ThrottleDetector}) the rate is cut, the source cools down for a period that doubles with
+ * each consecutive signal, and afterwards a single probe request is let through. Once a probe succeeds
+ * the rate grows back step by step with every successful request. Tasks are never parked for long:
+ * instead of waiting out a cooldown they fail with {@link SourceThrottledException} and are requeued,
+ * so other sources keep their processing slots.
+ * <p>
+ * Permits are reentrant per thread, so a metadata probe made while downloading under a permit for
+ * the same source does not count as a second request.
+ */
+@Service
+public class SourceRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceRateLimiter.class);
+
+    @Autowired
+    private SourceRateLimitConfiguration rateLimitConfig;
+
+    private final Map<SourceType, SourceState> states = new ConcurrentHashMap<>();
+    private final ThreadLocal<Set<SourceType>> heldSources = ThreadLocal.withInitial(() -> EnumSet.noneOf(SourceType.class));
+
+    /**
+     * Wait for a request slot of the source
+     * Fails right away when the source is cooling down, a recovery probe is already running or the
+     * next slot is further away than the configured maximum wait.
+     */
+    public Permit acquire(SourceType sourceType) throws SourceThrottledException, InterruptedException {
+        if (!rateLimitConfig.isEnabled() || sourceType == null || heldSources.get().contains(sourceType)) {
+            return new Permit(null, false);
+        }
+
+        SourceState state = states.computeIfAbsent(sourceType, SourceState::new);
+        long waitNanos;
+        boolean probe;
+        synchronized (state) {
+            long now = System.nanoTime();
+            if (now < state.cooldownUntilNanos) {
+                throw state.reject(state.cooldownUntilNanos - now);
+            }
+            if (state.probing && state.probeInFlight) {
+                throw state.reject(intervalNanos(state.requestsPerMinute));
+            }
+            long start = Math.max(now, state.nextPermitNanos);
+            waitNanos = start - now;
+            if (waitNanos > TimeUnit.SECONDS.toNanos(rateLimitConfig.getMaxWaitSeconds())) {
+                throw state.reject(waitNanos);
+            }
+            state.nextPermitNanos = start + intervalNanos(state.requestsPerMinute);
+            probe = state.probing;
+            state.probeInFlight |= probe;
+            state.permits++;
+            state.waitedNanos += waitNanos;
+        }
+
+        Permit permit = new Permit(state, probe);
+        heldSources.get().add(sourceType);
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                permit.close();
+                throw e;
+            }
+        }
+        return permit;
+    }
+
+    /**
+     * Run a request to the source under a permit, recording whether it was throttled
+     */
+    public <T> T call(SourceType sourceType, Callable<T> request) throws Exception {
+        try (Permit permit = acquire(sourceType)) {
+            try {
+                T result = request.call();
+                permit.succeeded();
+                return result;
+            } catch (Exception e) {
+                permit.failed(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Whether a request to the source would be let through now
+     */
+    public boolean isAvailable(SourceType sourceType) {
+        SourceState state = sourceType != null ? states.get(sourceType) : null;
+        if (!rateLimitConfig.isEnabled() || state == null) {
+            return true;
+        }
+        synchronized (state) {
+            return System.nanoTime() >= state.cooldownUntilNanos && !(state.probing && state.probeInFlight);
+        }
+    }
+
+    private static long intervalNanos(double requestsPerMinute) {
+        return (long) (TimeUnit.MINUTES.toNanos(1) / requestsPerMinute);
+    }
+
+    /**
+     * Slot for one request to a source; report its outcome and close it when the request is over
+     */
+    public class Permit implements AutoCloseable {
+        private final SourceState state;
+        private final boolean probe;
+        private final long issuedNanos = System.nanoTime();
+        private boolean settled;
+
+        private Permit(SourceState state, boolean probe) {
+            this.state = state;
+            this.probe = probe;
+        }
+
+        /**
+         * The source served the request
+         */
+        public void succeeded() {
+            if (settle()) {
+                state.onSuccess(probe);
+            }
+        }
+
+        /**
+         * The request failed; only throttling failures slow the source down
+         */
+        public void failed(Throwable error) {
+            if (settle()) {
+                if (ThrottleDetector.isThrottled(error)) {
+                    state.onThrottled(issuedNanos, error);
+                } else {
+                    state.onNeutral(probe);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (settle()) {
+                state.onNeutral(probe);
+            }
+        }
+
+        private boolean settle() {
+            if (state == null || settled) {
+                return false;
+            }
+            settled = true;
+            heldSources.get().remove(state.sourceType);
+            return true;
+        }
+    }
+
+    private class SourceState {
+        private final SourceType sourceType;
+        private double requestsPerMinute;
+        private long nextPermitNanos;
+        private long cooldownUntilNanos;
+        private long lastThrottledNanos;
+        private int consecutiveThrottles;
+        private boolean probing;
+        private boolean probeInFlight;
+
+        private long permits;
+        private long waitedNanos;
+        private long rejected;
+        private long throttleEvents;
+
+        private SourceState(SourceType sourceType) {
+            this.sourceType = sourceType;
+            this.requestsPerMinute = rateLimitConfig.getMaxRequestsPerMinute();
+            this.nextPermitNanos = System.nanoTime();
+            this.cooldownUntilNanos = nextPermitNanos;
+            this.lastThrottledNanos = nextPermitNanos - 1;
+        }
+
+        private SourceThrottledException reject(long retryAfterNanos) {
+            rejected++;
+            return new SourceThrottledException(sourceType, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos));
+        }
+
+        private synchronized void onSuccess(boolean probe) {
+            consecutiveThrottles = 0;
+            if (probe) {
+                probing = false;
+                probeInFlight = false;
+                logger.info("{} recovered from throttling, resuming at {} requests per minute", sourceType,
+                        String.format("%.1f", requestsPerMinute));
+            } else if (!probing && requestsPerMinute < rateLimitConfig.getMaxRequestsPerMinute()) {
+                requestsPerMinute = Math.min(rateLimitConfig.getMaxRequestsPerMinute(),
+                        requestsPerMinute + rateLimitConfig.getRecoveryStep());
+            }
+        }
+
+        private synchronized void onNeutral(boolean probe) {
+            if (probe) {
+                probeInFlight = false;
+            }
+        }
+
+        private synchronized void onThrottled(long issuedNanos, Throwable error) {
+            // Requests sent before the last signal were throttled by the same episode
+            if (issuedNanos <= lastThrottledNanos) {
+                return;
+            }
+            long now = System.nanoTime();
+            throttleEvents++;
+            consecutiveThrottles++;
+            requestsPerMinute = Math.max(rateLimitConfig.getMinRequestsPerMinute(),
+                    requestsPerMinute * rateLimitConfig.getDecreaseFactor());
+            long cooldownSeconds = Math.min(rateLimitConfig.getMaxCooldownSeconds(),
+                    rateLimitConfig.getCooldownSeconds() << Math.min(consecutiveThrottles - 1, 20));
+            cooldownUntilNanos = now + TimeUnit.SECONDS.toNanos(cooldownSeconds);
+            nextPermitNanos = cooldownUntilNanos;
+            lastThrottledNanos = now;
+            probing = true;
+            probeInFlight = false;
+            logger.warn("{} is throttling requests ({}), cooling down for {} s, then {} requests per minute",
+                    sourceType, error.getMessage(), cooldownSeconds, String.format("%.1f", requestsPerMinute));
+        }
+
+        private synchronized SourceStatistics toStatistics() {
+            long now = System.nanoTime();
+            return new SourceStatistics(requestsPerMinute,
+                    Math.max(0, TimeUnit.NANOSECONDS.toMillis(cooldownUntilNanos - now)), probing, permits,
+                    TimeUnit.NANOSECONDS.toMillis(waitedNanos), rejected, throttleEvents);
+        }
+    }
+
+    void setRateLimitConfig(SourceRateLimitConfiguration rateLimitConfig) {
+        this.rateLimitConfig = rateLimitConfig;
+    }
+
+    /**
+     * Get rate limit statistics for every source that has been contacted
+     */
+    public Map<SourceType, SourceStatistics> getStatistics() {
+        Map<SourceType, SourceStatistics> statistics = new LinkedHashMap<>();
+        states.forEach((sourceType, state) -> statistics.put(sourceType, state.toStatistics()));
+        return statistics;
+    }
+
+    /**
+     * Per-source rate limit statistics inner class
+     */
+    public static class SourceStatistics {
+        private final double requestsPerMinute;
+        private final long cooldownRemainingMillis;
+        private final boolean recovering;
+        private final long permits;
+        private final long waitedMillis;
+        private final long rejected;
+        private final long throttleEvents;
+
+        public SourceStatistics(double requestsPerMinute, long cooldownRemainingMillis, boolean recovering,
+                                long permits, long waitedMillis, long rejected, long throttleEvents) {
+            this.requestsPerMinute = requestsPerMinute;
+            this.cooldownRemainingMillis = cooldownRemainingMillis;
+            this.recovering = recovering;
+            this.permits = permits;
+            this.waitedMillis = waitedMillis;
+            this.rejected = rejected;
+            this.throttleEvents = throttleEvents;
+        }
+
+        // Getters
+        public double getRequestsPerMinute() { return requestsPerMinute; }
+        public long getCooldownRemainingMillis() { return cooldownRemainingMillis; }
+        public boolean isRecovering() { return recovering; }
+        public long getPermits() { return permits; }
+        public long getWaitedMillis() { return waitedMillis; }
+        public long getRejected() { return rejected; }
+        public long getThrottleEvents() { return throttleEvents; }
+    }
+}
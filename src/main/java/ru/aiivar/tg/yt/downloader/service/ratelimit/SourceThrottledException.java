@@ -0,0 +1,29 @@
+package ru.aiivar.tg.yt.downloader.service.ratelimit;
+
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+/**
+ * Thrown instead of contacting a source that is cooling down after throttling or has no free request slot soon
+ * The task did nothing wrong, so it is put back into the queue rather than failed.
+ */
+public class SourceThrottledException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SourceType sourceType;
+    private final long retryAfterMillis;
+
+    public SourceThrottledException(SourceType sourceType, long retryAfterMillis) {
+        super(String.format("%s is throttling requests, retry in %d s", sourceType, Math.max(1, retryAfterMillis / 1000)));
+        this.sourceType = sourceType;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public SourceType getSourceType() {
+        return sourceType;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
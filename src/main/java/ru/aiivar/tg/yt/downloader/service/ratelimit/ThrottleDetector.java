@@ -0,0 +1,54 @@
+package ru.aiivar.tg.yt.downloader.service.ratelimit;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recognizes upstream throttling in a failure
+ * yt-dlp exits with code 1 for every error, so the exit code only tells that the request failed; the
+ * reason comes from the stderr text carried in the exception messages (HTTP 429, bot checks and
+ * explicit rate limit notices).
+ */
+public final class ThrottleDetector {
+
+    private static final List<String> SIGNALS = List.of(
+            "http error 429",
+            "too many requests",
+            "not a bot",
+            "rate-limited",
+            "rate limited",
+            "captcha",
+            "unusual traffic"
+    );
+
+    private ThrottleDetector() {
+    }
+
+    /**
+     * Whether the failure or any of its causes reports throttling
+     */
+    public static boolean isThrottled(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof SourceThrottledException) {
+                return true;
+            }
+            if (cause.getMessage() != null && isThrottlingMessage(cause.getMessage())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a line of yt-dlp output reports throttling
+     */
+    public static boolean isThrottlingMessage(String message) {
+        String lower = message.toLowerCase(Locale.ROOT);
+        for (String signal : SIGNALS) {
+            if (lower.contains(signal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
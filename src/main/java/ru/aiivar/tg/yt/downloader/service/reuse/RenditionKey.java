@@ -0,0 +1,190 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Effective rendition of a result: container format, video height and requested quality
+ * Serialized as "mp4/720p" into the rendition_key column of results, with the quality appended
+ * ("mp4/720p/worst") when it is not the default "best". Audio-only results share the "audio/any" key,
+ * which no video request can match.
+ */
+public final class RenditionKey {
+
+    /**
+     * Format of audio-only renditions, whatever container the audio was extracted into
+     */
+    public static final String AUDIO_FORMAT = "audio";
+
+    private static final String DEFAULT_QUALITY = "best";
+
+    private final String format;
+    private final Integer height;
+    private final String quality;
+
+    public RenditionKey(String format, Integer height) {
+        this(format, height, null);
+    }
+
+    public RenditionKey(String format, Integer height, String quality) {
+        this.format = format != null ? format.trim().toLowerCase(Locale.ROOT) : null;
+        this.height = height;
+        this.quality = normalizeQuality(quality);
+    }
+
+    /**
+     * Build the key from format and resolution strings (e.g. "mp4", "720p")
+     */
+    public static RenditionKey of(String format, String resolution) {
+        return of(format, resolution, null);
+    }
+
+    /**
+     * Build the key from format, resolution and quality strings (e.g. "mp4", "720p", "worst")
+     */
+    public static RenditionKey of(String format, String resolution, String quality) {
+        return new RenditionKey(format, parseHeight(resolution), quality);
+    }
+
+    /**
+     * Key of audio-only renditions
+     */
+    public static RenditionKey audio() {
+        return new RenditionKey(AUDIO_FORMAT, null);
+    }
+
+    /**
+     * Rendition requested by a task
+     */
+    public static RenditionKey fromTask(VideoDownloadTask task) {
+        return task.isAudioOnly() ? audio()
+                : of(task.getRequestedFormat(), task.getRequestedResolution(), task.getRequestedQuality());
+    }
+
+    /**
+     * Effective rendition of a result
+     * Results stored before rendition keys existed are derived from their file info and the originating task
+     */
+    public static RenditionKey fromResult(VideoDownloadTaskResult result) {
+        if (result.getRenditionKey() != null) {
+            return parse(result.getRenditionKey());
+        }
+
+        String format = result.getFileFormat();
+        String resolution = result.getResolution();
+        String quality = null;
+        VideoDownloadTask task = result.getTask();
+        if (task != null && task.isAudioOnly()) {
+            return audio();
+        }
+        if (task != null) {
+            quality = task.getRequestedQuality();
+            if (format == null || "unknown".equals(format)) {
+                format = task.getRequestedFormat();
+            }
+            if (resolution == null) {
+                resolution = task.getRequestedResolution();
+            }
+        }
+        return of(format, resolution, quality);
+    }
+
+    /**
+     * Parse a serialized key ("mp4/720p" or "mp4/720p/worst")
+     */
+    public static RenditionKey parse(String key) {
+        if (key == null) {
+            return new RenditionKey(null, null);
+        }
+        int separator = key.indexOf('/');
+        if (separator < 0) {
+            return new RenditionKey(key, null);
+        }
+        int qualitySeparator = key.indexOf('/', separator + 1);
+        if (qualitySeparator < 0) {
+            return of(key.substring(0, separator), key.substring(separator + 1));
+        }
+        return of(key.substring(0, separator), key.substring(separator + 1, qualitySeparator),
+                key.substring(qualitySeparator + 1));
+    }
+
+    /**
+     * Quality other than the default, lower case; null for "best" and unset quality
+     */
+    private static String normalizeQuality(String quality) {
+        if (quality == null || quality.isBlank()) {
+            return null;
+        }
+        String normalized = quality.trim().toLowerCase(Locale.ROOT);
+        return DEFAULT_QUALITY.equals(normalized) ? null : normalized;
+    }
+
+    /**
+     * Extract the height from a resolution string ("720p", "1280x720", "720")
+     */
+    public static Integer parseHeight(String resolution) {
+        if (resolution == null) {
+            return null;
+        }
+        int separator = resolution.indexOf('x');
+        String value = separator >= 0 ? resolution.substring(separator + 1) : resolution;
+        int height = 0;
+        boolean hasDigits = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                height = height * 10 + (c - '0');
+                hasDigits = true;
+            } else if (hasDigits) {
+                break;
+            }
+        }
+        return hasDigits && height > 0 ? height : null;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public String getResolution() {
+        return height != null ? height + "p" : null;
+    }
+
+    /**
+     * Requested quality, null for the default "best"
+     */
+    public String getQuality() {
+        return quality;
+    }
+
+    public boolean isAudio() {
+        return AUDIO_FORMAT.equals(format);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RenditionKey)) return false;
+        RenditionKey that = (RenditionKey) o;
+        return Objects.equals(format, that.format) && Objects.equals(height, that.height)
+                && Objects.equals(quality, that.quality);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(format, height, quality);
+    }
+
+    @Override
+    public String toString() {
+        return (format != null ? format : "any") + "/" + (height != null ? height + "p" : "any")
+                + (quality != null ? "/" + quality : "");
+    }
+}
@@ -0,0 +1,83 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Picks the reusable result that best honors a requested rendition
+ * Exact matches win; otherwise the highest same-format, same-quality rendition not above the requested
+ * height is chosen, as long as it is within the configured height ratio. A higher resolution than
+ * requested is never served, and audio-only renditions only answer audio-only requests.
+ */
+public class RenditionMatcher {
+
+    private final boolean allowLowerResolutionFallback;
+    private final double minHeightRatio;
+
+    public RenditionMatcher(boolean allowLowerResolutionFallback, double minHeightRatio) {
+        this.allowLowerResolutionFallback = allowLowerResolutionFallback;
+        this.minHeightRatio = minHeightRatio;
+    }
+
+    /**
+     * Select the best candidate for the requested rendition
+     *
+     * @param candidates completed results ordered from most recent to oldest
+     */
+    public Optional<VideoDownloadTaskResult> selectBest(RenditionKey requested, List<VideoDownloadTaskResult> candidates) {
+        VideoDownloadTaskResult best = null;
+        Integer bestHeight = null;
+
+        for (VideoDownloadTaskResult candidate : candidates) {
+            RenditionKey rendition = RenditionKey.fromResult(candidate);
+            if (!isCompatible(requested, rendition)) {
+                continue;
+            }
+            if (rendition.equals(requested)) {
+                return Optional.of(candidate);
+            }
+            Integer height = rendition.getHeight();
+            if (best == null || (height != null && (bestHeight == null || height > bestHeight))) {
+                best = candidate;
+                bestHeight = height;
+            }
+        }
+
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Check whether a stored rendition can answer the requested one
+     */
+    public boolean isCompatible(RenditionKey requested, RenditionKey rendition) {
+        // Checked apart from the format, which video requests may leave open
+        if (requested.isAudio() != rendition.isAudio()) {
+            return false;
+        }
+        if (!Objects.equals(requested.getQuality(), rendition.getQuality())) {
+            return false;
+        }
+        if (requested.getFormat() != null && !requested.getFormat().equals(rendition.getFormat())) {
+            return false;
+        }
+
+        Integer requestedHeight = requested.getHeight();
+        Integer height = rendition.getHeight();
+        if (requestedHeight == null) {
+            return true;
+        }
+        if (height == null) {
+            return false;
+        }
+        if (height.equals(requestedHeight)) {
+            return true;
+        }
+        if (height > requestedHeight || !allowLowerResolutionFallback) {
+            return false;
+        }
+        return height >= requestedHeight * minHeightRatio;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+
+/**
+ * Change of a reusable result, broadcast to all instances
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultChangeEvent {
+
+    public enum Type {
+        COMPLETED,
+        DELETED
+    }
+
+    private Type type;
+    private String nodeId;
+    private String canonicalVideoId;
+    private DestinationType destinationType;
+    private String resultId;
+    private ReuseCacheEntry entry; // Present for COMPLETED events that fit into a notification
+}
@@ -0,0 +1,347 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.config.ReuseConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.service.notification.PostgresNotificationService;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory cache of reusable results per canonical video ID and destination
+ * Local changes are applied after commit and broadcast to other instances over Postgres NOTIFY,
+ * so every instance serves reuse hits without querying the database.
+ */
+@Service
+public class ReuseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReuseCache.class);
+
+    public static final String CHANNEL = "reuse_cache_events";
+
+    @Autowired
+    private ReuseConfiguration reuseConfig;
+
+    @Autowired
+    private ClusterConfiguration clusterConfig;
+
+    @Autowired
+    private PostgresNotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Map<String, CachedResults> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong eventsPublished = new AtomicLong();
+    private final AtomicLong eventsReceived = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int maxVideos = reuseConfig.getCacheMaxVideos();
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResults> eldest) {
+                return size() > maxVideos;
+            }
+        };
+        notificationService.subscribe(CHANNEL, this::onNotification);
+    }
+
+    /**
+     * Whether the cache is enabled
+     */
+    public boolean isEnabled() {
+        return reuseConfig.isCacheEnabled();
+    }
+
+    /**
+     * Get cached results for a video and destination
+     */
+    public Optional<CachedResults> get(String canonicalVideoId, DestinationType destinationType) {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        String key = key(canonicalVideoId, destinationType);
+        CachedResults cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+            if (cached != null && cached.isExpired(reuseConfig.getCacheTtlMinutes())) {
+                entries.remove(key);
+                cached = null;
+            }
+        }
+        if (cached == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(cached);
+    }
+
+    /**
+     * Store the complete list of reusable results loaded from the database
+     * Only the most recent result of each rendition is kept, since reuse deliveries copy result rows;
+     * a list cut down to the per-video limit is stored as incomplete.
+     *
+     * @param results completed results ordered from most recent to oldest
+     */
+    public void putLoaded(String canonicalVideoId, DestinationType destinationType, List<VideoDownloadTaskResult> results) {
+        putLoaded(canonicalVideoId, destinationType, results, false);
+    }
+
+    /**
+     * Store the complete list of reusable results loaded from the database
+     *
+     * @param onlyIfAbsent keep an entry that was cached meanwhile, since it may be fresher than the loaded list
+     * @return whether the results were stored
+     */
+    public boolean putLoaded(String canonicalVideoId, DestinationType destinationType,
+                             List<VideoDownloadTaskResult> results, boolean onlyIfAbsent) {
+        if (!isEnabled()) {
+            return false;
+        }
+        List<ReuseCacheEntry> snapshot = new ArrayList<>();
+        Set<String> renditions = new HashSet<>();
+        boolean complete = true;
+        for (VideoDownloadTaskResult result : results) {
+            ReuseCacheEntry entry = ReuseCacheEntry.fromResult(result);
+            if (!renditions.add(entry.getRenditionKey())) {
+                continue;
+            }
+            if (snapshot.size() >= reuseConfig.getCacheMaxResultsPerVideo()) {
+                complete = false;
+                break;
+            }
+            snapshot.add(entry);
+        }
+        String key = key(canonicalVideoId, destinationType);
+        synchronized (entries) {
+            if (onlyIfAbsent && entries.containsKey(key)) {
+                return false;
+            }
+            entries.put(key, new CachedResults(snapshot, complete));
+        }
+        return true;
+    }
+
+    /**
+     * Number of videos currently cached
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Publish a newly completed result to this and all other instances
+     */
+    public void publishCompleted(String canonicalVideoId, VideoDownloadTaskResult result) {
+        if (!isEnabled() || canonicalVideoId == null || result.getDestinationId() == null) {
+            return;
+        }
+        ReuseCacheEntry entry = ReuseCacheEntry.fromResult(result);
+        publish(new ResultChangeEvent(ResultChangeEvent.Type.COMPLETED, clusterConfig.getNodeId(),
+                canonicalVideoId, result.getDestinationType(), result.getId(), entry));
+    }
+
+    /**
+     * Publish the deletion of a result to this and all other instances
+     */
+    public void publishDeleted(String canonicalVideoId, VideoDownloadTaskResult result) {
+        if (!isEnabled() || canonicalVideoId == null) {
+            return;
+        }
+        publish(new ResultChangeEvent(ResultChangeEvent.Type.DELETED, clusterConfig.getNodeId(),
+                canonicalVideoId, result.getDestinationType(), result.getId(), null));
+    }
+
+    private void publish(ResultChangeEvent event) {
+        runAfterCommit(() -> apply(event));
+
+        try {
+            String payload = objectMapper.writeValueAsString(event);
+            if (payload.getBytes(StandardCharsets.UTF_8).length > PostgresNotificationService.MAX_PAYLOAD_BYTES) {
+                // Too large to carry the snapshot; other instances reload the video from the database
+                payload = objectMapper.writeValueAsString(new ResultChangeEvent(event.getType(), event.getNodeId(),
+                        event.getCanonicalVideoId(), event.getDestinationType(), event.getResultId(), null));
+            }
+            notificationService.publish(CHANNEL, payload);
+            eventsPublished.incrementAndGet();
+        } catch (Exception e) {
+            logger.error("Error publishing reuse cache event for result: {}", event.getResultId(), e);
+        }
+    }
+
+    private void onNotification(String payload) {
+        try {
+            ResultChangeEvent event = objectMapper.readValue(payload, ResultChangeEvent.class);
+            if (clusterConfig.getNodeId().equals(event.getNodeId())) {
+                return;
+            }
+            eventsReceived.incrementAndGet();
+            apply(event);
+        } catch (Exception e) {
+            logger.error("Error handling reuse cache event: {}", payload, e);
+        }
+    }
+
+    private void apply(ResultChangeEvent event) {
+        String key = key(event.getCanonicalVideoId(), event.getDestinationType());
+
+        synchronized (entries) {
+            if (event.getType() == ResultChangeEvent.Type.DELETED || event.getEntry() == null) {
+                entries.remove(key);
+                logger.debug("Invalidated reuse cache for {} after {} of result {}",
+                        key, event.getType(), event.getResultId());
+                return;
+            }
+
+            // A video not cached yet gets a partial entry: it answers exact rendition hits only
+            CachedResults current = entries.get(key);
+            List<ReuseCacheEntry> updated = new ArrayList<>();
+            updated.add(event.getEntry());
+            boolean complete = current != null && current.complete;
+            if (current != null) {
+                for (ReuseCacheEntry existing : current.entries) {
+                    if (existing.getResultId().equals(event.getResultId())
+                            || Objects.equals(existing.getRenditionKey(), event.getEntry().getRenditionKey())) {
+                        continue;
+                    }
+                    if (updated.size() >= reuseConfig.getCacheMaxResultsPerVideo()) {
+                        complete = false;
+                        break;
+                    }
+                    updated.add(existing);
+                }
+            }
+            entries.put(key, new CachedResults(updated, complete));
+            logger.debug("Added result {} to reuse cache for {}", event.getResultId(), key);
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static String key(String canonicalVideoId, DestinationType destinationType) {
+        return destinationType.getCode() + ":" + canonicalVideoId;
+    }
+
+    void setReuseConfig(ReuseConfiguration reuseConfig) {
+        this.reuseConfig = reuseConfig;
+    }
+
+    void setClusterConfig(ClusterConfiguration clusterConfig) {
+        this.clusterConfig = clusterConfig;
+    }
+
+    void setNotificationService(PostgresNotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get reuse cache statistics
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(size(), hits.get(), misses.get(), eventsPublished.get(), eventsReceived.get());
+    }
+
+    /**
+     * Cached results of one video and destination
+     */
+    public static class CachedResults {
+        private final List<ReuseCacheEntry> entries;
+        private final boolean complete;
+        private final long loadedAtNanos = System.nanoTime();
+
+        CachedResults(List<ReuseCacheEntry> entries, boolean complete) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.complete = complete;
+        }
+
+        /**
+         * Detached results ordered from most recent to oldest
+         */
+        public List<VideoDownloadTaskResult> getResults() {
+            List<VideoDownloadTaskResult> results = new ArrayList<>(entries.size());
+            for (ReuseCacheEntry entry : entries) {
+                results.add(entry.toResult());
+            }
+            return results;
+        }
+
+        /**
+         * Whether these are all reusable results of the video, or only ones learned from change events
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        boolean isExpired(long ttlMinutes) {
+            return System.nanoTime() - loadedAtNanos > TimeUnit.MINUTES.toNanos(ttlMinutes);
+        }
+    }
+
+    /**
+     * Reuse cache statistics inner class
+     */
+    public static class CacheStatistics {
+        private final int cachedVideos;
+        private final long hits;
+        private final long misses;
+        private final long eventsPublished;
+        private final long eventsReceived;
+
+        public CacheStatistics(int cachedVideos, long hits, long misses, long eventsPublished, long eventsReceived) {
+            this.cachedVideos = cachedVideos;
+            this.hits = hits;
+            this.misses = misses;
+            this.eventsPublished = eventsPublished;
+            this.eventsReceived = eventsReceived;
+        }
+
+        // Getters
+        public int getCachedVideos() { return cachedVideos; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEventsPublished() { return eventsPublished; }
+        public long getEventsReceived() { return eventsReceived; }
+    }
+}
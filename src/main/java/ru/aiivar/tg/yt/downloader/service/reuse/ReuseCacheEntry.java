@@ -0,0 +1,77 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot of a completed result held by the reuse cache and shared between instances
+ */
+@Data
+@NoArgsConstructor
+public class ReuseCacheEntry {
+
+    private String resultId;
+    private DestinationType destinationType;
+    private String destinationId;
+    private String fileName;
+    private Long fileSizeBytes;
+    private String fileFormat;
+    private Long durationSeconds;
+    private String resolution;
+    private String renditionKey;
+    private Long bitrate;
+    private Double fps;
+    private String codec;
+    private String thumbnailUrl;
+    private LocalDateTime createdAt;
+
+    /**
+     * Snapshot a completed result (its task must be loaded to derive the rendition of legacy rows)
+     */
+    public static ReuseCacheEntry fromResult(VideoDownloadTaskResult result) {
+        ReuseCacheEntry entry = new ReuseCacheEntry();
+        entry.setResultId(result.getId());
+        entry.setDestinationType(result.getDestinationType());
+        entry.setDestinationId(result.getDestinationId());
+        entry.setFileName(result.getFileName());
+        entry.setFileSizeBytes(result.getFileSizeBytes());
+        entry.setFileFormat(result.getFileFormat());
+        entry.setDurationSeconds(result.getDurationSeconds());
+        entry.setResolution(result.getResolution());
+        entry.setRenditionKey(RenditionKey.fromResult(result).toString());
+        entry.setBitrate(result.getBitrate());
+        entry.setFps(result.getFps());
+        entry.setCodec(result.getCodec());
+        entry.setThumbnailUrl(result.getThumbnailUrl());
+        entry.setCreatedAt(result.getCreatedAt());
+        return entry;
+    }
+
+    /**
+     * Detached result carrying the snapshot, usable for rendition matching and reuse
+     */
+    public VideoDownloadTaskResult toResult() {
+        VideoDownloadTaskResult result = new VideoDownloadTaskResult();
+        result.setId(resultId);
+        result.setDestinationType(destinationType);
+        result.setDestinationId(destinationId);
+        result.setFileName(fileName);
+        result.setFileSizeBytes(fileSizeBytes);
+        result.setFileFormat(fileFormat);
+        result.setDurationSeconds(durationSeconds);
+        result.setResolution(resolution);
+        result.setRenditionKey(renditionKey);
+        result.setBitrate(bitrate);
+        result.setFps(fps);
+        result.setCodec(codec);
+        result.setThumbnailUrl(thumbnailUrl);
+        result.setCreatedAt(createdAt);
+        result.setStatus(TaskStatus.COMPLETED);
+        return result;
+    }
+}
@@ -0,0 +1,211 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.ReuseConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskResultRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Preloads the reuse cache with completed Telegram results after startup
+ * Runs in the background so readiness is not delayed; videos are loaded in batches of
+ * canonical IDs, each with all of its results, so cached entries are complete.
+ */
+@Service
+public class ReuseCacheWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReuseCacheWarmupService.class);
+
+    public enum State {
+        NOT_STARTED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        DISABLED
+    }
+
+    public enum Mode {
+        RECENT,
+        MOST_REQUESTED
+    }
+
+    @Autowired
+    private ReuseConfiguration reuseConfig;
+
+    @Autowired
+    private ReuseCache reuseCache;
+
+    @Autowired
+    private VideoDownloadTaskResultRepository resultRepository;
+
+    @Autowired
+    @Qualifier("scheduledTaskExecutor")
+    private Executor scheduledTaskExecutor;
+
+    private volatile State state = State.NOT_STARTED;
+    private volatile Mode mode;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String errorMessage;
+    private final AtomicInteger batchesLoaded = new AtomicInteger();
+    private final AtomicInteger videosLoaded = new AtomicInteger();
+    private final AtomicInteger videosSkipped = new AtomicInteger();
+    private final AtomicLong resultsLoaded = new AtomicLong();
+
+    /**
+     * Start the warm-up once the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!reuseConfig.isWarmupEnabled() || !reuseCache.isEnabled()) {
+            state = State.DISABLED;
+            logger.info("Reuse cache warm-up is disabled");
+            return;
+        }
+        scheduledTaskExecutor.execute(this::warmUp);
+    }
+
+    /**
+     * Load the configured number of videos into the reuse cache
+     */
+    public void warmUp() {
+        mode = Mode.valueOf(reuseConfig.getWarmupMode().trim().toUpperCase());
+        state = State.RUNNING;
+        startedAt = LocalDateTime.now();
+        logger.info("Starting reuse cache warm-up: mode={}, maxVideos={}, batchSize={}",
+                mode, reuseConfig.getWarmupMaxVideos(), reuseConfig.getWarmupBatchSize());
+
+        try {
+            int batchSize = Math.max(1, reuseConfig.getWarmupBatchSize());
+            int maxVideos = reuseConfig.getWarmupMaxVideos();
+            int page = 0;
+            int processed = 0;
+
+            while (processed < maxVideos) {
+                Pageable pageable = PageRequest.of(page++, batchSize);
+                List<String> canonicalVideoIds = mode == Mode.MOST_REQUESTED
+                        ? resultRepository.findMostRequestedCanonicalVideoIds(DestinationType.TELEGRAM, pageable)
+                        : resultRepository.findRecentlyCompletedCanonicalVideoIds(DestinationType.TELEGRAM, pageable);
+                if (canonicalVideoIds.isEmpty()) {
+                    break;
+                }
+                if (processed + canonicalVideoIds.size() > maxVideos) {
+                    canonicalVideoIds = canonicalVideoIds.subList(0, maxVideos - processed);
+                }
+
+                loadBatch(canonicalVideoIds);
+                processed += canonicalVideoIds.size();
+                batchesLoaded.incrementAndGet();
+                logger.debug("Reuse cache warm-up batch {} loaded ({} videos so far)", batchesLoaded.get(), processed);
+
+                if (canonicalVideoIds.size() < batchSize) {
+                    break;
+                }
+                if (reuseConfig.getWarmupBatchDelayMs() > 0) {
+                    Thread.sleep(reuseConfig.getWarmupBatchDelayMs());
+                }
+            }
+
+            state = State.COMPLETED;
+            logger.info("Reuse cache warm-up completed: {} videos, {} results in {} batches ({} already cached)",
+                    videosLoaded.get(), resultsLoaded.get(), batchesLoaded.get(), videosSkipped.get());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = State.FAILED;
+            errorMessage = "Interrupted";
+            logger.warn("Reuse cache warm-up interrupted");
+        } catch (Exception e) {
+            state = State.FAILED;
+            errorMessage = e.getMessage();
+            logger.error("Reuse cache warm-up failed", e);
+        } finally {
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private void loadBatch(List<String> canonicalVideoIds) {
+        List<VideoDownloadTaskResult> results =
+                resultRepository.findExistingResultsByCanonicalVideoIds(canonicalVideoIds, DestinationType.TELEGRAM);
+
+        Map<String, List<VideoDownloadTaskResult>> resultsByVideo = new LinkedHashMap<>();
+        for (VideoDownloadTaskResult result : results) {
+            resultsByVideo.computeIfAbsent(result.getTask().getCanonicalVideoId(), id -> new ArrayList<>()).add(result);
+        }
+
+        for (Map.Entry<String, List<VideoDownloadTaskResult>> entry : resultsByVideo.entrySet()) {
+            // Entries cached by live traffic meanwhile are at least as fresh as this batch
+            if (reuseCache.putLoaded(entry.getKey(), DestinationType.TELEGRAM, entry.getValue(), true)) {
+                videosLoaded.incrementAndGet();
+                resultsLoaded.addAndGet(entry.getValue().size());
+            } else {
+                videosSkipped.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Get warm-up progress
+     */
+    public WarmupStatus getStatus() {
+        return new WarmupStatus(state, mode, startedAt, finishedAt, batchesLoaded.get(),
+                videosLoaded.get(), videosSkipped.get(), resultsLoaded.get(), errorMessage);
+    }
+
+    /**
+     * Warm-up status inner class
+     */
+    public static class WarmupStatus {
+        private final State state;
+        private final Mode mode;
+        private final LocalDateTime startedAt;
+        private final LocalDateTime finishedAt;
+        private final int batchesLoaded;
+        private final int videosLoaded;
+        private final int videosSkipped;
+        private final long resultsLoaded;
+        private final String errorMessage;
+
+        public WarmupStatus(State state, Mode mode, LocalDateTime startedAt, LocalDateTime finishedAt,
+                            int batchesLoaded, int videosLoaded, int videosSkipped, long resultsLoaded,
+                            String errorMessage) {
+            this.state = state;
+            this.mode = mode;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.batchesLoaded = batchesLoaded;
+            this.videosLoaded = videosLoaded;
+            this.videosSkipped = videosSkipped;
+            this.resultsLoaded = resultsLoaded;
+            this.errorMessage = errorMessage;
+        }
+
+        // Getters
+        public State getState() { return state; }
+        public Mode getMode() { return mode; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public int getBatchesLoaded() { return batchesLoaded; }
+        public int getVideosLoaded() { return videosLoaded; }
+        public int getVideosSkipped() { return videosSkipped; }
+        public long getResultsLoaded() { return resultsLoaded; }
+        public String getErrorMessage() { return errorMessage; }
+    }
+}
@@ -0,0 +1,167 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskService;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends reused results to their destination on a dedicated fast lane
+ * Deliveries are submitted after the creating transaction commits, so the HTTP request thread
+ * and its DB connection are released before any destination round trip happens. The lane only
+ * speeds delivery up: tasks stay pending until it claims them, so a full queue or a restart leaves
+ * them to the normal processing pipeline, which resends reused results without downloading.
+ */
+@Service
+public class ReuseDeliveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReuseDeliveryService.class);
+
+    @Autowired
+    @Qualifier("reuseDeliveryExecutor")
+    private Executor reuseDeliveryExecutor;
+
+    @Autowired
+    @Lazy
+    private VideoDownloadTaskService taskService;
+
+    @Autowired
+    private List<VideoDestinationProcessor> destinationProcessorList;
+
+    private final Map<DestinationType, VideoDestinationProcessor> destinationProcessors = new EnumMap<>(DestinationType.class);
+
+    private final AtomicLong submittedDeliveries = new AtomicLong();
+    private final AtomicLong completedDeliveries = new AtomicLong();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+    private final AtomicLong rejectedDeliveries = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        for (VideoDestinationProcessor processor : destinationProcessorList) {
+            destinationProcessors.put(processor.getSupportedDestinationType(), processor);
+        }
+    }
+
+    /**
+     * Schedule delivery of a reused result to the task's destination
+     * The task is expected to be pending; the delivery claims it, then completes or fails it.
+     * When called inside a transaction the delivery is submitted only after commit.
+     */
+    public void scheduleDelivery(String taskId, String destinationId, DestinationType destinationType) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(taskId, destinationId, destinationType);
+                }
+            });
+        } else {
+            submit(taskId, destinationId, destinationType);
+        }
+    }
+
+    private void submit(String taskId, String destinationId, DestinationType destinationType) {
+        try {
+            reuseDeliveryExecutor.execute(() -> deliver(taskId, destinationId, destinationType));
+            submittedDeliveries.incrementAndGet();
+            logger.debug("Queued reused result delivery for task: {}", taskId);
+        } catch (RejectedExecutionException e) {
+            rejectedDeliveries.incrementAndGet();
+            logger.warn("Reuse delivery queue is full, leaving task {} to normal processing", taskId);
+        }
+    }
+
+    private void deliver(String taskId, String destinationId, DestinationType destinationType) {
+        try {
+            // Committed before sending, so the processing pipeline cannot send the same task meanwhile
+            if (!taskService.claimPendingTask(taskId)) {
+                logger.info("Skipping reused result delivery for task {}: task no longer awaits delivery", taskId);
+                return;
+            }
+            Optional<VideoDownloadTask> taskOpt = taskService.getTaskById(taskId);
+            if (taskOpt.isEmpty()) {
+                throw new IllegalStateException("Task disappeared after it was claimed: " + taskId);
+            }
+
+            VideoDestinationProcessor processor = destinationProcessors.get(destinationType);
+            if (processor == null) {
+                throw new UnsupportedOperationException("No processor found for destination type: " + destinationType);
+            }
+
+            processor.sendVideoById(destinationId, taskOpt.get());
+            taskService.markTaskAsCompleted(taskId);
+            completedDeliveries.incrementAndGet();
+            logger.info("Task {} completed by delivering reused result", taskId);
+
+        } catch (Exception e) {
+            failedDeliveries.incrementAndGet();
+            logger.error("Error delivering reused result for task: {}", taskId, e);
+            try {
+                taskService.markTaskAsFailed(taskId, "Failed to deliver reused result: " + e.getMessage());
+            } catch (Exception markError) {
+                logger.error("Error marking task {} as failed after delivery error", taskId, markError);
+            }
+        }
+    }
+
+    void setReuseDeliveryExecutor(Executor reuseDeliveryExecutor) {
+        this.reuseDeliveryExecutor = reuseDeliveryExecutor;
+    }
+
+    void setTaskService(VideoDownloadTaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    void setDestinationProcessorList(List<VideoDestinationProcessor> destinationProcessorList) {
+        this.destinationProcessorList = destinationProcessorList;
+    }
+
+    /**
+     * Get reuse delivery statistics
+     */
+    public DeliveryStatistics getStatistics() {
+        return new DeliveryStatistics(submittedDeliveries.get(), completedDeliveries.get(),
+                failedDeliveries.get(), rejectedDeliveries.get());
+    }
+
+    /**
+     * Reuse delivery statistics inner class
+     */
+    public static class DeliveryStatistics {
+        private final long submittedDeliveries;
+        private final long completedDeliveries;
+        private final long failedDeliveries;
+        private final long rejectedDeliveries;
+
+        public DeliveryStatistics(long submittedDeliveries, long completedDeliveries,
+                                  long failedDeliveries, long rejectedDeliveries) {
+            this.submittedDeliveries = submittedDeliveries;
+            this.completedDeliveries = completedDeliveries;
+            this.failedDeliveries = failedDeliveries;
+            this.rejectedDeliveries = rejectedDeliveries;
+        }
+
+        // Getters
+        public long getSubmittedDeliveries() { return submittedDeliveries; }
+        public long getCompletedDeliveries() { return completedDeliveries; }
+        public long getFailedDeliveries() { return failedDeliveries; }
+        public long getRejectedDeliveries() { return rejectedDeliveries; }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.aiivar.tg.yt.downloader.service.schema;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Widens the check constraints of enum columns to the current enum values on startup
+ * Hibernate creates "check (column in (...))" for enum columns, and ddl-auto=update never changes it,
+ * so values added later (such as SourceType.DIRECT_HTTP) would be rejected by existing databases.
+ * Only runs against Postgres.
+ */
+@Component
+public class EnumCheckConstraintUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnumCheckConstraintUpdater.class);
+
+    private static final List<EnumColumn> ENUM_COLUMNS = List.of(
+            new EnumColumn("video_download_tasks", "source_type", SourceType.class),
+            new EnumColumn("video_download_tasks", "destination_type", DestinationType.class),
+            new EnumColumn("video_download_tasks", "failure_reason", FailureReason.class),
+            new EnumColumn("video_download_task_results", "destination_type", DestinationType.class));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Injected so that Hibernate has created or updated the schema before the constraints are read
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @PostConstruct
+    public void updateConstraints() {
+        if (datasourceUrl == null || !datasourceUrl.startsWith("jdbc:postgresql:")) {
+            return;
+        }
+        for (EnumColumn column : ENUM_COLUMNS) {
+            try {
+                updateConstraints(column);
+            } catch (DataAccessException e) {
+                logger.error("Error updating check constraints of {}.{}", column.table(), column.column(), e);
+            }
+        }
+    }
+
+    private void updateConstraints(EnumColumn column) {
+        List<String> values = Arrays.stream(column.type().getEnumConstants()).map(Enum::name).toList();
+        List<Map<String, Object>> constraints = jdbcTemplate.queryForList(
+                "SELECT c.conname, pg_get_constraintdef(c.oid) AS definition FROM pg_constraint c " +
+                        "JOIN pg_class t ON t.oid = c.conrelid " +
+                        "JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = ANY (c.conkey) " +
+                        "WHERE c.contype = 'c' AND t.relname = ? AND a.attname = ? AND pg_table_is_visible(t.oid)",
+                column.table(), column.column());
+
+        for (Map<String, Object> constraint : constraints) {
+            String definition = (String) constraint.get("definition");
+            if (values.stream().allMatch(value -> definition.contains("'" + value + "'"))) {
+                continue;
+            }
+            String name = "\"" + ((String) constraint.get("conname")).replace("\"", "\"\"") + "\"";
+            String allowed = values.stream().map(value -> "'" + value + "'").collect(Collectors.joining(", "));
+            jdbcTemplate.execute("ALTER TABLE " + column.table() + " DROP CONSTRAINT " + name +
+                    ", ADD CONSTRAINT " + name + " CHECK (" + column.column() + " IN (" + allowed + "))");
+            logger.info("Updated check constraint {} of {}.{} to allow {}", name, column.table(), column.column(), values);
+        }
+    }
+
+    private record EnumColumn(String table, String column, Class<? extends Enum<?>> type) {
+    }
+}
@@ -0,0 +1,56 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+/**
+ * Latest progress of one download, updated in place
+ * Written by the thread reading yt-dlp output and safe to read from any other thread; an update stores
+ * a few numbers and creates no objects.
+ */
+public class DownloadProgress implements YtDlpProgressListener {
+
+    private volatile float percent = -1;
+    private volatile long downloadedBytes = -1;
+    private volatile long totalBytes = -1;
+    private volatile long etaSeconds = -1;
+    private volatile long updates;
+    private volatile long updatedAtMillis;
+
+    @Override
+    public void onProgress(float percent, long downloadedBytes, long totalBytes, long etaSeconds) {
+        this.percent = percent;
+        this.downloadedBytes = downloadedBytes;
+        this.totalBytes = totalBytes;
+        this.etaSeconds = etaSeconds;
+        this.updatedAtMillis = System.currentTimeMillis();
+        this.updates++;
+    }
+
+    /**
+     * Completion percentage (0-100), -1 before the first update
+     */
+    public float getPercent() {
+        return percent;
+    }
+
+    public long getDownloadedBytes() {
+        return downloadedBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    /**
+     * Number of updates received
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+}
@@ -0,0 +1,82 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Last bytes of a process output stream, kept in a fixed ring buffer for diagnostics
+ * Appending copies bytes without decoding them; text is only built when the tail is read, and a line
+ * cut off by the ring wrapping around is dropped.
+ */
+public class OutputTail {
+
+    private static final int DRAIN_BUFFER_SIZE = 4096;
+
+    private final byte[] buffer;
+    private int position;
+    private long totalBytes;
+
+    public OutputTail(int capacityBytes) {
+        this.buffer = new byte[capacityBytes];
+    }
+
+    /**
+     * Append bytes, overwriting the oldest ones once the buffer is full
+     */
+    public synchronized void append(byte[] data, int offset, int length) {
+        totalBytes += length;
+        if (length >= buffer.length) {
+            System.arraycopy(data, offset + length - buffer.length, buffer, 0, buffer.length);
+            position = 0;
+            return;
+        }
+        int first = Math.min(length, buffer.length - position);
+        System.arraycopy(data, offset, buffer, position, first);
+        System.arraycopy(data, offset + first, buffer, 0, length - first);
+        position = (position + length) % buffer.length;
+    }
+
+    /**
+     * Append a line without its terminator, followed by a newline
+     */
+    public synchronized void appendLine(byte[] data, int offset, int length) {
+        append(data, offset, length);
+        totalBytes++;
+        buffer[position] = '\n';
+        position = (position + 1) % buffer.length;
+    }
+
+    /**
+     * Read the stream to its end, keeping only the tail
+     */
+    public void drain(InputStream in) throws IOException {
+        byte[] chunk = new byte[DRAIN_BUFFER_SIZE];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            append(chunk, 0, read);
+        }
+    }
+
+    /**
+     * Total bytes appended, including the ones no longer kept
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (totalBytes <= buffer.length) {
+            return new String(buffer, 0, (int) totalBytes, StandardCharsets.UTF_8).strip();
+        }
+        byte[] ordered = new byte[buffer.length];
+        System.arraycopy(buffer, position, ordered, 0, buffer.length - position);
+        System.arraycopy(buffer, 0, ordered, buffer.length - position, position);
+        int start = 0;
+        while (start < ordered.length && ordered[start] != '\n') {
+            start++;
+        }
+        return new String(ordered, start, ordered.length - start, StandardCharsets.UTF_8).strip();
+    }
+}
@@ -0,0 +1,412 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import com.jfposton.ytdlp.YtDlp;
+import com.jfposton.ytdlp.YtDlpException;
+import com.jfposton.ytdlp.YtDlpRequest;
+import com.jfposton.ytdlp.YtDlpResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.YtDlpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor.DownloadShare;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+import ru.aiivar.tg.yt.downloader.service.processor.impl.YtDlpMetadataParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs yt-dlp probes and downloads on the worker pool, falling back to a one-shot process
+ * Options use yt-dlp long option names without dashes; a null value marks a flag.
+ */
+@Service
+public class YtDlpExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpExecutor.class);
+
+    // Printed by yt-dlp (and reported by the worker) when --max-filesize skips a download
+    private static final String MAX_FILESIZE_MESSAGE = "larger than max-filesize";
+
+    // Output kept per listed playlist entry: extractor key and URL
+    private static final int LISTING_LINE_BYTES = 512;
+
+    @Autowired
+    private YtDlpConfiguration ytDlpConfig;
+
+    @Autowired
+    private YtDlpWorkerPool workerPool;
+
+    @Autowired
+    private BandwidthGovernor bandwidthGovernor;
+
+    private final AtomicLong pooledJobs = new AtomicLong();
+    private final AtomicLong oneShotJobs = new AtomicLong();
+    private final AtomicLong workerFailures = new AtomicLong();
+    private final AtomicLong streamedJobs = new AtomicLong();
+
+    /**
+     * Probe video metadata without downloading
+     */
+    public VideoMetadata probe(String url) throws YtDlpException, IOException {
+        YtDlpWorker worker = workerPool.borrow();
+        if (worker != null) {
+            try {
+                VideoMetadata metadata = worker.probe(url, List.of("--no-playlist"),
+                        TimeUnit.SECONDS.toMillis(ytDlpConfig.getProbeTimeoutSeconds()));
+                pooledJobs.incrementAndGet();
+                return metadata;
+            } catch (YtDlpWorkerException e) {
+                workerFailures.incrementAndGet();
+                logger.warn("yt-dlp worker failed to probe {}, falling back to one-shot yt-dlp: {}", url, e.getMessage());
+            } finally {
+                workerPool.release(worker);
+            }
+        }
+
+        oneShotJobs.incrementAndGet();
+        YtDlpRequest request = new YtDlpRequest(url);
+        request.setOption("dump-json");
+        request.setOption("no-download");
+        request.setOption("no-playlist");
+
+        YtDlpResponse response = YtDlp.execute(request);
+        if (response.getExitCode() != 0) {
+            throw new YtDlpException("yt-dlp failed: " + response.getErr());
+        }
+        return YtDlpMetadataParser.parse(response.getOut());
+    }
+
+    /**
+     * List the entries of a playlist or channel without resolving each video
+     * Only entries of the given extractor are returned (e.g. "Youtube" skips channel tabs and nested
+     * playlists); null keeps all of them. At most maxEntries entries are listed, duplicates removed.
+     */
+    public List<String> listPlaylist(String url, String extractorKey, int maxEntries, long timeoutMs)
+            throws YtDlpException {
+        List<String> command = List.of(YtDlp.getExecutablePath(), "--flat-playlist",
+                "--playlist-end", String.valueOf(maxEntries), "--print", "%(ie_key)s %(url)s", url);
+
+        oneShotJobs.incrementAndGet();
+        YtDlpProcessRunner.Result result;
+        try {
+            result = YtDlpProcessRunner.run(command, null, timeoutMs, maxEntries * LISTING_LINE_BYTES);
+        } catch (IOException e) {
+            throw new YtDlpException("Failed to run yt-dlp: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException("Interrupted while running yt-dlp");
+        }
+        if (result.getExitCode() != 0) {
+            throw new YtDlpException("yt-dlp failed: " + result.getErrorTail());
+        }
+        if (result.isOutputTruncated()) {
+            logger.warn("Listing of {} exceeded the output buffer, only the last entries are kept", url);
+        }
+
+        Set<String> entries = new LinkedHashSet<>();
+        for (String line : result.getOutputTail().split("\n")) {
+            int separator = line.indexOf(' ');
+            if (separator <= 0) {
+                continue;
+            }
+            String entryUrl = line.substring(separator + 1).trim();
+            if ((extractorKey == null || extractorKey.equals(line.substring(0, separator)))
+                    && !entryUrl.isEmpty() && !"NA".equals(entryUrl)) {
+                entries.add(entryUrl);
+            }
+        }
+        logger.debug("Listed {} entries of {}", entries.size(), url);
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * Download a video into the output directory and return the downloaded file
+     * The file is the one yt-dlp reports after merging and moving it into place; the directory is not scanned.
+     * A positive maxFileSizeBytes is passed to yt-dlp and enforced as a hard cap on downloaded bytes,
+     * failing with {@link FileTooLargeException} as soon as it is exceeded. The download is rate limited
+     * to its share of the download bandwidth budget; worker downloads follow the share as it changes.
+     */
+    public File download(String url, Map<String, String> options, Path outputDir, YtDlpProgressListener listener,
+                         long maxFileSizeBytes) throws YtDlpException, FileTooLargeException {
+        Map<String, String> effectiveOptions = new LinkedHashMap<>(options);
+        if (maxFileSizeBytes > 0) {
+            effectiveOptions.put("max-filesize", String.valueOf(maxFileSizeBytes));
+        }
+        ByteCapListener cappedListener = new ByteCapListener(listener, maxFileSizeBytes);
+
+        YtDlpWorker worker = workerPool.borrow();
+        if (worker != null) {
+            try (DownloadShare share = acquireDownloadShare(worker)) {
+                Map<String, String> workerOptions = withRateLimit(effectiveOptions, share);
+                String filepath = worker.download(url, toArgs(workerOptions), cappedListener,
+                        TimeUnit.MINUTES.toMillis(ytDlpConfig.getDownloadTimeoutMinutes()));
+                pooledJobs.incrementAndGet();
+                return checkFileSize(reportedFile(filepath), maxFileSizeBytes);
+            } catch (ByteCapExceededException e) {
+                logger.warn("Download of {} stopped at {} bytes, limit is {} bytes", url, e.downloadedBytes, maxFileSizeBytes);
+                deletePartialFiles(outputDir);
+                throw new FileTooLargeException(e.totalBytes, maxFileSizeBytes, false);
+            } catch (YtDlpException e) {
+                throw translateMaxFileSizeError(e, maxFileSizeBytes);
+            } catch (YtDlpWorkerException e) {
+                workerFailures.incrementAndGet();
+                logger.warn("yt-dlp worker failed to download {}, falling back to one-shot yt-dlp: {}", url, e.getMessage());
+            } finally {
+                workerPool.release(worker);
+            }
+        }
+
+        oneShotJobs.incrementAndGet();
+        // A separate process cannot be told about a new share, so it keeps the rate it starts with
+        try (DownloadShare share = acquireDownloadShare(null)) {
+            return downloadOneShot(url, withRateLimit(effectiveOptions, share), outputDir, cappedListener, maxFileSizeBytes);
+        }
+    }
+
+    private File downloadOneShot(String url, Map<String, String> effectiveOptions, Path outputDir,
+                                 YtDlpProgressListener listener, long maxFileSizeBytes)
+            throws YtDlpException, FileTooLargeException {
+        List<String> command = new ArrayList<>();
+        command.add(YtDlp.getExecutablePath());
+        command.addAll(toArgs(effectiveOptions));
+        // Report the final path after merging and moving; --print implies --quiet and --simulate otherwise.
+        // Progress is printed in a fixed numeric format that is parsed without regular expressions.
+        command.addAll(List.of("--print", "after_move:filepath", "--no-simulate", "--progress", "--newline",
+                "--progress-template", YtDlpOutputReader.PROGRESS_TEMPLATE, url));
+
+        YtDlpProcessRunner.Result result;
+        try {
+            result = YtDlpProcessRunner.run(command, listener,
+                    TimeUnit.MINUTES.toMillis(ytDlpConfig.getDownloadTimeoutMinutes()));
+        } catch (ByteCapExceededException e) {
+            logger.warn("Download of {} stopped at {} bytes, limit is {} bytes", url, e.downloadedBytes, maxFileSizeBytes);
+            deletePartialFiles(outputDir);
+            throw new FileTooLargeException(e.totalBytes, maxFileSizeBytes, false);
+        } catch (IOException e) {
+            throw new YtDlpException("Failed to run yt-dlp: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException("Interrupted while running yt-dlp");
+        }
+
+        if (result.getExitCode() != 0) {
+            throw translateMaxFileSizeError(new YtDlpException("yt-dlp failed: " + result.getErrorTail()), maxFileSizeBytes);
+        }
+        if (maxFileSizeBytes > 0 && (result.getOutputTail().contains(MAX_FILESIZE_MESSAGE)
+                || result.getErrorTail().contains(MAX_FILESIZE_MESSAGE))) {
+            throw new FileTooLargeException(-1, maxFileSizeBytes, false);
+        }
+        return checkFileSize(reportedFile(lastPrintedPath(result.getOutputTail())), maxFileSizeBytes);
+    }
+
+    /**
+     * Start a download that writes the video to a stream instead of a file
+     * Only suitable for renditions that need no merging or remuxing; the stream fails once more than
+     * maxFileSizeBytes are produced. The process keeps the download bandwidth share it starts with.
+     */
+    public YtDlpStream openStream(String url, Map<String, String> options, String fileName, long estimatedSizeBytes,
+                                  long maxFileSizeBytes, int bufferSizeBytes) throws IOException {
+        DownloadShare share;
+        try {
+            share = bandwidthGovernor.acquireFixedDownloadShare();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for download bandwidth");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(YtDlp.getExecutablePath());
+        command.addAll(toArgs(withRateLimit(options, share)));
+        command.add("--output");
+        command.add("-");
+        command.add("--quiet");
+        command.add(url);
+
+        streamedJobs.incrementAndGet();
+        logger.debug("Streaming {} with {}", url, command);
+        try {
+            return YtDlpStream.start(command, fileName, estimatedSizeBytes, maxFileSizeBytes, bufferSizeBytes, share::close);
+        } catch (IOException | RuntimeException e) {
+            share.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a share of the download budget that follows the worker, or a fixed one without a worker
+     */
+    private DownloadShare acquireDownloadShare(YtDlpWorker worker) throws YtDlpException {
+        try {
+            return worker != null
+                    ? bandwidthGovernor.acquireDownloadShare(worker::setRateLimit)
+                    : bandwidthGovernor.acquireFixedDownloadShare();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpException("Interrupted while waiting for download bandwidth");
+        }
+    }
+
+    private static Map<String, String> withRateLimit(Map<String, String> options, DownloadShare share) {
+        long rate = share.getRateBytesPerSecond();
+        if (rate <= 0 || options.containsKey("limit-rate")) {
+            return options;
+        }
+        Map<String, String> limited = new LinkedHashMap<>(options);
+        limited.put("limit-rate", String.valueOf(rate));
+        return limited;
+    }
+
+    private File checkFileSize(File file, long maxFileSizeBytes) throws FileTooLargeException {
+        if (maxFileSizeBytes > 0 && file.length() > maxFileSizeBytes) {
+            long size = file.length();
+            file.delete();
+            throw new FileTooLargeException(size, maxFileSizeBytes, false);
+        }
+        return file;
+    }
+
+    private YtDlpException translateMaxFileSizeError(YtDlpException e, long maxFileSizeBytes) throws FileTooLargeException {
+        if (maxFileSizeBytes > 0 && e.getMessage() != null && e.getMessage().contains(MAX_FILESIZE_MESSAGE)) {
+            throw new FileTooLargeException(-1, maxFileSizeBytes, false);
+        }
+        return e;
+    }
+
+    private void deletePartialFiles(Path outputDir) {
+        File[] files = outputDir.toFile().listFiles(File::isFile);
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private List<String> toArgs(Map<String, String> options) {
+        List<String> args = new ArrayList<>(options.size() * 2);
+        options.forEach((name, value) -> {
+            args.add("--" + name);
+            if (value != null) {
+                args.add(value);
+            }
+        });
+        return args;
+    }
+
+    private static File reportedFile(String filepath) throws YtDlpException {
+        if (filepath == null || !new File(filepath).isFile()) {
+            throw new YtDlpException("No file was downloaded" + (filepath != null ? ": " + filepath + " is missing" : ""));
+        }
+        return new File(filepath);
+    }
+
+    /**
+     * Path printed by --print after_move:filepath; it is the last line of output that is not progress
+     */
+    static String lastPrintedPath(String out) {
+        if (out == null) {
+            return null;
+        }
+        String[] lines = out.split("\\R");
+        for (int i = lines.length - 1; i >= 0; i--) {
+            String line = lines[i].trim();
+            if (!line.isEmpty() && !line.startsWith("[")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Progress listener that aborts the job once more bytes than allowed are downloaded or announced
+     */
+    private static final class ByteCapListener implements YtDlpProgressListener {
+        private final YtDlpProgressListener delegate;
+        private final long maxBytes;
+
+        ByteCapListener(YtDlpProgressListener delegate, long maxBytes) {
+            this.delegate = delegate;
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void onProgress(float percent, long downloadedBytes, long totalBytes, long etaSeconds) {
+            if (maxBytes > 0 && (downloadedBytes > maxBytes || totalBytes > maxBytes)) {
+                throw new ByteCapExceededException(downloadedBytes, totalBytes);
+            }
+            if (delegate != null) {
+                delegate.onProgress(percent, downloadedBytes, totalBytes, etaSeconds);
+            }
+        }
+    }
+
+    private static final class ByteCapExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final long downloadedBytes;
+        private final long totalBytes;
+
+        ByteCapExceededException(long downloadedBytes, long totalBytes) {
+            super("Download size limit exceeded", null, false, false);
+            this.downloadedBytes = downloadedBytes;
+            this.totalBytes = totalBytes;
+        }
+    }
+
+    void setYtDlpConfig(YtDlpConfiguration ytDlpConfig) {
+        this.ytDlpConfig = ytDlpConfig;
+    }
+
+    void setWorkerPool(YtDlpWorkerPool workerPool) {
+        this.workerPool = workerPool;
+    }
+
+    void setBandwidthGovernor(BandwidthGovernor bandwidthGovernor) {
+        this.bandwidthGovernor = bandwidthGovernor;
+    }
+
+    /**
+     * Get yt-dlp execution statistics
+     */
+    public ExecutionStatistics getStatistics() {
+        return new ExecutionStatistics(pooledJobs.get(), oneShotJobs.get(), workerFailures.get(), streamedJobs.get(),
+                workerPool.getStatistics());
+    }
+
+    /**
+     * yt-dlp execution statistics inner class
+     */
+    public static class ExecutionStatistics {
+        private final long pooledJobs;
+        private final long oneShotJobs;
+        private final long workerFailures;
+        private final long streamedJobs;
+        private final YtDlpWorkerPool.PoolStatistics pool;
+
+        public ExecutionStatistics(long pooledJobs, long oneShotJobs, long workerFailures, long streamedJobs,
+                                   YtDlpWorkerPool.PoolStatistics pool) {
+            this.pooledJobs = pooledJobs;
+            this.oneShotJobs = oneShotJobs;
+            this.workerFailures = workerFailures;
+            this.streamedJobs = streamedJobs;
+            this.pool = pool;
+        }
+
+        // Getters
+        public long getPooledJobs() { return pooledJobs; }
+        public long getOneShotJobs() { return oneShotJobs; }
+        public long getWorkerFailures() { return workerFailures; }
+        public long getStreamedJobs() { return streamedJobs; }
+        public YtDlpWorkerPool.PoolStatistics getPool() { return pool; }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads one yt-dlp output stream without creating objects per line
+ * Lines are split in a reusable buffer. Progress lines printed with {@link #PROGRESS_TEMPLATE} are
+ * parsed in place and reported to the listener; all other lines go into a bounded {@link OutputTail}.
+ * Lines longer than the line buffer are truncated.
+ */
+public class YtDlpOutputReader {
+
+    private static final String PROGRESS_PREFIX = "tgyt-progress ";
+
+    /**
+     * Value for --progress-template: downloaded bytes, total bytes, estimated total bytes and ETA; unknown values print as NA
+     */
+    public static final String PROGRESS_TEMPLATE = "download:" + PROGRESS_PREFIX
+            + "%(progress.downloaded_bytes)s %(progress.total_bytes)s %(progress.total_bytes_estimate)s %(progress.eta)s";
+
+    private static final byte[] PROGRESS_PREFIX_BYTES = PROGRESS_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final YtDlpProgressListener listener;
+    private final OutputTail outputTail;
+    private final byte[] chunk = new byte[READ_BUFFER_SIZE];
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private final long[] fields = new long[4];
+    private int lineLength;
+    private long progressLines;
+
+    /**
+     * @param listener      receives parsed progress, may be null
+     * @param tailSizeBytes how much of the other output to keep
+     */
+    public YtDlpOutputReader(YtDlpProgressListener listener, int tailSizeBytes) {
+        this.listener = listener;
+        this.outputTail = new OutputTail(tailSizeBytes);
+    }
+
+    /**
+     * Read the stream to its end; exceptions thrown by the listener stop reading and are passed on
+     */
+    public void read(InputStream in) throws IOException {
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = chunk[i];
+                if (b == '\n' || b == '\r') {
+                    endLine();
+                } else if (lineLength < line.length) {
+                    line[lineLength++] = b;
+                }
+            }
+        }
+        endLine();
+    }
+
+    /**
+     * Output other than progress lines
+     */
+    public OutputTail getOutputTail() {
+        return outputTail;
+    }
+
+    /**
+     * Number of progress lines parsed
+     */
+    public long getProgressLines() {
+        return progressLines;
+    }
+
+    private void endLine() {
+        if (lineLength == 0) {
+            return;
+        }
+        if (parseProgress()) {
+            progressLines++;
+            if (listener != null) {
+                long downloaded = fields[0];
+                long total = fields[1] >= 0 ? fields[1] : fields[2];
+                float percent = downloaded >= 0 && total > 0 ? downloaded * 100f / total : -1;
+                listener.onProgress(percent, downloaded, total, fields[3]);
+            }
+        } else {
+            outputTail.appendLine(line, 0, lineLength);
+        }
+        lineLength = 0;
+    }
+
+    /**
+     * Parse the fields of a progress line into {@link #fields}; numbers may have a fraction, which is dropped
+     */
+    private boolean parseProgress() {
+        if (lineLength < PROGRESS_PREFIX_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < PROGRESS_PREFIX_BYTES.length; i++) {
+            if (line[i] != PROGRESS_PREFIX_BYTES[i]) {
+                return false;
+            }
+        }
+
+        int position = PROGRESS_PREFIX_BYTES.length;
+        for (int field = 0; field < fields.length; field++) {
+            while (position < lineLength && line[position] == ' ') {
+                position++;
+            }
+            long value = -1;
+            if (position < lineLength && isDigit(line[position])) {
+                value = 0;
+                while (position < lineLength && isDigit(line[position])) {
+                    value = value * 10 + (line[position++] - '0');
+                }
+            }
+            // Skip the fraction or a non-numeric value such as NA
+            while (position < lineLength && line[position] != ' ') {
+                position++;
+            }
+            fields[field] = value;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
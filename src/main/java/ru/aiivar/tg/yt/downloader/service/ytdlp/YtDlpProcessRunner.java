@@ -0,0 +1,117 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a one-shot yt-dlp process with bounded memory use
+ * Both output streams go through a {@link YtDlpOutputReader}: progress lines are parsed in place and
+ * only a bounded tail of the rest is kept, so a long download produces no garbage per line. yt-dlp
+ * prints progress to stderr when --print makes it quiet, so both streams are parsed.
+ */
+final class YtDlpProcessRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpProcessRunner.class);
+
+    private static final int STDOUT_TAIL_BYTES = 16 * 1024;
+    private static final int STDERR_TAIL_BYTES = 8 * 1024;
+
+    private YtDlpProcessRunner() {
+    }
+
+    /**
+     * Run the command to completion
+     * A runtime exception thrown by the listener kills the process and is rethrown here.
+     */
+    static Result run(List<String> command, YtDlpProgressListener listener, long timeoutMs)
+            throws IOException, InterruptedException {
+        return run(command, listener, timeoutMs, STDOUT_TAIL_BYTES);
+    }
+
+    /**
+     * Run the command to completion, keeping up to stdoutTailBytes of its output
+     */
+    static Result run(List<String> command, YtDlpProgressListener listener, long timeoutMs, int stdoutTailBytes)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+
+        AtomicReference<RuntimeException> listenerFailure = new AtomicReference<>();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        YtDlpOutputReader stdout = new YtDlpOutputReader(listener, stdoutTailBytes);
+        YtDlpOutputReader stderr = new YtDlpOutputReader(listener, STDERR_TAIL_BYTES);
+
+        Thread stderrReader = Thread.ofPlatform().daemon().name("yt-dlp-stderr-" + process.pid())
+                .start(() -> pump(process, process.getErrorStream(), stderr, listenerFailure));
+        Thread watchdog = Thread.ofVirtual().start(() -> {
+            try {
+                if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    timedOut.set(true);
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                // Finished before the timeout
+            }
+        });
+
+        try {
+            pump(process, process.getInputStream(), stdout, listenerFailure);
+            int exitCode = process.waitFor();
+            stderrReader.join(1000);
+            if (listenerFailure.get() != null) {
+                throw listenerFailure.get();
+            }
+            if (timedOut.get()) {
+                throw new IOException("yt-dlp timed out after " + timeoutMs + " ms: " + stderr.getOutputTail());
+            }
+            return new Result(exitCode, stdout.getOutputTail().toString(), stderr.getOutputTail().toString(),
+                    stdout.getOutputTail().getTotalBytes() > stdoutTailBytes);
+        } finally {
+            watchdog.interrupt();
+            if (process.isAlive()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static void pump(Process process, InputStream in, YtDlpOutputReader reader,
+                             AtomicReference<RuntimeException> listenerFailure) {
+        try (in) {
+            reader.read(in);
+        } catch (IOException e) {
+            logger.debug("yt-dlp output closed: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            listenerFailure.compareAndSet(null, e);
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Outcome of a finished process
+     */
+    static final class Result {
+        private final int exitCode;
+        private final String outputTail;
+        private final String errorTail;
+        private final boolean outputTruncated;
+
+        Result(int exitCode, String outputTail, String errorTail, boolean outputTruncated) {
+            this.exitCode = exitCode;
+            this.outputTail = outputTail;
+            this.errorTail = errorTail;
+            this.outputTruncated = outputTruncated;
+        }
+
+        int getExitCode() { return exitCode; }
+        String getOutputTail() { return outputTail; }
+        String getErrorTail() { return errorTail; }
+        boolean isOutputTruncated() { return outputTruncated; }
+    }
+}
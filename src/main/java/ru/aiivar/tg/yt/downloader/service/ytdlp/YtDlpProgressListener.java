@@ -0,0 +1,18 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+/**
+ * Receives download progress from yt-dlp
+ */
+@FunctionalInterface
+public interface YtDlpProgressListener {
+
+    /**
+     * Called as the download progresses; unknown values are -1
+     *
+     * @param percent         completion percentage (0-100)
+     * @param downloadedBytes bytes downloaded so far
+     * @param totalBytes      expected total bytes
+     * @param etaSeconds      estimated seconds left
+     */
+    void onProgress(float percent, long downloadedBytes, long totalBytes, long etaSeconds);
+}
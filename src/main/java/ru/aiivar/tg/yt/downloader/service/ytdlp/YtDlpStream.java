@@ -0,0 +1,132 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aiivar.tg.yt.downloader.service.download.BoundedPipe;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * yt-dlp process writing a video to stdout, read through a bounded pipe
+ * The pipe only reports end of stream after yt-dlp exited successfully; a failed or oversize download
+ * makes the reader fail instead, so a truncated video is never taken for a complete one.
+ */
+public class YtDlpStream implements VideoStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpStream.class);
+
+    private static final int STDERR_TAIL_BYTES = 8 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final Process process;
+    private final BoundedPipe pipe;
+    private final String fileName;
+    private final long estimatedSizeBytes;
+    private final Runnable onExit;
+    private final OutputTail stderrTail = new OutputTail(STDERR_TAIL_BYTES);
+    private Thread stderrReader;
+
+    private YtDlpStream(Process process, BoundedPipe pipe, String fileName, long estimatedSizeBytes, Runnable onExit) {
+        this.process = process;
+        this.pipe = pipe;
+        this.fileName = fileName;
+        this.estimatedSizeBytes = estimatedSizeBytes;
+        this.onExit = onExit;
+    }
+
+    /**
+     * Start yt-dlp; the command must write the video to stdout ("--output -")
+     * onExit runs once the process has finished producing output, whether it succeeded or not.
+     */
+    static YtDlpStream start(List<String> command, String fileName, long estimatedSizeBytes, long maxFileSizeBytes,
+                             int bufferSizeBytes, Runnable onExit) throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+
+        YtDlpStream stream = new YtDlpStream(process, new BoundedPipe(bufferSizeBytes), fileName, estimatedSizeBytes, onExit);
+        stream.stderrReader = Thread.ofPlatform().daemon().name("yt-dlp-stderr-" + process.pid()).start(stream::drainStderr);
+        Thread.ofPlatform().daemon().name("yt-dlp-stream-" + process.pid()).start(() -> stream.pump(maxFileSizeBytes));
+        return stream;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return pipe.getSource();
+    }
+
+    @Override
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public long getEstimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+
+    /**
+     * Bytes handed to the reader so far
+     */
+    public long getBytesTransferred() {
+        return pipe.getBytesTransferred();
+    }
+
+    @Override
+    public void close() {
+        pipe.closeSource();
+        if (process.isAlive()) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void pump(long maxFileSizeBytes) {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long copied = 0;
+        try (InputStream stdout = process.getInputStream()) {
+            OutputStream sink = pipe.getSink();
+            int read;
+            while ((read = stdout.read(buffer)) >= 0) {
+                copied += read;
+                if (maxFileSizeBytes > 0 && copied > maxFileSizeBytes) {
+                    process.destroyForcibly();
+                    pipe.fail(new IOException("Streamed video exceeds the size limit",
+                            new FileTooLargeException(copied, maxFileSizeBytes, false)));
+                    return;
+                }
+                sink.write(buffer, 0, read);
+            }
+
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                stderrReader.join(1000);
+                pipe.fail(new IOException("yt-dlp failed with exit code " + exitCode + ": " + stderrTail));
+            } else {
+                logger.debug("yt-dlp streamed {} bytes of {}", copied, fileName);
+                pipe.finish();
+            }
+        } catch (IOException e) {
+            // The reader went away or stdout broke; either way the process has nothing left to do
+            process.destroyForcibly();
+            pipe.fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            pipe.fail(new IOException("Interrupted while streaming", e));
+        } finally {
+            onExit.run();
+        }
+    }
+
+    private void drainStderr() {
+        try (InputStream stderr = process.getErrorStream()) {
+            stderrTail.drain(stderr);
+        } catch (IOException e) {
+            logger.debug("yt-dlp stderr closed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.jfposton.ytdlp.YtDlpException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+import ru.aiivar.tg.yt.downloader.service.processor.impl.YtDlpMetadataParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One long-lived yt-dlp worker process speaking the line-delimited JSON protocol of ytdlp_worker.py
+ * A worker runs one job at a time. Job failures reported by yt-dlp leave the worker usable;
+ * process failures raise {@link YtDlpWorkerException} and the worker must be destroyed.
+ */
+public class YtDlpWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpWorker.class);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String EOF = "\u0000EOF";
+    private static final int STDERR_TAIL_LINES = 20;
+    private static final AtomicInteger WORKER_SEQUENCE = new AtomicInteger();
+
+    private final String name;
+    private final Process process;
+    private final Writer stdin;
+    private final Object stdinLock = new Object();
+    private final BlockingQueue<String> stdoutLines = new LinkedBlockingQueue<>();
+    private final Deque<String> stderrTail = new ArrayDeque<>();
+
+    private int requestSequence;
+    private int completedJobs;
+    private volatile boolean broken;
+
+    private YtDlpWorker(String name, Process process) {
+        this.name = name;
+        this.process = process;
+        this.stdin = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Start a worker process and wait until it reports it is ready
+     */
+    public static YtDlpWorker start(List<String> command, Map<String, String> environment,
+                                    long startupTimeoutMs) throws YtDlpWorkerException {
+        String name = "ytdlp-worker-" + WORKER_SEQUENCE.incrementAndGet();
+        Process process;
+        try {
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.environment().putAll(environment);
+            builder.environment().put("PYTHONUNBUFFERED", "1");
+            process = builder.start();
+        } catch (IOException e) {
+            throw new YtDlpWorkerException("Failed to start yt-dlp worker: " + e.getMessage(), e);
+        }
+
+        YtDlpWorker worker = new YtDlpWorker(name, process);
+        worker.startReaders();
+        try {
+            WorkerMessage ready = worker.readMessage(startupTimeoutMs);
+            if (!"ready".equals(ready.event)) {
+                throw new YtDlpWorkerException("Unexpected first message from yt-dlp worker: " + ready.event);
+            }
+            logger.info("Started {} (pid {}, yt-dlp {})", name, process.pid(), ready.version);
+            return worker;
+        } catch (YtDlpWorkerException e) {
+            worker.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Probe video metadata
+     */
+    public synchronized VideoMetadata probe(String url, List<String> args, long timeoutMs)
+            throws YtDlpException, YtDlpWorkerException {
+        WorkerMessage result = runJob("probe", url, args, null, timeoutMs);
+        if (result.info == null) {
+            throw new YtDlpWorkerException("yt-dlp worker returned no metadata");
+        }
+        return result.info;
+    }
+
+    /**
+     * Download a video and return the path of the final file
+     */
+    public synchronized String download(String url, List<String> args, YtDlpProgressListener listener, long timeoutMs)
+            throws YtDlpException, YtDlpWorkerException {
+        return runJob("download", url, args, listener, timeoutMs).filepath;
+    }
+
+    /**
+     * Check that the worker answers within the timeout
+     */
+    public synchronized boolean ping(long timeoutMs) {
+        try {
+            String id = nextRequestId();
+            send(id, "ping", null, null);
+            return "pong".equals(awaitResponse(id, null, timeoutMs).event);
+        } catch (Exception e) {
+            logger.warn("Health check of {} failed: {}", name, e.getMessage());
+            broken = true;
+            return false;
+        }
+    }
+
+    private WorkerMessage runJob(String type, String url, List<String> args, YtDlpProgressListener listener,
+                                 long timeoutMs) throws YtDlpException, YtDlpWorkerException {
+        String id = nextRequestId();
+        try {
+            send(id, type, url, args);
+            WorkerMessage response = awaitResponse(id, listener, timeoutMs);
+            completedJobs++;
+            if ("error".equals(response.event)) {
+                throw new YtDlpException("yt-dlp failed: " + response.message);
+            }
+            return response;
+        } catch (YtDlpWorkerException e) {
+            broken = true;
+            throw e;
+        }
+    }
+
+    private WorkerMessage awaitResponse(String id, YtDlpProgressListener listener, long timeoutMs)
+            throws YtDlpWorkerException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            WorkerMessage message = readMessage(remainingMs);
+            if (!id.equals(message.id)) {
+                logger.debug("{} skipped message for request {}", name, message.id);
+                continue;
+            }
+            if ("progress".equals(message.event)) {
+                if (listener != null) {
+                    float percent = message.totalBytes > 0 ? message.downloadedBytes * 100f / message.totalBytes : -1;
+                    try {
+                        listener.onProgress(percent, message.downloadedBytes, message.totalBytes, message.eta);
+                    } catch (RuntimeException e) {
+                        // The listener aborted the job; the process is still downloading, so it cannot be reused
+                        broken = true;
+                        process.destroyForcibly();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+            return message;
+        }
+    }
+
+    private void send(String id, String type, String url, List<String> args) throws YtDlpWorkerException {
+        try {
+            StringWriter line = new StringWriter();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(line)) {
+                generator.writeStartObject();
+                generator.writeStringField("id", id);
+                generator.writeStringField("type", type);
+                if (url != null) {
+                    generator.writeStringField("url", url);
+                }
+                if (args != null) {
+                    generator.writeArrayFieldStart("args");
+                    for (String arg : args) {
+                        generator.writeString(arg);
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+            writeLine(line.toString());
+        } catch (IOException e) {
+            throw new YtDlpWorkerException("Failed to send request to " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Change the rate limit of the running download (bytes per second, 0 for unlimited)
+     * Not synchronized with jobs, so it can be called while a download is in progress; the worker
+     * applies it to the running download and ignores it between jobs.
+     */
+    public void setRateLimit(long bytesPerSecond) {
+        try {
+            writeLine("{\"type\":\"rate_limit\",\"bytes_per_second\":" + bytesPerSecond + "}");
+        } catch (IOException e) {
+            logger.debug("Failed to change rate limit of {}: {}", name, e.getMessage());
+        }
+    }
+
+    private void writeLine(String line) throws IOException {
+        synchronized (stdinLock) {
+            stdin.write(line);
+            stdin.write('\n');
+            stdin.flush();
+        }
+    }
+
+    private WorkerMessage readMessage(long timeoutMs) throws YtDlpWorkerException {
+        String line;
+        try {
+            line = timeoutMs > 0 ? stdoutLines.poll(timeoutMs, TimeUnit.MILLISECONDS) : stdoutLines.poll();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new YtDlpWorkerException("Interrupted while waiting for " + name, e);
+        }
+        if (line == null) {
+            throw new YtDlpWorkerException(name + " did not respond within " + timeoutMs + " ms");
+        }
+        if (EOF.equals(line)) {
+            stdoutLines.offer(EOF);
+            throw new YtDlpWorkerException(name + " exited unexpectedly: " + getStderrTail());
+        }
+        try {
+            return WorkerMessage.parse(line);
+        } catch (IOException e) {
+            throw new YtDlpWorkerException("Malformed message from " + name + ": " + line, e);
+        }
+    }
+
+    private void startReaders() {
+        Thread stdoutReader = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    stdoutLines.offer(line);
+                }
+            } catch (IOException e) {
+                logger.debug("{} stdout closed: {}", name, e.getMessage());
+            } finally {
+                stdoutLines.offer(EOF);
+            }
+        }, name + "-stdout");
+        stdoutReader.setDaemon(true);
+        stdoutReader.start();
+
+        Thread stderrReader = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.debug("{}: {}", name, line);
+                    synchronized (stderrTail) {
+                        if (stderrTail.size() == STDERR_TAIL_LINES) {
+                            stderrTail.removeFirst();
+                        }
+                        stderrTail.addLast(line);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("{} stderr closed: {}", name, e.getMessage());
+            }
+        }, name + "-stderr");
+        stderrReader.setDaemon(true);
+        stderrReader.start();
+    }
+
+    private String nextRequestId() {
+        return String.valueOf(++requestSequence);
+    }
+
+    private String getStderrTail() {
+        synchronized (stderrTail) {
+            return String.join("\n", stderrTail);
+        }
+    }
+
+    /**
+     * Whether the process is running and has not failed
+     */
+    public boolean isHealthy() {
+        return !broken && process.isAlive();
+    }
+
+    public int getCompletedJobs() {
+        return completedJobs;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Stop the worker process
+     */
+    public void destroy() {
+        broken = true;
+        try {
+            stdin.close();
+        } catch (IOException e) {
+            logger.debug("Error closing stdin of {}", name, e);
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        logger.info("Stopped {} after {} jobs", name, completedJobs);
+    }
+
+    /**
+     * Message from the worker, parsed with a streaming parser so large probe results are not buffered as a tree
+     */
+    private static final class WorkerMessage {
+        private String id;
+        private String event;
+        private String message;
+        private String version;
+        private String filepath;
+        private long downloadedBytes = -1;
+        private long totalBytes = -1;
+        private long eta = -1;
+        private VideoMetadata info;
+
+        static WorkerMessage parse(String line) throws IOException {
+            WorkerMessage message = new WorkerMessage();
+            try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new IOException("Message is not a JSON object");
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    switch (field) {
+                        case "id" -> message.id = parser.getText();
+                        case "event" -> message.event = parser.getText();
+                        case "message" -> message.message = parser.getText();
+                        case "version" -> message.version = parser.getText();
+                        case "filepath" -> message.filepath = parser.getText();
+                        case "downloaded_bytes" -> message.downloadedBytes = parser.getValueAsLong(-1);
+                        case "total_bytes" -> message.totalBytes = parser.getValueAsLong(-1);
+                        case "eta" -> message.eta = parser.getValueAsLong(-1);
+                        case "info" -> message.info = YtDlpMetadataParser.parseObject(parser);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            return message;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import java.io.IOException;
+
+/**
+ * Failure of a yt-dlp worker process itself (crash, timeout, protocol error)
+ * Unlike a failed job, the worker must be discarded and the job may be retried elsewhere.
+ */
+public class YtDlpWorkerException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public YtDlpWorkerException(String message) {
+        super(message);
+    }
+
+    public YtDlpWorkerException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,307 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.aiivar.tg.yt.downloader.config.YtDlpConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of long-lived yt-dlp worker processes
+ * Saves the Python interpreter and extractor start-up on every probe and download. Workers are
+ * health-checked while idle, replaced after a configured number of jobs, and spawning backs off
+ * after failures; callers fall back to one-shot yt-dlp when no worker is available.
+ */
+@Service
+public class YtDlpWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpWorkerPool.class);
+
+    private static final String BUNDLED_WORKER_SCRIPT = "/ytdlp/ytdlp_worker.py";
+    private static final long PING_TIMEOUT_MS = 5000;
+    private static final long MAX_SPAWN_BACKOFF_MS = 60000;
+
+    @Autowired
+    private YtDlpConfiguration ytDlpConfig;
+
+    @Autowired
+    @Qualifier("scheduledTaskExecutor")
+    private Executor scheduledTaskExecutor;
+
+    private final BlockingQueue<YtDlpWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger();
+    private volatile Path workerScript;
+    private volatile boolean shutdown;
+
+    private final AtomicInteger consecutiveSpawnFailures = new AtomicInteger();
+    private volatile long nextSpawnAttemptNanos;
+
+    private final AtomicLong workersStarted = new AtomicLong();
+    private final AtomicLong workersRecycled = new AtomicLong();
+    private final AtomicLong workersDiscarded = new AtomicLong();
+    private final AtomicLong spawnFailures = new AtomicLong();
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+
+    /**
+     * Start workers in the background once the application is ready
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!isEnabled()) {
+            logger.info("yt-dlp worker pool is disabled, using one-shot yt-dlp processes");
+            return;
+        }
+        scheduledTaskExecutor.execute(this::fillPool);
+    }
+
+    public boolean isEnabled() {
+        return ytDlpConfig.isWorkerPoolEnabled() && ytDlpConfig.getWorkerPoolSize() > 0 && !shutdown;
+    }
+
+    /**
+     * Borrow an idle worker, starting one if the pool is not full
+     * Returns null when the pool is disabled or no worker becomes available within the borrow timeout.
+     */
+    public YtDlpWorker borrow() {
+        if (!isEnabled()) {
+            return null;
+        }
+        try {
+            YtDlpWorker worker = idleWorkers.poll();
+            if (worker == null) {
+                worker = spawnIfBelowCapacity();
+            }
+            if (worker == null) {
+                worker = idleWorkers.poll(ytDlpConfig.getWorkerBorrowTimeoutMs(), TimeUnit.MILLISECONDS);
+            }
+            if (worker == null) {
+                borrowTimeouts.incrementAndGet();
+                logger.debug("No yt-dlp worker available within {} ms", ytDlpConfig.getWorkerBorrowTimeoutMs());
+            }
+            return worker;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Return a borrowed worker; broken and worn-out workers are replaced
+     */
+    public void release(YtDlpWorker worker) {
+        if (worker == null) {
+            return;
+        }
+        if (shutdown) {
+            discard(worker);
+            return;
+        }
+        if (!worker.isHealthy()) {
+            logger.warn("Discarding unhealthy {}", worker.getName());
+            workersDiscarded.incrementAndGet();
+            discard(worker);
+            scheduledTaskExecutor.execute(this::fillPool);
+        } else if (worker.getCompletedJobs() >= ytDlpConfig.getMaxJobsPerWorker()) {
+            logger.info("Recycling {} after {} jobs", worker.getName(), worker.getCompletedJobs());
+            workersRecycled.incrementAndGet();
+            discard(worker);
+            scheduledTaskExecutor.execute(this::fillPool);
+        } else {
+            idleWorkers.offer(worker);
+        }
+    }
+
+    /**
+     * Ping idle workers and replace the ones that do not answer
+     */
+    @Scheduled(fixedDelayString = "${video.ytdlp.health-check-interval-ms:60000}")
+    public void checkIdleWorkers() {
+        if (!isEnabled() || liveWorkers.get() == 0) {
+            return;
+        }
+        List<YtDlpWorker> workers = new ArrayList<>();
+        idleWorkers.drainTo(workers);
+        for (YtDlpWorker worker : workers) {
+            if (worker.ping(PING_TIMEOUT_MS)) {
+                idleWorkers.offer(worker);
+            } else {
+                workersDiscarded.incrementAndGet();
+                discard(worker);
+            }
+        }
+        fillPool();
+    }
+
+    /**
+     * Start workers until the pool is full or a start fails
+     */
+    public void fillPool() {
+        YtDlpWorker worker;
+        while ((worker = spawnIfBelowCapacity()) != null) {
+            if (shutdown) {
+                discard(worker);
+                return;
+            }
+            idleWorkers.offer(worker);
+        }
+    }
+
+    private YtDlpWorker spawnIfBelowCapacity() {
+        if (shutdown || System.nanoTime() - nextSpawnAttemptNanos < 0) {
+            return null;
+        }
+        int live;
+        do {
+            live = liveWorkers.get();
+            if (live >= ytDlpConfig.getWorkerPoolSize()) {
+                return null;
+            }
+        } while (!liveWorkers.compareAndSet(live, live + 1));
+
+        try {
+            YtDlpWorker worker = YtDlpWorker.start(buildCommand(), ytDlpConfig.getWorkerEnvironment(),
+                    TimeUnit.SECONDS.toMillis(ytDlpConfig.getWorkerStartupTimeoutSeconds()));
+            workersStarted.incrementAndGet();
+            consecutiveSpawnFailures.set(0);
+            return worker;
+        } catch (IOException e) {
+            liveWorkers.decrementAndGet();
+            spawnFailures.incrementAndGet();
+            int failures = consecutiveSpawnFailures.incrementAndGet();
+            long backoffMs = Math.min(MAX_SPAWN_BACKOFF_MS, 1000L << Math.min(failures - 1, 16));
+            nextSpawnAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMs);
+            logger.warn("Failed to start yt-dlp worker ({} consecutive failures, retrying in {} ms): {}",
+                    failures, backoffMs, e.getMessage());
+            return null;
+        }
+    }
+
+    private void discard(YtDlpWorker worker) {
+        liveWorkers.decrementAndGet();
+        worker.destroy();
+    }
+
+    private List<String> buildCommand() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ytDlpConfig.getPythonCommand());
+        command.add(resolveWorkerScript().toString());
+        return command;
+    }
+
+    private Path resolveWorkerScript() throws IOException {
+        String configured = ytDlpConfig.getWorkerScript();
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured);
+        }
+        if (workerScript == null) {
+            synchronized (this) {
+                if (workerScript == null) {
+                    workerScript = extractBundledScript();
+                }
+            }
+        }
+        return workerScript;
+    }
+
+    private Path extractBundledScript() throws IOException {
+        try (InputStream script = YtDlpWorkerPool.class.getResourceAsStream(BUNDLED_WORKER_SCRIPT)) {
+            if (script == null) {
+                throw new IOException("Bundled worker script not found: " + BUNDLED_WORKER_SCRIPT);
+            }
+            Path path = Files.createTempFile("ytdlp_worker", ".py");
+            Files.copy(script, path, StandardCopyOption.REPLACE_EXISTING);
+            path.toFile().deleteOnExit();
+            logger.info("Extracted yt-dlp worker script to {}", path);
+            return path;
+        }
+    }
+
+    /**
+     * Stop all idle workers; busy workers are stopped when they are released
+     */
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        List<YtDlpWorker> workers = new ArrayList<>();
+        idleWorkers.drainTo(workers);
+        workers.forEach(this::discard);
+        if (!workers.isEmpty()) {
+            logger.info("Stopped {} idle yt-dlp workers", workers.size());
+        }
+    }
+
+    void setYtDlpConfig(YtDlpConfiguration ytDlpConfig) {
+        this.ytDlpConfig = ytDlpConfig;
+    }
+
+    void setScheduledTaskExecutor(Executor scheduledTaskExecutor) {
+        this.scheduledTaskExecutor = scheduledTaskExecutor;
+    }
+
+    /**
+     * Get worker pool statistics
+     */
+    public PoolStatistics getStatistics() {
+        return new PoolStatistics(isEnabled(), ytDlpConfig.getWorkerPoolSize(), liveWorkers.get(), idleWorkers.size(),
+                workersStarted.get(), workersRecycled.get(), workersDiscarded.get(), spawnFailures.get(),
+                borrowTimeouts.get());
+    }
+
+    /**
+     * Worker pool statistics inner class
+     */
+    public static class PoolStatistics {
+        private final boolean enabled;
+        private final int poolSize;
+        private final int liveWorkers;
+        private final int idleWorkers;
+        private final long workersStarted;
+        private final long workersRecycled;
+        private final long workersDiscarded;
+        private final long spawnFailures;
+        private final long borrowTimeouts;
+
+        public PoolStatistics(boolean enabled, int poolSize, int liveWorkers, int idleWorkers, long workersStarted,
+                              long workersRecycled, long workersDiscarded, long spawnFailures, long borrowTimeouts) {
+            this.enabled = enabled;
+            this.poolSize = poolSize;
+            this.liveWorkers = liveWorkers;
+            this.idleWorkers = idleWorkers;
+            this.workersStarted = workersStarted;
+            this.workersRecycled = workersRecycled;
+            this.workersDiscarded = workersDiscarded;
+            this.spawnFailures = spawnFailures;
+            this.borrowTimeouts = borrowTimeouts;
+        }
+
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public int getPoolSize() { return poolSize; }
+        public int getLiveWorkers() { return liveWorkers; }
+        public int getIdleWorkers() { return idleWorkers; }
+        public long getWorkersStarted() { return workersStarted; }
+        public long getWorkersRecycled() { return workersRecycled; }
+        public long getWorkersDiscarded() { return workersDiscarded; }
+        public long getSpawnFailures() { return spawnFailures; }
+        public long getBorrowTimeouts() { return borrowTimeouts; }
+    }
+}
@@ -0,0 +1,171 @@
+#!/usr/bin/env python3
+"""Long-lived yt-dlp worker.
+
+Protocol (one JSON object per line):
+  stdin  <- {"id": "1", "type": "probe" | "download" | "ping", "url": "...", "args": ["--format", "best", ...]}
+  stdout -> {"event": "ready", "version": "..."}                        once, after yt_dlp is imported
+            {"id": "1", "event": "progress", "downloaded_bytes": ..., "total_bytes": ..., "eta": ..., "speed": ...}
+            {"id": "1", "event": "result", "filepath": "..."}             download finished
+            {"id": "1", "event": "result", "info": {...}}                 probe finished (same fields as --dump-json)
+            {"id": "1", "event": "error", "kind": "download" | "max_filesize" | "internal", "message": "..."}
+            {"id": "1", "event": "pong", "jobs": 3}
+  stdin  <- {"type": "rate_limit", "bytes_per_second": 1048576}          no reply; 0 removes the limit
+
+Rate limit changes apply to the download in progress (they are read from stdin by a separate thread).
+
+"args" are regular yt-dlp command line options and are translated with yt_dlp.parse_options.
+Everything yt-dlp prints goes to stderr; stdout carries protocol messages only.
+"""
+import json
+import os
+import queue
+import sys
+import threading
+import time
+
+PROTOCOL_OUT = os.fdopen(os.dup(1), "w", buffering=1, encoding="utf-8")
+os.dup2(2, 1)
+sys.stdout = sys.stderr
+
+import yt_dlp  # noqa: E402  (imported after stdout is redirected)
+from yt_dlp.utils import DownloadError  # noqa: E402
+
+PROGRESS_INTERVAL_SECONDS = 0.5
+
+
+# YoutubeDL of the running download; its params are read by the downloader while it runs
+ACTIVE = {"ydl": None}
+
+
+def emit(message):
+    PROTOCOL_OUT.write(json.dumps(message, ensure_ascii=False, separators=(",", ":")) + "\n")
+    PROTOCOL_OUT.flush()
+
+
+class StderrLogger:
+    def __init__(self):
+        self.max_filesize_exceeded = False
+
+    def debug(self, msg):
+        # yt-dlp skips the download with an informational message and no error
+        if "larger than max-filesize" in msg:
+            self.max_filesize_exceeded = True
+        print(msg, file=sys.stderr)
+
+    def info(self, msg):
+        self.debug(msg)
+
+    def warning(self, msg):
+        print("WARNING: " + msg, file=sys.stderr)
+
+    def error(self, msg):
+        print(msg, file=sys.stderr)
+
+
+def build_options(request):
+    options = dict(yt_dlp.parse_options(request.get("args", [])).ydl_opts)
+    options.update(quiet=True, noprogress=True, logger=StderrLogger())
+    return options
+
+
+def probe(request):
+    with yt_dlp.YoutubeDL(build_options(request)) as ydl:
+        info = ydl.extract_info(request["url"], download=False)
+        emit({"id": request["id"], "event": "result", "info": ydl.sanitize_info(info)})
+
+
+def download(request):
+    request_id = request["id"]
+    last_emit = [0.0]
+
+    def progress_hook(status):
+        if status.get("status") != "downloading":
+            return
+        now = time.monotonic()
+        if now - last_emit[0] < PROGRESS_INTERVAL_SECONDS:
+            return
+        last_emit[0] = now
+        emit({
+            "id": request_id,
+            "event": "progress",
+            "downloaded_bytes": status.get("downloaded_bytes"),
+            "total_bytes": status.get("total_bytes") or status.get("total_bytes_estimate"),
+            "eta": status.get("eta"),
+            "speed": status.get("speed"),
+        })
+
+    # Called with the final path once post-processing has moved the file into place (after_move)
+    final_paths = []
+
+    options = build_options(request)
+    options["progress_hooks"] = [progress_hook]
+    options["post_hooks"] = [final_paths.append]
+    with yt_dlp.YoutubeDL(options) as ydl:
+        ACTIVE["ydl"] = ydl
+        try:
+            info = ydl.extract_info(request["url"], download=True)
+        finally:
+            ACTIVE["ydl"] = None
+        if options["logger"].max_filesize_exceeded:
+            emit({"id": request_id, "event": "error", "kind": "max_filesize",
+                  "message": "File is larger than max-filesize"})
+            return
+        downloads = info.get("requested_downloads") or []
+        filepath = final_paths[-1] if final_paths else downloads[-1].get("filepath") if downloads else None
+        emit({"id": request_id, "event": "result", "filepath": filepath})
+
+
+def apply_rate_limit(bytes_per_second):
+    ydl = ACTIVE["ydl"]
+    if ydl is not None:
+        ydl.params["ratelimit"] = bytes_per_second or None
+
+
+def read_requests(requests):
+    for line in sys.stdin:
+        line = line.strip()
+        if not line:
+            continue
+        try:
+            request = json.loads(line)
+        except ValueError as e:
+            request = {"type": "invalid", "error": str(e)}
+        if request.get("type") == "rate_limit":
+            apply_rate_limit(request.get("bytes_per_second"))
+            continue
+        requests.put(request)
+    requests.put(None)
+
+
+def main():
+    jobs = 0
+    requests = queue.Queue()
+    threading.Thread(target=read_requests, args=(requests,), daemon=True).start()
+    emit({"event": "ready", "version": yt_dlp.version.__version__, "pid": os.getpid()})
+    while True:
+        request = requests.get()
+        if request is None:
+            break
+        try:
+            request_type = request.get("type")
+            if request_type == "invalid":
+                raise ValueError(request.get("error"))
+            if request_type == "ping":
+                emit({"id": request.get("id"), "event": "pong", "jobs": jobs})
+                continue
+            jobs += 1
+            if request_type == "probe":
+                probe(request)
+            elif request_type == "download":
+                download(request)
+            else:
+                raise ValueError("Unknown request type: %s" % request_type)
+        except DownloadError as e:
+            emit({"id": request.get("id"), "event": "error", "kind": "download", "message": str(e)})
+        except Exception as e:  # keep the worker alive for the next job
+            emit({"id": request.get("id"), "event": "error", "kind": "internal",
+                  "message": "%s: %s" % (type(e).__name__, e)})
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,88 @@
+package ru.aiivar.tg.yt.downloader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.aiivar.tg.yt.downloader.config.DirectHttpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.RangedHttpDownloader;
+import ru.aiivar.tg.yt.downloader.service.download.StubMediaServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares direct link downloads split into different numbers of parallel range requests
+ * Serves the file from a local stub server that limits each connection to perConnectionKBps,
+ * like CDNs that throttle single connections, so no network access is needed.
+ * Run with: java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main DirectHttpDownloadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class DirectHttpDownloadBenchmark {
+
+    private static final int SIZE = 4 * 1024 * 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int segments;
+
+    @Param({"8192"})
+    public int perConnectionKBps;
+
+    private StubMediaServer server;
+    private RangedHttpDownloader downloader;
+    private RangedHttpDownloader.RemoteFile remote;
+    private Path target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] content = new byte[SIZE];
+        new Random(1).nextBytes(content);
+        server = new StubMediaServer(content);
+        server.setBytesPerSecondPerConnection(perConnectionKBps * 1024L);
+
+        DirectHttpConfiguration config = new DirectHttpConfiguration();
+        config.setMinSegmentSizeKB(256);
+        config.setAllowPrivateAddresses(true);
+        downloader = new RangedHttpDownloader();
+        ReflectionTestUtils.setField(downloader, "directHttpConfig", config);
+        downloader.init();
+        remote = downloader.probe(server.uri("/media/clip.mp4"));
+        target = Files.createTempFile("direct-http-benchmark", ".mp4");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        downloader.shutdown();
+        server.close();
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public Path download() throws Exception {
+        return downloader.download(remote, target, segments, 0, 0, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DirectHttpDownloadBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package ru.aiivar.tg.yt.downloader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.aiivar.tg.yt.downloader.service.processor.impl.YouTubeUrlCanonicalizer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the in-place YouTube URL parser with a regex-based extraction
+ * Run with: java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main YouTubeUrlCanonicalizerBenchmark
+ * or launch {@link #main(String[])} from the IDE. Add -prof gc to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YouTubeUrlCanonicalizerBenchmark {
+
+    private static final Pattern REGEX = Pattern.compile(
+            "(?:youtube(?:-nocookie)?\\.com/(?:watch\\?(?:.*&)?v=|shorts/|embed/|v/|live/)|youtu\\.be/)([A-Za-z0-9_-]{11})");
+
+    @Param({
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "https://youtu.be/dQw4w9WgXcQ?si=AbCdEfGh123&t=42",
+            "https://m.youtube.com/watch?feature=share&pp=ygUJcmljayByb2xs&v=dQw4w9WgXcQ&t=30",
+            "https://www.youtube.com/shorts/dQw4w9WgXcQ"
+    })
+    public String url;
+
+    private final YouTubeUrlCanonicalizer canonicalizer = new YouTubeUrlCanonicalizer();
+
+    @Benchmark
+    public String inPlaceParser() {
+        return canonicalizer.canonicalize(url);
+    }
+
+    @Benchmark
+    public String regex() {
+        Matcher matcher = REGEX.matcher(url.toLowerCase());
+        return matcher.find() ? "youtube:" + url.substring(matcher.start(1), matcher.end(1)) : null;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(YouTubeUrlCanonicalizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
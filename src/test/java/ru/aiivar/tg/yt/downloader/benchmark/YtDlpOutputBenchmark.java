@@ -0,0 +1,95 @@
+package ru.aiivar.tg.yt.downloader.benchmark;
+
+import com.jfposton.ytdlp.utils.StreamProcessExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.DownloadProgress;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpOutputReader;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the output of a long download through yt-dlp-java's extractor with the bounded reader
+ * The extractor path is what YtDlp.execute does: it keeps all output in a StringBuilder, builds a String
+ * per line, matches it with a regex and hands it to the line callback (logger::debug). Run with
+ * "-prof gc" to compare allocation per operation.
+ * Run with: java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main YtDlpOutputBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class YtDlpOutputBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(YtDlpOutputBenchmark.class);
+
+    @Param({"10000", "100000"})
+    public int progressLines;
+
+    private byte[] defaultOutput;
+    private byte[] templateOutput;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long total = 512L * 1024 * 1024;
+        StringBuilder defaultLines = new StringBuilder();
+        StringBuilder templateLines = new StringBuilder();
+        for (int i = 1; i <= progressLines; i++) {
+            long downloaded = total * i / progressLines;
+            int eta = progressLines - i;
+            defaultLines.append(String.format(Locale.ROOT, "[download] %5.1f%% of ~ 512.00MiB at    8.00MiB/s ETA %02d:%02d (frag %d/%d)%n",
+                    downloaded * 100.0 / total, eta / 60 % 60, eta % 60, i, progressLines));
+            templateLines.append("tgyt-progress ").append(downloaded).append(" NA ").append(total).append(".0 ").append(eta).append('\n');
+        }
+        defaultLines.append("/tmp/dQw4w9WgXcQ.mp4\n");
+        templateLines.append("/tmp/dQw4w9WgXcQ.mp4\n");
+        defaultOutput = defaultLines.toString().getBytes(StandardCharsets.UTF_8);
+        templateOutput = templateLines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void libraryExtractor(Blackhole blackhole) throws Exception {
+        StringBuilder out = new StringBuilder();
+        StreamProcessExtractor extractor = new StreamProcessExtractor(out, new ByteArrayInputStream(defaultOutput),
+                (progress, eta) -> blackhole.consume(progress), logger::debug);
+        extractor.join();
+        blackhole.consume(out.length());
+    }
+
+    @Benchmark
+    public void boundedReader(Blackhole blackhole) throws Exception {
+        DownloadProgress progress = new DownloadProgress();
+        YtDlpOutputReader reader = new YtDlpOutputReader(progress, 16 * 1024);
+        reader.read(new ByteArrayInputStream(templateOutput));
+        blackhole.consume(progress.getDownloadedBytes());
+        blackhole.consume(reader.getOutputTail().getTotalBytes());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(YtDlpOutputBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
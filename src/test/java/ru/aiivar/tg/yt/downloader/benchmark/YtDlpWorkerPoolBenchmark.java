@@ -0,0 +1,109 @@
+package ru.aiivar.tg.yt.downloader.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.aiivar.tg.yt.downloader.config.BandwidthConfiguration;
+import ru.aiivar.tg.yt.downloader.config.YtDlpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpExecutor;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpWorker;
+import ru.aiivar.tg.yt.downloader.service.ytdlp.YtDlpWorkerPool;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares probes on pooled workers with starting a worker process per probe
+ * Uses the stub worker from test resources, so neither yt-dlp nor network access is needed;
+ * startupMs simulates the interpreter and extractor import cost of a real yt-dlp process.
+ * Run with: java -cp target/test-classes:target/classes:&lt;test classpath&gt; org.openjdk.jmh.Main YtDlpWorkerPoolBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class YtDlpWorkerPoolBenchmark {
+
+    private static final String URL = "https://www.youtube.com/watch?v=dQw4w9WgXcQ";
+
+    @Param({"0", "300"})
+    public int startupMs;
+
+    private YtDlpConfiguration config;
+    private YtDlpWorkerPool pool;
+    private YtDlpExecutor executor;
+    private List<String> command;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String script = Path.of(YtDlpWorkerPoolBenchmark.class.getResource("/ytdlp/stub_ytdlp_worker.py").toURI()).toString();
+        config = new YtDlpConfiguration();
+        config.setWorkerPoolSize(1);
+        config.setMaxJobsPerWorker(Integer.MAX_VALUE);
+        config.setWorkerScript(script);
+        config.getWorkerEnvironment().put("STUB_STARTUP_MS", String.valueOf(startupMs));
+        pool = new YtDlpWorkerPool();
+        ReflectionTestUtils.setField(pool, "ytDlpConfig", config);
+        ReflectionTestUtils.setField(pool, "scheduledTaskExecutor", (Executor) Runnable::run);
+        pool.fillPool();
+        executor = new YtDlpExecutor();
+        ReflectionTestUtils.setField(executor, "ytDlpConfig", config);
+        ReflectionTestUtils.setField(executor, "workerPool", pool);
+        ReflectionTestUtils.setField(executor, "bandwidthGovernor", bandwidthGovernor());
+        command = List.of(config.getPythonCommand(), script);
+    }
+
+    private static BandwidthGovernor bandwidthGovernor() {
+        BandwidthGovernor governor = new BandwidthGovernor();
+        ReflectionTestUtils.setField(governor, "bandwidthConfig", new BandwidthConfiguration());
+        governor.init();
+        return governor;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public VideoMetadata pooledWorker() throws Exception {
+        return executor.probe(URL);
+    }
+
+    @Benchmark
+    public VideoMetadata processPerCall() throws Exception {
+        YtDlpWorker worker = YtDlpWorker.start(command, Map.of("STUB_STARTUP_MS", String.valueOf(startupMs)), 10000);
+        try {
+            return worker.probe(URL, List.of("--no-playlist"), 10000);
+        } finally {
+            worker.destroy();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(YtDlpWorkerPoolBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
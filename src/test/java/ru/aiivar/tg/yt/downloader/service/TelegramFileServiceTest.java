@@ -0,0 +1,98 @@
+package ru.aiivar.tg.yt.downloader.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class TelegramFileServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private TelegramFileService service;
+    private MockRestServiceServer telegram;
+
+    @BeforeEach
+    void setUp() {
+        BandwidthGovernor bandwidthGovernor = mock(BandwidthGovernor.class);
+        when(bandwidthGovernor.throttleUpload(any())).thenAnswer(invocation -> invocation.<InputStream>getArgument(0));
+
+        service = new TelegramFileService();
+        ReflectionTestUtils.setField(service, "botToken", "token");
+        ReflectionTestUtils.setField(service, "chatId", "42");
+        ReflectionTestUtils.setField(service, "bandwidthGovernor", bandwidthGovernor);
+        telegram = MockRestServiceServer.bindTo((RestTemplate) ReflectionTestUtils.getField(service, "restTemplate")).build();
+    }
+
+    @Test
+    void readsTheFileIdOfTheSentMedia() throws Exception {
+        File file = Files.write(dir.resolve("track.m4a"), new byte[]{1, 2, 3}).toFile();
+        telegram.expect(requestTo("https://api.telegram.org/bottoken/sendAudio"))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"ok\":true,\"result\":{\"audio\":{\"file_id\":\"audio-1\"}}}",
+                        MediaType.APPLICATION_JSON));
+        telegram.expect(requestTo("https://api.telegram.org/bottoken/sendVideo"))
+                .andRespond(withSuccess("{\"ok\":true,\"result\":{\"video\":{\"file_id\":\"video-1\"}}}",
+                        MediaType.APPLICATION_JSON));
+
+        assertThat(service.uploadAudioToTelegram(file, "track.m4a", null, "Track", 3L, null)).isEqualTo("audio-1");
+        assertThat(service.uploadVideoToTelegram(file, "clip.mp4", "caption", null)).isEqualTo("video-1");
+        telegram.verify();
+    }
+
+    @Test
+    void readsTheFileIdOfAStreamedVideo() throws Exception {
+        telegram.expect(requestTo("https://api.telegram.org/bottoken/sendVideo"))
+                .andExpect(content().string(containsString("streamed bytes")))
+                .andRespond(withSuccess("{\"ok\":true,\"result\":{\"video\":{\"file_id\":\"video-2\"}}}",
+                        MediaType.APPLICATION_JSON));
+
+        InputStream in = new ByteArrayInputStream("streamed bytes".getBytes(StandardCharsets.UTF_8));
+        assertThat(service.uploadVideoStreamToTelegram(in, "clip.mp4", null, 4)).isEqualTo("video-2");
+        telegram.verify();
+    }
+
+    @Test
+    void reportsTelegramErrorsAndMissingMedia() throws Exception {
+        File file = Files.write(dir.resolve("clip.mp4"), new byte[]{1, 2, 3}).toFile();
+        telegram.expect(requestTo("https://api.telegram.org/bottoken/sendAudio"))
+                .andRespond(withSuccess("{\"ok\":false,\"description\":\"Bad Request: wrong file identifier\"}",
+                        MediaType.APPLICATION_JSON));
+        // Telegram sent the file as a document instead of a video
+        telegram.expect(requestTo("https://api.telegram.org/bottoken/sendVideo"))
+                .andRespond(withSuccess("{\"ok\":true,\"result\":{\"document\":{\"file_id\":\"doc-1\"}}}",
+                        MediaType.APPLICATION_JSON));
+
+        assertThatThrownBy(() -> service.sendAudioByFileIdToChat("audio-1", "7"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("wrong file identifier");
+        assertThatThrownBy(() -> service.uploadVideoToTelegram(file, "clip.mp4", null, null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("no video file_id");
+    }
+}
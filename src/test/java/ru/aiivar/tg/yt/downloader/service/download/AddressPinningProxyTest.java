@@ -0,0 +1,111 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AddressPinningProxyTest {
+
+    private ServerSocket upstream;
+    private AddressPinningProxy proxy;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        upstream = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread.ofVirtual().start(() -> {
+            try (Socket socket = upstream.accept()) {
+                socket.getOutputStream().write("hello".getBytes(StandardCharsets.US_ASCII));
+            } catch (IOException ignored) {
+                // The test closed the server
+            }
+        });
+        proxy = new AddressPinningProxy(true, 2000, host -> new InetAddress[]{InetAddress.getLoopbackAddress()});
+        proxy.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        proxy.close();
+        upstream.close();
+    }
+
+    @Test
+    void tunnelsHttpsOnlyToPinnedHosts() throws Exception {
+        URI uri = URI.create("https://media.test:" + upstream.getLocalPort() + "/clip.mp4");
+        assertThat(connect(uri)).isEqualTo("HTTP/1.1 403 Forbidden");
+
+        try (AddressPinningProxy.Pin pin = proxy.pin(uri, null)) {
+            assertThat(pin.getAddress()).isEqualTo(InetAddress.getLoopbackAddress());
+            assertThat(connect(uri)).isEqualTo("HTTP/1.1 200 Connection Established hello");
+        }
+        assertThat(connect(uri)).isEqualTo("HTTP/1.1 403 Forbidden");
+    }
+
+    @Test
+    void sendsPlainHttpToThePinnedAddress() throws Exception {
+        URI uri = URI.create("http://media.test:8080/clip.mp4");
+        try (AddressPinningProxy.Pin pin = proxy.pin(uri, null)) {
+            Proxy selected = proxy.select(uri).get(0);
+            assertThat(selected.address()).isEqualTo(new InetSocketAddress(InetAddress.getLoopbackAddress(), 8080));
+        }
+    }
+
+    @Test
+    void refusesHostsResolvingToNonPublicAddresses() throws Exception {
+        AddressPinningProxy strict = new AddressPinningProxy(false, 2000,
+                host -> new InetAddress[]{InetAddress.getByName("93.184.216.34"), InetAddress.getByName("10.0.0.1")});
+        assertThatThrownBy(() -> strict.pin(URI.create("https://media.test/clip.mp4"), null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("10.0.0.1");
+        assertThatThrownBy(() -> strict.pin(URI.create("https://media.test/clip.mp4"), InetAddress.getByName("169.254.169.254")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("non-public address");
+        assertThatThrownBy(() -> strict.pin(URI.create("file:///etc/passwd"), null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Not an HTTP(S) link");
+    }
+
+    /**
+     * Send a CONNECT for the link's host through the tunnel and return the status line and anything relayed
+     */
+    private String connect(URI uri) throws IOException {
+        InetSocketAddress tunnel = (InetSocketAddress) proxy.select(uri).get(0).address();
+        try (Socket socket = new Socket(tunnel.getAddress(), tunnel.getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            String authority = uri.getHost() + ":" + uri.getPort();
+            out.write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            String status = in.readLine();
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty()) {
+                // Skip the remaining headers
+            }
+            StringBuilder relayed = new StringBuilder();
+            if (status.contains(" 200 ")) {
+                int c;
+                while ((c = in.read()) >= 0) {
+                    relayed.append((char) c);
+                }
+            }
+            return relayed.isEmpty() ? status : status + " " + relayed;
+        }
+    }
+}
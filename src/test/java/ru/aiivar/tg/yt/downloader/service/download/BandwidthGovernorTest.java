@@ -0,0 +1,140 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.config.BandwidthConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor.DownloadShare;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BandwidthGovernorTest {
+
+    private static BandwidthGovernor governor(BandwidthConfiguration config) {
+        BandwidthGovernor governor = new BandwidthGovernor();
+        governor.setBandwidthConfig(config);
+        governor.init();
+        return governor;
+    }
+
+    private static DownloadShare acquire(BandwidthGovernor governor) {
+        try {
+            return governor.acquireDownloadShare(rate -> { });
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void splitsDownloadBudgetBetweenRunningDownloads() throws Exception {
+        BandwidthConfiguration config = new BandwidthConfiguration();
+        config.setDownloadLimitKBps(1024);
+        config.setMinDownloadShareKBps(64);
+        BandwidthGovernor governor = governor(config);
+        List<Long> firstRates = new ArrayList<>();
+
+        DownloadShare first = governor.acquireDownloadShare(firstRates::add);
+        assertThat(first.getRateBytesPerSecond()).isEqualTo(1024 * 1024);
+
+        DownloadShare second = governor.acquireDownloadShare(rate -> { });
+        assertThat(first.getRateBytesPerSecond()).isEqualTo(512 * 1024);
+        assertThat(second.getRateBytesPerSecond()).isEqualTo(512 * 1024);
+
+        second.close();
+        assertThat(first.getRateBytesPerSecond()).isEqualTo(1024 * 1024);
+        assertThat(firstRates).containsExactly(512 * 1024L, 1024 * 1024L);
+        first.close();
+        assertThat(governor.getStatistics().getActiveDownloads()).isZero();
+    }
+
+    @Test
+    void queuesDownloadsThatWouldGetLessThanTheMinimumShare() throws Exception {
+        BandwidthConfiguration config = new BandwidthConfiguration();
+        config.setDownloadLimitKBps(100);
+        config.setMinDownloadShareKBps(64);
+        BandwidthGovernor governor = governor(config);
+
+        DownloadShare first = governor.acquireDownloadShare(rate -> { });
+        CompletableFuture<DownloadShare> second = CompletableFuture.supplyAsync(() -> acquire(governor));
+        while (governor.getStatistics().getWaitingDownloads() == 0) {
+            Thread.sleep(10);
+        }
+        assertThat(second).isNotDone();
+        assertThat(first.getRateBytesPerSecond()).isEqualTo(100 * 1024);
+
+        first.close();
+        assertThat(second.get(5, TimeUnit.SECONDS).getRateBytesPerSecond()).isEqualTo(100 * 1024);
+        assertThat(governor.getStatistics().getWaitingDownloads()).isZero();
+    }
+
+    @Test
+    void keepsAllSharesWithinTheBudget() throws Exception {
+        BandwidthConfiguration config = new BandwidthConfiguration();
+        config.setDownloadLimitKBps(1000);
+        config.setMinDownloadShareKBps(64);
+        BandwidthGovernor governor = governor(config);
+        List<DownloadShare> shares = new ArrayList<>();
+
+        shares.add(governor.acquireDownloadShare(rate -> { }));
+        DownloadShare fixed = governor.acquireFixedDownloadShare();
+        shares.add(fixed);
+        assertThat(fixed.getRateBytesPerSecond()).isEqualTo(500 * 1024);
+        for (int i = 0; i < 4; i++) {
+            shares.add(i % 2 == 0 ? governor.acquireDownloadShare(rate -> { }) : governor.acquireFixedDownloadShare());
+            assertThat(shares.stream().mapToLong(DownloadShare::getRateBytesPerSecond).sum()).isLessThanOrEqualTo(1000 * 1024);
+        }
+
+        // A fixed download keeps its rate while the others are rebalanced around it
+        assertThat(fixed.getRateBytesPerSecond()).isEqualTo(500 * 1024);
+        assertThat(shares).allSatisfy(share -> assertThat(share.getRateBytesPerSecond()).isGreaterThanOrEqualTo(64 * 1024));
+        shares.remove(0).close();
+        assertThat(shares.stream().mapToLong(DownloadShare::getRateBytesPerSecond).sum()).isLessThanOrEqualTo(1000 * 1024);
+    }
+
+    @Test
+    void callsRateListenersWithoutHoldingTheGovernor() throws Exception {
+        BandwidthConfiguration config = new BandwidthConfiguration();
+        config.setDownloadLimitKBps(1024);
+        config.setMinDownloadShareKBps(64);
+        BandwidthGovernor governor = governor(config);
+        List<Long> firstRates = new CopyOnWriteArrayList<>();
+
+        // A listener blocked on a download starting elsewhere, as a worker writing to a full stdin pipe would be
+        governor.acquireDownloadShare(rate -> {
+            firstRates.add(rate);
+            if (firstRates.size() == 1) {
+                CompletableFuture.supplyAsync(() -> acquire(governor))
+                        .orTimeout(5, TimeUnit.SECONDS)
+                        .join();
+            }
+        });
+        governor.acquireDownloadShare(rate -> { });
+
+        assertThat(governor.getStatistics().getActiveDownloads()).isEqualTo(3);
+        assertThat(firstRates).containsExactly(512 * 1024L, 1024 * 1024L / 3);
+    }
+
+    @Test
+    void throttlesUploadsToTheUploadBudget() throws Exception {
+        BandwidthConfiguration config = new BandwidthConfiguration();
+        config.setUploadLimitKBps(64);
+        BandwidthGovernor governor = governor(config);
+        byte[] data = new byte[96 * 1024];
+
+        long start = System.nanoTime();
+        try (InputStream in = governor.throttleUpload(new ByteArrayInputStream(data))) {
+            assertThat(in.readAllBytes()).hasSize(data.length);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // The first second of budget is available at once, the remaining 32 KB take half a second
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(400);
+        assertThat(governor.getStatistics().getActiveUploads()).isZero();
+    }
+}
@@ -0,0 +1,67 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPipeTest {
+
+    @Test
+    void transfersMoreThanItsCapacityIntact() throws Exception {
+        byte[] data = new byte[1_000_000];
+        new Random(42).nextBytes(data);
+        BoundedPipe pipe = new BoundedPipe(4096);
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                for (int offset = 0; offset < data.length; offset += 3000) {
+                    pipe.getSink().write(data, offset, Math.min(3000, data.length - offset));
+                }
+                pipe.finish();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        byte[] received = pipe.getSource().readAllBytes();
+
+        writer.get(5, TimeUnit.SECONDS);
+        assertThat(received).isEqualTo(data);
+        assertThat(pipe.getBytesTransferred()).isEqualTo(data.length);
+    }
+
+    @Test
+    void readerGetsFailureInsteadOfEndOfStream() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(1024);
+        pipe.getSink().write(new byte[100]);
+        pipe.fail(new IOException("yt-dlp failed"));
+
+        InputStream source = pipe.getSource();
+        assertThat(source.read(new byte[1024])).isEqualTo(100);
+        assertThatThrownBy(source::read).isInstanceOf(IOException.class).hasMessage("yt-dlp failed");
+    }
+
+    @Test
+    void closingReaderUnblocksWriter() throws Exception {
+        BoundedPipe pipe = new BoundedPipe(16);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            try {
+                pipe.getSink().write(new byte[64]);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        pipe.closeSource();
+
+        assertThatThrownBy(() -> writer.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("Pipe closed by reader");
+    }
+}
@@ -0,0 +1,66 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.config.DownloadAcceleratorConfiguration;
+import ru.aiivar.tg.yt.downloader.config.DownloadAcceleratorConfiguration.AcceleratorSettings;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadAcceleratorTest {
+
+    private static DownloadAccelerator accelerator(DownloadAcceleratorConfiguration config) {
+        DownloadAccelerator accelerator = new DownloadAccelerator();
+        accelerator.setAcceleratorConfig(config);
+        accelerator.init();
+        return accelerator;
+    }
+
+    @Test
+    void sourceOverridesInheritUnsetDefaults() {
+        DownloadAcceleratorConfiguration config = new DownloadAcceleratorConfiguration();
+        config.getSources().put(SourceType.YOUTUBE, new AcceleratorSettings(null, null, "aria2c", "-x {connections} -s {connections}"));
+        DownloadAccelerator accelerator = accelerator(config);
+
+        AcceleratorSettings settings = accelerator.getSettings(SourceType.YOUTUBE);
+
+        assertThat(settings.getConcurrentFragments()).isEqualTo(4);
+        assertThat(settings.getHttpChunkSize()).isEqualTo("10M");
+        assertThat(settings.getExternalDownloader()).isEqualTo("aria2c");
+    }
+
+    @Test
+    void leasesShareGlobalConnectionBudget() throws Exception {
+        DownloadAcceleratorConfiguration config = new DownloadAcceleratorConfiguration();
+        config.setMaxTotalConnections(6);
+        DownloadAccelerator accelerator = accelerator(config);
+
+        DownloadAccelerator.ConnectionLease first = accelerator.acquire(SourceType.YOUTUBE);
+        DownloadAccelerator.ConnectionLease second = accelerator.acquire(SourceType.YOUTUBE);
+
+        assertThat(first.getConnections()).isEqualTo(4);
+        assertThat(second.getConnections()).isEqualTo(2);
+        assertThat(accelerator.getStatistics().getLeasesReduced()).isEqualTo(1);
+
+        first.close();
+        first.close();
+        second.close();
+        assertThat(accelerator.getStatistics().getConnectionsInUse()).isZero();
+    }
+
+    @Test
+    void buildsYtDlpOptionsWithGrantedConnections() throws Exception {
+        DownloadAcceleratorConfiguration config = new DownloadAcceleratorConfiguration();
+        config.setMaxTotalConnections(3);
+        config.getSources().put(SourceType.YOUTUBE, new AcceleratorSettings(8, null, "aria2c", "-x {connections}"));
+        DownloadAccelerator accelerator = accelerator(config);
+
+        try (DownloadAccelerator.ConnectionLease lease = accelerator.acquire(SourceType.YOUTUBE)) {
+            assertThat(lease.toYtDlpOptions())
+                    .containsEntry("concurrent-fragments", "3")
+                    .containsEntry("http-chunk-size", "10M")
+                    .containsEntry("downloader", "aria2c")
+                    .containsEntry("downloader-args", "aria2c:-x 3");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.StagingConfiguration;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DownloadStagingServiceTest {
+
+    @TempDir
+    Path stagingDir;
+
+    @TempDir
+    Path taskDir;
+
+    private DownloadStagingService createService(long maxTotalSizeMB) {
+        StagingConfiguration config = new StagingConfiguration();
+        config.setDirectory(stagingDir.toString());
+        config.setMaxTotalSizeMB(maxTotalSizeMB);
+        DownloadStagingService service = new DownloadStagingService();
+        service.setStagingConfig(config);
+        service.init();
+        return service;
+    }
+
+    @Test
+    void retryResumesFromStagedPartialAndCompletionMovesFile() throws Exception {
+        DownloadStagingService service = createService(1024);
+
+        try (DownloadStagingService.StagingLease first = service.acquire("youtube:abc", "137+140.mp4")) {
+            Files.write(first.getDirectory().resolve("video.mp4.part"), new byte[1000]);
+        }
+
+        try (DownloadStagingService.StagingLease retry = service.acquire("youtube:abc", "137+140.mp4")) {
+            assertThat(retry.getExistingBytes()).isEqualTo(1000);
+            Path finished = retry.getDirectory().resolve("video.mp4");
+            Files.move(retry.getDirectory().resolve("video.mp4.part"), finished);
+
+            File moved = retry.complete(finished.toFile(), taskDir);
+
+            assertThat(moved.toPath()).isEqualTo(taskDir.resolve("video.mp4"));
+            assertThat(retry.getDirectory()).doesNotExist();
+        }
+        assertThat(service.getStatistics().getResumedDownloads()).isEqualTo(1);
+        assertThat(service.getStatistics().getActiveKeys()).isZero();
+    }
+
+    @Test
+    void renditionsOfSameVideoUseSeparateDirectories() throws Exception {
+        DownloadStagingService service = createService(1024);
+
+        try (DownloadStagingService.StagingLease mp4 = service.acquire("youtube:abc", "22.mp4");
+             DownloadStagingService.StagingLease webm = service.acquire("youtube:abc", "248+251.webm")) {
+            assertThat(mp4.getDirectory()).isNotEqualTo(webm.getDirectory());
+            assertThat(mp4.getDirectory().getFileName().toString()).startsWith("youtube_abc-");
+        }
+    }
+
+    @Test
+    void cleanupRemovesExpiredThenOldestOverBudget() throws Exception {
+        DownloadStagingService service = createService(1);
+        long now = System.currentTimeMillis();
+        Path expired = stage("expired", 10, now - TimeUnit.HOURS.toMillis(48));
+        Path oldest = stage("oldest", 700 * 1024, now - TimeUnit.HOURS.toMillis(2));
+        Path newest = stage("newest", 700 * 1024, now - TimeUnit.HOURS.toMillis(1));
+
+        service.cleanup();
+
+        assertThat(expired).doesNotExist();
+        assertThat(oldest).doesNotExist();
+        assertThat(newest).exists();
+        assertThat(service.getStatistics().getRemovedEntries()).isEqualTo(2);
+    }
+
+    private Path stage(String name, int size, long lastModified) throws Exception {
+        Path directory = Files.createDirectories(stagingDir.resolve(name));
+        Path part = Files.write(directory.resolve("video.mp4.part"), new byte[size]);
+        Files.setLastModifiedTime(part, FileTime.fromMillis(lastModified));
+        Files.setLastModifiedTime(directory, FileTime.fromMillis(lastModified));
+        return directory;
+    }
+}
@@ -0,0 +1,96 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.MediaCacheConfiguration;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalMediaCacheTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path cacheDir;
+
+    @TempDir
+    Path taskDir;
+
+    private LocalMediaCache createCache(long maxTotalSizeMB, String evictionPolicy) {
+        MediaCacheConfiguration config = new MediaCacheConfiguration();
+        config.setDirectory(cacheDir.toString());
+        config.setMaxTotalSizeMB(maxTotalSizeMB);
+        config.setEvictionPolicy(evictionPolicy);
+        LocalMediaCache cache = new LocalMediaCache();
+        cache.setMediaCacheConfig(config);
+        cache.init();
+        return cache;
+    }
+
+    @Test
+    void servesStoredRenditionAndCountsHits() throws Exception {
+        LocalMediaCache cache = createCache(10, "LRU");
+        cache.store("youtube:abc", "22.mp4", download("video.mp4", 1000));
+
+        assertThat(cache.lookup("youtube:abc", "18.mp4", taskDir)).isNull();
+        File served = cache.lookup("youtube:abc", "22.mp4", taskDir);
+
+        assertThat(served).hasParent(taskDir.toFile()).hasSize(1000);
+        LocalMediaCache.MediaCacheStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getHits()).isEqualTo(1);
+        assertThat(statistics.getBytesServed()).isEqualTo(1000);
+        assertThat(statistics.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void lruEvictsLeastRecentlyUsed() throws Exception {
+        LocalMediaCache cache = createCache(2, "LRU");
+        cache.store("youtube:a", "22.mp4", download("a.mp4", MB));
+        Thread.sleep(5);
+        cache.store("youtube:b", "22.mp4", download("b.mp4", MB));
+        Thread.sleep(5);
+        cache.lookup("youtube:a", "22.mp4", taskDir);
+
+        cache.store("youtube:c", "22.mp4", download("c.mp4", MB));
+
+        assertThat(cache.lookup("youtube:b", "22.mp4", taskDir)).isNull();
+        assertThat(cache.lookup("youtube:a", "22.mp4", taskDir)).isNotNull();
+        assertThat(cache.getStatistics().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void lfuEvictsLeastFrequentlyUsed() throws Exception {
+        LocalMediaCache cache = createCache(2, "LFU");
+        cache.store("youtube:a", "22.mp4", download("a.mp4", MB));
+        cache.store("youtube:b", "22.mp4", download("b.mp4", MB));
+        cache.lookup("youtube:a", "22.mp4", taskDir);
+        cache.lookup("youtube:a", "22.mp4", taskDir);
+        cache.lookup("youtube:b", "22.mp4", taskDir);
+        Thread.sleep(5);
+        cache.lookup("youtube:a", "22.mp4", taskDir);
+
+        cache.store("youtube:c", "22.mp4", download("c.mp4", MB));
+
+        assertThat(cache.lookup("youtube:b", "22.mp4", taskDir)).isNull();
+        assertThat(cache.lookup("youtube:a", "22.mp4", taskDir)).isNotNull();
+    }
+
+    @Test
+    void indexSurvivesRestart() throws Exception {
+        createCache(10, "LRU").store("youtube:abc", "22.mp4", download("video.mp4", 1000));
+
+        LocalMediaCache restarted = createCache(10, "LRU");
+
+        assertThat(restarted.getStatistics().getTotalBytes()).isEqualTo(1000);
+        assertThat(restarted.lookup("youtube:abc", "22.mp4", taskDir)).isNotNull();
+    }
+
+    private File download(String name, int size) throws Exception {
+        Path directory = Files.createTempDirectory(taskDir, "download");
+        return Files.write(directory.resolve(name), new byte[size]).toFile();
+    }
+}
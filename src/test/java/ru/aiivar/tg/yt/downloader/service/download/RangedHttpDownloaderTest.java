@@ -0,0 +1,225 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.DirectHttpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RangedHttpDownloaderTest {
+
+    private static final int SIZE = 1024 * 1024 + 123;
+
+    @TempDir
+    Path dir;
+
+    private final byte[] content = new byte[SIZE];
+    private StubMediaServer server;
+    private RangedHttpDownloader downloader;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        new Random(42).nextBytes(content);
+        server = new StubMediaServer(content);
+        DirectHttpConfiguration config = new DirectHttpConfiguration();
+        config.setMinSegmentSizeKB(64);
+        config.setBufferSizeKB(16);
+        config.setAllowPrivateAddresses(true);
+        downloader = downloader(config);
+    }
+
+    private static RangedHttpDownloader downloader(DirectHttpConfiguration config) {
+        RangedHttpDownloader downloader = new RangedHttpDownloader();
+        downloader.setDirectHttpConfig(config);
+        downloader.init();
+        return downloader;
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloader.shutdown();
+        server.close();
+    }
+
+    @Test
+    void downloadsSegmentsInParallelIntoOneFile() throws Exception {
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+        assertThat(remote.getContentLength()).isEqualTo(SIZE);
+        assertThat(remote.isRangesSupported()).isTrue();
+        assertThat(remote.getFileName()).isEqualTo("clip.mp4");
+
+        AtomicLong progress = new AtomicLong();
+        Path file = downloader.download(remote, dir.resolve("clip.mp4"), 4, 0, 0, (done, total) -> progress.set(total));
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+        assertThat(server.getRangeRequests()).isEqualTo(4);
+        assertThat(server.getFullRequests()).isZero();
+        assertThat(progress.get()).isEqualTo(SIZE);
+        assertThat(downloader.getStatistics().getSegmentedDownloads()).isEqualTo(1);
+        assertThat(downloader.getStatistics().getBytesDownloaded()).isEqualTo(SIZE);
+    }
+
+    @Test
+    void resumesBrokenSegmentFromLastWrittenByte() throws Exception {
+        server.truncateNextResponses(1);
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+
+        Path file = downloader.download(remote, dir.resolve("clip.mp4"), 4, 0, 0, null);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+        assertThat(server.getRangeRequests()).isEqualTo(5);
+        assertThat(downloader.getStatistics().getSegmentRetries()).isEqualTo(1);
+    }
+
+    @Test
+    void usesOneRequestWhenRangesAreNotSupported() throws Exception {
+        server.setRangesSupported(false);
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+
+        Path file = downloader.download(remote, dir.resolve("clip.mp4"), 4, 0, 0, null);
+
+        assertThat(Files.readAllBytes(file)).isEqualTo(content);
+        assertThat(server.getRangeRequests()).isZero();
+        assertThat(server.getFullRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void probesWithRangeRequestWhenHeadIsRefused() throws Exception {
+        server.setHeadAllowed(false);
+
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+
+        assertThat(remote.getContentLength()).isEqualTo(SIZE);
+        assertThat(remote.isRangesSupported()).isTrue();
+        assertThat(server.getRangeRequests()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsFilesOverTheLimitBeforeDownloading() throws Exception {
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+
+        assertThatThrownBy(() -> downloader.download(remote, dir.resolve("clip.mp4"), 4, 0, SIZE - 1, null))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(server.getRangeRequests()).isZero();
+
+        server.setRangesSupported(false);
+        RangedHttpDownloader.RemoteFile unknownLength = new RangedHttpDownloader.RemoteFile(remote.getUri(), -1, false,
+                java.net.http.HttpHeaders.of(java.util.Map.of(), (name, value) -> true));
+        assertThatThrownBy(() -> downloader.download(unknownLength, dir.resolve("clip.mp4"), 4, 0, SIZE - 1, null))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(dir.resolve("clip.mp4")).doesNotExist();
+    }
+
+    @Test
+    void followsRedirectsToTheFinalLocation() throws Exception {
+        server.redirect("/share/abc", "/files/clip.mp4");
+
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/share/abc"));
+
+        assertThat(remote.getUri()).isEqualTo(server.uri("/files/clip.mp4"));
+        assertThat(remote.getContentLength()).isEqualTo(SIZE);
+    }
+
+    @Test
+    void rejectsContentThatIsNotAudioOrVideo() {
+        server.setContentType("text/html; charset=utf-8");
+
+        assertThatThrownBy(() -> downloader.probe(server.uri("/files/clip.mp4")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("text/html");
+    }
+
+    @Test
+    void acceptsBinaryContentOnlyWithAMediaExtension() throws Exception {
+        server.setContentType("application/octet-stream");
+
+        RangedHttpDownloader.RemoteFile remote = downloader.probe(server.uri("/files/clip.mp4"));
+        assertThat(remote.getMediaExtension()).isEqualTo("mp4");
+
+        server.setContentType("binary/octet-stream");
+        assertThat(downloader.probe(server.uri("/files/song.MP3")).getMediaExtension()).isEqualTo("mp3");
+
+        RangedHttpDownloader.RemoteFile attachment = new RangedHttpDownloader.RemoteFile(
+                URI.create("https://files.example/download?id=7"), 100, true, java.net.http.HttpHeaders.of(Map.of(
+                        "Content-Type", List.of("application/octet-stream"),
+                        "Content-Disposition", List.of("attachment; filename=\"talk.webm\"")), (name, value) -> true));
+        assertThat(attachment.getMediaExtension()).isEqualTo("webm");
+
+        assertThatThrownBy(() -> downloader.probe(server.uri("/files/setup.exe")))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("binary/octet-stream");
+    }
+
+    @Test
+    void refusesNonPublicAddresses() throws Exception {
+        RangedHttpDownloader strict = downloader(new DirectHttpConfiguration());
+        try {
+            assertThatThrownBy(() -> strict.probe(server.uri("/files/clip.mp4")))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("non-public address");
+            assertThat(server.getHeadRequests()).isZero();
+        } finally {
+            strict.shutdown();
+        }
+
+        for (String address : List.of("127.0.0.1", "10.1.2.3", "172.16.0.1", "192.168.1.1", "169.254.169.254",
+                "100.64.0.1", "0.0.0.0", "::1", "fe80::1", "fd00::1")) {
+            assertThat(AddressPinningProxy.isPublicAddress(InetAddress.getByName(address))).as(address).isFalse();
+        }
+        assertThat(AddressPinningProxy.isPublicAddress(InetAddress.getByName("93.184.216.34"))).isTrue();
+        assertThat(AddressPinningProxy.isPublicAddress(InetAddress.getByName("2606:2800:220:1::1"))).isTrue();
+    }
+
+    @Test
+    void connectsOnlyToTheAddressCheckedByTheProbe() throws Exception {
+        DirectHttpConfiguration config = new DirectHttpConfiguration();
+        config.setMinSegmentSizeKB(64);
+        config.setConnectTimeoutSeconds(2);
+        config.setAllowPrivateAddresses(true);
+        AtomicInteger lookups = new AtomicInteger();
+        RangedHttpDownloader rebound = new RangedHttpDownloader();
+        rebound.setDirectHttpConfig(config);
+        // Answers with the test server first and with an unreachable address afterwards
+        rebound.setHostResolver(host -> new InetAddress[]{InetAddress.getByName(
+                lookups.getAndIncrement() == 0 ? "127.0.0.1" : "192.0.2.1")});
+        rebound.init();
+        try {
+            URI uri = URI.create("http://media.test:" + server.uri("/").getPort() + "/files/clip.mp4");
+            RangedHttpDownloader.RemoteFile remote = rebound.probe(uri);
+            Path file = rebound.download(remote, dir.resolve("clip.mp4"), 4, 0, 0, null);
+
+            assertThat(Files.readAllBytes(file)).isEqualTo(content);
+            assertThat(server.getRangeRequests()).isEqualTo(4);
+            assertThat(lookups.get()).isEqualTo(1);
+        } finally {
+            rebound.shutdown();
+        }
+    }
+
+    @Test
+    void plansSegmentsOfAtLeastTheMinimumSize() {
+        List<RangedHttpDownloader.Segment> segments = RangedHttpDownloader.plan(10_000_000, 8, 4_000_000);
+        assertThat(segments).hasSize(2);
+        assertThat(segments.get(0).getStart()).isZero();
+        assertThat(segments.get(1).getEnd()).isEqualTo(9_999_999);
+        assertThat(segments.get(0).getLength() + segments.get(1).getLength()).isEqualTo(10_000_000);
+
+        assertThat(RangedHttpDownloader.plan(100, 8, 4_000_000)).hasSize(1);
+        assertThat(RangedHttpDownloader.plan(100_000_000, 8, 4_000_000)).hasSize(8);
+    }
+}
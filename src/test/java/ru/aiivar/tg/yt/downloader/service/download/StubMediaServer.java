@@ -0,0 +1,171 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server serving one in-memory file with HEAD and single byte range support
+ * Behavior can be switched per test: redirects, the content type, refusing HEAD, ignoring ranges,
+ * cutting range responses short and limiting the throughput of each connection.
+ */
+public class StubMediaServer implements AutoCloseable {
+
+    private static final String ETAG = "\"stub-v1\"";
+
+    private final byte[] content;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final Map<String, String> redirects = new ConcurrentHashMap<>();
+
+    private volatile String contentType = "video/mp4";
+    private volatile boolean headAllowed = true;
+    private volatile boolean rangesSupported = true;
+    private volatile long bytesPerSecondPerConnection;
+    private final AtomicInteger responsesToTruncate = new AtomicInteger();
+
+    private final AtomicInteger headRequests = new AtomicInteger();
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger fullRequests = new AtomicInteger();
+
+    public StubMediaServer(byte[] content) throws IOException {
+        this.content = content;
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+
+    /**
+     * Answer requests for a path with a redirect to another path
+     */
+    public void redirect(String path, String location) {
+        redirects.put(path, location);
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public void setHeadAllowed(boolean headAllowed) {
+        this.headAllowed = headAllowed;
+    }
+
+    public void setRangesSupported(boolean rangesSupported) {
+        this.rangesSupported = rangesSupported;
+    }
+
+    public void setBytesPerSecondPerConnection(long bytesPerSecondPerConnection) {
+        this.bytesPerSecondPerConnection = bytesPerSecondPerConnection;
+    }
+
+    /**
+     * Cut the next range responses off halfway through their body
+     */
+    public void truncateNextResponses(int count) {
+        responsesToTruncate.set(count);
+    }
+
+    public int getHeadRequests() {
+        return headRequests.get();
+    }
+
+    public int getRangeRequests() {
+        return rangeRequests.get();
+    }
+
+    public int getFullRequests() {
+        return fullRequests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String location = redirects.get(exchange.getRequestURI().getPath());
+            if (location != null) {
+                exchange.getResponseHeaders().set("Location", location);
+                exchange.sendResponseHeaders(302, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (rangesSupported) {
+                exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+            }
+
+            if (exchange.getRequestMethod().equals("HEAD")) {
+                headRequests.incrementAndGet();
+                if (!headAllowed) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+            if (range == null || !rangesSupported || (ifRange != null && !ifRange.equals(ETAG))) {
+                fullRequests.incrementAndGet();
+                exchange.sendResponseHeaders(200, content.length);
+                write(exchange.getResponseBody(), 0, content.length);
+                return;
+            }
+
+            rangeRequests.incrementAndGet();
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            int start = Integer.parseInt(bounds[0]);
+            int end = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+            int length = end - start + 1;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, length);
+            if (responsesToTruncate.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                // Closing the exchange early leaves the client short of the announced length
+                write(exchange.getResponseBody(), start, length / 2);
+                return;
+            }
+            write(exchange.getResponseBody(), start, length);
+        }
+    }
+
+    private void write(OutputStream out, int offset, int length) throws IOException {
+        int chunk = 16 * 1024;
+        long rate = bytesPerSecondPerConnection;
+        for (int written = 0; written < length; written += chunk) {
+            int count = Math.min(chunk, length - written);
+            out.write(content, offset + written, count);
+            if (rate > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(TimeUnit.SECONDS.toNanos(count) / rate);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted", e);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.aiivar.tg.yt.downloader.service.download;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.TempStorageConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TempStorageServiceTest {
+
+    private static final int MB = 1024 * 1024;
+
+    @TempDir
+    Path memoryDir;
+
+    @TempDir
+    Path diskDir;
+
+    private TempStorageService createStorage(long capacityMB) {
+        TempStorageConfiguration config = new TempStorageConfiguration();
+        config.setMemoryDirectory(memoryDir.toString());
+        config.setDiskDirectory(diskDir.toString());
+        config.setMemoryCapacityMB(capacityMB);
+        config.setMaxMemoryFileSizeMB(10);
+        config.setReserveFactor(2.0);
+        TempStorageService storage = new TempStorageService();
+        storage.setTempStorageConfig(config);
+        storage.init();
+        return storage;
+    }
+
+    @Test
+    void choosesTierFromEstimatedSize() throws Exception {
+        TempStorageService storage = createStorage(100);
+
+        assertThat(storage.allocate("small", 5 * MB).getTier()).isEqualTo(TempStorageService.Tier.MEMORY);
+        assertThat(storage.allocate("large", 50 * MB).getTier()).isEqualTo(TempStorageService.Tier.DISK);
+        assertThat(storage.allocate("unknown", -1).getTier()).isEqualTo(TempStorageService.Tier.DISK);
+
+        TempStorageService.TempStorageStatistics statistics = storage.getStatistics();
+        assertThat(statistics.getMemoryReservedBytes()).isEqualTo(10L * MB);
+        assertThat(statistics.getMemoryDirectories()).isEqualTo(1);
+        assertThat(statistics.getDiskDirectories()).isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackToDiskWhenMemoryIsReservedAndFreesItOnRelease() throws Exception {
+        TempStorageService storage = createStorage(20);
+
+        TempStorageService.TempDirectory first = storage.allocate("t1", 6 * MB);
+        TempStorageService.TempDirectory second = storage.allocate("t2", 6 * MB);
+        assertThat(first.getTier()).isEqualTo(TempStorageService.Tier.MEMORY);
+        assertThat(second.getTier()).isEqualTo(TempStorageService.Tier.DISK);
+        assertThat(storage.getStatistics().getMemoryFullFallbacks()).isEqualTo(1);
+
+        // A finished download only keeps the space of its file
+        Files.write(first.getDirectory().resolve("video.mp4"), new byte[MB]);
+        storage.settle(first, MB);
+        assertThat(storage.allocate("t3", 6 * MB).getTier()).isEqualTo(TempStorageService.Tier.MEMORY);
+
+        storage.release("t1");
+        assertThat(first.getDirectory()).doesNotExist();
+        assertThat(storage.getStatistics().getMemoryReservedBytes()).isEqualTo(12L * MB);
+    }
+
+    @Test
+    void keepsRoomForAPostProcessingCopy() throws Exception {
+        TempStorageService storage = createStorage(20);
+
+        // Estimated low: the reservation grows to hold the file and its copy
+        TempStorageService.TempDirectory first = storage.allocate("t1", 2 * MB);
+        File file = Files.write(first.getDirectory().resolve("video.mp4"), new byte[3 * MB]).toFile();
+        storage.settle(first, file.length());
+        assertThat(storage.getStatistics().getMemoryReservedBytes()).isEqualTo(4L * MB);
+        assertThat(storage.reserveCopy("t1", file)).isEqualTo(file);
+        assertThat(storage.getStatistics().getMemoryReservedBytes()).isEqualTo(6L * MB);
+
+        // No room left for the copy: the file moves to disk and its reservation is freed
+        TempStorageService.TempDirectory second = storage.allocate("t2", 5 * MB);
+        File large = Files.write(second.getDirectory().resolve("video.mp4"), new byte[8 * MB]).toFile();
+        File moved = storage.reserveCopy("t2", large);
+
+        assertThat(moved.toPath()).hasParent(diskDir.resolve("t2")).hasSize(8 * MB);
+        assertThat(second.getDirectory()).doesNotExist();
+        assertThat(storage.isInMemory("t2")).isFalse();
+        assertThat(storage.getStatistics().getMemoryReservedBytes()).isEqualTo(6L * MB);
+        assertThat(storage.reserveCopy("t2", moved)).isEqualTo(moved);
+
+        storage.release("t2");
+        assertThat(moved).doesNotExist();
+    }
+
+    @Test
+    void spillsToDisk() throws Exception {
+        TempStorageService storage = createStorage(100);
+        TempStorageService.TempDirectory memory = storage.allocate("t1", 5 * MB);
+
+        TempStorageService.TempDirectory disk = storage.spill("t1");
+
+        assertThat(memory.getDirectory()).doesNotExist();
+        assertThat(disk.getTier()).isEqualTo(TempStorageService.Tier.DISK);
+        assertThat(disk.getDirectory()).hasParent(diskDir);
+        assertThat(storage.getStatistics().getMemoryReservedBytes()).isZero();
+        assertThat(storage.getStatistics().getSpills()).isEqualTo(1);
+        assertThat(TempStorageService.isOutOfSpace(new Exception("yt-dlp failed",
+                new IOException("OSError: [Errno 28] No space left on device")))).isTrue();
+    }
+}
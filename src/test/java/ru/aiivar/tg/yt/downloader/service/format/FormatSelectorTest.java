@@ -0,0 +1,143 @@
+package ru.aiivar.tg.yt.downloader.service.format;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoFormat;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FormatSelectorTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final FormatSelector selector = new FormatSelector();
+
+    private final FormatConstraints telegram = new FormatConstraints(2000 * MB, 50 * MB, List.of("mp4", "webm", "mkv"),
+            true, List.of("avc1", "h264"), List.of("mp4a", "aac"));
+
+    @Test
+    void picksHighestRenditionWithinRequestedHeight() throws Exception {
+        VideoMetadata metadata = metadata(
+                video("136", "mp4", 720, "avc1.4d401f", 20 * MB),
+                video("137", "mp4", 1080, "avc1.640028", 40 * MB),
+                audio("140", "m4a", "mp4a.40.2", 3 * MB));
+
+        FormatSelection selection = selector.select(metadata, "mp4", 720, false, telegram);
+
+        assertThat(selection.getFormatSpec()).isEqualTo("136+140");
+        assertThat(selection.getContainer()).isEqualTo("mp4");
+        assertThat(selection.getEstimatedFileSizeBytes()).isEqualTo(23 * MB);
+    }
+
+    @Test
+    void prefersRenditionWithinPreferredSize() throws Exception {
+        VideoMetadata metadata = metadata(
+                video("136", "mp4", 720, "avc1.4d401f", 45 * MB),
+                video("137", "mp4", 1080, "avc1.640028", 120 * MB),
+                audio("140", "m4a", "mp4a.40.2", 3 * MB));
+
+        assertThat(selector.select(metadata, "mp4", 1080, false, telegram).getFormatSpec()).isEqualTo("136+140");
+    }
+
+    @Test
+    void prefersH264AndPremuxedAtSameHeight() throws Exception {
+        VideoMetadata metadata = metadata(
+                video("247", "webm", 720, "vp9", 15 * MB),
+                premuxed("22", "mp4", 720, 25 * MB),
+                video("136", "mp4", 720, "avc1.4d401f", 20 * MB),
+                audio("140", "m4a", "mp4a.40.2", 3 * MB),
+                audio("251", "webm", "opus", 3 * MB));
+
+        assertThat(selector.select(metadata, "mp4", 720, false, telegram).getFormatSpec()).isEqualTo("22");
+    }
+
+    @Test
+    void mergesIntoCompatibleContainerOnly() throws Exception {
+        VideoMetadata metadata = metadata(
+                video("247", "webm", 720, "vp9", 15 * MB),
+                audio("140", "m4a", "mp4a.40.2", 3 * MB),
+                audio("251", "webm", "opus", 3 * MB));
+
+        FormatSelection selection = selector.select(metadata, "mp4", 720, false, telegram);
+
+        assertThat(selection.getFormatSpec()).isEqualTo("247+251");
+        assertThat(selection.getContainer()).isEqualTo("webm");
+    }
+
+    @Test
+    void worstQualityPicksLowestHeight() throws Exception {
+        VideoMetadata metadata = metadata(
+                premuxed("18", "mp4", 360, 10 * MB),
+                premuxed("22", "mp4", 720, 25 * MB));
+
+        assertThat(selector.select(metadata, "mp4", 720, true, telegram).getFormatSpec()).isEqualTo("18");
+    }
+
+    @Test
+    void rejectsWhenEveryRenditionExceedsLimit() {
+        VideoMetadata metadata = metadata(
+                premuxed("18", "mp4", 360, 80 * MB),
+                premuxed("22", "mp4", 720, 200 * MB));
+        FormatConstraints officialApi = telegram.withMaxFileSize(50 * MB);
+
+        assertThatThrownBy(() -> selector.select(metadata, "mp4", 720, false, officialApi))
+                .isInstanceOf(FileTooLargeException.class)
+                .satisfies(e -> assertThat(((FileTooLargeException) e).getFileSizeBytes()).isEqualTo(80 * MB));
+    }
+
+    @Test
+    void selectsAudioThatNeedsNoReencoding() throws Exception {
+        VideoMetadata metadata = metadata(
+                premuxed("18", "mp4", 360, 30 * MB),
+                audio("251", "webm", "opus", 10 * MB),
+                audio("140", "m4a", "mp4a.40.2", 9 * MB));
+
+        FormatSelection selection = selector.selectAudio(metadata, telegram);
+
+        assertThat(selection.isAudioOnly()).isTrue();
+        assertThat(selection.getFormatSpec()).isEqualTo("140");
+        assertThat(selection.getContainer()).isEqualTo("m4a");
+        assertThat(selection.getResolution()).isNull();
+
+        assertThatThrownBy(() -> selector.selectAudio(metadata, telegram.withMaxFileSize(5 * MB)))
+                .isInstanceOf(FileTooLargeException.class);
+    }
+
+    private static VideoMetadata metadata(VideoFormat... formats) {
+        VideoMetadata metadata = new VideoMetadata();
+        metadata.setDurationSeconds(600L);
+        metadata.setFormats(List.of(formats));
+        return metadata;
+    }
+
+    private static VideoFormat video(String id, String ext, int height, String vcodec, long size) {
+        VideoFormat format = new VideoFormat();
+        format.setFormatId(id);
+        format.setExt(ext);
+        format.setHeight(height);
+        format.setVcodec(vcodec);
+        format.setAcodec("none");
+        format.setFilesize(size);
+        return format;
+    }
+
+    private static VideoFormat premuxed(String id, String ext, int height, long size) {
+        VideoFormat format = video(id, ext, height, "avc1.64001F", size);
+        format.setAcodec("mp4a.40.2");
+        return format;
+    }
+
+    private static VideoFormat audio(String id, String ext, String acodec, long size) {
+        VideoFormat format = new VideoFormat();
+        format.setFormatId(id);
+        format.setExt(ext);
+        format.setVcodec("none");
+        format.setAcodec(acodec);
+        format.setFilesize(size);
+        return format;
+    }
+}
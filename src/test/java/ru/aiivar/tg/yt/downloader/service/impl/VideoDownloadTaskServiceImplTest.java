@@ -0,0 +1,372 @@
+package ru.aiivar.tg.yt.downloader.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.aiivar.tg.yt.downloader.config.ProgressConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+import ru.aiivar.tg.yt.downloader.model.VideoDownloadRequest;
+import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskRepository;
+import ru.aiivar.tg.yt.downloader.service.EntityFactory;
+import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskResultService;
+import ru.aiivar.tg.yt.downloader.service.VideoIdentityService;
+import ru.aiivar.tg.yt.downloader.service.notification.TaskStatusNotifier;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor;
+import ru.aiivar.tg.yt.downloader.service.processor.impl.YouTubeUrlCanonicalizer;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgress;
+import ru.aiivar.tg.yt.downloader.service.progress.TaskProgressRegistry;
+import ru.aiivar.tg.yt.downloader.service.ratelimit.SourceThrottledException;
+import ru.aiivar.tg.yt.downloader.service.reuse.ReuseDeliveryService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class VideoDownloadTaskServiceImplTest {
+
+    private final InMemoryTransactionManager transactionManager = new InMemoryTransactionManager();
+    private final VideoSourceProcessor sourceProcessor = mock(VideoSourceProcessor.class);
+    private final VideoDestinationProcessor destinationProcessor = mock(VideoDestinationProcessor.class);
+    private final TaskStatusNotifier taskStatusNotifier = mock(TaskStatusNotifier.class);
+    private final VideoDownloadTaskResultService resultService = mock(VideoDownloadTaskResultService.class);
+    private final ReuseDeliveryService reuseDeliveryService = mock(ReuseDeliveryService.class);
+    private final VideoIdentityService videoIdentityService = mock(VideoIdentityService.class);
+    private VideoDownloadTaskServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        VideoDownloadTaskRepository taskRepository = mock(VideoDownloadTaskRepository.class);
+        when(taskRepository.findById(anyString())).thenAnswer(call -> transactionManager.find(call.getArgument(0)));
+        when(taskRepository.findByIdForUpdate(anyString())).thenAnswer(call -> transactionManager.find(call.getArgument(0)));
+        when(taskRepository.save(any(VideoDownloadTask.class))).thenAnswer(call -> transactionManager.save(call.getArgument(0)));
+        when(taskRepository.findByParentTaskIdOrderByCreatedAtAsc(anyString()))
+                .thenAnswer(call -> transactionManager.children(call.getArgument(0)));
+        when(taskRepository.countByParentTaskId(anyString()))
+                .thenAnswer(call -> (long) transactionManager.children(call.getArgument(0)).size());
+        when(taskRepository.findProcessingBatches()).thenAnswer(call -> transactionManager.processingBatches());
+
+        service = new VideoDownloadTaskServiceImpl();
+        ReflectionTestUtils.setField(service, "taskRepository", taskRepository);
+        ReflectionTestUtils.setField(service, "resultService", resultService);
+        ReflectionTestUtils.setField(service, "reuseDeliveryService", reuseDeliveryService);
+        ReflectionTestUtils.setField(service, "entityFactory", new EntityFactory());
+        ReflectionTestUtils.setField(service, "videoIdentityService", videoIdentityService);
+        ReflectionTestUtils.setField(service, "progressRegistry", mock(TaskProgressRegistry.class));
+        ReflectionTestUtils.setField(service, "taskStatusNotifier", taskStatusNotifier);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        service.init();
+
+        when(sourceProcessor.getSupportedSourceType()).thenReturn(SourceType.YOUTUBE);
+        when(destinationProcessor.getSupportedDestinationType()).thenReturn(DestinationType.TELEGRAM);
+        service.registerSourceProcessor(sourceProcessor);
+        service.registerDestinationProcessor(destinationProcessor);
+
+        VideoDownloadTask task = new VideoDownloadTask();
+        task.setId("t1");
+        task.setSourceType(SourceType.YOUTUBE);
+        task.setDestinationType(DestinationType.TELEGRAM);
+        task.setStatus(TaskStatus.PENDING);
+        transactionManager.committed.put("t1", task);
+    }
+
+    @Test
+    void keepsFailureReasonWhenProcessingTransactionRollsBack() throws Exception {
+        doThrow(new Exception("Failed to download video", new FileTooLargeException(3_000_000_000L, 2_000_000_000L, true)))
+                .when(sourceProcessor).validateRequest(any());
+
+        assertThatThrownBy(() -> processInTransaction("t1")).isInstanceOf(RuntimeException.class);
+
+        VideoDownloadTask stored = transactionManager.committed.get("t1");
+        assertThat(stored.getStatus()).isEqualTo(TaskStatus.FAILED);
+        assertThat(stored.getFailureReason()).isEqualTo(FailureReason.FILE_TOO_LARGE);
+        assertThat(stored.canRetry()).isFalse();
+    }
+
+    @Test
+    void requeuesThrottledTaskWithItsReasonWhenProcessingTransactionRollsBack() throws Exception {
+        doThrow(new SourceThrottledException(SourceType.YOUTUBE, 30_000)).when(sourceProcessor).validateRequest(any());
+
+        assertThatThrownBy(() -> processInTransaction("t1")).isInstanceOf(RuntimeException.class);
+
+        VideoDownloadTask stored = transactionManager.committed.get("t1");
+        assertThat(stored.getStatus()).isEqualTo(TaskStatus.PENDING);
+        assertThat(stored.getErrorMessage()).contains("throttling");
+        assertThat(stored.getRetryCount()).isZero();
+    }
+
+    @Test
+    void commitsAndPublishesTheStartBeforeProcessingEnds() throws Exception {
+        TaskProgressRegistry progressRegistry = new TaskProgressRegistry();
+        ReflectionTestUtils.setField(progressRegistry, "progressConfig", new ProgressConfiguration());
+        ReflectionTestUtils.setField(service, "progressRegistry", progressRegistry);
+        TaskStatus[] seenWhileProcessing = new TaskStatus[2];
+        doAnswer(call -> {
+            seenWhileProcessing[0] = transactionManager.committed.get("t1").getStatus();
+            seenWhileProcessing[1] = progressRegistry.getProgress("t1").map(TaskProgress::getStatus).orElse(null);
+            throw new Exception("Video unavailable");
+        }).when(sourceProcessor).validateRequest(any());
+
+        assertThatThrownBy(() -> processInTransaction("t1")).isInstanceOf(RuntimeException.class);
+
+        assertThat(seenWhileProcessing).containsExactly(TaskStatus.PROCESSING, TaskStatus.PROCESSING);
+        verify(taskStatusNotifier, atLeastOnce()).publish("t1");
+        assertThat(transactionManager.committed.get("t1").getStatus()).isEqualTo(TaskStatus.FAILED);
+    }
+
+    @Test
+    void keepsReusedTasksPendingUntilTheDeliveryLaneClaimsThem() {
+        VideoDownloadTaskResult existing = new VideoDownloadTaskResult();
+        existing.setDestinationId("file-1");
+        when(resultService.findReusableResult(anyString(), any(), any())).thenReturn(Optional.of(existing));
+        when(resultService.reuseExistingResult(any(), any())).thenReturn(existing);
+        VideoDownloadRequest request = new VideoDownloadRequest();
+        request.setUrl("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        request.setChatId("42");
+
+        VideoDownloadTask task = new TransactionTemplate(transactionManager)
+                .execute(status -> service.createTaskWithReuseCheck(request));
+
+        // Still pending in the database, so normal processing delivers it if the lane never does
+        assertThat(transactionManager.committed.get(task.getId()).getStatus()).isEqualTo(TaskStatus.PENDING);
+        verify(reuseDeliveryService).scheduleDelivery(task.getId(), "file-1", DestinationType.TELEGRAM);
+
+        assertThat(service.claimPendingTask(task.getId())).isTrue();
+        assertThat(transactionManager.committed.get(task.getId()).getStatus()).isEqualTo(TaskStatus.PROCESSING);
+        assertThat(service.claimPendingTask(task.getId())).isFalse();
+    }
+
+    @Test
+    void skipsTasksThatAreAlreadyBeingProcessed() throws Exception {
+        transactionManager.committed.get("t1").setStatus(TaskStatus.PROCESSING);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                assertThat(service.processTask("t1")).isNull());
+
+        verify(sourceProcessor, never()).validateRequest(any());
+        assertThat(transactionManager.committed.get("t1").getStatus()).isEqualTo(TaskStatus.PROCESSING);
+    }
+
+    @Test
+    void resendsReusedResultWhenTheProcessingPipelineClaimsTheTask() throws Exception {
+        VideoDownloadTaskResult reused = new VideoDownloadTaskResult();
+        reused.setStatus(TaskStatus.COMPLETED);
+        reused.setDestinationId("file-1");
+        when(resultService.getPrimaryResultByTaskId("t1")).thenReturn(Optional.of(reused));
+
+        processInTransaction("t1");
+
+        verify(destinationProcessor).sendVideoById(eq("file-1"), any());
+        verify(sourceProcessor, never()).validateRequest(any());
+        assertThat(transactionManager.committed.get("t1").getStatus()).isEqualTo(TaskStatus.COMPLETED);
+    }
+
+    @Test
+    void expandsABatchIntoOneChildTaskPerVideo() throws Exception {
+        VideoDownloadTask batch = batch("b1", TaskStatus.PENDING);
+        batch.setSourceUrl("https://www.youtube.com/playlist?list=PL1");
+        batch.setChatId("42");
+        batch.setRequestedFormat("mp4");
+        batch.setBatchMaxItems(10);
+        YouTubeUrlCanonicalizer canonicalizer = new YouTubeUrlCanonicalizer();
+        when(videoIdentityService.resolveCanonicalVideoId(anyString(), any()))
+                .thenAnswer(call -> canonicalizer.canonicalize(call.getArgument(0)));
+        when(sourceProcessor.supportsPlaylists()).thenReturn(true);
+        when(sourceProcessor.listPlaylistEntries("https://www.youtube.com/playlist?list=PL1", 10)).thenReturn(List.of(
+                "https://www.youtube.com/watch?v=aaaaaaaaaaa",
+                "https://www.youtube.com/watch?v=bbbbbbbbbbb",
+                "https://youtu.be/aaaaaaaaaaa"));
+
+        processInTransaction("b1");
+
+        List<VideoDownloadTask> children = transactionManager.children("b1");
+        assertThat(children).extracting(VideoDownloadTask::getSourceUrl).containsExactlyInAnyOrder(
+                "https://www.youtube.com/watch?v=aaaaaaaaaaa", "https://www.youtube.com/watch?v=bbbbbbbbbbb");
+        assertThat(children).allSatisfy(child -> {
+            assertThat(child.getStatus()).isEqualTo(TaskStatus.PENDING);
+            assertThat(child.getChatId()).isEqualTo("42");
+            assertThat(child.getRequestedFormat()).isEqualTo("mp4");
+        });
+        // The batch keeps processing until its children finish
+        assertThat(transactionManager.committed.get("b1").getStatus()).isEqualTo(TaskStatus.PROCESSING);
+
+        // A retried batch keeps the children it already has
+        transactionManager.committed.get("b1").setStatus(TaskStatus.PENDING);
+        processInTransaction("b1");
+        assertThat(transactionManager.children("b1")).hasSize(2);
+        verify(sourceProcessor).listPlaylistEntries(anyString(), eq(10));
+    }
+
+    @Test
+    void finishesBatchesOnceAllTheirChildrenHaveFinished() {
+        batch("b1", TaskStatus.PROCESSING);
+        VideoDownloadTask running = child("c1", "b1", TaskStatus.PROCESSING);
+        child("c2", "b1", TaskStatus.COMPLETED);
+        batch("b2", TaskStatus.PROCESSING);
+        VideoDownloadTask failed = child("c3", "b2", TaskStatus.FAILED);
+        failed.setRetryCount(failed.getMaxRetries());
+        child("c4", "b2", TaskStatus.CANCELLED);
+
+        assertThat(service.completeFinishedBatches()).isEqualTo(1);
+        assertThat(transactionManager.committed.get("b1").getStatus()).isEqualTo(TaskStatus.PROCESSING);
+        assertThat(transactionManager.committed.get("b2").getStatus()).isEqualTo(TaskStatus.FAILED);
+        assertThat(transactionManager.committed.get("b2").getErrorMessage()).contains("None of the 2 videos");
+
+        // A failed child that can still be retried keeps the batch open
+        running.setStatus(TaskStatus.FAILED);
+        assertThat(service.completeFinishedBatches()).isZero();
+        running.setRetryCount(running.getMaxRetries());
+        assertThat(service.completeFinishedBatches()).isEqualTo(1);
+        assertThat(transactionManager.committed.get("b1").getStatus()).isEqualTo(TaskStatus.COMPLETED);
+    }
+
+    private VideoDownloadTask batch(String id, TaskStatus status) {
+        VideoDownloadTask batch = new VideoDownloadTask();
+        batch.setId(id);
+        batch.setSourceType(SourceType.YOUTUBE);
+        batch.setDestinationType(DestinationType.TELEGRAM);
+        batch.setBatch(true);
+        batch.setStatus(status);
+        transactionManager.committed.put(id, batch);
+        return batch;
+    }
+
+    private VideoDownloadTask child(String id, String parentId, TaskStatus status) {
+        VideoDownloadTask child = new VideoDownloadTask();
+        child.setId(id);
+        child.setParentTaskId(parentId);
+        child.setStatus(status);
+        transactionManager.committed.put(id, child);
+        return child;
+    }
+
+    private void processInTransaction(String taskId) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> service.processTask(taskId));
+    }
+
+    /**
+     * Transaction manager over an in-memory task table: writes become visible to other transactions
+     * on commit and are dropped on rollback
+     */
+    private static class InMemoryTransactionManager extends AbstractPlatformTransactionManager {
+
+        private final Map<String, VideoDownloadTask> committed = new HashMap<>();
+
+        Optional<VideoDownloadTask> find(String id) {
+            VideoDownloadTask task = writes().get(id);
+            if (task == null) {
+                task = committed.get(id);
+            }
+            return Optional.ofNullable(task).map(InMemoryTransactionManager::copy);
+        }
+
+        List<VideoDownloadTask> children(String parentId) {
+            return committed.values().stream().filter(task -> parentId.equals(task.getParentTaskId())).toList();
+        }
+
+        List<VideoDownloadTask> processingBatches() {
+            return committed.values().stream()
+                    .filter(task -> task.isBatch() && task.getStatus() == TaskStatus.PROCESSING)
+                    .map(InMemoryTransactionManager::copy)
+                    .toList();
+        }
+
+        VideoDownloadTask save(VideoDownloadTask task) {
+            writes().put(task.getId(), copy(task));
+            return task;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, VideoDownloadTask> writes() {
+            Map<String, VideoDownloadTask> writes = (Map<String, VideoDownloadTask>) TransactionSynchronizationManager.getResource(this);
+            return writes != null ? writes : committed;
+        }
+
+        private static VideoDownloadTask copy(VideoDownloadTask task) {
+            VideoDownloadTask copy = new VideoDownloadTask();
+            BeanUtils.copyProperties(task, copy);
+            return copy;
+        }
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Transaction(TransactionSynchronizationManager.getResource(this));
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return ((Transaction) transaction).writes != null;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            Map<String, VideoDownloadTask> writes = new HashMap<>();
+            ((Transaction) transaction).writes = writes;
+            TransactionSynchronizationManager.bindResource(this, writes);
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            ((Transaction) transaction).writes = null;
+            return TransactionSynchronizationManager.unbindResource(this);
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendedResources) {
+            TransactionSynchronizationManager.bindResource(this, suspendedResources);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void doCommit(DefaultTransactionStatus status) {
+            committed.putAll((Map<String, VideoDownloadTask>) ((Transaction) status.getTransaction()).writes);
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            TransactionSynchronizationManager.unbindResource(this);
+        }
+
+        private static class Transaction {
+            private Object writes;
+
+            Transaction(Object writes) {
+                this.writes = writes;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.aiivar.tg.yt.downloader.service.notification;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.FailureReason;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskStatusNotifierTest {
+
+    private static TaskStatusNotifier notifier() {
+        TaskStatusNotifier notifier = new TaskStatusNotifier();
+        notifier.setClusterConfig(new ClusterConfiguration());
+        notifier.setNotificationService(new PostgresNotificationService() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        });
+        notifier.init();
+        return notifier;
+    }
+
+    private static VideoDownloadTask task(TaskStatus status) {
+        VideoDownloadTask task = new VideoDownloadTask();
+        task.setId("t1");
+        task.setStatus(status);
+        return task;
+    }
+
+    @Test
+    void readsTheTaskOnlyAfterStatusChanges() throws Exception {
+        TaskStatusNotifier notifier = notifier();
+        AtomicReference<VideoDownloadTask> stored = new AtomicReference<>(task(TaskStatus.PENDING));
+        AtomicInteger reads = new AtomicInteger();
+
+        CompletableFuture<VideoDownloadTask> wait = notifier.awaitStatus("t1", TaskStatus.COMPLETED, id -> {
+            reads.incrementAndGet();
+            return Optional.of(stored.get());
+        });
+        assertThat(wait).isNotDone();
+        assertThat(notifier.getStatistics().getWaiting()).isEqualTo(1);
+
+        stored.set(task(TaskStatus.PROCESSING));
+        notifier.publish("t1");
+        stored.set(task(TaskStatus.COMPLETED));
+        notifier.publish("t1");
+
+        assertThat(wait.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(TaskStatus.COMPLETED);
+        assertThat(reads.get()).isBetween(2, 3);
+        assertThat(notifier.getStatistics().getWaiting()).isZero();
+    }
+
+    @Test
+    void stopsWaitingForTasksThatWillNotChange() {
+        TaskStatusNotifier notifier = notifier();
+        VideoDownloadTask failed = task(TaskStatus.FAILED);
+        failed.setFailureReason(FailureReason.FILE_TOO_LARGE);
+
+        CompletableFuture<VideoDownloadTask> wait = notifier.awaitStatus("t1", TaskStatus.COMPLETED, id -> Optional.of(failed));
+        assertThat(wait).isCompletedWithValue(failed);
+
+        CompletableFuture<VideoDownloadTask> cancelled = notifier.awaitStatus("t1", TaskStatus.COMPLETED,
+                id -> Optional.of(task(TaskStatus.PROCESSING)));
+        cancelled.cancel(false);
+        assertThat(notifier.getStatistics().getWaiting()).isZero();
+    }
+}
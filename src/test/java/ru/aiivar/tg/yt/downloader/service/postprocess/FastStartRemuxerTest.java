@@ -0,0 +1,79 @@
+package ru.aiivar.tg.yt.downloader.service.postprocess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.PostProcessingConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FastStartRemuxerTest {
+
+    @TempDir
+    Path dir;
+
+    private static byte[] box(String type, int payloadBytes) {
+        return ByteBuffer.allocate(8 + payloadBytes)
+                .putInt(8 + payloadBytes)
+                .put(type.getBytes(StandardCharsets.ISO_8859_1))
+                .array();
+    }
+
+    private static byte[] largeBox(String type, int payloadBytes) {
+        return ByteBuffer.allocate(16 + payloadBytes)
+                .putInt(1)
+                .put(type.getBytes(StandardCharsets.ISO_8859_1))
+                .putLong(16 + payloadBytes)
+                .array();
+    }
+
+    private Path file(String name, byte[]... boxes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] box : boxes) {
+            out.write(box);
+        }
+        return Files.write(dir.resolve(name), out.toByteArray());
+    }
+
+    @Test
+    void detectsWhereTheIndexIs() throws Exception {
+        assertThat(FastStartRemuxer.readLayout(file("fast.mp4", box("ftyp", 16), box("moov", 100), box("mdat", 1000))))
+                .isEqualTo(FastStartRemuxer.Layout.FAST_START);
+        assertThat(FastStartRemuxer.readLayout(file("slow.mp4", box("ftyp", 16), box("free", 8),
+                largeBox("mdat", 1000), box("moov", 100))))
+                .isEqualTo(FastStartRemuxer.Layout.MOOV_AT_END);
+        assertThat(FastStartRemuxer.readLayout(file("video.webm", box("ftyp", 16), box("moov", 100))))
+                .isEqualTo(FastStartRemuxer.Layout.NOT_MP4);
+        assertThat(FastStartRemuxer.readLayout(file("truncated.mp4", box("ftyp", 16), new byte[]{0, 0, 1})))
+                .isEqualTo(FastStartRemuxer.Layout.NOT_MP4);
+    }
+
+    @Test
+    void skipsFastStartFilesAndKeepsFilesWhenRemuxFails() throws Exception {
+        PostProcessingConfiguration config = new PostProcessingConfiguration();
+        config.setFfmpegPath(dir.resolve("missing-ffmpeg").toString());
+        FastStartRemuxer remuxer = new FastStartRemuxer();
+        remuxer.setPostProcessingConfig(config);
+        remuxer.init();
+
+        File fast = file("fast.mp4", box("ftyp", 16), box("moov", 100), box("mdat", 1000)).toFile();
+        File slow = file("slow.mp4", box("ftyp", 16), box("mdat", 1000), box("moov", 100)).toFile();
+        long slowSize = slow.length();
+
+        assertThat(remuxer.ensureFastStart(fast)).isEqualTo(fast);
+        assertThat(remuxer.ensureFastStart(slow)).isEqualTo(slow).hasSize(slowSize);
+
+        FastStartRemuxer.RemuxStatistics statistics = remuxer.getStatistics();
+        assertThat(statistics.getFilesChecked()).isEqualTo(2);
+        assertThat(statistics.getAlreadyFastStart()).isEqualTo(1);
+        assertThat(statistics.getFailed()).isEqualTo(1);
+        assertThat(statistics.getActiveRemuxes()).isZero();
+        assertThat(dir.resolve("slow.mp4.faststart")).doesNotExist();
+    }
+}
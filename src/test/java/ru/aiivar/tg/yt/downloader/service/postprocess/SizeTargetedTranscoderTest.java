@@ -0,0 +1,66 @@
+package ru.aiivar.tg.yt.downloader.service.postprocess;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aiivar.tg.yt.downloader.config.PostProcessingConfiguration;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SizeTargetedTranscoderTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private static SizeTargetedTranscoder transcoder() {
+        PostProcessingConfiguration config = new PostProcessingConfiguration();
+        config.setTranscodeEnabled(true);
+        config.setTranscodeWorkers(1);
+        SizeTargetedTranscoder transcoder = new SizeTargetedTranscoder();
+        transcoder.setPostProcessingConfig(config);
+        transcoder.init();
+        return transcoder;
+    }
+
+    @Test
+    void computesBitrateThatFitsTheLimit() {
+        SizeTargetedTranscoder transcoder = transcoder();
+
+        // 50 MB less 5% over 10 minutes is about 664 kbps, 96 of them for audio
+        long videoKbps = transcoder.videoBitrateKbps(600, 50 * MB);
+        assertThat(videoKbps).isBetween(560L, 580L);
+        assertThat((videoKbps + 96) * 1000 / 8 * 600).isLessThan(50 * MB);
+        assertThat(SizeTargetedTranscoder.maxHeightFor(videoKbps)).isEqualTo(480);
+
+        // Two hours would need less than the minimum bitrate
+        assertThat(transcoder.videoBitrateKbps(7200, 50 * MB)).isEqualTo(-1);
+        assertThat(transcoder.canFit(600L, 50 * MB)).isTrue();
+        assertThat(transcoder.canFit(null, 50 * MB)).isFalse();
+    }
+
+    @Test
+    void shrinksOnlyFilesJustOverTheLimit() {
+        SizeTargetedTranscoder transcoder = transcoder();
+
+        assertThat(transcoder.shouldShrink(55 * MB, 50 * MB)).isTrue();
+        assertThat(transcoder.shouldShrink(45 * MB, 50 * MB)).isFalse();
+        assertThat(transcoder.shouldShrink(80 * MB, 50 * MB)).isFalse();
+        assertThat(transcoder.shouldShrink(55 * MB, 0)).isFalse();
+    }
+
+    @Test
+    void rejectsVideosTooLongToFit() throws Exception {
+        File source = Files.write(dir.resolve("long.webm"), new byte[1024]).toFile();
+
+        assertThatThrownBy(() -> transcoder().transcodeToFit(source, 7200, 50 * MB))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(source).exists();
+    }
+}
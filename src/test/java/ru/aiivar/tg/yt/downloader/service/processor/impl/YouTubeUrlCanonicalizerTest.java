@@ -0,0 +1,56 @@
+package ru.aiivar.tg.yt.downloader.service.processor.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class YouTubeUrlCanonicalizerTest {
+
+    private final YouTubeUrlCanonicalizer canonicalizer = new YouTubeUrlCanonicalizer();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQ",
+            "https://youtube.com/watch?v=dQw4w9WgXcQ&t=30",
+            "http://m.youtube.com/watch?feature=share&v=dQw4w9WgXcQ",
+            "https://music.youtube.com/watch?v=dQw4w9WgXcQ&list=RDdQw4w9WgXcQ",
+            "https://youtu.be/dQw4w9WgXcQ",
+            "https://youtu.be/dQw4w9WgXcQ?si=AbCdEfGh123&t=42",
+            "youtu.be/dQw4w9WgXcQ",
+            "https://www.youtube.com/shorts/dQw4w9WgXcQ",
+            "https://www.youtube.com/embed/dQw4w9WgXcQ?autoplay=1",
+            "https://www.youtube-nocookie.com/embed/dQw4w9WgXcQ",
+            "https://www.youtube.com/live/dQw4w9WgXcQ?feature=shared",
+            "HTTPS://WWW.YOUTUBE.COM/watch?v=dQw4w9WgXcQ#comments",
+            "  https://www.youtube.com:443/watch?v=dQw4w9WgXcQ  ",
+            "https://www.youtube.com/watch/?v=dQw4w9WgXcQ"
+    })
+    void canonicalizesAllVariantsToSameId(String url) {
+        assertThat(canonicalizer.canonicalize(url)).isEqualTo("youtube:dQw4w9WgXcQ");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "https://www.youtube.com/playlist?list=PL590L5WQmH8fJ54F369BLDSqIwcs-TCfs",
+            "https://www.youtube.com/@channel/videos",
+            "https://www.youtube.com/watch?v=short",
+            "https://www.youtube.com/watch?vv=dQw4w9WgXcQ",
+            "https://www.youtube.com/watch?v=dQw4w9WgXcQextra",
+            "https://notyoutube.com/watch?v=dQw4w9WgXcQ",
+            "https://www.youtube.com/watch_videos?v=dQw4w9WgXcQ",
+            "https://www.youtube.com/watchlater?v=dQw4w9WgXcQ",
+            "https://www.youtube.com/watch#?v=dQw4w9WgXcQ",
+            "https://youtu.be/",
+            ""
+    })
+    void rejectsNonVideoUrls(String url) {
+        assertThat(canonicalizer.canonicalize(url)).isNull();
+    }
+
+    @Test
+    void rejectsNull() {
+        assertThat(canonicalizer.canonicalize(null)).isNull();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.aiivar.tg.yt.downloader.service.processor.impl;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoFormat;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class YtDlpMetadataParserTest {
+
+    @Test
+    void parsesDumpJsonOutput() throws IOException {
+        VideoMetadata metadata;
+        try (InputStream json = getClass().getResourceAsStream("/ytdlp/dump-json-sample.json")) {
+            metadata = YtDlpMetadataParser.parse(json);
+        }
+
+        assertThat(metadata.getVideoId()).isEqualTo("dQw4w9WgXcQ");
+        assertThat(metadata.getTitle()).startsWith("Rick Astley - Never Gonna Give You Up");
+        assertThat(metadata.getAuthor()).isEqualTo("Rick Astley");
+        assertThat(metadata.getDurationSeconds()).isEqualTo(213L);
+        assertThat(metadata.getFileSizeBytes()).isEqualTo(84421875L);
+        assertThat(metadata.getResolution()).isEqualTo("1080p");
+        assertThat(metadata.getBitrate()).isEqualTo(3172783L);
+        assertThat(metadata.getThumbnailUrl()).endsWith("maxresdefault.jpg");
+        assertThat(metadata.getThumbnails()).hasSize(2);
+
+        assertThat(metadata.getFormats()).extracting(VideoFormat::getFormatId).containsExactly("sb0", "140", "18", "137");
+        VideoFormat audio = metadata.getFormats().get(1);
+        assertThat(audio.hasAudio()).isTrue();
+        assertThat(audio.hasVideo()).isFalse();
+        assertThat(audio.getHeight()).isNull();
+        VideoFormat muxed = metadata.getFormats().get(2);
+        assertThat(muxed.hasAudio()).isTrue();
+        assertThat(muxed.hasVideo()).isTrue();
+        assertThat(muxed.getEffectiveFileSize()).isEqualTo(12450000L);
+        assertThat(metadata.getFormats().get(3).getEffectiveFileSize()).isEqualTo(80984122L);
+    }
+
+    @Test
+    void fallsBackToChannelAndLastThumbnail() throws IOException {
+        VideoMetadata metadata = YtDlpMetadataParser.parse(
+                "{\"id\":\"abc\",\"channel\":\"Channel\",\"thumbnails\":[{\"url\":\"a\"},{\"url\":\"b\"}],\"filesize\":10}\n{\"id\":\"next\"}");
+
+        assertThat(metadata.getAuthor()).isEqualTo("Channel");
+        assertThat(metadata.getThumbnailUrl()).isEqualTo("b");
+        assertThat(metadata.getFileSizeBytes()).isEqualTo(10L);
+        assertThat(metadata.getFormats()).isEmpty();
+    }
+
+    @Test
+    void rejectsNonObjectOutput() {
+        assertThatThrownBy(() -> YtDlpMetadataParser.parse("ERROR: video unavailable"))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,152 @@
+package ru.aiivar.tg.yt.downloader.service.progress;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.config.ProgressConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.TaskStatus;
+import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskRepository;
+import ru.aiivar.tg.yt.downloader.service.notification.PostgresNotificationService;
+import ru.aiivar.tg.yt.downloader.service.notification.TaskStatusNotifier;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor.UploadProgressCallback;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskProgressRegistryTest {
+
+    private static TaskProgressRegistry registry() {
+        TaskProgressRegistry registry = new TaskProgressRegistry();
+        registry.setProgressConfig(new ProgressConfiguration());
+        return registry;
+    }
+
+    private static VideoDownloadTask task(String id, TaskStatus status) {
+        VideoDownloadTask task = new VideoDownloadTask();
+        task.setId(id);
+        task.setStatus(status);
+        return task;
+    }
+
+    @Test
+    void tracksStagesFromDownloadToCompletion() {
+        TaskProgressRegistry registry = registry();
+
+        registry.onStatusChanged(task("t1", TaskStatus.PROCESSING));
+        registry.onDownloadProgress("t1", 40f, 400, 1000, 12);
+        TaskProgress downloading = registry.getProgress("t1").orElseThrow();
+        assertThat(downloading.getStage()).isEqualTo(TaskProgressRegistry.Stage.DOWNLOADING);
+        assertThat(downloading.getBytesTransferred()).isEqualTo(400);
+        assertThat(downloading.getEtaSeconds()).isEqualTo(12);
+
+        registry.onStage("t1", TaskProgressRegistry.Stage.UPLOADING);
+        TaskProgress uploading = registry.getProgress("t1").orElseThrow();
+        assertThat(uploading.getBytesTransferred()).isEqualTo(-1);
+        assertThat(uploading.getVersion()).isGreaterThan(downloading.getVersion());
+
+        registry.onStatusChanged(task("t1", TaskStatus.COMPLETED));
+        TaskProgress completed = registry.getProgress("t1").orElseThrow();
+        assertThat(completed.getStage()).isEqualTo(TaskProgressRegistry.Stage.COMPLETED);
+        assertThat(completed.getPercent()).isEqualTo(100f);
+    }
+
+    @Test
+    void reportsUploadedBytesAndForwardsToDelegate() throws Exception {
+        TaskProgressRegistry registry = registry();
+        long[] delegated = new long[1];
+        UploadProgressCallback callback = registry.uploadCallback("t2", new UploadProgressCallback() {
+            @Override
+            public void onProgress(long bytesUploaded, long totalBytes, double percentage) {
+                delegated[0] = bytesUploaded;
+            }
+
+            @Override
+            public void onComplete(String destinationId) {
+            }
+
+            @Override
+            public void onError(Exception error) {
+            }
+        });
+
+        byte[] body = new byte[600 * 1024];
+        try (ProgressInputStream in = new ProgressInputStream(new ByteArrayInputStream(body), callback, body.length)) {
+            in.transferTo(OutputStream.nullOutputStream());
+            assertThat(in.getCount()).isEqualTo(body.length);
+        }
+
+        TaskProgress uploading = registry.getProgress("t2").orElseThrow();
+        assertThat(uploading.getStage()).isEqualTo(TaskProgressRegistry.Stage.UPLOADING);
+        assertThat(uploading.getBytesTransferred()).isEqualTo(body.length);
+        assertThat(uploading.getPercent()).isEqualTo(100f);
+        assertThat(delegated[0]).isEqualTo(body.length);
+
+        callback.onComplete("file-id");
+        assertThat(registry.getProgress("t2").orElseThrow().getStage()).isEqualTo(TaskProgressRegistry.Stage.SENDING);
+    }
+
+    @Test
+    void publishesStatusChangesOnlyAfterCommit() {
+        TaskProgressRegistry registry = registry();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registry.onStatusChanged(task("t3", TaskStatus.PROCESSING));
+            assertThat(registry.getProgress("t3")).isEmpty();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(registry.getProgress("t3").orElseThrow().getStatus()).isEqualTo(TaskStatus.PROCESSING);
+    }
+
+    @Test
+    void readsBackStatusChangesMadeOnOtherInstances() throws Exception {
+        AtomicReference<Consumer<String>> channel = new AtomicReference<>();
+        TaskStatusNotifier notifier = new TaskStatusNotifier();
+        ReflectionTestUtils.setField(notifier, "clusterConfig", new ClusterConfiguration());
+        ReflectionTestUtils.setField(notifier, "notificationService", new PostgresNotificationService() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+
+            @Override
+            public void subscribe(String channelName, Consumer<String> listener) {
+                channel.set(listener);
+            }
+        });
+        notifier.init();
+
+        VideoDownloadTask completed = task("t4", TaskStatus.COMPLETED);
+        completed.setStateVersion(2L);
+        VideoDownloadTaskRepository taskRepository = mock(VideoDownloadTaskRepository.class);
+        when(taskRepository.findById("t4")).thenReturn(Optional.of(completed));
+
+        TaskProgressRegistry registry = registry();
+        registry.setTaskStatusNotifier(notifier);
+        registry.setTaskRepository(taskRepository);
+        registry.init();
+
+        VideoDownloadTask processing = task("t4", TaskStatus.PROCESSING);
+        processing.setStateVersion(1L);
+        registry.onStatusChanged(processing);
+
+        channel.get().accept("other-node:t4");
+        for (int i = 0; i < 100 && registry.getProgress("t4").orElseThrow().getStatus() != TaskStatus.COMPLETED; i++) {
+            Thread.sleep(50);
+        }
+        assertThat(registry.getProgress("t4").orElseThrow().getStage()).isEqualTo(TaskProgressRegistry.Stage.COMPLETED);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.aiivar.tg.yt.downloader.service.ratelimit;
+
+import com.jfposton.ytdlp.YtDlpException;
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.config.SourceRateLimitConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.enums.SourceType;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SourceRateLimiterTest {
+
+    private static final YtDlpException TOO_MANY_REQUESTS =
+            new YtDlpException("yt-dlp failed: ERROR: [youtube] abc: HTTP Error 429: Too Many Requests");
+
+    private static SourceRateLimiter limiter(SourceRateLimitConfiguration config) {
+        SourceRateLimiter limiter = new SourceRateLimiter();
+        limiter.setRateLimitConfig(config);
+        return limiter;
+    }
+
+    @Test
+    void detectsThrottlingSignalsInCauses() {
+        assertThat(ThrottleDetector.isThrottled(new RuntimeException("Failed to download", TOO_MANY_REQUESTS))).isTrue();
+        assertThat(ThrottleDetector.isThrottled(new Exception(
+                "ERROR: [youtube] abc: Sign in to confirm you’re not a bot"))).isTrue();
+        assertThat(ThrottleDetector.isThrottled(new Exception("ERROR: [youtube] abc: Video unavailable"))).isFalse();
+    }
+
+    @Test
+    void coolsDownAfterThrottlingAndRequeuesMeanwhile() throws Exception {
+        SourceRateLimitConfiguration config = new SourceRateLimitConfiguration();
+        config.setCooldownSeconds(60);
+        SourceRateLimiter limiter = limiter(config);
+
+        assertThatThrownBy(() -> limiter.call(SourceType.YOUTUBE, () -> { throw TOO_MANY_REQUESTS; }))
+                .isSameAs(TOO_MANY_REQUESTS);
+
+        assertThat(limiter.isAvailable(SourceType.YOUTUBE)).isFalse();
+        assertThatThrownBy(() -> limiter.acquire(SourceType.YOUTUBE)).isInstanceOf(SourceThrottledException.class);
+        SourceRateLimiter.SourceStatistics statistics = limiter.getStatistics().get(SourceType.YOUTUBE);
+        assertThat(statistics.getRequestsPerMinute()).isEqualTo(30.0);
+        assertThat(statistics.getThrottleEvents()).isEqualTo(1);
+        assertThat(statistics.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void probesOneRequestAtATimeBeforeRecovering() throws Exception {
+        SourceRateLimitConfiguration config = new SourceRateLimitConfiguration();
+        config.setCooldownSeconds(0);
+        config.setMaxRequestsPerMinute(6000);
+        SourceRateLimiter limiter = limiter(config);
+        assertThatThrownBy(() -> limiter.call(SourceType.YOUTUBE, () -> { throw TOO_MANY_REQUESTS; }));
+
+        SourceRateLimiter.Permit probe = limiter.acquire(SourceType.YOUTUBE);
+        CompletableFuture<SourceRateLimiter.Permit> other = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.acquire(SourceType.YOUTUBE);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        });
+        assertThatThrownBy(other::join).hasCauseInstanceOf(SourceThrottledException.class);
+        probe.succeeded();
+        probe.close();
+
+        assertThat(limiter.getStatistics().get(SourceType.YOUTUBE).isRecovering()).isFalse();
+        assertThat(limiter.call(SourceType.YOUTUBE, () -> "ok")).isEqualTo("ok");
+        assertThat(limiter.getStatistics().get(SourceType.YOUTUBE).getRequestsPerMinute()).isEqualTo(3002.0);
+    }
+
+    @Test
+    void nestedRequestsShareTheOuterPermit() throws Exception {
+        SourceRateLimiter limiter = limiter(new SourceRateLimitConfiguration());
+
+        String result = limiter.call(SourceType.YOUTUBE, () -> limiter.call(SourceType.YOUTUBE, () -> "metadata"));
+
+        assertThat(result).isEqualTo("metadata");
+        assertThat(limiter.getStatistics().get(SourceType.YOUTUBE).getPermits()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RenditionMatcherTest {
+
+    private final RenditionMatcher matcher = new RenditionMatcher(true, 0.66);
+
+    @Test
+    void prefersExactMatch() {
+        VideoDownloadTaskResult p720 = result("mp4/720p");
+        VideoDownloadTaskResult p1080 = result("mp4/1080p");
+
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "1080p"), List.of(p720, p1080))).contains(p1080);
+    }
+
+    @Test
+    void neverServesHigherResolutionThanRequested() {
+        VideoDownloadTaskResult p1080 = result("mp4/1080p");
+
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "360p"), List.of(p1080))).isEmpty();
+    }
+
+    @Test
+    void fallsBackToClosestLowerRenditionWithinRatio() {
+        VideoDownloadTaskResult p360 = result("mp4/360p");
+        VideoDownloadTaskResult p720 = result("mp4/720p");
+
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "1080p"), List.of(p360, p720))).contains(p720);
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "1080p"), List.of(p360))).isEmpty();
+    }
+
+    @Test
+    void requiresSameFormat() {
+        VideoDownloadTaskResult webm = result("webm/720p");
+
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "720p"), List.of(webm))).isEmpty();
+    }
+
+    @Test
+    void fallbackCanBeDisabled() {
+        RenditionMatcher strict = new RenditionMatcher(false, 0.66);
+
+        assertThat(strict.selectBest(RenditionKey.of("mp4", "1080p"), List.of(result("mp4/720p")))).isEmpty();
+    }
+
+    @Test
+    void keepsAudioAndVideoRenditionsApart() {
+        VideoDownloadTaskResult audio = result(RenditionKey.audio().toString());
+        VideoDownloadTaskResult video = result("mp4/720p");
+
+        assertThat(matcher.selectBest(RenditionKey.audio(), List.of(video, audio))).contains(audio);
+        assertThat(matcher.selectBest(RenditionKey.of("mp4", "720p"), List.of(audio))).isEmpty();
+        assertThat(RenditionKey.parse("audio/any").isAudio()).isTrue();
+    }
+
+    @Test
+    void neverServesAudioForVideoRequestsWithoutFormatOrHeight() {
+        VideoDownloadTaskResult audio = result(RenditionKey.audio().toString());
+
+        assertThat(matcher.selectBest(RenditionKey.of(null, "best"), List.of(audio))).isEmpty();
+        assertThat(matcher.selectBest(RenditionKey.of(null, null), List.of(audio))).isEmpty();
+        assertThat(matcher.isCompatible(RenditionKey.audio(), RenditionKey.of(null, null))).isFalse();
+    }
+
+    @Test
+    void keepsRequestedQualityInTheKey() {
+        VideoDownloadTask worstTask = new VideoDownloadTask();
+        worstTask.setRequestedFormat("mp4");
+        worstTask.setRequestedResolution("720p");
+        worstTask.setRequestedQuality("worst");
+        VideoDownloadTask bestTask = new VideoDownloadTask();
+        bestTask.setRequestedFormat("mp4");
+        bestTask.setRequestedResolution("720p");
+        bestTask.setRequestedQuality("best");
+
+        RenditionKey worst = RenditionKey.fromTask(worstTask);
+        RenditionKey best = RenditionKey.fromTask(bestTask);
+        assertThat(worst).isNotEqualTo(best);
+        assertThat(worst.toString()).isEqualTo("mp4/720p/worst");
+        assertThat(RenditionKey.parse(worst.toString())).isEqualTo(worst);
+        // Keys stored before the quality was recorded stand for the default quality
+        assertThat(best).isEqualTo(RenditionKey.parse("mp4/720p"));
+
+        assertThat(matcher.selectBest(best, List.of(result("mp4/720p/worst")))).isEmpty();
+        assertThat(matcher.selectBest(worst, List.of(result("mp4/720p")))).isEmpty();
+        assertThat(matcher.selectBest(worst, List.of(result("mp4/720p/worst")))).isPresent();
+    }
+
+    @Test
+    void parsesResolutionVariants() {
+        assertThat(RenditionKey.parseHeight("720p")).isEqualTo(720);
+        assertThat(RenditionKey.parseHeight("1280x720")).isEqualTo(720);
+        assertThat(RenditionKey.parseHeight("best")).isNull();
+        assertThat(RenditionKey.parse("mp4/720p")).isEqualTo(RenditionKey.of("MP4", "720"));
+    }
+
+    private VideoDownloadTaskResult result(String renditionKey) {
+        VideoDownloadTaskResult result = new VideoDownloadTaskResult();
+        result.setRenditionKey(renditionKey);
+        return result;
+    }
+}
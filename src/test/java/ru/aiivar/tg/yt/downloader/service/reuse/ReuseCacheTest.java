@@ -0,0 +1,97 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.config.ReuseConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.service.notification.PostgresNotificationService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReuseCacheTest {
+
+    private static final String VIDEO = "youtube_abc";
+
+    private ReuseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReuseCache();
+        cache.setReuseConfig(new ReuseConfiguration());
+        cache.setClusterConfig(new ClusterConfiguration());
+        cache.setNotificationService(new PostgresNotificationService() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        });
+        cache.setObjectMapper(new ObjectMapper().findAndRegisterModules());
+        cache.init();
+    }
+
+    @Test
+    void keepsOneResultPerRenditionSoReuseCopiesDoNotCrowdOutOthers() {
+        List<VideoDownloadTaskResult> results = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            results.add(result("copy-" + i, "mp4/720p"));
+        }
+        results.add(result("full-hd", "mp4/1080p"));
+        results.add(result("audio", RenditionKey.audio().toString()));
+
+        cache.putLoaded(VIDEO, DestinationType.TELEGRAM, results);
+
+        ReuseCache.CachedResults cached = cache.get(VIDEO, DestinationType.TELEGRAM).orElseThrow();
+        assertThat(cached.isComplete()).isTrue();
+        assertThat(cached.getResults()).extracting(VideoDownloadTaskResult::getId)
+                .containsExactly("copy-0", "full-hd", "audio");
+    }
+
+    @Test
+    void storesResultsCutToTheLimitAsIncomplete() {
+        List<VideoDownloadTaskResult> results = new ArrayList<>();
+        for (int height = 100; height <= 1000; height += 100) {
+            results.add(result("r" + height, "mp4/" + height + "p"));
+        }
+
+        cache.putLoaded(VIDEO, DestinationType.TELEGRAM, results);
+
+        ReuseCache.CachedResults cached = cache.get(VIDEO, DestinationType.TELEGRAM).orElseThrow();
+        assertThat(cached.getResults()).hasSize(8);
+        assertThat(cached.isComplete()).isFalse();
+    }
+
+    @Test
+    void completedResultsReplaceTheirRenditionAndMarkOverflowIncomplete() {
+        List<VideoDownloadTaskResult> results = new ArrayList<>();
+        for (int height = 100; height <= 800; height += 100) {
+            results.add(result("r" + height, "mp4/" + height + "p"));
+        }
+        cache.putLoaded(VIDEO, DestinationType.TELEGRAM, results);
+
+        cache.publishCompleted(VIDEO, result("copy", "mp4/800p"));
+        ReuseCache.CachedResults cached = cache.get(VIDEO, DestinationType.TELEGRAM).orElseThrow();
+        assertThat(cached.getResults()).hasSize(8).extracting(VideoDownloadTaskResult::getId)
+                .startsWith("copy").doesNotContain("r800");
+        assertThat(cached.isComplete()).isTrue();
+
+        cache.publishCompleted(VIDEO, result("r900", "mp4/900p"));
+        cached = cache.get(VIDEO, DestinationType.TELEGRAM).orElseThrow();
+        assertThat(cached.getResults()).hasSize(8);
+        assertThat(cached.isComplete()).isFalse();
+    }
+
+    private static VideoDownloadTaskResult result(String id, String renditionKey) {
+        VideoDownloadTaskResult result = new VideoDownloadTaskResult();
+        result.setId(id);
+        result.setDestinationType(DestinationType.TELEGRAM);
+        result.setDestinationId("file-" + id);
+        result.setRenditionKey(renditionKey);
+        return result;
+    }
+}
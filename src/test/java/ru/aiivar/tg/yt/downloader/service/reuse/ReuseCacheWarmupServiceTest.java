@@ -0,0 +1,136 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.aiivar.tg.yt.downloader.config.ClusterConfiguration;
+import ru.aiivar.tg.yt.downloader.config.ReuseConfiguration;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTaskResult;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.repository.VideoDownloadTaskResultRepository;
+import ru.aiivar.tg.yt.downloader.service.notification.PostgresNotificationService;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReuseCacheWarmupServiceTest {
+
+    private final VideoDownloadTaskResultRepository resultRepository = mock(VideoDownloadTaskResultRepository.class);
+    private final Executor executor = mock(Executor.class);
+    private ReuseConfiguration reuseConfig;
+    private ReuseCache cache;
+    private ReuseCacheWarmupService warmup;
+
+    @BeforeEach
+    void setUp() {
+        reuseConfig = new ReuseConfiguration();
+        reuseConfig.setWarmupBatchSize(2);
+        reuseConfig.setWarmupMaxVideos(3);
+        reuseConfig.setWarmupBatchDelayMs(0);
+
+        cache = new ReuseCache();
+        cache.setReuseConfig(reuseConfig);
+        cache.setClusterConfig(new ClusterConfiguration());
+        cache.setNotificationService(new PostgresNotificationService() {
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        });
+        cache.setObjectMapper(new ObjectMapper().findAndRegisterModules());
+        cache.init();
+
+        // Each video has a 720p and a 360p result
+        when(resultRepository.findExistingResultsByCanonicalVideoIds(anyList(), eq(DestinationType.TELEGRAM)))
+                .thenAnswer(call -> call.<List<String>>getArgument(0).stream()
+                        .flatMap(video -> List.of(result(video, "mp4/720p"), result(video, "mp4/360p")).stream())
+                        .toList());
+
+        warmup = new ReuseCacheWarmupService();
+        ReflectionTestUtils.setField(warmup, "reuseConfig", reuseConfig);
+        ReflectionTestUtils.setField(warmup, "reuseCache", cache);
+        ReflectionTestUtils.setField(warmup, "resultRepository", resultRepository);
+        ReflectionTestUtils.setField(warmup, "scheduledTaskExecutor", executor);
+    }
+
+    @Test
+    void loadsCompleteEntriesUpToTheVideoLimit() {
+        when(resultRepository.findRecentlyCompletedCanonicalVideoIds(DestinationType.TELEGRAM, PageRequest.of(0, 2)))
+                .thenReturn(List.of("v1", "v2"));
+        when(resultRepository.findRecentlyCompletedCanonicalVideoIds(DestinationType.TELEGRAM, PageRequest.of(1, 2)))
+                .thenReturn(List.of("v3", "v4"));
+        // Cached by live traffic before the warm-up reached it
+        cache.putLoaded("v2", DestinationType.TELEGRAM, List.of(result("v2", "mp4/1080p")));
+
+        warmup.warmUp();
+
+        ReuseCacheWarmupService.WarmupStatus status = warmup.getStatus();
+        assertThat(status.getState()).isEqualTo(ReuseCacheWarmupService.State.COMPLETED);
+        assertThat(status.getMode()).isEqualTo(ReuseCacheWarmupService.Mode.RECENT);
+        assertThat(status.getBatchesLoaded()).isEqualTo(2);
+        assertThat(status.getVideosLoaded()).isEqualTo(2);
+        assertThat(status.getVideosSkipped()).isEqualTo(1);
+        assertThat(status.getResultsLoaded()).isEqualTo(4);
+
+        ReuseCache.CachedResults v1 = cache.get("v1", DestinationType.TELEGRAM).orElseThrow();
+        assertThat(v1.isComplete()).isTrue();
+        assertThat(v1.getResults()).extracting(VideoDownloadTaskResult::getRenditionKey)
+                .containsExactly("mp4/720p", "mp4/360p");
+        assertThat(cache.get("v2", DestinationType.TELEGRAM).orElseThrow().getResults())
+                .extracting(VideoDownloadTaskResult::getRenditionKey).containsExactly("mp4/1080p");
+        // The second page is cut to the remaining video and no further page is read
+        assertThat(cache.get("v4", DestinationType.TELEGRAM)).isEmpty();
+        verify(resultRepository).findExistingResultsByCanonicalVideoIds(List.of("v3"), DestinationType.TELEGRAM);
+        verify(resultRepository, times(2)).findRecentlyCompletedCanonicalVideoIds(eq(DestinationType.TELEGRAM), any());
+    }
+
+    @Test
+    void stopsAtTheFirstShortPageOfMostRequestedVideos() {
+        reuseConfig.setWarmupMode("most_requested");
+        when(resultRepository.findMostRequestedCanonicalVideoIds(DestinationType.TELEGRAM, PageRequest.of(0, 2)))
+                .thenReturn(List.of("v1"));
+
+        warmup.warmUp();
+
+        assertThat(warmup.getStatus().getMode()).isEqualTo(ReuseCacheWarmupService.Mode.MOST_REQUESTED);
+        assertThat(warmup.getStatus().getVideosLoaded()).isEqualTo(1);
+        verify(resultRepository, times(1)).findMostRequestedCanonicalVideoIds(eq(DestinationType.TELEGRAM), any());
+        verify(resultRepository, never()).findRecentlyCompletedCanonicalVideoIds(any(), any());
+    }
+
+    @Test
+    void doesNotStartWhenDisabled() {
+        reuseConfig.setWarmupEnabled(false);
+
+        warmup.onApplicationReady();
+
+        assertThat(warmup.getStatus().getState()).isEqualTo(ReuseCacheWarmupService.State.DISABLED);
+        verifyNoInteractions(executor, resultRepository);
+    }
+
+    private static VideoDownloadTaskResult result(String video, String renditionKey) {
+        VideoDownloadTask task = new VideoDownloadTask();
+        task.setCanonicalVideoId(video);
+        VideoDownloadTaskResult result = new VideoDownloadTaskResult();
+        result.setId(video + "-" + renditionKey);
+        result.setTask(task);
+        result.setDestinationType(DestinationType.TELEGRAM);
+        result.setDestinationId("file-" + video);
+        result.setRenditionKey(renditionKey);
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.aiivar.tg.yt.downloader.service.reuse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.aiivar.tg.yt.downloader.entity.VideoDownloadTask;
+import ru.aiivar.tg.yt.downloader.entity.enums.DestinationType;
+import ru.aiivar.tg.yt.downloader.service.VideoDownloadTaskService;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoDestinationProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ReuseDeliveryServiceTest {
+
+    private final VideoDownloadTaskService taskService = mock(VideoDownloadTaskService.class);
+    private final VideoDestinationProcessor telegram = mock(VideoDestinationProcessor.class);
+    private final List<Runnable> queued = new ArrayList<>();
+    private ReuseDeliveryService deliveryService;
+    private VideoDownloadTask task;
+
+    @BeforeEach
+    void setUp() {
+        when(telegram.getSupportedDestinationType()).thenReturn(DestinationType.TELEGRAM);
+        deliveryService = new ReuseDeliveryService();
+        deliveryService.setTaskService(taskService);
+        deliveryService.setDestinationProcessorList(List.of(telegram));
+        deliveryService.setReuseDeliveryExecutor(queued::add);
+        deliveryService.init();
+
+        task = new VideoDownloadTask();
+        task.setId("t1");
+        when(taskService.getTaskById("t1")).thenReturn(Optional.of(task));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void claimsTheTaskBeforeSendingItAfterCommit() throws Exception {
+        when(taskService.claimPendingTask("t1")).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        deliveryService.scheduleDelivery("t1", "file-1", DestinationType.TELEGRAM);
+        assertThat(queued).isEmpty();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        queued.forEach(Runnable::run);
+
+        verify(taskService).claimPendingTask("t1");
+        verify(telegram).sendVideoById("file-1", task);
+        verify(taskService).markTaskAsCompleted("t1");
+        assertThat(deliveryService.getStatistics().getCompletedDeliveries()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesTasksClaimedByTheProcessingPipelineAlone() throws Exception {
+        when(taskService.claimPendingTask("t1")).thenReturn(false);
+
+        deliveryService.scheduleDelivery("t1", "file-1", DestinationType.TELEGRAM);
+        queued.forEach(Runnable::run);
+
+        verify(telegram, never()).sendVideoById(anyString(), any());
+        verify(taskService, never()).markTaskAsCompleted(anyString());
+        verify(taskService, never()).markTaskAsFailed(anyString(), anyString());
+    }
+
+    @Test
+    void failsTheTaskWhenSendingFails() throws Exception {
+        when(taskService.claimPendingTask("t1")).thenReturn(true);
+        doThrow(new IllegalStateException("Bad Request: wrong file identifier")).when(telegram).sendVideoById("file-1", task);
+
+        deliveryService.scheduleDelivery("t1", "file-1", DestinationType.TELEGRAM);
+        queued.forEach(Runnable::run);
+
+        verify(taskService).markTaskAsFailed("t1", "Failed to deliver reused result: Bad Request: wrong file identifier");
+        assertThat(deliveryService.getStatistics().getFailedDeliveries()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesTheTaskPendingForNormalProcessingWhenTheQueueIsFull() {
+        deliveryService.setReuseDeliveryExecutor(command -> {
+            throw new RejectedExecutionException("Queue full");
+        });
+
+        deliveryService.scheduleDelivery("t1", "file-1", DestinationType.TELEGRAM);
+
+        verifyNoInteractions(taskService);
+        assertThat(deliveryService.getStatistics().getRejectedDeliveries()).isEqualTo(1);
+        assertThat(deliveryService.getStatistics().getSubmittedDeliveries()).isZero();
+    }
+}
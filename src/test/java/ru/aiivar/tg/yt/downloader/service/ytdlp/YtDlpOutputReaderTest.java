@@ -0,0 +1,82 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class YtDlpOutputReaderTest {
+
+    @Test
+    void parsesProgressLinesAndKeepsOtherOutput() throws Exception {
+        String output = "[youtube] abc: Downloading webpage\n"
+                + "tgyt-progress 1024 4096 NA 3\n"
+                + "tgyt-progress 2048 NA 8192.5 NA\r"
+                + "/tmp/abc.mp4\n";
+        DownloadProgress progress = new DownloadProgress();
+        YtDlpOutputReader reader = new YtDlpOutputReader(progress, 1024);
+
+        reader.read(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(reader.getProgressLines()).isEqualTo(2);
+        assertThat(progress.getDownloadedBytes()).isEqualTo(2048);
+        assertThat(progress.getTotalBytes()).isEqualTo(8192);
+        assertThat(progress.getPercent()).isEqualTo(25f);
+        assertThat(progress.getEtaSeconds()).isEqualTo(-1);
+        assertThat(reader.getOutputTail().toString()).isEqualTo("[youtube] abc: Downloading webpage\n/tmp/abc.mp4");
+        assertThat(YtDlpExecutor.lastPrintedPath(reader.getOutputTail().toString())).isEqualTo("/tmp/abc.mp4");
+    }
+
+    @Test
+    void keepsOnlyWholeLinesOfTheTail() {
+        OutputTail tail = new OutputTail(16);
+        for (int i = 0; i < 10; i++) {
+            byte[] line = ("line " + i).getBytes(StandardCharsets.UTF_8);
+            tail.appendLine(line, 0, line.length);
+        }
+
+        assertThat(tail.toString()).isEqualTo("line 8\nline 9");
+        assertThat(tail.getTotalBytes()).isEqualTo(70);
+    }
+
+    @Test
+    void runnerReportsProgressAndStopsWhenListenerFails() throws Exception {
+        assumeTrue(pythonAvailable(), "python3 is required to run the fake yt-dlp");
+        String script = "import sys, time\n"
+                + "for i in range(1, 6):\n"
+                + "    sys.stderr.write('tgyt-progress %d 5000 NA %d\\n' % (i * 1000, 5 - i)); sys.stderr.flush()\n"
+                + "    time.sleep(0.05)\n"
+                + "print('/tmp/done.mp4')\n";
+        List<Long> downloaded = new ArrayList<>();
+
+        YtDlpProcessRunner.Result result = YtDlpProcessRunner.run(List.of("python3", "-c", script),
+                (percent, bytes, total, eta) -> downloaded.add(bytes), 10000);
+
+        assertThat(result.getExitCode()).isZero();
+        assertThat(result.getOutputTail()).isEqualTo("/tmp/done.mp4");
+        assertThat(result.getErrorTail()).isEmpty();
+        assertThat(downloaded).containsExactly(1000L, 2000L, 3000L, 4000L, 5000L);
+
+        assertThatThrownBy(() -> YtDlpProcessRunner.run(List.of("python3", "-c", script), (percent, bytes, total, eta) -> {
+            if (bytes > 2000) {
+                throw new IllegalStateException("cap reached");
+            }
+        }, 10000)).hasMessage("cap reached");
+    }
+
+    private static boolean pythonAvailable() {
+        try {
+            Process process = new ProcessBuilder("python3", "--version").start();
+            return process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.aiivar.tg.yt.downloader.service.ytdlp;
+
+import com.jfposton.ytdlp.YtDlpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.aiivar.tg.yt.downloader.config.BandwidthConfiguration;
+import ru.aiivar.tg.yt.downloader.config.YtDlpConfiguration;
+import ru.aiivar.tg.yt.downloader.service.download.BandwidthGovernor;
+import ru.aiivar.tg.yt.downloader.service.processor.FileTooLargeException;
+import ru.aiivar.tg.yt.downloader.service.processor.VideoSourceProcessor.VideoMetadata;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class YtDlpWorkerPoolTest {
+
+    private YtDlpConfiguration config;
+    private YtDlpWorkerPool pool;
+    private YtDlpExecutor executor;
+
+    @BeforeAll
+    static void requirePython() {
+        boolean available;
+        try {
+            Process process = new ProcessBuilder("python3", "--version").start();
+            available = process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0;
+        } catch (Exception e) {
+            available = false;
+        }
+        assumeTrue(available, "python3 is required to run the stub worker");
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        config = new YtDlpConfiguration();
+        config.setWorkerPoolSize(1);
+        config.setWorkerScript(Path.of(getClass().getResource("/ytdlp/stub_ytdlp_worker.py").toURI()).toString());
+        config.setWorkerStartupTimeoutSeconds(10);
+        config.setProbeTimeoutSeconds(10);
+        pool = new YtDlpWorkerPool();
+        pool.setYtDlpConfig(config);
+        pool.setScheduledTaskExecutor(Runnable::run);
+        executor = new YtDlpExecutor();
+        executor.setYtDlpConfig(config);
+        executor.setWorkerPool(pool);
+        executor.setBandwidthGovernor(bandwidthGovernor());
+    }
+
+    private static BandwidthGovernor bandwidthGovernor() {
+        BandwidthGovernor governor = new BandwidthGovernor();
+        ReflectionTestUtils.setField(governor, "bandwidthConfig", new BandwidthConfiguration());
+        governor.init();
+        return governor;
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void reusesWorkerAcrossProbes() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            VideoMetadata metadata = executor.probe("https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+            assertThat(metadata.getVideoId()).isEqualTo("dQw4w9WgXcQ");
+            assertThat(metadata.getFormats()).hasSize(1);
+        }
+
+        assertThat(pool.getStatistics().getWorkersStarted()).isEqualTo(1);
+        assertThat(executor.getStatistics().getPooledJobs()).isEqualTo(3);
+    }
+
+    @Test
+    void recyclesWorkerAfterMaxJobs() throws Exception {
+        config.setMaxJobsPerWorker(2);
+
+        for (int i = 0; i < 5; i++) {
+            executor.probe("https://youtu.be/dQw4w9WgXcQ");
+        }
+
+        assertThat(pool.getStatistics().getWorkersRecycled()).isEqualTo(2);
+        assertThat(pool.getStatistics().getWorkersStarted()).isEqualTo(3);
+    }
+
+    @Test
+    void keepsWorkerAfterJobError() throws Exception {
+        assertThatThrownBy(() -> executor.probe("https://youtu.be/fail"))
+                .isInstanceOf(YtDlpException.class)
+                .hasMessageContaining("stub failure");
+
+        executor.probe("https://youtu.be/dQw4w9WgXcQ");
+        assertThat(pool.getStatistics().getWorkersStarted()).isEqualTo(1);
+    }
+
+    @Test
+    void replacesCrashedWorker() throws Exception {
+        YtDlpWorker worker = pool.borrow();
+        assertThatThrownBy(() -> worker.probe("https://youtu.be/crash", List.of(), 5000))
+                .isInstanceOf(YtDlpWorkerException.class);
+        assertThat(worker.isHealthy()).isFalse();
+        pool.release(worker);
+
+        assertThat(pool.getStatistics().getWorkersDiscarded()).isEqualTo(1);
+        assertThat(executor.probe("https://youtu.be/dQw4w9WgXcQ").getVideoId()).isEqualTo("dQw4w9WgXcQ");
+        assertThat(pool.getStatistics().getWorkersStarted()).isEqualTo(2);
+    }
+
+    @Test
+    void downloadsWithProgress(@TempDir Path outputDir) throws Exception {
+        config.getWorkerEnvironment().put("STUB_FILE_BYTES", "200000");
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("output", outputDir.resolve("%(id)s.%(ext)s").toString());
+        options.put("merge-output-format", "mp4");
+        options.put("no-playlist", null);
+        AtomicLong lastDownloaded = new AtomicLong();
+
+        File file = executor.download("https://youtu.be/dQw4w9WgXcQ", options, outputDir,
+                (percent, downloadedBytes, totalBytes, eta) -> lastDownloaded.set(downloadedBytes), 0);
+
+        assertThat(file).hasName("dQw4w9WgXcQ.mp4");
+        assertThat(file.length()).isEqualTo(200000);
+        assertThat(lastDownloaded.get()).isEqualTo(200000);
+    }
+
+    @Test
+    void rejectsDownloadAboveMaxFileSize(@TempDir Path outputDir) {
+        config.getWorkerEnvironment().put("STUB_FILE_BYTES", "200000");
+
+        assertThatThrownBy(() -> executor.download("https://youtu.be/dQw4w9WgXcQ", outputOptions(outputDir),
+                outputDir, null, 100000))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(pool.getStatistics().getWorkersDiscarded()).isZero();
+    }
+
+    @Test
+    void stopsDownloadAtByteCapWhenSizeIsUnknown(@TempDir Path outputDir) {
+        config.getWorkerEnvironment().put("STUB_FILE_BYTES", "1000000");
+        config.getWorkerEnvironment().put("STUB_UNKNOWN_SIZE", "1");
+
+        assertThatThrownBy(() -> executor.download("https://youtu.be/dQw4w9WgXcQ", outputOptions(outputDir),
+                outputDir, null, 100000))
+                .isInstanceOf(FileTooLargeException.class);
+        assertThat(outputDir.toFile().listFiles()).isEmpty();
+        assertThat(pool.getStatistics().getWorkersDiscarded()).isEqualTo(1);
+    }
+
+    private Map<String, String> outputOptions(Path outputDir) {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("output", outputDir.resolve("%(id)s.%(ext)s").toString());
+        return options;
+    }
+}
@@ -0,0 +1,98 @@
+#!/usr/bin/env python3
+"""Stub implementing the yt-dlp worker protocol without yt-dlp or network access.
+
+Used by tests and benchmarks. Behaviour is tuned with environment variables:
+  STUB_STARTUP_MS  simulated interpreter/extractor start-up cost before "ready" (default 0)
+  STUB_JOB_MS      simulated duration of every probe or download (default 0)
+  STUB_FILE_BYTES  size of the file written by downloads (default 1024)
+  STUB_UNKNOWN_SIZE  when set, downloads report no total size and ignore --max-filesize
+URLs containing "fail" produce a download error; "crash" terminates the worker.
+"""
+import json
+import os
+import sys
+import time
+
+STARTUP_MS = int(os.environ.get("STUB_STARTUP_MS", "0"))
+JOB_MS = int(os.environ.get("STUB_JOB_MS", "0"))
+FILE_BYTES = int(os.environ.get("STUB_FILE_BYTES", "1024"))
+
+
+def emit(message):
+    sys.stdout.write(json.dumps(message, separators=(",", ":")) + "\n")
+    sys.stdout.flush()
+
+
+def option(args, *names):
+    for i, arg in enumerate(args):
+        if arg in names and i + 1 < len(args):
+            return args[i + 1]
+    return None
+
+
+def video_id(url):
+    return url.rstrip("/").split("/")[-1].split("=")[-1][:11] or "stub"
+
+
+def probe(request):
+    vid = video_id(request["url"])
+    emit({"id": request["id"], "event": "result", "info": {
+        "id": vid, "title": "Stub video " + vid, "uploader": "Stub", "duration": 60, "ext": "mp4",
+        "height": 720, "filesize_approx": FILE_BYTES,
+        "thumbnails": [{"url": "https://example.invalid/%s.jpg" % vid}],
+        "formats": [{"format_id": "18", "ext": "mp4", "height": 360, "vcodec": "avc1.42001E",
+                     "acodec": "mp4a.40.2", "filesize": FILE_BYTES}]}})
+
+
+def download(request):
+    vid = video_id(request["url"])
+    max_filesize = option(request.get("args", []), "--max-filesize")
+    if max_filesize and int(max_filesize) < FILE_BYTES and not os.environ.get("STUB_UNKNOWN_SIZE"):
+        emit({"id": request["id"], "event": "error", "kind": "max_filesize",
+              "message": "File is larger than max-filesize"})
+        return
+    template = option(request.get("args", []), "-o", "--output") or "%(id)s.%(ext)s"
+    ext = option(request.get("args", []), "--merge-output-format") or "mp4"
+    path = template.replace("%(id)s", vid).replace("%(title)s", "Stub video " + vid).replace("%(ext)s", ext)
+    os.makedirs(os.path.dirname(os.path.abspath(path)), exist_ok=True)
+    chunk = b"\0" * min(FILE_BYTES, 65536) if FILE_BYTES else b""
+    written = 0
+    with open(path, "wb") as out:
+        while written < FILE_BYTES:
+            size = min(len(chunk), FILE_BYTES - written)
+            out.write(chunk[:size])
+            written += size
+            emit({"id": request["id"], "event": "progress", "downloaded_bytes": written,
+                  "total_bytes": None if os.environ.get("STUB_UNKNOWN_SIZE") else FILE_BYTES,
+                  "eta": 0, "speed": None})
+    emit({"id": request["id"], "event": "result", "filepath": path})
+
+
+def main():
+    time.sleep(STARTUP_MS / 1000.0)
+    emit({"event": "ready", "version": "stub", "pid": os.getpid()})
+    jobs = 0
+    for line in sys.stdin:
+        if not line.strip():
+            continue
+        request = json.loads(line)
+        if request.get("type") == "rate_limit":
+            continue
+        if request.get("type") == "ping":
+            emit({"id": request.get("id"), "event": "pong", "jobs": jobs})
+            continue
+        jobs += 1
+        url = request.get("url", "")
+        if "crash" in url:
+            sys.exit(3)
+        time.sleep(JOB_MS / 1000.0)
+        if "fail" in url:
+            emit({"id": request["id"], "event": "error", "kind": "download", "message": "ERROR: stub failure"})
+        elif request.get("type") == "probe":
+            probe(request)
+        else:
+            download(request)
+
+
+if __name__ == "__main__":
+    main()